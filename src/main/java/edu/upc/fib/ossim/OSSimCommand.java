@@ -0,0 +1,167 @@
+package edu.upc.fib.ossim;
+
+import edu.upc.fib.ossim.disk.DiskBatch;
+import edu.upc.fib.ossim.filesystem.FileSystemBatch;
+import edu.upc.fib.ossim.memory.MemoryBatch;
+import edu.upc.fib.ossim.process.ProcessBatch;
+import edu.upc.fib.ossim.template.BatchTemplate;
+import edu.upc.fib.ossim.utils.Functions;
+import edu.upc.fib.ossim.utils.SoSimException;
+import edu.upc.fib.ossim.utils.XMLParserJDOM;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.net.MalformedURLException;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * Command line application, runs a simulation file without any window (headless) and prints its statistics
+ * as CSV or JSON. Simulation runs until it ends, at most <code>MAX_TICKS</code> time units (a warning is printed
+ * if it is still running then), or a time budget is spent. Settings overrides are simulation file parameters,
+ * the ones simulation's settings dialog exposes, an unknown one is a usage error
+ *
+ * @author Alex Macia
+ * @see BatchTemplate
+ */
+public class OSSimCommand {
+    public static final int MAX_TICKS = 100000;    // Time units run until simulation end, at most
+    private static final String USAGE = "Usage: java -jar ossim.jar <simulation.xml> [--ticks <n> | --until-end]"
+            + " [--set <setting>=<value>]... [--format csv|json]";
+
+    /**
+     * Command line application input, exits with 0 on success, 1 on simulation errors and 2 on usage errors
+     *
+     * @param args simulation file and options
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs a simulation file and prints its statistics
+     *
+     * @param args simulation file and options
+     * @param out  statistics output
+     * @param err  errors output
+     * @return exit status: 0 on success, 1 on simulation errors and 2 on usage errors
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        String file = null;
+        int budget = MAX_TICKS;
+        boolean untilEnd = true;
+        boolean json = false;
+        Hashtable<String, String> overrides = new Hashtable<String, String>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("--help".equals(args[i]) || "-h".equals(args[i])) {
+                    out.println(USAGE);
+                    return 0;
+                } else if ("--until-end".equals(args[i])) {
+                    budget = MAX_TICKS;
+                    untilEnd = true;
+                } else if ("--ticks".equals(args[i]) && i + 1 < args.length) {
+                    budget = Integer.parseInt(args[++i]);
+                    untilEnd = false;
+                    if (budget < 0) throw new IllegalArgumentException(args[i]);
+                } else if ("--set".equals(args[i]) && i + 1 < args.length) {
+                    String override = args[++i];
+                    int equals = override.indexOf('=');
+                    if (equals <= 0) throw new IllegalArgumentException(override);
+                    overrides.put(override.substring(0, equals), override.substring(equals + 1));
+                } else if ("--format".equals(args[i]) && i + 1 < args.length) {
+                    json = "json".equals(args[++i]);
+                    if (!json && !"csv".equals(args[i])) throw new IllegalArgumentException(args[i]);
+                } else if (file == null && !args[i].startsWith("-")) file = args[i];
+                else throw new IllegalArgumentException(args[i]);
+            }
+            if (file == null) throw new IllegalArgumentException("");
+        } catch (IllegalArgumentException e) {
+            if (e.getMessage() != null && !e.getMessage().isEmpty()) err.println("Invalid argument: " + e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+
+        try {
+            XMLParserJDOM parser = new XMLParserJDOM(new File(file).toURI().toURL());
+            BatchTemplate batch = createBatch(parser.getRoot());
+            if (batch == null) throw new SoSimException("all_04", " (" + file + ")");
+            batch.loadXML(parser, overrides);
+            boolean end = batch.run(budget);
+            if (untilEnd && !end) err.println("Simulation has not ended after " + MAX_TICKS + " time units, statistics are partial");
+            if (json) printJSON(out, file, parser.getRoot(), batch, end);
+            else printCSV(out, file, parser.getRoot(), batch, end);
+            return 0;
+        } catch (SoSimException e) {
+            err.println(e.getMessage());
+            // Unknown setting is a usage error
+            if ("all_10".equals(e.getKey())) {
+                err.println(USAGE);
+                return 2;
+            }
+            return 1;
+        } catch (MalformedURLException e) {
+            err.println(e.getMessage());
+            return 1;
+        }
+    }
+
+    private static BatchTemplate createBatch(String root) {
+        // Simulation is chosen by simulation file's root element
+        Functions functions = Functions.getInstance();
+        if (root.equals(functions.getPropertyString("xml_root_pro"))) return new ProcessBatch();
+        if (root.equals(functions.getPropertyString("xml_root_mem"))) return new MemoryBatch();
+        if (root.equals(functions.getPropertyString("xml_root_disk"))) return new DiskBatch();
+        if (root.equals(functions.getPropertyString("xml_root_fs"))) return new FileSystemBatch();
+        return null;
+    }
+
+    private static void printCSV(PrintStream out, String file, String root, BatchTemplate batch, boolean end) {
+        // Header and values rows: file, simulation, time, end and statistics
+        Vector<String[]> stats = batch.getStats();
+        StringBuilder header = new StringBuilder("file,simulation,time,end");
+        StringBuilder values = new StringBuilder();
+        values.append(csv(file)).append(',').append(csv(root)).append(',').append(batch.getTime()).append(',').append(end);
+        for (int i = 0; i < stats.size(); i++) {
+            header.append(',').append(csv(stats.get(i)[0]));
+            values.append(',').append(csv(stats.get(i)[1]));
+        }
+        out.println(header);
+        out.println(values);
+    }
+
+    private static void printJSON(PrintStream out, String file, String root, BatchTemplate batch, boolean end) {
+        // One object, statistics by name
+        Vector<String[]> stats = batch.getStats();
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"file\": ").append(json(file)).append(", ");
+        json.append("\"simulation\": ").append(json(root)).append(", ");
+        json.append("\"time\": ").append(batch.getTime()).append(", ");
+        json.append("\"end\": ").append(end).append(", ");
+        json.append("\"stats\": {");
+        for (int i = 0; i < stats.size(); i++) {
+            if (i > 0) json.append(", ");
+            json.append(json(stats.get(i)[0])).append(": ").append(json(stats.get(i)[1]));
+        }
+        json.append("}}");
+        out.println(json);
+    }
+
+    private static String csv(String value) {
+        // Quoted when it holds separators or quotes
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String json(String value) {
+        StringBuilder s = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') s.append('\\').append(c);
+            else if (c < 0x20) s.append(String.format("\\u%04x", (int) c));
+            else s.append(c);
+        }
+        return s.append('"').toString();
+    }
+}
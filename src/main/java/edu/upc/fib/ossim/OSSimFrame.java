@@ -24,11 +24,16 @@ public class OSSimFrame extends JFrame implements OSSim {
     }
 
     /**
-     * Application (JFrame) input.
+     * Application (JFrame) input. Arguments run command line application instead
      *
-     * @param args unused
+     * @param args none, or simulation file and options
+     * @see OSSimCommand
      */
     public static void main(String[] args) {
+        if (args.length > 0) {
+            OSSimCommand.main(args);
+            return;
+        }
         FlatDarkLaf.setup();
         SwingUtilities.invokeLater(OSSimFrame::new);
     }
@@ -0,0 +1,125 @@
+package edu.upc.fib.ossim.disk;
+
+import edu.upc.fib.ossim.disk.model.*;
+import edu.upc.fib.ossim.template.BatchTemplate;
+import edu.upc.fib.ossim.utils.Functions;
+import edu.upc.fib.ossim.utils.SoSimException;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+
+/**
+ * Disk batch runs disk scheduling simulations without views, settings are the ones disk scheduling settings
+ * dialog exposes: management (FIFO, LIFO, STF, LOOP, CLOOP, SCAN, CSCAN), head, merge, cache (CACHE_NONE,
+ * CACHE_LRU, CACHE_CLOCK, CACHE_2Q, CACHE_ARC), cacheSize, readAhead and device (DEV_HDD, DEV_SSD, DEV_SSD_CB).
+ * Every time unit is split into one subtime per sector, simulation ends once all requests have been served
+ *
+ * @author Alex Macia
+ * @see DiskPresenter
+ */
+public class DiskBatch extends BatchTemplate {
+    private final ContextDisk context;
+
+    /**
+     * Constructs a DiskBatch, initial context strategy is FIFO
+     */
+    public DiskBatch() {
+        super(ContextDisk.getSectors());
+        context = new ContextDisk(new DiskStrategyFIFO());
+    }
+
+    /**
+     * Returns XML root element for disk scheduling simulation files
+     */
+    public String getXMLRoot() {
+        return Functions.getInstance().getPropertyString("xml_root_disk");
+    }
+
+    /**
+     * Returns XML root children for disk scheduling simulation files: "requests"
+     */
+    public Vector<String> getXMLChilds() {
+        Vector<String> childs = new Vector<String>();
+        childs.add("requests");
+        return childs;
+    }
+
+    /**
+     * Returns disk scheduling settings names
+     */
+    public Vector<String> getParamNames() {
+        return new Vector<String>(Arrays.asList("management", "head", "merge", "cache", "cacheSize", "readAhead", "device"));
+    }
+
+    /**
+     * Sets head initial position, scheduling algorithm, requests merging, block cache and device.
+     * Parameters missing in older files keep settings dialog defaults: no merging, no cache and a rotational disk
+     *
+     * @see DiskFactory
+     */
+    public void putParams() throws SoSimException {
+        String management = getParamChoice("management", "FIFO", DiskFactory.ALGORITHMS);
+        int head = getParamInt("head", 0);
+        String cache = getParamChoice("cache", "CACHE_NONE", DiskFactory.CACHES);
+        int cacheSize = getParamInt("cacheSize", 16);
+        int readAhead = getParamInt("readAhead", 2);
+        String device = getParamChoice("device", "DEV_HDD", DiskFactory.DEVICES);
+        if (head < 0 || head >= ContextDisk.getNBLOCKS()) throw new SoSimException("all_11", "head=" + head);
+        if (cacheSize < 1 || cacheSize > 64) throw new SoSimException("all_11", "cacheSize=" + cacheSize);
+        if (readAhead < 0 || readAhead >= ContextDisk.getSectors())
+            throw new SoSimException("all_11", "readAhead=" + readAhead);
+
+        context.setHeadPosition(head);
+        context.setAlgorithm(DiskFactory.createAlgorithm(management));
+        context.setMerging(getParamBoolean("merge", false));
+        context.setCache(DiskFactory.createCache(cache, cacheSize, readAhead));
+        context.setFlash(DiskFactory.createDevice(device));
+    }
+
+    /**
+     * Builds block requests
+     *
+     * @see #getXMLChilds()
+     */
+    public void putXMLData(int child, Vector<Vector<Vector<String>>> data) throws SoSimException {
+        DiskFactory.addRequests(context, data, clock.getTime());
+    }
+
+    /**
+     * Backs up initial state and queues requests arriving at time 0
+     */
+    public boolean actionPlay() {
+        context.forwardTime(clock.getTime());
+        return false;
+    }
+
+    /**
+     * Forwards 1 time unit, simulation ends once all requests have been served
+     */
+    public boolean actionTimer() {
+        context.forwardTime(clock.getTime());
+        return context.isFinished();
+    }
+
+    /**
+     * Forwards 1 subtime unit
+     */
+    public void actionDecimal() {
+        context.forwardDecimal();
+    }
+
+    /**
+     * Returns disk scheduling statistics names
+     */
+    public Vector<Vector<String>> getTableStatsInfo() {
+        return context.getTableStatsInfo();
+    }
+
+    /**
+     * Returns disk scheduling statistics values
+     */
+    public Vector<String> getTableStatsData() {
+        return context.getTableStatsData(clock.getTime());
+    }
+}
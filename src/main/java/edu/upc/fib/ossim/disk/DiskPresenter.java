@@ -7,6 +7,7 @@ import edu.upc.fib.ossim.template.view.PainterTemplate;
 import edu.upc.fib.ossim.template.view.PanelTemplate;
 import edu.upc.fib.ossim.template.view.TablePainterTemplate;
 import edu.upc.fib.ossim.utils.Functions;
+import edu.upc.fib.ossim.utils.InfoDialog;
 import edu.upc.fib.ossim.utils.SoSimException;
 import edu.upc.fib.ossim.utils.TimerPanel;
 import edu.upc.fib.ossim.utils.Translation;
@@ -16,6 +17,7 @@ import javax.swing.event.ChangeEvent;
 import javax.swing.event.ListSelectionEvent;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.io.Serializable;
 import java.util.Iterator;
 import java.util.Vector;
 
@@ -38,8 +40,11 @@ public class DiskPresenter extends Presenter {
     private static final int DISK_HEIGHT = 440;
     private static final int REQUEST_WIDTH = 300;
     private static final int REQUEST_HEIGHT = 180;
+    private static final int INFO_WIDTH = 400;
+    private static final int INFO_HEIGHT = 200;
     private Vector<String[]> menuItems;
-    private ContextDisk context;
+    private ContextDisk context;    // Shown model, a frame copy while simulation runs
+    private ContextDisk simulated;    // Simulated model
 
     /**************************************************************************************************/
     /*************************************   Class  management  ***************************************/
@@ -55,7 +60,7 @@ public class DiskPresenter extends Presenter {
     /**
      * Constructs main panel adding all components and its pop up menus. Timer panel, three painters builds this panel,
      * a physical disk platter, a graph showing served request and a table with all requests and
-     * scheduling information, besides a settings dialog is initialized
+     * scheduling information, besides a settings dialog and a statistics information dialog are initialized
      *
      */
     public PanelTemplate createPanelComponents() {
@@ -65,6 +70,7 @@ public class DiskPresenter extends Presenter {
         super.addPainter(new GraphPainter(this, GRAPH_WIDTH, GRAPH_HEIGHT), GRAPH_PAINTER);
         super.addPainter(new InfoPainter(this, "dk_41", "disk_info", context.getTableHeaderInfo(), menuItems, REQUEST_WIDTH, REQUEST_HEIGHT), REQUEST_PAINTER);
         settings = new DiskSettings(this, "disk_set");
+        info = new InfoDialog(this, "dk_41", "disk_info", false, INFO_WIDTH, INFO_HEIGHT, context.getTableStatsInfo(), context.getTableHeaderInfo());
         return new PanelDisk(this, "dk_42");
     }
 
@@ -82,7 +88,7 @@ public class DiskPresenter extends Presenter {
      * For instance<br/> <code>actions.put(action command, number);</code><br/>
      * <ul>
      * action command from component that generate the event<br/>
-     * number between 40 and 50
+     * number between 40 and 59
      * </ul>
      */
     public void mapActionsSpecific() {
@@ -96,6 +102,16 @@ public class DiskPresenter extends Presenter {
         actions.put("CLOOP", 47);
         actions.put("SCAN", 48);
         actions.put("CSCAN", 49);
+        actions.put("MERGE", 50);
+        actions.put("CACHE_NONE", 51);
+        actions.put("CACHE_LRU", 52);
+        actions.put("CACHE_CLOCK", 53);
+        actions.put("CACHE_2Q", 54);
+        actions.put("CACHE_ARC", 55);
+        actions.put("DEV_HDD", 56);
+        actions.put("DEV_SSD", 57);
+        actions.put("DEV_SSD_CB", 58);
+        actions.put("TRACE", 59);
     }
 
     /**
@@ -105,6 +121,7 @@ public class DiskPresenter extends Presenter {
      */
     public void createContext() {
         context = new ContextDisk(new DiskStrategyFIFO());
+        simulated = context;
     }
 
     /**************************************************************************************************/
@@ -128,6 +145,11 @@ public class DiskPresenter extends Presenter {
             if (row != null) {
                 ((TablePainterTemplate) this.getPainter(REQUEST_PAINTER)).setValueIsAdjusting(true);
                 request = Integer.valueOf((String) ((InfoPainter) this.getPainter(REQUEST_PAINTER)).getValueAt(row, 0));
+                wasrunning = false;
+                if (timecontrols.isRunning()) { // Selects into simulated model
+                    wasrunning = true;
+                    timecontrols.pause();
+                }
                 selectElement(request, this.getPainter(REQUEST_PAINTER));
                 this.getPainter(REQUEST_PAINTER).showPopupMenu();
             }
@@ -135,7 +157,7 @@ public class DiskPresenter extends Presenter {
     }
 
     /**
-     * Receive setting's initial head position component and
+     * Receive setting's initial head position, cache size and read ahead components and
      * form block request change state event
      * .
      */
@@ -148,6 +170,10 @@ public class DiskPresenter extends Presenter {
             context.setHeadPosition((Integer) head.getValue());
             repaintPainters();
         }
+        if ("cacheSize".equals(spin.getName()) || "readAhead".equals(spin.getName())) {
+            // Updates block cache at settings
+            updateCache();
+        }
         if ("bid".equals(spin.getName())) {
             // Updates sector's cylinder at form disk
             ((FormBlock) form).setRequestCylinder();
@@ -194,7 +220,7 @@ public class DiskPresenter extends Presenter {
      *
      */
     public boolean actionTimer() {
-        context.forwardTime(timecontrols.getTime());
+        simulated.forwardTime(timecontrols.getTime());
         //context.forwardDecimal();
         return false;
     }
@@ -207,7 +233,27 @@ public class DiskPresenter extends Presenter {
      *
      */
     public void actionDecimal() {
-        context.forwardDecimal();
+        simulated.forwardDecimal();
+    }
+
+    /**
+     * Gets simulated model, copied into frames while simulation runs (Template Pattern)
+     *
+     * @return simulated model
+     * @see Presenter#forwardEvent(boolean, boolean)
+     */
+    public Serializable getModel() {
+        return simulated;
+    }
+
+    /**
+     * Shows a model copy from a frame, or simulated model again if null (Template Pattern)
+     *
+     * @param model model copy, null for simulated model
+     */
+    public void showModel(Object model) {
+        if (model == null) context = simulated;
+        else context = (ContextDisk) model;
     }
 
     /**
@@ -217,6 +263,10 @@ public class DiskPresenter extends Presenter {
      * <li>Updates a block request. Opens FormBlock and updates model with user input</li>
      * <li>Removes a block request. Opens a confirmation dialog, and if so deletes request</li>
      * <li>Changes current algorithm, updates model (context) and algorithm information</li>
+     * <li>Enables or disables requests merging</li>
+     * <li>Changes block cache replacement algorithm or disables cache</li>
+     * <li>Changes device serving requests: rotational disk or flash device</li>
+     * <li>Replays a block I/O trace file or stops replaying it. Opens a file chooser</li>
      * </ul>
      *
      * @see Presenter#actionPerformed(ActionEvent e)
@@ -261,34 +311,65 @@ public class DiskPresenter extends Presenter {
             // Settings actions
 
             case 43:
-                context.setAlgorithm(new DiskStrategyFIFO());
-                panel.setLabel(getAlgorithmInfo());
-                break;
             case 44:
-                context.setAlgorithm(new DiskStrategyLIFO());
-                panel.setLabel(getAlgorithmInfo());
-                break;
             case 45:
-                context.setAlgorithm(new DiskStrategySTF());
-                panel.setLabel(getAlgorithmInfo());
-                break;
             case 46:
-                context.setAlgorithm(new DiskStrategyLOOK());
-                panel.setLabel(getAlgorithmInfo());
-                break;
             case 47:
-                context.setAlgorithm(new DiskStrategyCLOOK());
-                panel.setLabel(getAlgorithmInfo());
-                break;
             case 48:
-                context.setAlgorithm(new DiskStrategySCAN());
-                panel.setLabel(getAlgorithmInfo());
-                break;
             case 49:
-                context.setAlgorithm(new DiskStrategyCSCAN());
+                context.setAlgorithm(DiskFactory.createAlgorithm(actionCommand));
                 panel.setLabel(getAlgorithmInfo());
                 break;
+            case 50:
+                context.setMerging(((DiskSettings) settings).getMerge());
+                break;
+            case 51:
+            case 52:
+            case 53:
+            case 54:
+            case 55:
+                updateCache();
+                break;
+            case 56:
+            case 57:
+            case 58:
+                context.setFlash(DiskFactory.createDevice(actionCommand));
+                break;
+            case 59:
+                updateTrace();
+                break;
+        }
+    }
+
+    private void updateTrace() throws SoSimException {
+        // Opens a trace file to replay or stops replaying. Only before simulation starts
+        DiskSettings disk = (DiskSettings) settings;
+        DiskTraceReader trace = context.getTrace();
+        if (timecontrols.isRunning() || timecontrols.getTime() > 0) {
+            disk.setTrace(trace == null ? null : trace.getName());
+            throw new SoSimException("dk_07");
+        }
+
+        trace = null;
+        if (disk.getTrace()) {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+            chooser.setDialogTitle(Translation.getInstance().getLabel("dk_89"));
+            if (chooser.showOpenDialog(disk) == JFileChooser.APPROVE_OPTION) {
+                // Replay stays disabled if trace can not be read
+                context.setTrace(null);
+                disk.setTrace(null);
+                trace = new DiskTraceReader(chooser.getSelectedFile(), ContextDisk.getNBLOCKS(), ContextDisk.getSectors());
+            }
         }
+        context.setTrace(trace);
+        disk.setTrace(trace == null ? null : trace.getName());
+    }
+
+    private void updateCache() {
+        // Creates block cache from settings, replacement algorithm, size and read ahead
+        DiskSettings disk = (DiskSettings) settings;
+        context.setCache(DiskFactory.createCache(disk.getCache(), disk.getCacheSize(), disk.getReadAhead()));
     }
 
     /**
@@ -314,6 +395,8 @@ public class DiskPresenter extends Presenter {
     public void updateInfo() {
         // Update possible value changed. 
         ((InfoPainter) this.getPainter(REQUEST_PAINTER)).initData(context.getTableInfoData());
+        info.updateValues(context.getTableStatsData(timecontrols.getShownTime()));
+        info.initData(context.getTableInfoData());
     }
 
     /**
@@ -322,7 +405,7 @@ public class DiskPresenter extends Presenter {
      */
     public void updateLabels() {
         // Update info dialog
-        //info.updateLabels(context.getTableHeaderInfo());
+        info.updateLabels(context.getTableHeaderInfo());
         ((InfoPainter) this.getPainter(REQUEST_PAINTER)).updateLabels(context.getTableHeaderInfo(), "dk_41");
     }
 
@@ -365,6 +448,34 @@ public class DiskPresenter extends Presenter {
         return context.getRequestsServed();
     }
 
+    /**
+     * @see ContextDisk#getRequestsServedStart()
+     */
+    public int getRequestsServedStart() {
+        return context.getRequestsServedStart();
+    }
+
+    /**
+     * @see ContextDisk#getRequestsServedGeneration()
+     */
+    public int getRequestsServedGeneration() {
+        return context.getRequestsServedGeneration();
+    }
+
+    /**
+     * @see ContextDisk#iteratorRequestsServed(int)
+     */
+    public Iterator<Integer> iteratorRequestsServed(int from) {
+        return context.iteratorRequestsServed(from);
+    }
+
+    /**
+     * @see ContextDisk#iteratorServedColors(int)
+     */
+    public Iterator<Color> iteratorServedColors(int from) {
+        return context.iteratorServedColors(from);
+    }
+
     /**
      * @see ContextDisk#getTinit(int)
      */
@@ -450,6 +561,26 @@ public class DiskPresenter extends Presenter {
                 attribute.add("head");
                 attribute.add(Integer.toString(((DiskSettings) settings).getInitHead()));
                 param.add(attribute);
+                attribute = new Vector<String>();
+                attribute.add("merge");
+                attribute.add(Boolean.toString(((DiskSettings) settings).getMerge()));
+                param.add(attribute);
+                attribute = new Vector<String>();
+                attribute.add("cache");
+                attribute.add(((DiskSettings) settings).getCache());
+                param.add(attribute);
+                attribute = new Vector<String>();
+                attribute.add("cacheSize");
+                attribute.add(Integer.toString(((DiskSettings) settings).getCacheSize()));
+                param.add(attribute);
+                attribute = new Vector<String>();
+                attribute.add("readAhead");
+                attribute.add(Integer.toString(((DiskSettings) settings).getReadAhead()));
+                param.add(attribute);
+                attribute = new Vector<String>();
+                attribute.add("device");
+                attribute.add(((DiskSettings) settings).getDevice());
+                param.add(attribute);
                 data.add(param);
                 break;
             case 1:    // requests
@@ -475,18 +606,25 @@ public class DiskPresenter extends Presenter {
                     ((DiskSettings) settings).setInitHead(head);
                     context.setHeadPosition(head);
                     actionSpecific(actionCommand); // Updates management. 
+                    if (data.get(0).size() > 2) { // Optional, older files do not merge requests
+                        boolean merge = Boolean.parseBoolean(data.get(0).get(2).get(1));
+                        ((DiskSettings) settings).setMerge(merge);
+                        context.setMerging(merge);
+                    }
+                    if (data.get(0).size() > 5) { // Optional, older files have no block cache
+                        ((DiskSettings) settings).selectCache(data.get(0).get(3).get(1));
+                        ((DiskSettings) settings).setCacheSize(Integer.parseInt(data.get(0).get(4).get(1)));
+                        ((DiskSettings) settings).setReadAhead(Integer.parseInt(data.get(0).get(5).get(1)));
+                        updateCache();
+                    }
+                    if (data.get(0).size() > 6) { // Optional, older files use a rotational disk
+                        String device = data.get(0).get(6).get(1);
+                        ((DiskSettings) settings).selectDevice(device);
+                        actionSpecific(device);
+                    }
                     break;
                 case 1:
-                    for (int i = 0; i < data.size(); i++) { // Requests
-                        Vector<Vector<String>> process = data.get(i);
-                        Vector<Object> requestData = new Vector<Object>();
-
-                        requestData.add(Integer.valueOf(process.get(0).get(1))); // bid. Value at position 1
-                        requestData.add(Integer.valueOf(process.get(1).get(1))); // init. Value at position 1
-                        requestData.add(new Color(Integer.valueOf(process.get(2).get(1)))); // color. Value at position 1 (RGB value)
-
-                        context.addRequest(requestData, timecontrols.getTime());
-                    }
+                    DiskFactory.addRequests(context, data, timecontrols.getTime());
                     break;
             }
         } catch (Exception e) {
@@ -3,30 +3,70 @@ package edu.upc.fib.ossim.disk.model;
 import edu.upc.fib.ossim.utils.SoSimException;
 
 import java.awt.*;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.List;
 
 
 /**
  * Disk Scheduling Model (Model - View - Presenter Pattern). Different scheduling algorithm are implemented
  * through Strategy Pattern. Model manage a maximum of<code>"MAX_REQUESTS"</code>.
+ * Optionally, requests entering the queue are merged with a queued request for the same or an
+ * adjacent block of the same cylinder, merged requests are served in a single rotation pass.
+ * An optional block cache absorbs requests before they reach the queue.
+ * Requests are served by a rotational disk, or by a flash device (no head seek nor rotation) whose
+ * operations latency depends on its flash translation layer.
+ * Requests may also be replayed from a block I/O trace, read as simulation time advances. Trace is read ahead
+ * while less than <code>"TRACE_DEPTH"</code> requests are queued or arriving, later I/Os wait. Only last
+ * <code>"TRACE_WINDOW"</code> served requests are kept while replaying.
+ * Head state lives into DiskState singleton, serialized copies keep their own head state
  *
  * @author Alex Macia
  */
-public class ContextDisk {
+public class ContextDisk implements Serializable {
+    private static final long serialVersionUID = 1L;
     public static final int MAX_REQUESTS = 40;
+    public static final int TRACE_WINDOW = 200;
+    public static final int TRACE_DEPTH = 128;
     private static final int HEADS = 1;
     private static final int CYLINDERS = 16;
     private static final int SECTORS = 12;
+    private static final AtomicInteger GENERATIONS = new AtomicInteger();    // Head path generations, unique across contexts
 
     private DiskStrategy algorithm;
     private final List<DiskBlockRequest> requests;    // Block request
     private final List<DiskBlockRequest> requestsArriving;    // Block future requests 
-    private final List<DiskBlockRequest> requestServed;    // Block requests already served
+    private final List<DiskBlockRequest> requestServed;    // Block requests already served, serving order
+    private final List<Integer> servedPath;    // Head path: limits reached and blocks served, serving order
+    private final List<Color> servedColors;    // Head path colors, null for limits
+    private int servedPathStart;    // Head path points dropped replaying a trace
+    private int servedPathGeneration;    // Head path generation, new one when it is cleared
+    private final List<DiskBlockRequest> requestsCached;    // Block requests served by cache
     private final List<DiskBlockRequest> rqBkup;    // Block request backup to restore initial state  
     private final List<DiskBlockRequest> raBkup;    // Block future requests backup to restore initial state
     private DiskBlockRequest selectedRequest;
     private int initHeadPosition;
+    private boolean merging;    // Merge adjacent or duplicate requests when queued
+    private transient Hashtable<Integer, DiskBlockRequest> runs;    // Queued requests by block and operation, including absorbed ones, null if not indexed
+    private DiskCache cache;    // Block cache, null if disabled
+    private FlashDevice flash;    // Flash device, null if rotational disk
+    private DiskTraceReader trace;    // Replayed trace, null if none
+    private int busy;    // Flash device busy subtimes
+    private int subtime;    // Current simulation time in subtime units
+    private int queued;    // Requests queued since time 0 (without cache flushes)
+    private int diskQueued;    // Requests reaching disk queue since time 0 (with cache flushes)
+    private int merges;    // Requests absorbed by another queued request since time 0
+    private int served;    // Requests served since time 0 (without cache flushes)
+    private double service;    // Service time sum of requests served since time 0
+    private int baselineAccumulate;    // Head movement serving same requests without merging, -1 unknown
+    private double baselineService;    // Avg. service time serving same requests without merging
+    private transient DiskState copyState;    // Head state of a serialized copy, null if this is the simulated context
 
     /**
      * Constructs a ContextDisk: sets an initial algorithm strategy,
@@ -39,8 +79,14 @@ public class ContextDisk {
         requests = new LinkedList<DiskBlockRequest>();
         requestsArriving = new LinkedList<DiskBlockRequest>();
         requestServed = new LinkedList<DiskBlockRequest>();
+        servedPath = new ArrayList<Integer>();
+        servedColors = new ArrayList<Color>();
+        requestsCached = new LinkedList<DiskBlockRequest>();
         rqBkup = new LinkedList<DiskBlockRequest>();
         raBkup = new LinkedList<DiskBlockRequest>();
+        merging = false;
+        baselineAccumulate = -1;
+        servedPathGeneration = GENERATIONS.incrementAndGet();
     }
 
     /**
@@ -76,7 +122,10 @@ public class ContextDisk {
      * @return    requests count
      */
     public int getRequestCount() {
-        return requests.size() + requestsArriving.size() + requestServed.size();
+        int merged = 0;
+        Iterator<DiskBlockRequest> it = requests.iterator();
+        while (it.hasNext()) merged += it.next().getMerged().size();
+        return requests.size() + merged + requestsArriving.size() + requestServed.size() + requestsCached.size();
     }
 
     /**
@@ -89,6 +138,80 @@ public class ContextDisk {
         this.algorithm = algorithm;
     }
 
+    /**
+     * Returns true if requests are merged when queued
+     *
+     * @return    requests merging enabled
+     */
+    public boolean isMerging() {
+        return merging;
+    }
+
+    /**
+     * Enables or disables requests merging
+     *
+     * @param merging requests merging enabled
+     */
+    public void setMerging(boolean merging) {
+        this.merging = merging;
+        runs = null;
+    }
+
+    /**
+     * Gets block cache
+     *
+     * @return    block cache, null if disabled
+     */
+    public DiskCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Sets block cache, null disables cache
+     *
+     * @param cache block cache
+     */
+    public void setCache(DiskCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Gets flash device
+     *
+     * @return    flash device, null if rotational disk
+     */
+    public FlashDevice getFlash() {
+        return flash;
+    }
+
+    /**
+     * Sets flash device, null sets a rotational disk
+     *
+     * @param flash flash device
+     */
+    public void setFlash(FlashDevice flash) {
+        this.flash = flash;
+    }
+
+    /**
+     * Gets replayed trace
+     *
+     * @return    replayed trace, null if none
+     */
+    public DiskTraceReader getTrace() {
+        return trace;
+    }
+
+    /**
+     * Sets replayed trace, null disables replay. Previous trace is closed
+     *
+     * @param trace replayed trace
+     */
+    public void setTrace(DiskTraceReader trace) {
+        if (this.trace != null && this.trace != trace) this.trace.close();
+        this.trace = trace;
+    }
+
     /**
      * Gets selected request identifier
      *
@@ -99,7 +222,7 @@ public class ContextDisk {
     }
 
     /**
-     * Gets selected request data: block number, time and color
+     * Gets selected request data: block number, time, color and write
      *
      * @return selected request data
      */
@@ -110,6 +233,7 @@ public class ContextDisk {
         data.add(selectedRequest.getBid());
         data.add(selectedRequest.getInit());
         data.add(selectedRequest.getColor());
+        data.add(selectedRequest.isWrite());
         return data;
     }
 
@@ -130,6 +254,7 @@ public class ContextDisk {
      * @return    head position
      */
     public int getHeadPosition() {
+        if (copyState != null) return copyState.getHeadPosition();
         return DiskState.getInstance().getHeadPosition();
     }
 
@@ -160,26 +285,37 @@ public class ContextDisk {
     }
 
     /**
-     * Returns list iterator with served requests identifiers (block numbers)
+     * Returns list iterator with served requests identifiers (block numbers) and limits reached by head
+     * (SCAN, CSCAN), serving order
      *
      * @return    list iterator
      */
     public Iterator<Integer> iteratorRequestsServed() {
-        // Returns LinkedList with served request ordered 
-        LinkedList<Integer> queueInteger = new LinkedList<Integer>();
-
-        Iterator<DiskBlockRequest> it = requestServed.iterator();
-        while (it.hasNext()) {
-            DiskBlockRequest request = it.next();
+        return iteratorRequestsServed(servedPathStart);
+    }
 
-            Vector<Integer> limits = request.getLimits();
-            for (int i = 0; i < limits.size(); i++) {
-                queueInteger.add(limits.get(i));
-            }
-            queueInteger.add(Integer.valueOf(request.getBid()));
-        }
+    /**
+     * Returns list iterator with served requests identifiers (block numbers) and limits reached by head
+     * (SCAN, CSCAN), serving order, starting at head path point <code>from</code>
+     *
+     * @param from first head path point
+     * @return    list iterator
+     * @see #getRequestsServedStart()
+     */
+    public Iterator<Integer> iteratorRequestsServed(int from) {
+        return Collections.unmodifiableList(servedPath).listIterator(from - servedPathStart);
+    }
 
-        return queueInteger.iterator();
+    /**
+     * Returns list iterator with served requests colors, null for limits reached by head,
+     * serving order, starting at head path point <code>from</code>
+     *
+     * @param from first head path point
+     * @return    list iterator
+     * @see #getRequestsServedStart()
+     */
+    public Iterator<Color> iteratorServedColors(int from) {
+        return Collections.unmodifiableList(servedColors).listIterator(from - servedPathStart);
     }
 
     /**
@@ -188,15 +324,28 @@ public class ContextDisk {
      * @return    served requests count
      */
     public int getRequestsServed() {
-        // Returns total served requests
-        int total = 0;
-        Iterator<DiskBlockRequest> it = requestServed.iterator();
-        while (it.hasNext()) {
-            DiskBlockRequest request = it.next();
-            total += request.getLimits().size();
-            total++;
-        }
-        return total;
+        return servedPath.size();
+    }
+
+    /**
+     * Gets first head path point kept, head path points before are dropped replaying a trace.
+     * Head path points are numbered from simulation start
+     *
+     * @return    first head path point
+     */
+    public int getRequestsServedStart() {
+        return servedPathStart;
+    }
+
+    /**
+     * Gets head path generation, it changes every time head path is cleared restoring initial state and it is
+     * unique across contexts, so head path points cached by a view are discarded even if as many points are
+     * served again or a simulation file is loaded
+     *
+     * @return    head path generation
+     */
+    public int getRequestsServedGeneration() {
+        return servedPathGeneration;
     }
 
     private DiskBlockRequest getByBID(int bid) {
@@ -207,6 +356,11 @@ public class ContextDisk {
         while (it.hasNext()) {
             p = it.next();
             if (p.getBid() == bid) return p;
+            Iterator<DiskBlockRequest> itm = p.getMerged().iterator();
+            while (itm.hasNext()) {
+                DiskBlockRequest m = itm.next();
+                if (m.getBid() == bid) return m;
+            }
         }
 
         it = requestServed.iterator();
@@ -215,6 +369,12 @@ public class ContextDisk {
             if (p.getBid() == bid) return p;
         }
 
+        it = requestsCached.iterator();
+        while (it.hasNext()) {
+            p = it.next();
+            if (p.getBid() == bid) return p;
+        }
+
         it = requestsArriving.iterator();
         while (it.hasNext()) {
             p = it.next();
@@ -285,11 +445,20 @@ public class ContextDisk {
             data.add(d.getBlockInfo(SECTORS));
         }
 
-        // Requests. List order
+        // Served by cache
+        it = requestsCached.iterator();
+        while (it.hasNext()) {
+            DiskBlockRequest d = it.next();
+            data.add(d.getBlockInfo(SECTORS));
+        }
+
+        // Requests. List order, absorbed requests after the request absorbing them
         it = requests.iterator();
         while (it.hasNext()) {
             DiskBlockRequest d = it.next();
             data.add(d.getBlockInfo(SECTORS));
+            Iterator<DiskBlockRequest> itm = d.getMerged().iterator();
+            while (itm.hasNext()) data.add(itm.next().getBlockInfo(SECTORS));
         }
 
         // Arriving requests last. List order
@@ -314,7 +483,10 @@ public class ContextDisk {
         Vector<Vector<Vector<String>>> data = new Vector<Vector<Vector<String>>>();
         Iterator<DiskBlockRequest> it = requests.iterator();
         while (it.hasNext()) {
-            data.add(it.next().getRequestXMLInfo());
+            DiskBlockRequest d = it.next();
+            data.add(d.getRequestXMLInfo());
+            Iterator<DiskBlockRequest> itm = d.getMerged().iterator();
+            while (itm.hasNext()) data.add(itm.next().getRequestXMLInfo());
         }
         it = requestsArriving.iterator();
         while (it.hasNext()) {
@@ -330,37 +502,49 @@ public class ContextDisk {
     /**
      * Adds a new request that will be proceeded at a concrete time
      *
-     * @param d    request data: block number, time, color
+     * @param d    request data: block number, time, color and optionally write
      * @param time simulation current time
      * @throws SoSimException requested block already exists or request time is previous to current time
      */
     public void addRequest(Vector<Object> d, int time) throws SoSimException {
         // Add Request b to its queue 
         backup();
-        DiskBlockRequest b = new DiskBlockRequest((Integer) d.get(0), (Integer) d.get(1), (Color) d.get(2));
+        DiskBlockRequest b = createRequest(d);
         if (getByBID(b.getBid()) != null) throw new SoSimException("dk_04"); // Block requests already exist
         if (b.getInit() < time) throw new SoSimException("dk_02");
-        if (b.getInit() == time) requests.add(b);
+        if (b.getInit() == time) {
+            if (time > 0) queueRequest(b); // Simulation running, request enters the queue
+            else requests.add(b);
+        }
         if (b.getInit() > time) requestsArriving.add(b);
         selectedRequest = b;
+        runs = null;
     }
 
     /**
-     * Updates a request, manage possible queue movement
+     * Updates a request, manage possible queue movement. An absorbed request leaves the request absorbing it
+     * and is queued next to it, requests absorbed by the updated one stay queued
      *
-     * @param d    request data: block number, time, color
+     * @param d    request data: block number, time, color and optionally write
      * @param time simulation current time
      * @throws SoSimException requested block already exists or request time is previous to current time
      */
     public void updateRequest(Vector<Object> d, int time) throws SoSimException {
         // Add Request b to its queue 
         backup();
-        DiskBlockRequest b = new DiskBlockRequest((Integer) d.get(0), (Integer) d.get(1), (Color) d.get(2));
+        DiskBlockRequest b = createRequest(d);
         if (b.getBid() != selectedRequest.getBid() && getByBID(b.getBid()) != null)
             throw new SoSimException("dk_04"); // Block requests already exist
         if (b.getInit() < time) throw new SoSimException("dk_02");
 
         int position = 0;
+        boolean absorbed = selectedRequest.isAbsorbed();
+        DiskBlockRequest run = detach(selectedRequest);
+        if (absorbed && run != null) {
+            position = requests.indexOf(run) + 1;
+            if (b.getInit() == time) requests.add(position, b); // Next to request absorbing it
+            else requestsArriving.add(b); // At end
+        }
         if (requests.contains(selectedRequest)) {
             position = requests.indexOf(selectedRequest);
             requests.remove(selectedRequest);
@@ -374,10 +558,17 @@ public class ContextDisk {
             else requestsArriving.add(position, b); // Same position 
         }
         selectedRequest = b;
+        runs = null;
+    }
+
+    private DiskBlockRequest createRequest(Vector<Object> d) {
+        boolean write = d.size() > 3 && (Boolean) d.get(3);
+        return new DiskBlockRequest((Integer) d.get(0), (Integer) d.get(1), (Color) d.get(2), write);
     }
 
     /**
-     * Removes selected request
+     * Removes selected request. An absorbed request leaves the request absorbing it, requests absorbed
+     * by the removed one stay queued
      *
      * @param time simulation current time
      * @throws SoSimException request time is previous to current time
@@ -386,8 +577,42 @@ public class ContextDisk {
         // Removes request selected from its queue
         backup();
         if (selectedRequest.getInit() < time) throw new SoSimException("dk_03");
+        detach(selectedRequest);
         requests.remove(selectedRequest);
         requestsArriving.remove(selectedRequest);
+        runs = null;
+    }
+
+    private DiskBlockRequest detach(DiskBlockRequest r) {
+        // Separates queued r from its run. Absorbed r leaves the request absorbing it, which is returned. If r
+        // absorbed others, its first block one is queued after r absorbing the rest, and it is returned.
+        // Otherwise (or r already served) null
+        if (r.isAbsorbed()) {
+            Iterator<DiskBlockRequest> it = requests.iterator();
+            while (it.hasNext()) {
+                DiskBlockRequest p = it.next();
+                if (p.getMerged().remove(r)) {
+                    r.setAbsorbed(false);
+                    return p;
+                }
+            }
+            return null;
+        }
+        if (r.getMerged().isEmpty() || !requests.contains(r)) return null;
+
+        DiskBlockRequest head = r.getMerged().get(0);
+        Iterator<DiskBlockRequest> it = r.getMerged().iterator();
+        while (it.hasNext()) {
+            DiskBlockRequest m = it.next();
+            if (m.getBid() < head.getBid()) head = m;
+        }
+        r.getMerged().remove(head);
+        head.setAbsorbed(false);
+        head.getMerged().addAll(r.getMerged());
+        r.getMerged().clear();
+        requests.add(requests.indexOf(r) + 1, head);
+        algorithm.replaceRequest(r, head);
+        return head;
     }
 
     /**
@@ -407,11 +632,17 @@ public class ContextDisk {
      * @see DiskStrategy#getNextRequest(List, DiskState, int)
      */
     public void forwardDecimal() {
+        if (flash != null) {
+            forwardDecimalFlash();
+            return;
+        }
+
         // Common behavior
         DiskBlockRequest next = algorithm.getNextRequest(requests);
         if (next != null && next.getBid() == DiskState.getInstance().getHeadPosition()) {
-            serveRequest(next);
+            serveRequest(next, subtime);
         }
+        subtime++;
 
         int headCylinder = DiskState.getInstance().getHeadPosition() / DiskState.getInstance().getSectors();
         int nextSector = DiskState.getInstance().getHeadPosition() + 1;
@@ -426,9 +657,33 @@ public class ContextDisk {
         }
     }
 
+    private void forwardDecimalFlash() {
+        // Flash device: no head seek nor rotation, next request is served as soon as device is not busy.
+        // Schedulers see last block served as head position
+        if (busy > 0) busy--;
+        else {
+            DiskBlockRequest next = algorithm.getNextRequest(requests);
+            if (next != null) {
+                int latency = flashAccess(next);
+                Iterator<DiskBlockRequest> it = next.getMerged().iterator();
+                while (it.hasNext()) latency += flashAccess(it.next());
+
+                DiskState.getInstance().setHeadPosition(next.getBid());
+                serveRequest(next, subtime + latency);
+                busy = latency - 1;
+            }
+        }
+        subtime++;
+    }
+
+    private int flashAccess(DiskBlockRequest r) {
+        if (r.isWrite()) return flash.write(r.getBid(), subtime);
+        return flash.read(r.getBid());
+    }
+
     /**
      * Forwards simulation time 1 unit. Queue incoming requests which scheduled time
-     * is current time, moves head seeking next request.
+     * is current time, moves head seeking next request (rotational disk).
      *
      * @param time current simulation time
      * @return simulation ends
@@ -439,14 +694,46 @@ public class ContextDisk {
         // Common behavior
         if (time == 0) {
             backup();
+            subtime = 0;
+            queued = 0;
+            diskQueued = 0;
+            merges = 0;
+            served = 0;
+            service = 0;
+            busy = 0;
+            if (cache != null) cache.clear();
+            if (flash != null) flash.clear();
+
+            // Initial requests are queued again, possibly merged
+            List<DiskBlockRequest> initial = new LinkedList<DiskBlockRequest>(requests);
+            requests.clear();
+            runs = null;
+            Iterator<DiskBlockRequest> it = initial.iterator();
+            while (it.hasNext()) queueRequest(it.next());
+
+            baselineAccumulate = -1;
+            if (trace != null) {
+                trace.rewind();
+                trace.next(1, requestsArriving, TRACE_DEPTH - requests.size()); // Next time arrivals are shown in advance
+            } else if (merging || cache != null) computeBaseline();
         } else {
+            subtime = time * SECTORS;
+            if (trace != null) // Next time arrivals are shown in advance, up to queue depth
+                trace.next(time + 1, requestsArriving, TRACE_DEPTH - requests.size() - requestsArriving.size());
             queueArriving(time); // Add arriving requests init = time	
+            if (cache != null && time % DiskCache.FLUSH_INTERVAL == 0) { // Flusher
+                List<DiskBlockRequest> flush = new LinkedList<DiskBlockRequest>();
+                cache.flushDirty(time, flush);
+                queueFlush(flush);
+            }
 
             // Requests depends on the variable head position
             // Specific behavior
-            DiskBlockRequest next = algorithm.getNextRequest(requests);
+            if (flash == null) {
+                DiskBlockRequest next = algorithm.getNextRequest(requests);
 
-            algorithm.moveHeadPosition(next);
+                algorithm.moveHeadPosition(next);
+            }
         }
     }
 
@@ -464,18 +751,379 @@ public class ContextDisk {
         while (it.hasNext()) {
             DiskBlockRequest b = it.next();
             requestsArriving.remove(b);
-            requests.add(b);
+            queueRequest(b);
+        }
+    }
+
+    private void queueRequest(DiskBlockRequest b) {
+        // Adds request b to queue. Cache may absorb it. If merging, a queued request of the same operation covering
+        // the same or an adjacent block of the same cylinder absorbs it. The request starting the run keeps queue position
+        if (!b.isFlush()) queued++;
+        if (cache != null && !b.isFlush()) {
+            List<DiskBlockRequest> flush = new LinkedList<DiskBlockRequest>();
+            boolean absorbed = cache.access(b, subtime / SECTORS, flush);
+            queueFlush(flush);
+            if (absorbed) {
+                b.setCached(true);
+                b.setCompletion(subtime);
+                account(b);
+                requestsCached.add(b);
+                if (trace != null && requestsCached.size() > TRACE_WINDOW) requestsCached.remove(0);
+                return;
+            }
+        }
+
+        diskQueued++;
+        if (merging) {
+            DiskBlockRequest p = getRun(b);
+            if (p != null) {
+                if (b.getBid() < p.getFirstBid()) {
+                    requests.set(requests.indexOf(p), b);
+                    algorithm.replaceRequest(p, b);
+                    b.merge(p);
+                    indexRun(b);
+                } else {
+                    p.merge(b);
+                    runs.put(getRunKey(b.getBid(), b.isWrite()), p);
+                }
+                merges++;
+                return;
+            }
+        }
+        requests.add(b);
+        if (runs != null) runs.put(getRunKey(b.getBid(), b.isWrite()), b);
+    }
+
+    private DiskBlockRequest getRun(DiskBlockRequest b) {
+        // Queued request of the same operation whose run covers b's block or an adjacent one of the same cylinder,
+        // first queued if there are many. Queue is indexed by block once, and kept as requests are queued or served
+        if (runs == null) {
+            runs = new Hashtable<Integer, DiskBlockRequest>();
+            Iterator<DiskBlockRequest> it = requests.iterator();
+            while (it.hasNext()) indexRun(it.next());
+        }
+
+        DiskBlockRequest run = null;
+        for (int bid = b.getBid() - 1; bid <= b.getBid() + 1; bid++) {
+            DiskBlockRequest p = runs.get(getRunKey(bid, b.isWrite()));
+            if (p == null || p == run || !p.isMergeable(b.getBid(), SECTORS)) continue;
+            if (run == null || requests.indexOf(p) < requests.indexOf(run)) run = p;
+        }
+        return run;
+    }
+
+    private void indexRun(DiskBlockRequest p) {
+        runs.put(getRunKey(p.getBid(), p.isWrite()), p);
+        Iterator<DiskBlockRequest> it = p.getMerged().iterator();
+        while (it.hasNext()) runs.put(getRunKey(it.next().getBid(), p.isWrite()), p);
+    }
+
+    private void unindexRun(DiskBlockRequest p) {
+        if (runs == null) return;
+        if (runs.get(getRunKey(p.getBid(), p.isWrite())) == p) runs.remove(getRunKey(p.getBid(), p.isWrite()));
+        Iterator<DiskBlockRequest> it = p.getMerged().iterator();
+        while (it.hasNext()) {
+            int key = getRunKey(it.next().getBid(), p.isWrite());
+            if (runs.get(key) == p) runs.remove(key);
         }
     }
 
-    private void serveRequest(DiskBlockRequest request) {
+    private static int getRunKey(int bid, boolean write) {
+        return 2 * bid + (write ? 1 : 0);
+    }
+
+    private void queueFlush(List<DiskBlockRequest> flush) {
+        // Queues cache dirty blocks writes
+        Iterator<DiskBlockRequest> it = flush.iterator();
+        while (it.hasNext()) queueRequest(it.next());
+    }
+
+    private void serveRequest(DiskBlockRequest request, int completion) {
         algorithm.serveRequest(request);
+        request.setCompletion(completion);
 
         requests.remove(request);
+        unindexRun(request);
         requestServed.add(request);
+        appendPath(request);
+        account(request);
+
+        // Absorbed requests are served in the same pass, without head movement: they are in request's cylinder,
+        // so accumulate head displacement is request's one. Disk transfers one sector per subtime unit from
+        // request's block (run's first block), flash completes the whole run at once
+        Iterator<DiskBlockRequest> it = request.getMerged().iterator();
+        while (it.hasNext()) {
+            DiskBlockRequest m = it.next();
+            m.setAccumulate(request.getAccumulate());
+            if (flash == null) m.setCompletion(completion + m.getBid() - request.getBid());
+            else m.setCompletion(completion);
+            requestServed.add(m);
+            appendPath(m);
+            account(m);
+        }
+
+        // Blocks read are cached
+        if (cache != null) {
+            List<DiskBlockRequest> flush = new LinkedList<DiskBlockRequest>();
+            if (!request.isWrite()) cache.fill(request.getBid(), SECTORS, subtime / SECTORS, flush);
+            it = request.getMerged().iterator();
+            while (it.hasNext()) {
+                DiskBlockRequest m = it.next();
+                if (!m.isWrite()) cache.fill(m.getBid(), SECTORS, subtime / SECTORS, flush);
+            }
+            queueFlush(flush);
+        }
+
+        // Served list keeps accumulate asc movement desc order: accumulate never decreases and a request
+        // served without head movement has no movement
+
+        // Replaying a trace only last served requests are kept
+        if (trace != null) {
+            while (requestServed.size() > TRACE_WINDOW) {
+                int points = requestServed.remove(0).getLimits().size() + 1;
+                servedPath.subList(0, points).clear();
+                servedColors.subList(0, points).clear();
+                servedPathStart += points;
+            }
+        }
+    }
+
+    private void appendPath(DiskBlockRequest d) {
+        // Head path: limits reached while moving to request and request block
+        Iterator<Integer> it = d.getLimits().iterator();
+        while (it.hasNext()) {
+            servedPath.add(it.next());
+            servedColors.add(null);
+        }
+        servedPath.add(d.getBid());
+        servedColors.add(d.getColor());
+    }
+
+    private void account(DiskBlockRequest d) {
+        // Service time: interval from request time until it is served, by disk or cache. Cache flushes are not requested
+        if (d.isFlush()) return;
+        service += (double) d.getCompletion() / (double) SECTORS - d.getInit();
+        served++;
+    }
+
+    /**
+     * Returns true when all requests, arriving and replayed ones, have been served and block cache
+     * has no dirty blocks
+     *
+     * @return    all requests served
+     */
+    public boolean isFinished() {
+        // All requests served, no dirty blocks
+        if (cache != null && !cache.isClean()) return false;
+        if (trace != null && trace.hasNext()) return false;
+        return requests.isEmpty() && requestsArriving.isEmpty() && (!requestServed.isEmpty() || !requestsCached.isEmpty());
+    }
+
+    private int servedAccumulate() {
+        // Head movement until last request served
+        if (requestServed.isEmpty()) return 0;
+        return requestServed.get(requestServed.size() - 1).getAccumulate();
+    }
+
+    private double avgServiceTime() {
+        // Avg. interval from request time until it is served, by disk or cache
+        if (served == 0) return 0;
+        return service / (double) served;
+    }
+
+    private void computeBaseline() {
+        // Serves a copy of initial requests without merging (shadow simulation) to get
+        // head movement and service time to compare with. Disk state is restored afterwards
+        DiskStrategy shadowAlgorithm;
+        try {
+            shadowAlgorithm = algorithm.getClass().getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            return;
+        }
+
+        DiskState state = DiskState.getInstance().copy();
+        ContextDisk shadow = new ContextDisk(shadowAlgorithm);
+        if (flash != null) shadow.setFlash(new FlashDevice(getNBLOCKS(), flash.isCostBenefit()));
+        DiskState.getInstance().setInitHeadPosition(state.getInitHeadPosition());
+        DiskState.getInstance().setHeadPosition(state.getHeadPosition());
+
+        int last = 0;
+        Iterator<DiskBlockRequest> it = rqBkup.iterator();
+        while (it.hasNext()) shadow.queueRequest(it.next().clone());
+        it = raBkup.iterator();
+        while (it.hasNext()) {
+            DiskBlockRequest b = it.next().clone();
+            last = Math.max(last, b.getInit());
+            shadow.requestsArriving.add(b);
+        }
+
+        // Every request is reached in at most two full head sweeps
+        int limit = last + (shadow.getRequestCount() + 1) * (2 * CYLINDERS + 2);
+        for (int time = 1; !shadow.isFinished() && time <= limit; time++) {
+            for (int i = 0; i < SECTORS; i++) shadow.forwardDecimal();
+            shadow.forwardTime(time);
+        }
+
+        if (shadow.isFinished()) {
+            baselineAccumulate = shadow.servedAccumulate();
+            baselineService = shadow.avgServiceTime();
+        }
+        DiskState.getInstance().restore(state);
+    }
 
-        // Order by accumulate asc movement desc
-        Collections.sort(requestServed);
+    /**
+     * Returns statistical disk scheduling information labels: merged requests, head movement
+     * and average service time, and its reduction compared with serving the same requests without merging nor cache.
+     * Cache hit ratio, disk requests eliminated by cache and dirty blocks flushed. Flash device write amplification,
+     * garbage collected blocks, latency spikes, max. latency and erase counts
+     *
+     * @return    statistical disk scheduling information labels
+     */
+    public Vector<Vector<String>> getTableStatsInfo() {
+        // Initial Statistics Information windows
+        Vector<Vector<String>> stats = new Vector<Vector<String>>();
+        Vector<String> row;
+
+        // Merged requests: absorbed requests / queued requests
+        row = new Vector<String>();
+        row.add("dk_61");
+        row.add("--");
+        stats.add(row);
+
+        // Head movement until last request served
+        row = new Vector<String>();
+        row.add("dk_62");
+        row.add("--");
+        stats.add(row);
+
+        // Head movement reduction versus no merging
+        row = new Vector<String>();
+        row.add("dk_63");
+        row.add("--");
+        stats.add(row);
+
+        // Avg. service time: interval from request time until it is served
+        row = new Vector<String>();
+        row.add("dk_64");
+        row.add("--");
+        stats.add(row);
+
+        // Avg. service time reduction versus no merging
+        row = new Vector<String>();
+        row.add("dk_65");
+        row.add("--");
+        stats.add(row);
+
+        // Cache hit ratio
+        row = new Vector<String>();
+        row.add("dk_66");
+        row.add("--");
+        stats.add(row);
+
+        // Disk requests eliminated by cache
+        row = new Vector<String>();
+        row.add("dk_67");
+        row.add("--");
+        stats.add(row);
+
+        // Dirty blocks flushed
+        row = new Vector<String>();
+        row.add("dk_68");
+        row.add("--");
+        stats.add(row);
+
+        // Flash write amplification
+        row = new Vector<String>();
+        row.add("dk_80");
+        row.add("--");
+        stats.add(row);
+
+        // Flash garbage collected blocks
+        row = new Vector<String>();
+        row.add("dk_81");
+        row.add("--");
+        stats.add(row);
+
+        // Flash writes delayed by garbage collection
+        row = new Vector<String>();
+        row.add("dk_82");
+        row.add("--");
+        stats.add(row);
+
+        // Flash max. operation latency
+        row = new Vector<String>();
+        row.add("dk_83");
+        row.add("--");
+        stats.add(row);
+
+        // Flash erase counts
+        row = new Vector<String>();
+        row.add("dk_84");
+        row.add("--");
+        stats.add(row);
+
+        return stats;
+    }
+
+    /**
+     * Returns statistical disk scheduling information at a concrete simulation time. Reductions are only known
+     * once all requests are served and merging or cache are enabled, not replaying a trace
+     *
+     * @param time simulation time
+     * @return    statistical disk scheduling information
+     */
+    public Vector<String> getTableStatsData(int time) {
+        // Statistics Information windows
+        Vector<String> values = new Vector<String>();
+        NumberFormat formatter = new DecimalFormat("#0.00");
+
+        // Merged requests: absorbed requests / requests reaching disk queue
+        if (time == 0 || diskQueued == 0) values.add("--");
+        else values.add(formatter.format((double) merges * 100 / (double) diskQueued));
+
+        // Head movement until last request served
+        if (time == 0) values.add("--");
+        else values.add(Integer.toString(servedAccumulate()));
+
+        // Head movement reduction versus no merging
+        if (!isFinished() || baselineAccumulate < 0) values.add("--");
+        else if (baselineAccumulate == 0) values.add(formatter.format(0));
+        else
+            values.add(formatter.format((double) (baselineAccumulate - servedAccumulate()) * 100 / (double) baselineAccumulate));
+
+        // Avg. service time
+        if (requestServed.isEmpty() && requestsCached.isEmpty()) values.add("--");
+        else values.add(formatter.format(avgServiceTime()));
+
+        // Avg. service time reduction versus no merging
+        if (!isFinished() || baselineAccumulate < 0) values.add("--");
+        else if (baselineService == 0) values.add(formatter.format(0));
+        else values.add(formatter.format((baselineService - avgServiceTime()) * 100 / baselineService));
+
+        // Cache hit ratio
+        if (cache == null || cache.getLookups() == 0) values.add("--");
+        else values.add(formatter.format((double) cache.getHits() * 100 / (double) cache.getLookups()));
+
+        // Disk requests eliminated by cache: requests not reaching disk, flushes included
+        if (cache == null || queued == 0) values.add("--");
+        else values.add(formatter.format((double) (queued - diskQueued) * 100 / (double) queued));
+
+        // Dirty blocks flushed
+        if (cache == null || time == 0) values.add("--");
+        else values.add(Integer.toString(cache.getFlushed()));
+
+        // Flash device
+        if (flash == null || time == 0) {
+            for (int i = 0; i < 5; i++) values.add("--");
+        } else {
+            values.add(formatter.format(flash.getWriteAmplification()));
+            values.add(Integer.toString(flash.getCollections()));
+            values.add(Integer.toString(flash.getSpikes()));
+            values.add(formatter.format((double) flash.getMaxLatency() / (double) SECTORS));
+            values.add(flash.getMinErases() + " - " + flash.getMaxErases());
+        }
+
+        return values;
     }
 
     /**
@@ -486,9 +1134,15 @@ public class ContextDisk {
         // backup to restore initial state
         initHeadPosition = DiskState.getInstance().getHeadPosition();
 
+        // Absorbed requests are backed up as queued ones, they are merged again at time 0
         rqBkup.clear();
         Iterator<DiskBlockRequest> it = requests.iterator();
-        while (it.hasNext()) rqBkup.add(it.next().clone());
+        while (it.hasNext()) {
+            DiskBlockRequest r = it.next();
+            rqBkup.add(r.clone());
+            Iterator<DiskBlockRequest> itm = r.getMerged().iterator();
+            while (itm.hasNext()) rqBkup.add(itm.next().clone());
+        }
 
         raBkup.clear();
         it = requestsArriving.iterator();
@@ -502,8 +1156,18 @@ public class ContextDisk {
     public void restoreBackup() {
         // Restore initial state (Time 0) from backup's
         requestServed.clear();
+        servedPath.clear();
+        servedColors.clear();
+        servedPathStart = 0;
+        servedPathGeneration = GENERATIONS.incrementAndGet();
+        requestsCached.clear();
+        served = 0;
+        service = 0;
+        if (cache != null) cache.clear();
+        if (flash != null) flash.clear();
 
         requests.clear();
+        runs = null;
         Iterator<DiskBlockRequest> it = rqBkup.iterator();
         while (it.hasNext()) requests.add(it.next().clone());
 
@@ -515,5 +1179,16 @@ public class ContextDisk {
         DiskState.getInstance().setInitHeadPosition(initHeadPosition);
         DiskState.getInstance().setHeadPosition(initHeadPosition);
     }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        // Copies also head state
+        out.defaultWriteObject();
+        out.writeObject(copyState != null ? copyState : DiskState.getInstance());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        copyState = (DiskState) in.readObject();
+    }
 }
 
@@ -4,42 +4,71 @@ import edu.upc.fib.ossim.utils.ColorCell;
 import edu.upc.fib.ossim.utils.Translation;
 
 import java.awt.*;
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Vector;
 
 /**
  * Disk block request definition, block are uniquely identified by a block number and are
- * numbered sequentially (Logical block addressing (LBA)). Requests have also a time
+ * numbered sequentially (Logical block addressing (LBA)). Requests read or write its block, have also a time
  * when they start to be processed, and information for when they are served: head movement
- * since previous request and accumulate head displacement
+ * since previous request and accumulate head displacement. A request can absorb other requests
+ * for adjacent or identical blocks of the same cylinder (request merging), absorbed requests are
+ * served together with it in the same rotation pass
  *
  * @author Alex Macia
  *
  */
-public class DiskBlockRequest implements Comparable<DiskBlockRequest>, Cloneable {
+public class DiskBlockRequest implements Comparable<DiskBlockRequest>, Cloneable, Serializable {
+    private static final long serialVersionUID = 1L;
     private final int bid;
     private final int init;    // Initial time
     private int movement; // Displacement since previous request
     private int accumulate; // Accumulate Head Displacement
     private Vector<Integer> limits;
     private final Color color;
+    private final boolean write;    // Write request, otherwise read
+    private boolean flush;    // Write of a dirty cached block
+    private boolean cached;    // Served by block cache
+    private List<DiskBlockRequest> merged; // Requests absorbed by this one
+    private boolean absorbed; // Absorbed by another request
+    private int completion; // Serving time in subtime units, -1 not yet served
 
     /**
-     * Constructs a bloc request
+     * Constructs a bloc read request
      *
      * @param bid   block number
      * @param init  time
      * @param color request color
      */
     public DiskBlockRequest(int bid, int init, Color color) {
+        this(bid, init, color, false);
+    }
+
+    /**
+     * Constructs a bloc request
+     *
+     * @param bid   block number
+     * @param init  time
+     * @param color request color
+     * @param write write request, otherwise read
+     */
+    public DiskBlockRequest(int bid, int init, Color color, boolean write) {
         super();
         this.bid = bid;
         this.init = init;
         this.color = color;
+        this.write = write;
         this.limits = new Vector<Integer>();
+        this.merged = new LinkedList<DiskBlockRequest>();
+        this.absorbed = false;
+        this.completion = -1;
     }
 
     /**
-     * Returns scheduling information table header: sector, cylinder, time, movement and accumulate
+     * Returns scheduling information table header: sector, cylinder, time, movement, accumulate and operation
      *
      * @return    scheduling information table header
      */
@@ -51,6 +80,7 @@ public class DiskBlockRequest implements Comparable<DiskBlockRequest>, Cloneable
         header.add(Translation.getInstance().getLabel("dk_31")); // init
         header.add(Translation.getInstance().getLabel("dk_32")); // movement
         header.add(Translation.getInstance().getLabel("dk_33")); // accumulate
+        header.add(Translation.getInstance().getLabel("dk_35")); // operation
         return header;
     }
 
@@ -72,6 +102,51 @@ public class DiskBlockRequest implements Comparable<DiskBlockRequest>, Cloneable
         return init;
     }
 
+    /**
+     * Returns true if request writes its block, otherwise reads it
+     *
+     * @return    write request
+     */
+    public boolean isWrite() {
+        return write;
+    }
+
+    /**
+     * Returns true if request writes a dirty cached block
+     *
+     * @return    flush request
+     */
+    public boolean isFlush() {
+        return flush;
+    }
+
+    /**
+     * Sets request writes a dirty cached block
+     *
+     * @param flush flush request
+     */
+    public void setFlush(boolean flush) {
+        this.flush = flush;
+    }
+
+    /**
+     * Returns true if request has been served by block cache
+     *
+     * @return    request served by cache
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * Sets request served by block cache
+     *
+     * @param cached request served by cache
+     */
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
     /**
      * Gets request movement
      *
@@ -136,8 +211,103 @@ public class DiskBlockRequest implements Comparable<DiskBlockRequest>, Cloneable
     }
 
     /**
-     * Returns scheduling information table data:  sector, cylinder, time, movement and accumulate.
-     * Sectors background color is request's color
+     * Gets first block of the run covered by this request and its absorbed requests
+     *
+     * @return first block of the run
+     */
+    public int getFirstBid() {
+        int first = bid;
+        Iterator<DiskBlockRequest> it = merged.iterator();
+        while (it.hasNext()) first = Math.min(first, it.next().getBid());
+        return first;
+    }
+
+    /**
+     * Gets last block of the run covered by this request and its absorbed requests
+     *
+     * @return last block of the run
+     */
+    public int getLastBid() {
+        int last = bid;
+        Iterator<DiskBlockRequest> it = merged.iterator();
+        while (it.hasNext()) last = Math.max(last, it.next().getBid());
+        return last;
+    }
+
+    /**
+     * Returns true if block <code>b</code> is the same, or is adjacent to, the run covered by this
+     * request, both in the same cylinder
+     *
+     * @param b       block number
+     * @param sectors sectors per cylinder
+     * @return    block can be merged into this request
+     */
+    public boolean isMergeable(int b, int sectors) {
+        if (b / sectors != bid / sectors) return false;
+        return b >= getFirstBid() - 1 && b <= getLastBid() + 1;
+    }
+
+    /**
+     * Absorbs request <code>r</code> (and requests previously absorbed by r),
+     * they will be served together with this one
+     *
+     * @param r request to absorb
+     */
+    public void merge(DiskBlockRequest r) {
+        merged.add(r);
+        merged.addAll(r.getMerged());
+        r.getMerged().clear();
+        r.setAbsorbed(true);
+    }
+
+    /**
+     * Gets requests absorbed by this one
+     *
+     * @return absorbed requests
+     */
+    public List<DiskBlockRequest> getMerged() {
+        return merged;
+    }
+
+    /**
+     * Returns true if this request has been absorbed by another one
+     *
+     * @return    request absorbed
+     */
+    public boolean isAbsorbed() {
+        return absorbed;
+    }
+
+    /**
+     * Sets request absorbed by another one
+     *
+     * @param absorbed request absorbed
+     */
+    public void setAbsorbed(boolean absorbed) {
+        this.absorbed = absorbed;
+    }
+
+    /**
+     * Gets serving time in subtime units, -1 if not yet served
+     *
+     * @return    serving time
+     */
+    public int getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Sets serving time in subtime units
+     *
+     * @param completion serving time
+     */
+    public void setCompletion(int completion) {
+        this.completion = completion;
+    }
+
+    /**
+     * Returns scheduling information table data:  sector, cylinder, time, movement, accumulate and operation
+     * (read, write or flush, served by cache or not). Sectors background color is request's color
      *
      * @return    scheduling information table data
      * @see ColorCell
@@ -150,6 +320,12 @@ public class DiskBlockRequest implements Comparable<DiskBlockRequest>, Cloneable
         info.add(new ColorCell(Integer.toString(init), Color.WHITE));
         info.add(new ColorCell(Integer.toString(movement), Color.WHITE));
         info.add(new ColorCell(Integer.toString(accumulate), Color.WHITE));
+        String operation;
+        if (flush) operation = Translation.getInstance().getLabel("dk_38");
+        else if (write) operation = Translation.getInstance().getLabel("dk_37");
+        else operation = Translation.getInstance().getLabel("dk_36");
+        if (cached) operation += " (" + Translation.getInstance().getLabel("dk_39") + ")";
+        info.add(new ColorCell(operation, Color.WHITE));
         return info;
     }
 
@@ -175,6 +351,10 @@ public class DiskBlockRequest implements Comparable<DiskBlockRequest>, Cloneable
         attribute.add("color");
         attribute.add(Integer.toString(color.getRGB()));
         data.add(attribute);
+        attribute = new Vector<String>();
+        attribute.add("write");
+        attribute.add(Boolean.toString(write));
+        data.add(attribute);
         return data;
     }
 
@@ -202,6 +382,12 @@ public class DiskBlockRequest implements Comparable<DiskBlockRequest>, Cloneable
         } catch (CloneNotSupportedException e) {
             e.printStackTrace();
         }
+        if (clone != null) {
+            clone.merged = new LinkedList<DiskBlockRequest>();
+            clone.absorbed = false;
+            clone.completion = -1;
+            clone.cached = false;
+        }
         return clone;
     }
 }
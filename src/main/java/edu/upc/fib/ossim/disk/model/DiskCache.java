@@ -0,0 +1,181 @@
+package edu.upc.fib.ossim.disk.model;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Block cache between requests and disk scheduler. Blocks replacement is delegated to a
+ * cache replacement strategy (Strategy Pattern).
+ * <ul>
+ * <li>Read requests for cached blocks (hits) are served from cache, misses are queued at disk
+ * and once served its block and the next <code>readAhead</code> blocks of the same cylinder are cached</li>
+ * <li>Writes are absorbed by cache (write-back), dirty blocks are written to disk by a flusher every
+ * <code>"FLUSH_INTERVAL"</code> time units or when evicted</li>
+ * </ul>
+ *
+ * @author Alex Macia
+ */
+public class DiskCache implements Serializable {
+    private static final long serialVersionUID = 1L;
+    public static final int FLUSH_INTERVAL = 5;
+
+    private final DiskCacheStrategy policy;
+    private final int readAhead;
+    private final TreeMap<Integer, DiskBlockRequest> dirty;    // Dirty block -> last write request. Flushed in block order
+    private int lookups;    // Requests reaching cache
+    private int hits;    // Requests for cached blocks
+    private int flushed;    // Dirty blocks written to disk
+
+    /**
+     * Constructs a block cache
+     *
+     * @param policy    cache replacement strategy
+     * @param readAhead blocks read ahead after a read miss
+     */
+    public DiskCache(DiskCacheStrategy policy, int readAhead) {
+        this.policy = policy;
+        this.readAhead = readAhead;
+        dirty = new TreeMap<Integer, DiskBlockRequest>();
+    }
+
+    /**
+     * Gets cache replacement algorithm information
+     *
+     * @return    algorithm information
+     * @see DiskCacheStrategy#getAlgorithmInfo()
+     */
+    public String getAlgorithmInfo() {
+        return policy.getAlgorithmInfo();
+    }
+
+    /**
+     * Gets cache capacity (blocks)
+     *
+     * @return    cache capacity
+     */
+    public int getCapacity() {
+        return policy.getCapacity();
+    }
+
+    /**
+     * Gets read ahead blocks
+     *
+     * @return    read ahead blocks
+     */
+    public int getReadAhead() {
+        return readAhead;
+    }
+
+    /**
+     * Empties cache and statistics, time 0
+     */
+    public void clear() {
+        policy.clear();
+        dirty.clear();
+        lookups = 0;
+        hits = 0;
+        flushed = 0;
+    }
+
+    /**
+     * Request <code>r</code> reaches cache. Read hits and writes are absorbed by cache,
+     * write requests for evicted dirty blocks are added to <code>flush</code>
+     *
+     * @param r     block request
+     * @param time  current simulation time
+     * @param flush write requests to queue at disk
+     * @return    request absorbed, otherwise it must be served by disk
+     */
+    public boolean access(DiskBlockRequest r, int time, List<DiskBlockRequest> flush) {
+        lookups++;
+        boolean hit = policy.contains(r.getBid());
+        if (hit) hits++;
+
+        if (r.isWrite()) {
+            reference(r.getBid(), time, flush);
+            dirty.put(r.getBid(), r);
+            return true;
+        }
+        if (hit) reference(r.getBid(), time, flush);
+        return hit;
+    }
+
+    /**
+     * Caches a block read from disk and the next <code>readAhead</code> blocks of its cylinder,
+     * write requests for evicted dirty blocks are added to <code>flush</code>
+     *
+     * @param bid     block number read from disk
+     * @param sectors sectors per cylinder
+     * @param time    current simulation time
+     * @param flush   write requests to queue at disk
+     */
+    public void fill(int bid, int sectors, int time, List<DiskBlockRequest> flush) {
+        reference(bid, time, flush);
+        int last = Math.min(bid + readAhead, (bid / sectors + 1) * sectors - 1);
+        for (int b = bid + 1; b <= last; b++) {
+            if (!policy.contains(b)) reference(b, time, flush);
+        }
+    }
+
+    /**
+     * Flusher, all dirty blocks are written to disk. Write requests are added to <code>flush</code>
+     *
+     * @param time  current simulation time
+     * @param flush write requests to queue at disk
+     */
+    public void flushDirty(int time, List<DiskBlockRequest> flush) {
+        Iterator<DiskBlockRequest> it = dirty.values().iterator();
+        while (it.hasNext()) flush.add(flushRequest(it.next(), time));
+        dirty.clear();
+    }
+
+    /**
+     * Returns true if there are no dirty blocks
+     *
+     * @return    no dirty blocks
+     */
+    public boolean isClean() {
+        return dirty.isEmpty();
+    }
+
+    private void reference(int bid, int time, List<DiskBlockRequest> flush) {
+        int evicted = policy.reference(bid);
+        if (evicted >= 0 && dirty.containsKey(evicted)) flush.add(flushRequest(dirty.remove(evicted), time));
+    }
+
+    private DiskBlockRequest flushRequest(DiskBlockRequest w, int time) {
+        DiskBlockRequest f = new DiskBlockRequest(w.getBid(), time, w.getColor(), true);
+        f.setFlush(true);
+        flushed++;
+        return f;
+    }
+
+    /**
+     * Gets requests that reached cache
+     *
+     * @return    requests that reached cache
+     */
+    public int getLookups() {
+        return lookups;
+    }
+
+    /**
+     * Gets requests for cached blocks
+     *
+     * @return    cache hits
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets dirty blocks written to disk
+     *
+     * @return    flushed blocks
+     */
+    public int getFlushed() {
+        return flushed;
+    }
+}
@@ -0,0 +1,48 @@
+package edu.upc.fib.ossim.disk.model;
+
+import java.io.Serializable;
+
+/**
+ * Strategy Interface for block cache replacement (Strategy Pattern).
+ * Any cache replacement algorithm must implement this strategy.
+ *
+ * @author Alex Macia
+ */
+public interface DiskCacheStrategy extends Serializable {
+
+    /**
+     * Gets algorithm information
+     *
+     * @return    algorithm information
+     */
+    String getAlgorithmInfo();
+
+    /**
+     * Gets cache capacity (blocks)
+     *
+     * @return    cache capacity
+     */
+    int getCapacity();
+
+    /**
+     * Returns true if block is cached
+     *
+     * @param bid block number
+     * @return    block is cached
+     */
+    boolean contains(int bid);
+
+    /**
+     * References a block. A cached block updates its replacement information,
+     * otherwise block is cached, evicting another block if cache is full
+     *
+     * @param bid block number
+     * @return    evicted block number or -1 if no block is evicted
+     */
+    int reference(int bid);
+
+    /**
+     * Empties cache
+     */
+    void clear();
+}
@@ -0,0 +1,103 @@
+package edu.upc.fib.ossim.disk.model;
+
+import edu.upc.fib.ossim.utils.Translation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Block cache replacement strategy implementation for 2Q.
+ * Blocks referenced once are kept in a FIFO queue (A1in), when evicted from it they are remembered
+ * in a ghost queue (A1out). Blocks referenced again while remembered are promoted to a LRU queue (Am),
+ * so a long sequential scan can not flush frequently used blocks.
+ *
+ * @author Alex Macia
+ */
+public class DiskCacheStrategy2Q extends DiskCacheStrategyAdapter {
+    private static final long serialVersionUID = 1L;
+    private final LinkedHashMap<Integer, Boolean> a1in;    // Referenced once, FIFO
+    private final LinkedHashMap<Integer, Boolean> a1out;    // Ghost blocks evicted from a1in, FIFO
+    private final LinkedHashMap<Integer, Boolean> am;    // Referenced again, LRU
+    private final int kin;    // a1in size threshold
+    private final int kout;    // a1out max size
+
+    /**
+     * Constructs a 2Q cache, A1in threshold is a quarter of capacity and
+     * A1out remembers half capacity blocks
+     *
+     * @param capacity cache capacity (blocks)
+     */
+    public DiskCacheStrategy2Q(int capacity) {
+        super(capacity);
+        a1in = new LinkedHashMap<Integer, Boolean>();
+        a1out = new LinkedHashMap<Integer, Boolean>();
+        am = new LinkedHashMap<Integer, Boolean>(capacity, 0.75f, true);
+        kin = Math.max(1, capacity / 4);
+        kout = Math.max(1, capacity / 2);
+    }
+
+    /**
+     * Gets 2Q algorithm information
+     *
+     * @return    algorithm information
+     */
+    public String getAlgorithmInfo() {
+        return Translation.getInstance().getLabel("dk_73");
+    }
+
+    /**
+     * Returns true if block is at A1in or Am queues
+     *
+     * @param bid block number
+     * @return    block is cached
+     */
+    public boolean contains(int bid) {
+        return a1in.containsKey(bid) || am.containsKey(bid);
+    }
+
+    /**
+     * References a block. Hits at Am move block to most recently used, hits at A1in do nothing.
+     * Misses remembered at A1out are cached into Am, other misses into A1in
+     *
+     * @param bid block number
+     * @return    evicted block number or -1 if no block is evicted
+     */
+    public int reference(int bid) {
+        if (am.get(bid) != null) return -1;
+        if (a1in.containsKey(bid)) return -1;
+
+        int evicted = -1;
+        if (a1in.size() + am.size() >= capacity) evicted = reclaim();
+
+        if (a1out.remove(bid) != null) am.put(bid, Boolean.TRUE);
+        else a1in.put(bid, Boolean.TRUE);
+        return evicted;
+    }
+
+    private int reclaim() {
+        // Evicts oldest A1in block (remembering it) while A1in exceeds its threshold, otherwise LRU Am block
+        if (a1in.size() > kin || am.isEmpty()) {
+            int evicted = removeFirst(a1in);
+            a1out.put(evicted, Boolean.TRUE);
+            if (a1out.size() > kout) removeFirst(a1out);
+            return evicted;
+        }
+        return removeFirst(am);
+    }
+
+    private int removeFirst(LinkedHashMap<Integer, Boolean> queue) {
+        Iterator<Integer> it = queue.keySet().iterator();
+        int first = it.next();
+        it.remove();
+        return first;
+    }
+
+    /**
+     * Empties cache and ghost queue
+     */
+    public void clear() {
+        a1in.clear();
+        a1out.clear();
+        am.clear();
+    }
+}
@@ -0,0 +1,132 @@
+package edu.upc.fib.ossim.disk.model;
+
+import edu.upc.fib.ossim.utils.Translation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Block cache replacement strategy implementation for ARC (Adaptive Replacement Cache).
+ * Cached blocks are split in T1 (referenced once) and T2 (referenced at least twice), both LRU ordered.
+ * Ghost lists B1 and B2 remember blocks evicted from T1 and T2, a ghost hit adapts the target
+ * size <code>p</code> of T1, balancing recency and frequency according to workload.
+ *
+ * @author Alex Macia
+ */
+public class DiskCacheStrategyARC extends DiskCacheStrategyAdapter {
+    private static final long serialVersionUID = 1L;
+    private final LinkedHashMap<Integer, Boolean> t1;    // Cached, referenced once. LRU first
+    private final LinkedHashMap<Integer, Boolean> t2;    // Cached, referenced more than once. LRU first
+    private final LinkedHashMap<Integer, Boolean> b1;    // Ghost blocks evicted from t1
+    private final LinkedHashMap<Integer, Boolean> b2;    // Ghost blocks evicted from t2
+    private int p;    // T1 target size
+
+    /**
+     * Constructs an ARC cache
+     *
+     * @param capacity cache capacity (blocks)
+     */
+    public DiskCacheStrategyARC(int capacity) {
+        super(capacity);
+        t1 = new LinkedHashMap<Integer, Boolean>();
+        t2 = new LinkedHashMap<Integer, Boolean>();
+        b1 = new LinkedHashMap<Integer, Boolean>();
+        b2 = new LinkedHashMap<Integer, Boolean>();
+        p = 0;
+    }
+
+    /**
+     * Gets ARC algorithm information
+     *
+     * @return    algorithm information
+     */
+    public String getAlgorithmInfo() {
+        return Translation.getInstance().getLabel("dk_74");
+    }
+
+    /**
+     * Returns true if block is at T1 or T2 lists
+     *
+     * @param bid block number
+     * @return    block is cached
+     */
+    public boolean contains(int bid) {
+        return t1.containsKey(bid) || t2.containsKey(bid);
+    }
+
+    /**
+     * References a block. Hits move block to T2 most recently used. Ghost hits adapt T1 target size and
+     * cache block into T2, other misses cache block into T1
+     *
+     * @param bid block number
+     * @return    evicted block number or -1 if no block is evicted
+     */
+    public int reference(int bid) {
+        if (t1.remove(bid) != null || t2.remove(bid) != null) {
+            t2.put(bid, Boolean.TRUE);
+            return -1;
+        }
+
+        int evicted = -1;
+        if (b1.containsKey(bid)) { // Recency ghost hit, T1 grows
+            p = Math.min(capacity, p + Math.max(b2.size() / b1.size(), 1));
+            evicted = replace(false);
+            b1.remove(bid);
+            t2.put(bid, Boolean.TRUE);
+            return evicted;
+        }
+        if (b2.containsKey(bid)) { // Frequency ghost hit, T1 shrinks
+            p = Math.max(0, p - Math.max(b1.size() / b2.size(), 1));
+            evicted = replace(true);
+            b2.remove(bid);
+            t2.put(bid, Boolean.TRUE);
+            return evicted;
+        }
+
+        if (t1.size() + b1.size() == capacity) {
+            if (t1.size() < capacity) {
+                removeFirst(b1);
+                evicted = replace(false);
+            } else evicted = removeFirst(t1);
+        } else {
+            int total = t1.size() + t2.size() + b1.size() + b2.size();
+            if (total >= capacity) {
+                if (total == 2 * capacity) removeFirst(b2);
+                evicted = replace(false);
+            }
+        }
+        t1.put(bid, Boolean.TRUE);
+        return evicted;
+    }
+
+    private int replace(boolean ghostB2) {
+        // Evicts LRU block from T1 or T2 depending on T1 target size, remembering it in its ghost list
+        int evicted = -1;
+        if (!t1.isEmpty() && ((ghostB2 && t1.size() == p) || t1.size() > p || t2.isEmpty())) {
+            evicted = removeFirst(t1);
+            b1.put(evicted, Boolean.TRUE);
+        } else if (!t2.isEmpty()) {
+            evicted = removeFirst(t2);
+            b2.put(evicted, Boolean.TRUE);
+        }
+        return evicted;
+    }
+
+    private int removeFirst(LinkedHashMap<Integer, Boolean> list) {
+        Iterator<Integer> it = list.keySet().iterator();
+        int first = it.next();
+        it.remove();
+        return first;
+    }
+
+    /**
+     * Empties cache and ghost lists
+     */
+    public void clear() {
+        t1.clear();
+        t2.clear();
+        b1.clear();
+        b2.clear();
+        p = 0;
+    }
+}
@@ -0,0 +1,30 @@
+package edu.upc.fib.ossim.disk.model;
+
+/**
+ * Abstract class that implements interface DiskCacheStrategy and
+ * contains generic behaviors of all cache replacement algorithms
+ *
+ * @author Alex Macia
+ */
+public abstract class DiskCacheStrategyAdapter implements DiskCacheStrategy {
+    private static final long serialVersionUID = 1L;
+    protected final int capacity;
+
+    /**
+     * Constructs a cache replacement strategy
+     *
+     * @param capacity cache capacity (blocks)
+     */
+    public DiskCacheStrategyAdapter(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets cache capacity (blocks)
+     *
+     * @return    cache capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,91 @@
+package edu.upc.fib.ossim.disk.model;
+
+import edu.upc.fib.ossim.utils.Translation;
+
+import java.util.Arrays;
+import java.util.Hashtable;
+
+/**
+ * Block cache replacement strategy implementation for CLOCK (second chance).
+ * Cached blocks are arranged in a circular buffer, a hand sweeps it clearing reference bits
+ * and evicts the first block whose reference bit is already clear.
+ *
+ * @author Alex Macia
+ */
+public class DiskCacheStrategyCLOCK extends DiskCacheStrategyAdapter {
+    private static final long serialVersionUID = 1L;
+    private final int[] frames;    // Cached block at every frame, -1 empty
+    private final boolean[] referenced;    // Reference bits
+    private final Hashtable<Integer, Integer> map;    // block number -> frame
+    private int hand;
+
+    /**
+     * Constructs a CLOCK cache
+     *
+     * @param capacity cache capacity (blocks)
+     */
+    public DiskCacheStrategyCLOCK(int capacity) {
+        super(capacity);
+        frames = new int[capacity];
+        referenced = new boolean[capacity];
+        map = new Hashtable<Integer, Integer>();
+        clear();
+    }
+
+    /**
+     * Gets CLOCK algorithm information
+     *
+     * @return    algorithm information
+     */
+    public String getAlgorithmInfo() {
+        return Translation.getInstance().getLabel("dk_72");
+    }
+
+    /**
+     * Returns true if block is cached
+     *
+     * @param bid block number
+     * @return    block is cached
+     */
+    public boolean contains(int bid) {
+        return map.containsKey(bid);
+    }
+
+    /**
+     * References a block. Hits set block reference bit, misses sweep the clock hand giving a second chance to referenced blocks
+     *
+     * @param bid block number
+     * @return    evicted block number or -1 if no block is evicted
+     */
+    public int reference(int bid) {
+        Integer frame = map.get(bid);
+        if (frame != null) { // Hit
+            referenced[frame] = true;
+            return -1;
+        }
+
+        // Second chance sweep
+        while (frames[hand] >= 0 && referenced[hand]) {
+            referenced[hand] = false;
+            hand = (hand + 1) % capacity;
+        }
+
+        int evicted = frames[hand];
+        if (evicted >= 0) map.remove(evicted);
+        frames[hand] = bid;
+        referenced[hand] = true;
+        map.put(bid, hand);
+        hand = (hand + 1) % capacity;
+        return evicted;
+    }
+
+    /**
+     * Empties cache
+     */
+    public void clear() {
+        Arrays.fill(frames, -1);
+        Arrays.fill(referenced, false);
+        map.clear();
+        hand = 0;
+    }
+}
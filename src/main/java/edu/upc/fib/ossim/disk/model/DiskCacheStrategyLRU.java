@@ -0,0 +1,72 @@
+package edu.upc.fib.ossim.disk.model;
+
+import edu.upc.fib.ossim.utils.Translation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Block cache replacement strategy implementation for LRU.
+ * LRU evicts the least recently referenced block.
+ *
+ * @author Alex Macia
+ */
+public class DiskCacheStrategyLRU extends DiskCacheStrategyAdapter {
+    private static final long serialVersionUID = 1L;
+    private final LinkedHashMap<Integer, Boolean> blocks; // Access ordered, least recently used first
+
+    /**
+     * Constructs a LRU cache
+     *
+     * @param capacity cache capacity (blocks)
+     */
+    public DiskCacheStrategyLRU(int capacity) {
+        super(capacity);
+        blocks = new LinkedHashMap<Integer, Boolean>(capacity, 0.75f, true);
+    }
+
+    /**
+     * Gets LRU algorithm information
+     *
+     * @return    algorithm information
+     */
+    public String getAlgorithmInfo() {
+        return Translation.getInstance().getLabel("dk_71");
+    }
+
+    /**
+     * Returns true if block is cached
+     *
+     * @param bid block number
+     * @return    block is cached
+     */
+    public boolean contains(int bid) {
+        return blocks.containsKey(bid);
+    }
+
+    /**
+     * References a block. Hits move block to most recently used, misses evict least recently used block if cache is full
+     *
+     * @param bid block number
+     * @return    evicted block number or -1 if no block is evicted
+     */
+    public int reference(int bid) {
+        if (blocks.get(bid) != null) return -1; // Hit, moves block to most recently used
+
+        int evicted = -1;
+        if (blocks.size() >= capacity) {
+            Iterator<Integer> it = blocks.keySet().iterator();
+            evicted = it.next();
+            it.remove();
+        }
+        blocks.put(bid, Boolean.TRUE);
+        return evicted;
+    }
+
+    /**
+     * Empties cache
+     */
+    public void clear() {
+        blocks.clear();
+    }
+}
@@ -0,0 +1,91 @@
+package edu.upc.fib.ossim.disk.model;
+
+import edu.upc.fib.ossim.utils.SoSimException;
+
+import java.awt.*;
+import java.util.Vector;
+
+
+/**
+ * Builds disk scheduling model objects from settings and simulation files, shared by disk presenter
+ * and disk batch: scheduling algorithms, block caches and devices by name, and requests from simulation files
+ *
+ * @author Alex Macia
+ */
+public class DiskFactory {
+    public static final String[] ALGORITHMS = {"FIFO", "LIFO", "STF", "LOOP", "CLOOP", "SCAN", "CSCAN"};    // Scheduling algorithms names
+    public static final String[] CACHES = {"CACHE_NONE", "CACHE_LRU", "CACHE_CLOCK", "CACHE_2Q", "CACHE_ARC"};    // Cache replacement algorithms names
+    public static final String[] DEVICES = {"DEV_HDD", "DEV_SSD", "DEV_SSD_CB"};    // Devices names
+
+    private DiskFactory() {
+    }
+
+    /**
+     * Creates a disk scheduling algorithm
+     *
+     * @param management algorithm name: FIFO, LIFO, STF, LOOP, CLOOP, SCAN or CSCAN
+     * @return disk scheduling algorithm
+     */
+    public static DiskStrategy createAlgorithm(String management) {
+        if ("LIFO".equals(management)) return new DiskStrategyLIFO();
+        if ("STF".equals(management)) return new DiskStrategySTF();
+        if ("LOOP".equals(management)) return new DiskStrategyLOOK();
+        if ("CLOOP".equals(management)) return new DiskStrategyCLOOK();
+        if ("SCAN".equals(management)) return new DiskStrategySCAN();
+        if ("CSCAN".equals(management)) return new DiskStrategyCSCAN();
+        return new DiskStrategyFIFO();
+    }
+
+    /**
+     * Creates a block cache
+     *
+     * @param cache     replacement algorithm name: CACHE_NONE, CACHE_LRU, CACHE_CLOCK, CACHE_2Q or CACHE_ARC
+     * @param size      cache size in blocks
+     * @param readAhead blocks read ahead
+     * @return block cache, null if there is no cache
+     */
+    public static DiskCache createCache(String cache, int size, int readAhead) {
+        DiskCacheStrategy policy = null;
+        if ("CACHE_LRU".equals(cache)) policy = new DiskCacheStrategyLRU(size);
+        if ("CACHE_CLOCK".equals(cache)) policy = new DiskCacheStrategyCLOCK(size);
+        if ("CACHE_2Q".equals(cache)) policy = new DiskCacheStrategy2Q(size);
+        if ("CACHE_ARC".equals(cache)) policy = new DiskCacheStrategyARC(size);
+        if (policy == null) return null;
+        return new DiskCache(policy, readAhead);
+    }
+
+    /**
+     * Creates a device
+     *
+     * @param device device name: DEV_HDD, DEV_SSD or DEV_SSD_CB
+     * @return flash device, null if device is a rotational disk
+     */
+    public static FlashDevice createDevice(String device) {
+        if ("DEV_SSD".equals(device)) return new FlashDevice(ContextDisk.getNBLOCKS(), false);
+        if ("DEV_SSD_CB".equals(device)) return new FlashDevice(ContextDisk.getNBLOCKS(), true);
+        return null;
+    }
+
+    /**
+     * Adds block requests read from a simulation file
+     *
+     * @param context disk scheduling model
+     * @param data    requests, every request attribute is a name and value pair
+     * @param time    current time
+     * @throws SoSimException request's block is out of disk or maximum number of requests has been reached
+     */
+    public static void addRequests(ContextDisk context, Vector<Vector<Vector<String>>> data, int time) throws SoSimException {
+        for (int i = 0; i < data.size(); i++) { // Requests
+            Vector<Vector<String>> process = data.get(i);
+            Vector<Object> requestData = new Vector<Object>();
+
+            requestData.add(Integer.valueOf(process.get(0).get(1))); // bid. Value at position 1
+            requestData.add(Integer.valueOf(process.get(1).get(1))); // init. Value at position 1
+            requestData.add(new Color(Integer.valueOf(process.get(2).get(1)))); // color. Value at position 1 (RGB value)
+            if (process.size() > 3)
+                requestData.add(Boolean.valueOf(process.get(3).get(1))); // write. Optional, value at position 1
+
+            context.addRequest(requestData, time);
+        }
+    }
+}
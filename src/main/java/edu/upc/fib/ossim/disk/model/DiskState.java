@@ -1,5 +1,6 @@
 package edu.upc.fib.ossim.disk.model;
 
+import java.io.Serializable;
 import java.util.Vector;
 
 /**
@@ -10,7 +11,8 @@ import java.util.Vector;
  *
  * @author Àlex
  */
-public class DiskState {
+public class DiskState implements Serializable {
+    private static final long serialVersionUID = 1L;
     private static DiskState instance = null;
 
     private int sectors;
@@ -198,4 +200,34 @@ public class DiskState {
     public void setAccumulate(int accumulate) {
         this.accumulate = accumulate;
     }
+
+    /**
+     * Returns a copy of current disk state, used to run a shadow simulation
+     * without losing current state
+     *
+     * @return disk state copy
+     * @see #restore(DiskState)
+     */
+    public DiskState copy() {
+        DiskState copy = new DiskState();
+        copy.restore(this);
+        return copy;
+    }
+
+    /**
+     * Restores disk state from a previous copy
+     *
+     * @param state disk state copy
+     * @see #copy()
+     */
+    public void restore(DiskState state) {
+        sectors = state.sectors;
+        cylinders = state.cylinders;
+        headPosition = state.headPosition;
+        initHeadPosition = state.initHeadPosition;
+        increment = state.increment;
+        movement = state.movement;
+        accumulate = state.accumulate;
+        limits = new Vector<Integer>(state.limits);
+    }
 }
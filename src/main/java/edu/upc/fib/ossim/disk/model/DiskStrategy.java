@@ -1,5 +1,6 @@
 package edu.upc.fib.ossim.disk.model;
 
+import java.io.Serializable;
 import java.util.List;
 
 /**
@@ -8,7 +9,7 @@ import java.util.List;
  *
  * @author Alex Macia
  */
-public interface DiskStrategy {
+public interface DiskStrategy extends Serializable {
 
     /**
      * Gets algorithm information
@@ -39,4 +40,13 @@ public interface DiskStrategy {
      * @param request
      */
     void serveRequest(DiskBlockRequest request);
+
+    /**
+     * Replaces a queued request by the request absorbing it (merged requests), replacement takes its queue position.
+     * Algorithms keeping a selected request must select the replacement instead
+     *
+     * @param request     queued request absorbed
+     * @param replacement request absorbing it
+     */
+    void replaceRequest(DiskBlockRequest request, DiskBlockRequest replacement);
 }
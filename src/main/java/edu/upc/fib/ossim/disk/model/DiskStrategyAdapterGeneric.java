@@ -7,6 +7,7 @@ package edu.upc.fib.ossim.disk.model;
  * @author Àlex
  */
 public abstract class DiskStrategyAdapterGeneric implements DiskStrategy {
+    private static final long serialVersionUID = 1L;
     /**
      * Serves request. Sets its accumulate, movement and limits. Increase DiskState accumulate, and initialize
      * DiskState movement and limits.
@@ -22,4 +23,13 @@ public abstract class DiskStrategyAdapterGeneric implements DiskStrategy {
         DiskState.getInstance().setMovement(0);
         DiskState.getInstance().initLimits();
     }
+
+    /**
+     * Replaces a queued request by the request absorbing it. Nothing to do, no request is kept selected
+     *
+     * @param request     queued request absorbed
+     * @param replacement request absorbing it
+     */
+    public void replaceRequest(DiskBlockRequest request, DiskBlockRequest replacement) {
+    }
 }
@@ -7,6 +7,7 @@ package edu.upc.fib.ossim.disk.model;
  * @author Àlex
  */
 public abstract class DiskStrategyAdapterIFOS extends DiskStrategyAdapterGeneric {
+    private static final long serialVersionUID = 1L;
 
     protected DiskBlockRequest currentRequest;
 
@@ -51,4 +52,14 @@ public abstract class DiskStrategyAdapterIFOS extends DiskStrategyAdapterGeneric
         super.serveRequest(request);
         currentRequest = null;
     }
+
+    /**
+     * Selects replacement if absorbed request was currentRequest
+     *
+     * @param request     queued request absorbed
+     * @param replacement request absorbing it
+     */
+    public void replaceRequest(DiskBlockRequest request, DiskBlockRequest replacement) {
+        if (currentRequest == request) currentRequest = replacement;
+    }
 }
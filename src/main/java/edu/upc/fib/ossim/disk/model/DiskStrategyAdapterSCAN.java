@@ -10,6 +10,7 @@ import java.util.List;
  * @author Àlex
  */
 public abstract class DiskStrategyAdapterSCAN extends DiskStrategyAdapterGeneric {
+    private static final long serialVersionUID = 1L;
     /**
      * Returns nearest request to head position in the same movement direction.
      *
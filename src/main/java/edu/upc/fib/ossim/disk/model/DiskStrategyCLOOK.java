@@ -7,6 +7,7 @@ import java.util.List;
 
 
 public class DiskStrategyCLOOK extends DiskStrategyAdapterGeneric {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Gets LOOK algorithm information
@@ -11,6 +11,7 @@ import edu.upc.fib.ossim.utils.Translation;
  * @author Àlex
  */
 public class DiskStrategyCSCAN extends DiskStrategyAdapterSCAN {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Gets C-SCAN algorithm information
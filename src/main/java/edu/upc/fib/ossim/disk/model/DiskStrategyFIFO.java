@@ -13,6 +13,7 @@ import java.util.List;
  */
 
 public class DiskStrategyFIFO extends DiskStrategyAdapterIFOS {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Gets FIFO algorithm information
@@ -13,6 +13,7 @@ import java.util.List;
  */
 
 public class DiskStrategyLIFO extends DiskStrategyAdapterIFOS {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Gets LIFO algorithm information
@@ -9,6 +9,7 @@ import edu.upc.fib.ossim.utils.Translation;
  */
 
 public class DiskStrategySCAN extends DiskStrategyAdapterSCAN {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Gets SCAN algorithm information
@@ -7,6 +7,7 @@ import java.util.List;
 
 
 public class DiskStrategySTF extends DiskStrategyAdapterIFOS {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Gets STF algorithm information
@@ -0,0 +1,229 @@
+package edu.upc.fib.ossim.disk.model;
+
+import edu.upc.fib.ossim.utils.SoSimException;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Block I/O trace reader. Streams a trace file through memory mapped windows, so traces with
+ * millions of I/Os are replayed without loading them, only next I/O is kept in memory.
+ * Each line is an I/O, two formats are recognized:
+ * <ul>
+ * <li>CSV: <code>timestamp, lba, size, R/W</code></li>
+ * <li>blkparse output: <code>dev cpu seq timestamp pid action rwbs lba + size [process]</code>, only queue (Q) actions</li>
+ * </ul>
+ * Timestamps are seconds, lba and size are 512 bytes sectors. Any other line (headers, comments, other actions) is skipped.
+ * I/Os are mapped onto disk geometry: lba block modulo disk blocks, an I/O larger than a block becomes consecutive block requests.
+ * First I/O arrives at time 1, trace seconds are scaled by <code>"TIME_SCALE"</code>
+ *
+ * @author Alex Macia
+ */
+public class DiskTraceReader implements Serializable {
+    private static final long serialVersionUID = 1L;
+    public static final int BLOCK_SECTORS = 8;    // 512 bytes sectors per block (4 KiB blocks)
+    public static final double TIME_SCALE = 1000;    // Time units per trace second
+    private static final long WINDOW = 64L * 1024 * 1024;    // Mapped window size
+
+    private final File file;
+    private final int nblocks;
+    private final int maxBlocks;
+    private transient RandomAccessFile raf;    // Files are not copied into simulation frames
+    private transient FileChannel channel;
+    private transient MappedByteBuffer buffer;    // Current mapped window, null if none
+    private long offset;    // File offset following current window
+    private final StringBuilder line;
+    private Random random;    // I/O colors, same colors on every replay
+    private double first;    // First I/O timestamp, negative if unknown
+    private int last;    // Last I/O time, arrivals never go back in time
+    private long records;    // I/Os read
+
+    // Next I/O, not yet requested
+    private boolean pending;
+    private int pendingTime;
+    private int pendingBid;
+    private int pendingBlocks;
+    private boolean pendingWrite;
+
+    /**
+     * Constructs a trace reader and reads first I/O
+     *
+     * @param file      trace file
+     * @param nblocks   disk blocks
+     * @param maxBlocks maximum blocks requested by an I/O
+     * @throws SoSimException trace file can not be read
+     */
+    public DiskTraceReader(File file, int nblocks, int maxBlocks) throws SoSimException {
+        this.file = file;
+        this.nblocks = nblocks;
+        this.maxBlocks = maxBlocks;
+        line = new StringBuilder();
+        try {
+            raf = new RandomAccessFile(file, "r");
+            channel = raf.getChannel();
+        } catch (IOException e) {
+            throw new SoSimException("dk_06", " (" + file.getName() + ")");
+        }
+        rewind();
+    }
+
+    /**
+     * Gets trace file name
+     *
+     * @return    trace file name
+     */
+    public String getName() {
+        return file.getName();
+    }
+
+    /**
+     * Gets I/Os read from trace
+     *
+     * @return    I/Os read
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Returns true if trace has I/Os not yet requested
+     *
+     * @return    trace has more I/Os
+     */
+    public boolean hasNext() {
+        return pending;
+    }
+
+    /**
+     * Restarts trace from its first I/O
+     */
+    public void rewind() {
+        offset = 0;
+        buffer = null;
+        random = new Random(0);
+        first = -1;
+        last = 0;
+        records = 0;
+        advance();
+    }
+
+    /**
+     * Adds requests of I/Os arriving until time (included) to arriving list, while less than <code>room</code>
+     * requests have been added. I/Os not added wait, they arrive at a later time
+     *
+     * @param time     simulation time
+     * @param arriving arriving requests list
+     * @param room     requests added at most, an I/O is never split
+     */
+    public void next(int time, List<DiskBlockRequest> arriving, int room) {
+        int added = 0;
+        while (pending && pendingTime <= time && added < room) {
+            Color color = new Color(250 - random.nextInt(100), 250 - random.nextInt(100), 250 - random.nextInt(100));
+            for (int i = 0; i < pendingBlocks; i++) {
+                arriving.add(new DiskBlockRequest((pendingBid + i) % nblocks, time, color, pendingWrite));
+            }
+            added += pendingBlocks;
+            advance();
+        }
+    }
+
+    /**
+     * Closes trace file
+     */
+    public void close() {
+        try {
+            raf.close();
+        } catch (IOException e) {
+            // Nothing to do, file is no longer read
+        }
+        buffer = null;
+        pending = false;
+    }
+
+    private void advance() {
+        // Reads next valid I/O, skipping any other line
+        pending = false;
+        String s = readLine();
+        while (s != null && !parse(s)) s = readLine();
+        if (pending) records++;
+    }
+
+    private boolean parse(String s) {
+        // blkparse: dev cpu seq timestamp pid action rwbs lba + size [process] (dev is major,minor). CSV: timestamp, lba, size, R/W
+        String timestamp, lba, size, rw;
+        String[] f = s.trim().split("\\s+");
+        if (f.length >= 10 && "+".equals(f[8])) {
+            if (!"Q".equals(f[5])) return false;
+            timestamp = f[3];
+            rw = f[6];
+            lba = f[7];
+            size = f[9];
+        } else {
+            f = s.split(",");
+            if (f.length < 4) return false;
+            timestamp = f[0];
+            lba = f[1];
+            size = f[2];
+            rw = f[3];
+        }
+
+        double ts;
+        long sector;
+        long sectors;
+        try {
+            ts = Double.parseDouble(timestamp.trim());
+            sector = Long.parseLong(lba.trim());
+            sectors = Long.parseLong(size.trim());
+        } catch (NumberFormatException e) {
+            return false; // Header or malformed line
+        }
+        if (sector < 0 || sectors <= 0) return false;
+
+        if (first < 0) first = ts;
+        long time = 1 + (long) ((ts - first) * TIME_SCALE);
+        last = (int) Math.max(last, Math.min(time, Integer.MAX_VALUE));
+
+        rw = rw.trim().toUpperCase();
+        pendingTime = last;
+        pendingBid = (int) ((sector / BLOCK_SECTORS) % nblocks);
+        pendingBlocks = (int) Math.min(maxBlocks, (sector % BLOCK_SECTORS + sectors + BLOCK_SECTORS - 1) / BLOCK_SECTORS);
+        pendingWrite = rw.indexOf('W') >= 0 || "1".equals(rw);
+        pending = true;
+        return true;
+    }
+
+    private String readLine() {
+        // Next line, crossing mapped windows, or null at end of file. A read error ends the trace
+        line.setLength(0);
+        try {
+            while (true) {
+                if ((buffer == null || !buffer.hasRemaining()) && !map()) {
+                    if (line.length() == 0) return null;
+                    return line.toString();
+                }
+                byte c = buffer.get();
+                if (c == '\n') return line.toString();
+                if (c != '\r') line.append((char) c);
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean map() throws IOException {
+        // Maps next file window, false at end of file
+        if (!channel.isOpen() || offset >= channel.size()) return false;
+        long length = Math.min(WINDOW, channel.size() - offset);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        offset += length;
+        return true;
+    }
+}
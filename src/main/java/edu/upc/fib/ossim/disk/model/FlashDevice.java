@@ -0,0 +1,290 @@
+package edu.upc.fib.ossim.disk.model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Random;
+
+/**
+ * Flash (SSD) device model. Logical blocks (LBA) are mapped to flash pages by a page-mapped flash translation
+ * layer (FTL). Pages are grouped into erase blocks, pages can not be overwritten: a write programs a free page
+ * of the active erase block and invalidates the page previously mapped. Device has <code>"OVER_PROVISIONING"</code>
+ * percent more pages than logical blocks.<br/>
+ * When free erase blocks drop below <code>"GC_THRESHOLD"</code>, garbage collection relocates valid pages of a victim
+ * block and erases it, victims are selected by:
+ * <ul>
+ * <li>greedy: fewest valid pages</li>
+ * <li>cost-benefit: highest (1-u)*age/2u, u block utilization, age time since block last written</li>
+ * </ul>
+ * Wear leveling: free blocks are allocated least erased first (dynamic) and the least erased block holding data
+ * is relocated when erase counts differ more than <code>"WEAR_THRESHOLD"</code> (static).<br/>
+ * Operations return its latency in subtime units. Device starts in steady state: every logical block written
+ * once and half of them overwritten randomly.
+ *
+ * @author Alex Macia
+ */
+public class FlashDevice implements Serializable {
+    private static final long serialVersionUID = 1L;
+    public static final int PAGES_PER_BLOCK = 8;
+    public static final int OVER_PROVISIONING = 25;
+    public static final int GC_THRESHOLD = 2;
+    public static final int WEAR_THRESHOLD = 8;
+    public static final int READ_LATENCY = 1;
+    public static final int PROGRAM_LATENCY = 2;
+    public static final int ERASE_LATENCY = 8;
+
+    private final boolean costBenefit;    // Garbage collection victim selection, otherwise greedy
+    private final int logicalPages;
+    private final int blocks;    // Erase blocks
+    private final int[] l2p;    // Logical block -> page, -1 not mapped
+    private final int[] p2l;    // Page -> logical block, -1 free or invalid
+    private final int[] valid;    // Valid pages by erase block
+    private final int[] erases;    // Erase count by erase block
+    private final int[] written;    // Last time erase block was written
+    private final boolean[] free;    // Erase block is free
+    private final LinkedList<Integer> freeBlocks;
+    private int active;    // Erase block being written
+    private int nextPage;    // Next free page at active block
+    private int hostWrites;    // Pages written by requests
+    private int flashWrites;    // Pages programmed, relocations included
+    private int collections;    // Garbage collected blocks
+    private int spikes;    // Writes delayed by garbage collection or wear leveling
+    private int maxLatency;    // Max. operation latency
+
+    /**
+     * Constructs a flash device in steady state
+     *
+     * @param logicalPages logical blocks
+     * @param costBenefit  cost-benefit garbage collection, otherwise greedy
+     */
+    public FlashDevice(int logicalPages, boolean costBenefit) {
+        this.logicalPages = logicalPages;
+        this.costBenefit = costBenefit;
+        int pages = logicalPages * (100 + OVER_PROVISIONING) / 100;
+        blocks = (pages + PAGES_PER_BLOCK - 1) / PAGES_PER_BLOCK;
+        l2p = new int[logicalPages];
+        p2l = new int[blocks * PAGES_PER_BLOCK];
+        valid = new int[blocks];
+        erases = new int[blocks];
+        written = new int[blocks];
+        free = new boolean[blocks];
+        freeBlocks = new LinkedList<Integer>();
+        clear();
+    }
+
+    /**
+     * Returns true if garbage collection uses cost-benefit victim selection, otherwise greedy
+     *
+     * @return    cost-benefit garbage collection
+     */
+    public boolean isCostBenefit() {
+        return costBenefit;
+    }
+
+    /**
+     * Erases device and brings it to steady state: writes every logical block once and overwrites
+     * half of them randomly (always the same blocks), then initializes statistics
+     */
+    public void clear() {
+        Arrays.fill(l2p, -1);
+        Arrays.fill(p2l, -1);
+        Arrays.fill(valid, 0);
+        Arrays.fill(erases, 0);
+        Arrays.fill(written, 0);
+        Arrays.fill(free, true);
+        freeBlocks.clear();
+        for (int b = 0; b < blocks; b++) freeBlocks.add(b);
+        active = takeFree();
+        nextPage = 0;
+
+        for (int lba = 0; lba < logicalPages; lba++) write(lba, 0);
+        Random random = new Random(0);
+        for (int i = 0; i < logicalPages / 2; i++) write(random.nextInt(logicalPages), 0);
+
+        hostWrites = 0;
+        flashWrites = 0;
+        collections = 0;
+        spikes = 0;
+        maxLatency = 0;
+    }
+
+    /**
+     * Reads a logical block
+     *
+     * @param lba logical block
+     * @return    latency (subtime units)
+     */
+    public int read(int lba) {
+        maxLatency = Math.max(maxLatency, READ_LATENCY);
+        return READ_LATENCY;
+    }
+
+    /**
+     * Writes a logical block, garbage collection and wear leveling run first if needed
+     *
+     * @param lba logical block
+     * @param now current time (subtime units)
+     * @return    latency (subtime units)
+     */
+    public int write(int lba, int now) {
+        int latency = collect(now) + wearLevel(now);
+        if (latency > 0) spikes++;
+        hostWrites++;
+        latency += program(lba, now);
+        maxLatency = Math.max(maxLatency, latency);
+        return latency;
+    }
+
+    private int program(int lba, int now) {
+        // Programs lba into next free page of active block, invalidating previous page
+        if (nextPage == PAGES_PER_BLOCK) {
+            active = takeFree();
+            nextPage = 0;
+        }
+        int page = active * PAGES_PER_BLOCK + nextPage;
+        nextPage++;
+
+        int old = l2p[lba];
+        if (old >= 0) {
+            p2l[old] = -1;
+            valid[old / PAGES_PER_BLOCK]--;
+        }
+        l2p[lba] = page;
+        p2l[page] = lba;
+        valid[active]++;
+        written[active] = now;
+        flashWrites++;
+        return PROGRAM_LATENCY;
+    }
+
+    private int takeFree() {
+        // Dynamic wear leveling, least erased free block
+        Iterator<Integer> it = freeBlocks.iterator();
+        int block = it.next();
+        while (it.hasNext()) {
+            int b = it.next();
+            if (erases[b] < erases[block]) block = b;
+        }
+        freeBlocks.remove(Integer.valueOf(block));
+        free[block] = false;
+        return block;
+    }
+
+    private int collect(int now) {
+        // Garbage collection while free blocks are below threshold
+        int latency = 0;
+        for (int i = 0; i < blocks && freeBlocks.size() < GC_THRESHOLD; i++) {
+            int victim = selectVictim(now);
+            if (victim < 0 || valid[victim] == PAGES_PER_BLOCK) break; // Nothing to reclaim
+            latency += relocate(victim, now);
+            collections++;
+        }
+        return latency;
+    }
+
+    private int selectVictim(int now) {
+        int victim = -1;
+        double best = -1;
+        for (int b = 0; b < blocks; b++) {
+            if (free[b] || b == active) continue;
+            double score;
+            if (costBenefit) {
+                double u = (double) valid[b] / (double) PAGES_PER_BLOCK;
+                if (u == 0) return b;
+                score = (1 - u) * (now - written[b] + 1) / (2 * u);
+            } else score = PAGES_PER_BLOCK - valid[b];
+            if (score > best) {
+                best = score;
+                victim = b;
+            }
+        }
+        return victim;
+    }
+
+    private int wearLevel(int now) {
+        // Static wear leveling, relocates cold data held by least erased block
+        int coldest = -1;
+        int max = 0;
+        for (int b = 0; b < blocks; b++) {
+            max = Math.max(max, erases[b]);
+            if (free[b] || b == active) continue;
+            if (coldest < 0 || erases[b] < erases[coldest]) coldest = b;
+        }
+        if (coldest < 0 || max - erases[coldest] <= WEAR_THRESHOLD || freeBlocks.isEmpty()) return 0;
+        return relocate(coldest, now);
+    }
+
+    private int relocate(int block, int now) {
+        // Moves valid pages to active block and erases block
+        int latency = 0;
+        for (int page = block * PAGES_PER_BLOCK; page < (block + 1) * PAGES_PER_BLOCK; page++) {
+            if (p2l[page] >= 0) latency += READ_LATENCY + program(p2l[page], now);
+        }
+        Arrays.fill(p2l, block * PAGES_PER_BLOCK, (block + 1) * PAGES_PER_BLOCK, -1);
+        valid[block] = 0;
+        erases[block]++;
+        free[block] = true;
+        freeBlocks.add(block);
+        return latency + ERASE_LATENCY;
+    }
+
+    /**
+     * Gets write amplification: pages programmed / pages written by requests
+     *
+     * @return    write amplification, 0 if no writes
+     */
+    public double getWriteAmplification() {
+        if (hostWrites == 0) return 0;
+        return (double) flashWrites / (double) hostWrites;
+    }
+
+    /**
+     * Gets garbage collected blocks
+     *
+     * @return    garbage collected blocks
+     */
+    public int getCollections() {
+        return collections;
+    }
+
+    /**
+     * Gets writes delayed by garbage collection or wear leveling
+     *
+     * @return    latency spikes
+     */
+    public int getSpikes() {
+        return spikes;
+    }
+
+    /**
+     * Gets max. operation latency
+     *
+     * @return    max. latency (subtime units)
+     */
+    public int getMaxLatency() {
+        return maxLatency;
+    }
+
+    /**
+     * Gets least erase count
+     *
+     * @return    least erase count
+     */
+    public int getMinErases() {
+        int min = erases[0];
+        for (int b = 1; b < blocks; b++) min = Math.min(min, erases[b]);
+        return min;
+    }
+
+    /**
+     * Gets greatest erase count
+     *
+     * @return    greatest erase count
+     */
+    public int getMaxErases() {
+        int max = erases[0];
+        for (int b = 1; b < blocks; b++) max = Math.max(max, erases[b]);
+        return max;
+    }
+}
@@ -9,7 +9,10 @@ import java.awt.geom.Ellipse2D;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 
 
@@ -36,6 +39,10 @@ public class DiskPainter extends PainterTemplate {
     private double intcorr_degree;
     private double intcorr_radi;
     private double intcorr_curve;
+    private Hashtable<Integer, String> drawn;    // Blocks drawn by last paint: requests and head, null if not painted yet
+    private Hashtable<Integer, Rectangle> drawnBounds;    // Their bounds, labels included
+    private List<Object> drawnPlatter;    // Platter geometry drawn by last paint
+    private Hashtable<Integer, GeneralPath> paths;    // Blocks shapes for drawn platter geometry, mapped again while it doesn't change
 
     /**
      * Constructs a DiskPainter, creates the pop up menu and initialize it
@@ -53,7 +60,7 @@ public class DiskPainter extends PainterTemplate {
     /**
      * Draws Hard Disk Platter as a circle and cylinders as circles inside of it,
      * lines from center to perimeter at different degrees intersects those cylinders,
-     * shapes resulting are sectors.
+     * shapes resulting are sectors. Platter is a cached static layer, only requests and head are drawn
      *
      * @param g graphic context
      */
@@ -63,16 +70,41 @@ public class DiskPainter extends PainterTemplate {
         int w = (int) size.getWidth();
         int h = (int) size.getHeight();
 
-        g2.setPaint(Color.white);
-        g2.fillRect(0, 0, w, h);
-        g2.setPaint(Color.BLACK);
-        g2.drawRect(0, 0, w - 1, h - 1);
-
         setupParameters(w, h);
+        List<Object> platter = getPlatter();
+        if (!platter.equals(drawnPlatter)) paths = new Hashtable<Integer, GeneralPath>();
+        drawnPlatter = platter;
+        drawStaticLayer(g2, drawnPlatter);
+
+        // Draw requests
+        remapObjects();
+        drawn = new Hashtable<Integer, String>();
+        drawnBounds = new Hashtable<Integer, Rectangle>();
+        drawBlock(((DiskPresenter) presenter).getRunning(), "", Color.BLACK); // Draw head position
+        Iterator<Integer> it = presenter.iterator(0);
+        while (it.hasNext()) {
+            int block = it.next().intValue();
+            Color color = presenter.getColor(block);
+            drawBlock(block, presenter.getInfo(block).get(0), color);
+        }
+    }
+
+    /**
+     * Paints platter: cylinders and sectors
+     *
+     * @param g static layer graphics
+     */
+    protected void paintStaticLayer(Graphics2D g) {
+        int w = getWidth();
+        int h = getHeight();
+        g.setPaint(Color.white);
+        g.fillRect(0, 0, w, h);
+        g.setPaint(Color.BLACK);
+        g.drawRect(0, 0, w - 1, h - 1);
 
         // Draw cylinders
         for (int i = 0; i <= ((DiskPresenter) presenter).getCylinders(); i++) {
-            g2.draw(new Ellipse2D.Double(disk_x + i * cylinder_offset, disk_y + i * cylinder_offset, disk_w - 2 * i * cylinder_offset, disk_h - 2 * i * cylinder_offset));
+            g.draw(new Ellipse2D.Double(disk_x + i * cylinder_offset, disk_y + i * cylinder_offset, disk_w - 2 * i * cylinder_offset, disk_h - 2 * i * cylinder_offset));
         }
 
         // Draw sectors
@@ -85,36 +117,100 @@ public class DiskPainter extends PainterTemplate {
             sin = Math.sin(rad);
             cos = Math.cos(rad);
 
-            //g2.draw(new Line2D.Double(center_x, center_y, center_x + radi*cos, center_y - radi*sin));
-            g2.draw(new Line2D.Double(center_x + radi * cos * 0.3, center_y - radi * sin * 0.3, center_x + radi * cos, center_y - radi * sin));
+            g.draw(new Line2D.Double(center_x + radi * cos * 0.3, center_y - radi * sin * 0.3, center_x + radi * cos, center_y - radi * sin));
 
             grade_a += grade;
         }
+    }
 
-        // Draw requests
-        map.clear();
-        drawBlock(((DiskPresenter) presenter).getRunning(), "", Color.BLACK); // Draw head position
+    /**
+     * Returns region covering blocks whose request or head changed since last paint
+     *
+     * @return changed region, null if platter has not been painted
+     */
+    protected Rectangle getDirtyRegion() {
+        if (drawn == null || !getPlatter().equals(drawnPlatter)) return null;
+        Hashtable<Integer, String> current = new Hashtable<Integer, String>();
+        Hashtable<Integer, String> infos = new Hashtable<Integer, String>();
+        addBlock(current, infos, ((DiskPresenter) presenter).getRunning(), "", Color.BLACK);
         Iterator<Integer> it = presenter.iterator(0);
         while (it.hasNext()) {
             int block = it.next().intValue();
-            Color color = presenter.getColor(block);
-            drawBlock(block, presenter.getInfo(block).get(0), color);
+            addBlock(current, infos, block, presenter.getInfo(block).get(0), presenter.getColor(block));
+        }
+
+        Rectangle dirty = new Rectangle();
+        Iterator<Integer> ib = current.keySet().iterator();
+        while (ib.hasNext()) {
+            Integer block = ib.next();
+            if (current.get(block).equals(drawn.get(block))) continue;
+            dirty = union(dirty, getBlockBounds(block, infos.get(block), getFontMetrics(getFont())));
+            dirty = union(dirty, drawnBounds.get(block));
         }
+        ib = drawn.keySet().iterator();
+        while (ib.hasNext()) {
+            Integer block = ib.next();
+            if (!current.containsKey(block)) dirty = union(dirty, drawnBounds.get(block));
+        }
+        return dirty;
     }
 
-    private void drawBlock(int block, String info, Color c) {
-        g2.setColor(c);
-        GeneralPath polyline;
+    private List<Object> getPlatter() {
+        // Platter geometry, every block moves when it changes
+        return Arrays.asList(((DiskPresenter) presenter).getCylinders(), ((DiskPresenter) presenter).getSectors(), getSize());
+    }
+
+    private void addBlock(Hashtable<Integer, String> blocks, Hashtable<Integer, String> infos, int block, String info, Color c) {
+        // Block appearance: head and request drawn over it
+        String previous = blocks.get(block);
+        String drawing = info + "/" + c.getRGB();
+        blocks.put(block, previous == null ? drawing : previous + "|" + drawing);
+        String text = infos.get(block);
+        if (text == null || text.length() < info.length()) infos.put(block, info);
+    }
+
+    private static Rectangle union(Rectangle dirty, Rectangle r) {
+        if (r == null) return dirty;
+        if (dirty.isEmpty()) return new Rectangle(r);
+        return dirty.union(r);
+    }
 
+    private Rectangle getBlockBounds(int block, String info, FontMetrics fm) {
+        // Block shape and its label
         BlockSquares bs = getBlockSquares(block);
-        polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD);
+        Rectangle bounds = getBlockPath(bs).getBounds();
+        int x = (int) bs.getPoint(4).x;
+        int y = (int) bs.getPoint(4).y;
+        bounds.add(new Rectangle(x, y - fm.getAscent(), fm.stringWidth(info) + 1, fm.getAscent() + fm.getDescent()));
+        bounds.grow(2, 2);
+        return bounds;
+    }
+
+    private GeneralPath getBlockPath(BlockSquares bs) {
+        GeneralPath polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD);
         polyline.moveTo(bs.getPoint(0).x, bs.getPoint(0).y);
         polyline.quadTo(bs.getPoint(1).x, bs.getPoint(1).y, bs.getPoint(2).x, bs.getPoint(2).y);
         polyline.lineTo(bs.getPoint(3).x, bs.getPoint(3).y);
         polyline.quadTo(bs.getPoint(4).x, bs.getPoint(4).y, bs.getPoint(5).x, bs.getPoint(5).y);
         polyline.closePath();
+        return polyline;
+    }
+
+    private void drawBlock(int block, String info, Color c) {
+        g2.setColor(c);
+        GeneralPath polyline;
+
+        BlockSquares bs = getBlockSquares(block);
+        polyline = paths.get(block);
+        if (polyline == null) {
+            polyline = getBlockPath(bs);
+            paths.put(block, polyline);
+        }
 
         map.put(polyline, Integer.valueOf(block));
+        addBlock(drawn, new Hashtable<Integer, String>(), block, info, c);
+        Rectangle bounds = getBlockBounds(block, info, g2.getFontMetrics());
+        drawnBounds.put(block, union(bounds, drawnBounds.get(block)));
 
         g2.draw(polyline);
         g2.fill(polyline);
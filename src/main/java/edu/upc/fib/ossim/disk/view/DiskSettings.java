@@ -7,7 +7,9 @@ import edu.upc.fib.ossim.utils.Translation;
 
 import javax.swing.*;
 import javax.swing.border.Border;
+import javax.swing.border.TitledBorder;
 import java.awt.*;
+import java.util.Enumeration;
 
 
 /**
@@ -22,6 +24,10 @@ import java.awt.*;
  * <li>Look</li>
  * <li>Circular look (C-Look)</li>
  * </ul>
+ * Requests merging (adjacent or duplicate block requests served together) can be enabled too,
+ * as well as a block cache: replacement algorithm (LRU, CLOCK, 2Q or ARC), size and read ahead blocks.
+ * Device serving requests is a rotational disk or a flash device (greedy or cost-benefit garbage collection).
+ * Requests may be replayed from a block I/O trace file
  *
  * @author Alex Macia
  */
@@ -38,6 +44,25 @@ public class DiskSettings extends SettingsTemplate {
     private JRadioButton loop;
     private JRadioButton cloop;
     private JSpinner initHead;
+    private JCheckBox merge;
+    private TitledBorder cacheTitle;
+    private ButtonGroup cacheGroup;
+    private JRadioButton noCache;
+    private JRadioButton lru;
+    private JRadioButton clock;
+    private JRadioButton twoq;
+    private JRadioButton arc;
+    private JLabel lcacheSize;
+    private JSpinner cacheSize;
+    private JLabel lreadAhead;
+    private JSpinner readAhead;
+    private TitledBorder deviceTitle;
+    private ButtonGroup deviceGroup;
+    private JRadioButton hdd;
+    private JRadioButton ssd;
+    private JRadioButton ssdCostBenefit;
+    private JCheckBox trace;
+    private JLabel ltrace;
 
     /**
      * Constructs a DiskSettings panel
@@ -102,6 +127,13 @@ public class DiskSettings extends SettingsTemplate {
         head.add(linitHead);
         pane.add(head);
 
+        merge = new JCheckBox(Translation.getInstance().getLabel("dk_58"));
+        merge.setActionCommand("MERGE");
+        merge.addActionListener(presenter);
+        JPanel pmerge = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        pmerge.add(merge);
+        pane.add(pmerge);
+
         JPanel known = new JPanel();
         known.setLayout(new BoxLayout(known, BoxLayout.PAGE_AXIS));
         known.setAlignmentX(CENTER_ALIGNMENT);  // Left alignment ??
@@ -118,6 +150,98 @@ public class DiskSettings extends SettingsTemplate {
         known.add(cloop);
 
         pane.add(known);
+
+        noCache = new JRadioButton(Translation.getInstance().getLabel("dk_77"));
+        noCache.setSelected(true);
+        noCache.setActionCommand("CACHE_NONE");
+        noCache.addActionListener(presenter);
+        lru = new JRadioButton(Translation.getInstance().getLabel("dk_71"));
+        lru.setActionCommand("CACHE_LRU");
+        lru.addActionListener(presenter);
+        clock = new JRadioButton(Translation.getInstance().getLabel("dk_72"));
+        clock.setActionCommand("CACHE_CLOCK");
+        clock.addActionListener(presenter);
+        twoq = new JRadioButton(Translation.getInstance().getLabel("dk_73"));
+        twoq.setActionCommand("CACHE_2Q");
+        twoq.addActionListener(presenter);
+        arc = new JRadioButton(Translation.getInstance().getLabel("dk_74"));
+        arc.setActionCommand("CACHE_ARC");
+        arc.addActionListener(presenter);
+
+        cacheGroup = new ButtonGroup();
+        cacheGroup.add(noCache);
+        cacheGroup.add(lru);
+        cacheGroup.add(clock);
+        cacheGroup.add(twoq);
+        cacheGroup.add(arc);
+
+        cacheSize = new JSpinner(new SpinnerNumberModel(16, 1, 64, 1));
+        cacheSize.setName("cacheSize");
+        cacheSize.addChangeListener(presenter);
+        lcacheSize = new JLabel(Translation.getInstance().getLabel("dk_75"));
+
+        readAhead = new JSpinner(new SpinnerNumberModel(2, 0, ((DiskPresenter) presenter).getSectors() - 1, 1));
+        readAhead.setName("readAhead");
+        readAhead.addChangeListener(presenter);
+        lreadAhead = new JLabel(Translation.getInstance().getLabel("dk_76"));
+
+        JPanel cache = new JPanel();
+        cache.setLayout(new BoxLayout(cache, BoxLayout.PAGE_AXIS));
+        cacheTitle = BorderFactory.createTitledBorder(Translation.getInstance().getLabel("dk_70"));
+        cache.setBorder(cacheTitle);
+
+        cache.add(noCache);
+        cache.add(lru);
+        cache.add(clock);
+        cache.add(twoq);
+        cache.add(arc);
+
+        JPanel size = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        size.add(cacheSize);
+        size.add(lcacheSize);
+        cache.add(size);
+
+        JPanel ahead = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        ahead.add(readAhead);
+        ahead.add(lreadAhead);
+        cache.add(ahead);
+
+        pane.add(cache);
+
+        hdd = new JRadioButton(Translation.getInstance().getLabel("dk_86"));
+        hdd.setSelected(true);
+        hdd.setActionCommand("DEV_HDD");
+        hdd.addActionListener(presenter);
+        ssd = new JRadioButton(Translation.getInstance().getLabel("dk_87"));
+        ssd.setActionCommand("DEV_SSD");
+        ssd.addActionListener(presenter);
+        ssdCostBenefit = new JRadioButton(Translation.getInstance().getLabel("dk_88"));
+        ssdCostBenefit.setActionCommand("DEV_SSD_CB");
+        ssdCostBenefit.addActionListener(presenter);
+
+        deviceGroup = new ButtonGroup();
+        deviceGroup.add(hdd);
+        deviceGroup.add(ssd);
+        deviceGroup.add(ssdCostBenefit);
+
+        JPanel device = new JPanel();
+        device.setLayout(new BoxLayout(device, BoxLayout.PAGE_AXIS));
+        deviceTitle = BorderFactory.createTitledBorder(Translation.getInstance().getLabel("dk_85"));
+        device.setBorder(deviceTitle);
+        device.add(hdd);
+        device.add(ssd);
+        device.add(ssdCostBenefit);
+
+        pane.add(device);
+
+        trace = new JCheckBox(Translation.getInstance().getLabel("dk_89"));
+        trace.setActionCommand("TRACE");
+        trace.addActionListener(presenter);
+        ltrace = new JLabel(Translation.getInstance().getLabel("dk_90"));
+        JPanel ptrace = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        ptrace.add(trace);
+        ptrace.add(ltrace);
+        pane.add(ptrace);
     }
 
     /**
@@ -133,6 +257,21 @@ public class DiskSettings extends SettingsTemplate {
         loop.setText(Translation.getInstance().getLabel("dk_55"));
         cscan.setText(Translation.getInstance().getLabel("dk_56"));
         cloop.setText(Translation.getInstance().getLabel("dk_57"));
+        merge.setText(Translation.getInstance().getLabel("dk_58"));
+        cacheTitle.setTitle(Translation.getInstance().getLabel("dk_70"));
+        noCache.setText(Translation.getInstance().getLabel("dk_77"));
+        lru.setText(Translation.getInstance().getLabel("dk_71"));
+        clock.setText(Translation.getInstance().getLabel("dk_72"));
+        twoq.setText(Translation.getInstance().getLabel("dk_73"));
+        arc.setText(Translation.getInstance().getLabel("dk_74"));
+        lcacheSize.setText(Translation.getInstance().getLabel("dk_75"));
+        lreadAhead.setText(Translation.getInstance().getLabel("dk_76"));
+        deviceTitle.setTitle(Translation.getInstance().getLabel("dk_85"));
+        hdd.setText(Translation.getInstance().getLabel("dk_86"));
+        ssd.setText(Translation.getInstance().getLabel("dk_87"));
+        ssdCostBenefit.setText(Translation.getInstance().getLabel("dk_88"));
+        trace.setText(Translation.getInstance().getLabel("dk_89"));
+        if (!trace.isSelected()) ltrace.setText(Translation.getInstance().getLabel("dk_90"));
         help = presenter.createHelp("dk_01");
         this.pack();
     }
@@ -155,4 +294,123 @@ public class DiskSettings extends SettingsTemplate {
         initHead.setValue(position);
     }
 
-} 
+    /**
+     * Gets requests merging check state
+     *
+     * @return    check state
+     */
+    public boolean getMerge() {
+        return merge.isSelected();
+    }
+
+    /**
+     * Sets requests merging check state
+     *
+     * @param b check state
+     */
+    public void setMerge(boolean b) {
+        merge.setSelected(b);
+    }
+
+    /**
+     * Gets selected block cache action command
+     *
+     * @return    selected block cache action command
+     */
+    public String getCache() {
+        return cacheGroup.getSelection().getActionCommand();
+    }
+
+    /**
+     * Selects block cache button whose action command is actionCommand
+     *
+     * @param actionCommand block cache action command
+     */
+    public void selectCache(String actionCommand) {
+        Enumeration<AbstractButton> caches = cacheGroup.getElements();
+        while (caches.hasMoreElements()) {
+            AbstractButton cache = caches.nextElement();
+            if (actionCommand.equals(cache.getActionCommand())) cache.setSelected(true);
+        }
+    }
+
+    /**
+     * Gets block cache size
+     *
+     * @return    block cache size (blocks)
+     */
+    public int getCacheSize() {
+        return (Integer) cacheSize.getValue();
+    }
+
+    /**
+     * Sets block cache size
+     *
+     * @param size block cache size (blocks)
+     */
+    public void setCacheSize(int size) {
+        cacheSize.setValue(size);
+    }
+
+    /**
+     * Gets read ahead blocks
+     *
+     * @return    read ahead blocks
+     */
+    public int getReadAhead() {
+        return (Integer) readAhead.getValue();
+    }
+
+    /**
+     * Sets read ahead blocks
+     *
+     * @param blocks read ahead blocks
+     */
+    public void setReadAhead(int blocks) {
+        readAhead.setValue(blocks);
+    }
+
+    /**
+     * Gets selected device action command
+     *
+     * @return    selected device action command
+     */
+    public String getDevice() {
+        return deviceGroup.getSelection().getActionCommand();
+    }
+
+    /**
+     * Selects device button whose action command is actionCommand
+     *
+     * @param actionCommand device action command
+     */
+    public void selectDevice(String actionCommand) {
+        Enumeration<AbstractButton> devices = deviceGroup.getElements();
+        while (devices.hasMoreElements()) {
+            AbstractButton device = devices.nextElement();
+            if (actionCommand.equals(device.getActionCommand())) device.setSelected(true);
+        }
+    }
+
+    /**
+     * Gets trace replay check state
+     *
+     * @return    check state
+     */
+    public boolean getTrace() {
+        return trace.isSelected();
+    }
+
+    /**
+     * Sets trace replay check state and replayed trace file name, null if none
+     *
+     * @param name trace file name or null
+     */
+    public void setTrace(String name) {
+        trace.setSelected(name != null);
+        if (name == null) ltrace.setText(Translation.getInstance().getLabel("dk_90"));
+        else ltrace.setText(name);
+        this.pack();
+    }
+
+}
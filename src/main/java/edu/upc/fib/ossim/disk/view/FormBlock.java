@@ -12,8 +12,8 @@ import java.util.Vector;
 
 
 /**
- * Block requests creation and update form. Requests fields are: block number and
- * request time, form shows block's cylinder, due to this is what algorithms use to serve requests.<br/>
+ * Block requests creation and update form. Requests fields are: block number,
+ * request time and operation (read or write), form shows block's cylinder, due to this is what algorithms use to serve requests.<br/>
  * When updating a request, form fields can be initialized with request values
  *
  * @author Alex Macia
@@ -25,6 +25,7 @@ public class FormBlock extends FormTemplate {
     private JSpinner bid;
     private JSpinner init;    // Initial time
     private JLabel requestCylinder;    // Request cylinder
+    private JCheckBox write;    // Write request
 
     /**
      * Constructs a form block
@@ -33,14 +34,14 @@ public class FormBlock extends FormTemplate {
      * @param title     form title
      * @param help      help icon
      * @param values    creating a new block request: max block number,
-     *                  updating an existing request: max block number, block requested and time
+     *                  updating an existing request: max block number, block requested, time, color and write
      */
     public FormBlock(Presenter presenter, String title, JLabel help, Vector<Object> values) {
         super(presenter, title, help, values);
     }
 
     public void init(Vector<Object> values) {
-        // values: Max blocks, bid, init, color 
+        // values: Max blocks, bid, init, color, write
         grid.add(new JLabel(Translation.getInstance().getLabel("dk_30")));
         SpinnerModel spmodelBid;
         if (values.size() > 1)
@@ -71,10 +72,15 @@ public class FormBlock extends FormTemplate {
         setRequestCylinder();
         grid.add(requestCylinder);
 
+        grid.add(new JLabel(Translation.getInstance().getLabel("dk_37"))); // Write
+        write = new JCheckBox();
+        if (values.size() > 4) write.setSelected((Boolean) values.get(4));
+        grid.add(write);
+
         if (values.size() > 1) initColor((Color) values.get(3));
         else initColor(RandColor());
 
-        Functions.getInstance().makeCompactGrid(grid, 4, 2, 6, 6, 6, 6);
+        Functions.getInstance().makeCompactGrid(grid, 5, 2, 6, 6, 6, 6);
         pn.add(grid);
 
         addOKButton();
@@ -108,6 +114,7 @@ public class FormBlock extends FormTemplate {
         data.add(bid.getValue());
         data.add(init.getValue());
         data.add(color);
+        data.add(write.isSelected());
         return data;
     }
 } 
@@ -7,12 +7,16 @@ import edu.upc.fib.ossim.template.view.PainterTemplate;
 import edu.upc.fib.ossim.utils.Translation;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
 import java.util.Iterator;
+import java.util.Vector;
 
 
 /**
  * Disk scheduling results graph, x-axis shows cylinders requested and y-axis time,
+ * Head path is cached in cylinder / served point units and extended as requests are served,
+ * it is scaled to canvas size when painted
  *
  * @author Alex Macia
  * @see PainterTemplate
@@ -24,6 +28,13 @@ public class GraphPainter extends PainterTemplate {
     private static final int MARGIN = 5;
     private static final int HEADER = 40;
     private static final int HEADER_INC = 2;
+    private static final Font HEADER_FONT = new Font(Font.MONOSPACED, Font.BOLD, 12);
+    private GeneralPath path;    // Head path, x-axis cylinder and y-axis served point
+    private final Vector<Integer> pathCylinders;    // Head path points cylinder
+    private final Vector<Color> pathColors;    // Head path points color
+    private int pathStart;    // First head path point cached
+    private int pathGeneration;    // Head path generation cached
+    private int pathInit;    // Initial head cylinder cached
 
     /**
      * Constructs a GraphPainter.
@@ -35,6 +46,8 @@ public class GraphPainter extends PainterTemplate {
      */
     public GraphPainter(Presenter presenter, int width, int height) {
         super(presenter, width, height);
+        pathCylinders = new Vector<Integer>();
+        pathColors = new Vector<Color>();
     }
 
     /**
@@ -51,59 +64,94 @@ public class GraphPainter extends PainterTemplate {
         Dimension size = getSize();
         int w = (int) size.getWidth();
         int h = (int) size.getHeight();
-        g2.setPaint(Color.white);
-        g2.fillRect(0, 0, w, h);
-        g2.setPaint(Color.BLACK);
-        g2.drawRect(0, 0, w - 1, h - 1);
 
-        // Header
-        //int blocks = controller.getNblocks();
+        // Header and graph area are cached, only head path is drawn
         int cylinders = ((DiskPresenter) presenter).getCylinders();
         int sectors = ((DiskPresenter) presenter).getSectors();
+        drawStaticLayer(g2, cylinders);
+
+        updatePath(((DiskPresenter) presenter).getInitHeadPosition() / sectors, cylinders * sectors, sectors);
+
+        double x_scale = (double) w / cylinders;
+        double x = MARGIN + pathInit * x_scale;
+        double y = HEADER + 10;
+        double y_shift = (double) (h - HEADER - 10) / (pathCylinders.size() + 1);
+
+        g2.fillOval((int) x - BLOCK / 2, (int) y - BLOCK / 2, BLOCK, BLOCK);
+
+        for (int i = 0; i < pathCylinders.size(); i++) {
+            x = MARGIN + pathCylinders.get(i) * x_scale;
+            y += y_shift;
+            g2.setColor(pathColors.get(i));
+            g2.fillOval((int) x - BLOCK / 2, (int) y - BLOCK / 2, BLOCK, BLOCK);
+        }
+
         g2.setColor(Color.BLACK);
-        g2.setFont(new Font(Font.MONOSPACED, Font.BOLD, 12));
-        g2.drawString(Translation.getInstance().getLabel("dk_60"), MARGIN, 15);
+        g2.draw(new AffineTransform(x_scale, 0, 0, y_shift, MARGIN, HEADER + 10).createTransformedShape(path));
+    }
+
+    /**
+     * Paints header, cylinders coordinates, and empty graph area
+     *
+     * @param g static layer graphics
+     */
+    protected void paintStaticLayer(Graphics2D g) {
+        int w = getWidth();
+        int h = getHeight();
+        g.setPaint(Color.white);
+        g.fillRect(0, 0, w, h);
+        g.setPaint(Color.BLACK);
+        g.drawRect(0, 0, w - 1, h - 1);
+
+        // Header
+        int cylinders = ((DiskPresenter) presenter).getCylinders();
+        g.setColor(Color.BLACK);
+        g.setFont(HEADER_FONT);
+        g.drawString(Translation.getInstance().getLabel("dk_60"), MARGIN, 15);
 
         int coord = 0;
         while (coord < cylinders) {
-            g2.drawString(Integer.toString(coord), (coord * w / cylinders), 30);
+            g.drawString(Integer.toString(coord), (coord * w / cylinders), 30);
             coord += HEADER_INC;
         }
-        //g2.drawString(new Integer(blocks).toString(), w-10, 10);
 
         // Graph area
-        g2.setPaint(Color.LIGHT_GRAY);
-        g2.fillRect(MARGIN, HEADER, w - 2 * MARGIN, h - HEADER - MARGIN);
-        g2.setPaint(Color.BLACK);
-        g2.drawRect(MARGIN, HEADER, w - 2 * MARGIN, h - HEADER - MARGIN);
-
-        int cylinder = ((DiskPresenter) presenter).getInitHeadPosition() / sectors;
-        double x = MARGIN + cylinder * w / cylinders;
-        double y = HEADER + 10;
-        double y_shift = (h - HEADER - 10) / (((DiskPresenter) presenter).getRequestsServed() + 1);
-
-        g2.fillOval((int) x - BLOCK / 2, (int) y - BLOCK / 2, BLOCK, BLOCK);
+        g.setPaint(Color.LIGHT_GRAY);
+        g.fillRect(MARGIN, HEADER, w - 2 * MARGIN, h - HEADER - MARGIN);
+        g.setPaint(Color.BLACK);
+        g.drawRect(MARGIN, HEADER, w - 2 * MARGIN, h - HEADER - MARGIN);
+    }
 
-        GeneralPath polyline = new GeneralPath(GeneralPath.WIND_EVEN_ODD);
-        polyline.moveTo(x, y);
+    private void updatePath(int init, int blocks, int sectors) {
+        // Extends cached head path with points served since last paint. Rebuilds it when
+        // simulation restarts (head path generation changes), initial head changes or first points are dropped
+        DiskPresenter disk = (DiskPresenter) presenter;
+        int start = disk.getRequestsServedStart();
+        int generation = disk.getRequestsServedGeneration();
+        if (path == null || init != pathInit || start != pathStart || generation != pathGeneration) {
+            path = new GeneralPath(GeneralPath.WIND_EVEN_ODD);
+            path.moveTo(init, 0);
+            pathCylinders.clear();
+            pathColors.clear();
+            pathInit = init;
+            pathStart = start;
+            pathGeneration = generation;
+        }
 
-        Iterator<Integer> it = presenter.iterator(1);
+        int from = start + pathCylinders.size();
+        Iterator<Integer> it = disk.iteratorRequestsServed(from);
+        Iterator<Color> itc = disk.iteratorServedColors(from);
         while (it.hasNext()) {
             int block = it.next().intValue();
-            if (block < 0 || block >= cylinders * sectors) {
-                g2.setColor(Color.BLACK);
-                if (block >= cylinders * sectors) block--;
-            } else g2.setColor(presenter.getColor(block));
-            cylinder = block / sectors;
-
-            x = MARGIN + cylinder * w / cylinders;
-            y += y_shift;
-            polyline.lineTo(x, y);
-            g2.fillOval((int) x - BLOCK / 2, (int) y - BLOCK / 2, BLOCK, BLOCK);
+            Color color = itc.next();
+            if (color == null) { // Limit reached by head
+                color = Color.BLACK;
+                if (block >= blocks) block--;
+            }
+            pathCylinders.add(block / sectors);
+            pathColors.add(color);
+            path.lineTo(block / sectors, pathCylinders.size());
         }
-
-        g2.setColor(Color.BLACK);
-        g2.draw(polyline);
     }
 
 
@@ -8,7 +8,7 @@ import javax.swing.*;
 
 /**
  * Disk scheduling panel. Tool bar allows request creation, scheduling settings managing,
- * and time control apart from common actions such as: loading and saving simulations. <br/>
+ * time control and statistics apart from common actions such as: loading and saving simulations. <br/>
  * This panel contains 3 elements (painters), a physical disk platter,
  * a graph showing served request and a table with all requests and scheduling information
  *
@@ -28,7 +28,7 @@ public class PanelDisk extends PanelTemplate {
      * @param keyLabelAdd reference to add label string into bundle file
      */
     public PanelDisk(Presenter presenter, String keyLabelAdd) {
-        super(presenter, keyLabelAdd, "disk", true, false);
+        super(presenter, keyLabelAdd, "disk", true, true);
     }
 
     /**
@@ -0,0 +1,113 @@
+package edu.upc.fib.ossim.filesystem;
+
+import edu.upc.fib.ossim.filesystem.model.*;
+import edu.upc.fib.ossim.template.BatchTemplate;
+import edu.upc.fib.ossim.utils.Functions;
+import edu.upc.fib.ossim.utils.SoSimException;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+
+/**
+ * File system batch builds file system simulations without views, settings are the ones file system settings
+ * dialog exposes: fileSystem (DOS, LINUX, EXT4, LFS), blockSize, devSize, journal (journal mode index),
+ * commitInterval and cleaner (LFS cleaner index). File systems have no timing, simulation ends once built
+ *
+ * @author Alex Macia
+ * @see FileSystemPresenter
+ */
+public class FileSystemBatch extends BatchTemplate {
+    private static final String[] BLOCK_SIZES = {"1", "2", "4"};
+    private static final String[] DEV_SIZES = {"4096", "6144", "8192"};
+    private static final String[] JOURNAL_MODES = {"0", "1", "2"};
+    private static final String[] INTERVALS = {"1", "2", "4", "8", "16"};
+    private static final String[] CLEANERS = {"0", "1"};
+    private final ContextFileSystem context;
+
+    /**
+     * Constructs a FileSystemBatch, initial context strategy is FAT
+     */
+    public FileSystemBatch() {
+        super(0);
+        context = new ContextFileSystem(new FileSystemStrategyFAT(1, 4096));
+    }
+
+    /**
+     * Returns XML root element for file system simulation files
+     */
+    public String getXMLRoot() {
+        return Functions.getInstance().getPropertyString("xml_root_fs");
+    }
+
+    /**
+     * Returns XML root children for file system simulation files: "fsobjects"
+     */
+    public Vector<String> getXMLChilds() {
+        Vector<String> childs = new Vector<String>();
+        childs.add("fsobjects");
+        return childs;
+    }
+
+    /**
+     * Returns file system settings names
+     */
+    public Vector<String> getParamNames() {
+        return new Vector<String>(Arrays.asList("fileSystem", "blockSize", "devSize", "journal", "commitInterval", "cleaner"));
+    }
+
+    /**
+     * Sets journal and file system with its block size, device size and cleaner policy. Parameters missing in
+     * older files keep settings dialog defaults: no journal and greedy cleaner
+     *
+     * @see FileSystemFactory
+     */
+    public void putParams() throws SoSimException {
+        String fileSystem = getParamChoice("fileSystem", "DOS", FileSystemFactory.ALGORITHMS);
+        int blockSize = Integer.parseInt(getParamChoice("blockSize", "1", BLOCK_SIZES));
+        int devSize = Integer.parseInt(getParamChoice("devSize", "4096", DEV_SIZES));
+        int journal = Integer.parseInt(getParamChoice("journal", Integer.toString(Journal.NONE), JOURNAL_MODES));
+        int interval = Integer.parseInt(getParamChoice("commitInterval", "1", INTERVALS));
+        int cleaner = Integer.parseInt(getParamChoice("cleaner", Integer.toString(FileSystemStrategyLFS.GREEDY), CLEANERS));
+
+        context.setJournal(journal, interval);
+        context.setAlgorithm(FileSystemFactory.createAlgorithm(fileSystem, blockSize, devSize, cleaner));
+    }
+
+    /**
+     * Builds file system items: folders, files and links
+     *
+     * @see #getXMLChilds()
+     */
+    public void putXMLData(int child, Vector<Vector<Vector<String>>> data) throws SoSimException {
+        for (int i = 0; i < data.size(); i++) FileSystemFactory.addObject(context, data.get(i));
+    }
+
+    /**
+     * File system has been built, simulation ends
+     */
+    public boolean actionPlay() {
+        return true;
+    }
+
+    /**
+     * File systems have no timing, never called
+     */
+    public boolean actionTimer() {
+        return true;
+    }
+
+    /**
+     * Returns file system statistics names
+     */
+    public Vector<Vector<String>> getTableStatsInfo() {
+        return context.getTableStatsInfo();
+    }
+
+    /**
+     * Returns file system statistics values
+     */
+    public Vector<String> getTableStatsData() {
+        return context.getTableStatsData();
+    }
+}
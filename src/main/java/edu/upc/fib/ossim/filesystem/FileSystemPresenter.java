@@ -2,8 +2,13 @@ package edu.upc.fib.ossim.filesystem;
 
 import edu.upc.fib.ossim.AppSession;
 import edu.upc.fib.ossim.filesystem.model.ContextFileSystem;
+import edu.upc.fib.ossim.filesystem.model.DeviceImage;
+import edu.upc.fib.ossim.filesystem.model.FileSystemFactory;
 import edu.upc.fib.ossim.filesystem.model.FileSystemStrategyFAT;
-import edu.upc.fib.ossim.filesystem.model.FileSystemStrategyUNIX;
+import edu.upc.fib.ossim.filesystem.model.HostEntry;
+import edu.upc.fib.ossim.filesystem.model.HostImport;
+import edu.upc.fib.ossim.filesystem.model.HostScanner;
+import edu.upc.fib.ossim.filesystem.model.Journal;
 import edu.upc.fib.ossim.filesystem.view.*;
 import edu.upc.fib.ossim.template.Presenter;
 import edu.upc.fib.ossim.template.view.PainterTemplate;
@@ -17,8 +22,10 @@ import javax.swing.tree.DefaultTreeModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseEvent;
+import java.io.File;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 
 /**
@@ -39,6 +46,7 @@ public class FileSystemPresenter extends Presenter {
     public static final String DEVICE_PAINTER = "device";
     public static final String FILESTREE_PAINTER = "filestree";
     public static final String FOLDER_PAINTER = "folder";
+    public static final int DEFRAG_RATE = 200; // Milliseconds between defragmenter steps
     private static final int INFO_WIDTH = 300;
     private static final int INFO_HEIGTH = 400;
     private static final int FATSUM_WIDTH = 220;
@@ -52,6 +60,8 @@ public class FileSystemPresenter extends Presenter {
     private String mgnActionCommand; // Keeps current file system 
     private int blockSize;
     private int devSize;
+    private int cleaner; // Log-structured file system cleaner policy
+    private javax.swing.Timer defragTimer; // Null if defragmenter has never run
     /**************************************************************************************************/
     /*************************************   Class  management  ***************************************/
     /**************************************************************************************************/
@@ -84,11 +94,13 @@ public class FileSystemPresenter extends Presenter {
         String[] item1 = {"FILE", "fs_03", "update.png"};
         String[] item2 = {"FOLDER", "fs_04", "update.png"};
         String[] item3 = {"LINK", "fs_05", "update.png"};
+        String[] item9 = {"IMPORT", "fs_118", "update.png"};
         String[] item4 = {"UPD", "fs_06", "update.png"};
         String[] item5 = {"DEL", "fs_07", "trash.png"};
         menuItemsTree.add(item1);
         menuItemsTree.add(item2);
         menuItemsTree.add(item3);
+        menuItemsTree.add(item9);
         menuItemsTree.add(item4);
         menuItemsTree.add(item5);
         menuItemsFolder = new Vector<String[]>();
@@ -107,7 +119,7 @@ public class FileSystemPresenter extends Presenter {
         getPainter(FOLDER_PAINTER).addMenuItem(menuItemsFolder.get(0));
         ((FolderPainter) getPainter(FOLDER_PAINTER)).updateFolderData(context.getFolderSelected(), context.getSelectedFolderHeader(), context.getSelectedFolderData());
         settings = new FileSystemSettings(this, "fs_set");
-        info = new InfoDialog(this, "fs_45", "fs_info", false, INFO_WIDTH, INFO_HEIGTH, null, context.getTableHeaderInfo(), context.getTableInfoData());
+        info = new InfoDialog(this, "fs_45", "fs_info", false, INFO_WIDTH, INFO_HEIGTH, context.getTableStatsInfo(), context.getTableHeaderInfo(), context.getTableInfoSource());
         return new PanelFileSystem(this);
     }
 
@@ -132,6 +144,16 @@ public class FileSystemPresenter extends Presenter {
         actions.put("FATSUM", 99);
         actions.put("INODE", 100);
         actions.put("INDIRECT", 101);
+        actions.put("EXT4", 102);
+        actions.put("JOURNAL", 95);
+        actions.put("CRASH", 103);
+        actions.put("LFS", 104);
+        actions.put("CLEANER", 96);
+        actions.put("IMAGE", 105);
+        actions.put("OPENIMG", 106);
+        actions.put("DEFRAG", 107);
+        actions.put("DEFRAGSTEP", 108);
+        actions.put("IMPORT", 109);
     }
 
     /**
@@ -201,11 +223,18 @@ public class FileSystemPresenter extends Presenter {
      * <li>Add file. Opens FormFile and updates model with user input</li>
      * <li>Add folder. Opens FormFolder and updates model with user input</li>
      * <li>Add link. Opens FormLink and updates model with user input</li>
+     * <li>Import host folder. Asks host folder, scans it and imports its tree under selected folder</li>
      * <li>Update a file system object. Opens appropriate form and updates model with user input</li>
      * <li>Delete a file system object</li>
      * <li>Change block size</li>
      * <li>Selects algorithm. Opens a confirmation dialog, and initialize file system</li>
+     * <li>Change log-structured file system cleaner policy, file system is initialized</li>
      * <li>Show item details, FAT item's summary, i-node information or indirect block information</li>
+     * <li>Change journal mode or commit interval, journal restarts</li>
+     * <li>Crash after an operation. Asks operation and shows journal recovery information</li>
+     * <li>Attach a device image. Asks image file, device is written into it and then mirrored</li>
+     * <li>Open a device image. Asks image file and restores its file system into a new simulation</li>
+     * <li>Start or stop defragmenter, every timer event moves a batch of blocks until defragmentation finishes</li>
      * </ul>
      *
      * @see Presenter#actionPerformed(ActionEvent e)
@@ -221,10 +250,6 @@ public class FileSystemPresenter extends Presenter {
 
         switch (action) {
             case 90:    // Add file
-                // Control max elements creation
-                if (context.getElementCount() >= ContextFileSystem.MAX_ELEMENTS)
-                    throw new SoSimException("fs_11", "(max. : " + ContextFileSystem.MAX_ELEMENTS + ")");
-
                 labels = new Vector<String>();
                 labels.add("fs_44"); // Into folder
                 labels.add("fs_31"); // File name
@@ -239,10 +264,6 @@ public class FileSystemPresenter extends Presenter {
                 }
                 break;
             case 91:    // Add folder
-                // Control max elements creation
-                if (context.getElementCount() >= ContextFileSystem.MAX_ELEMENTS)
-                    throw new SoSimException("fs_11", "(max. : " + ContextFileSystem.MAX_ELEMENTS + ")");
-
                 labels = new Vector<String>();
                 labels.add("fs_44"); // Into folder
                 labels.add("fs_30"); // Folder name
@@ -259,10 +280,6 @@ public class FileSystemPresenter extends Presenter {
                 }
                 break;
             case 92:    // Add link
-                // Control max elements creation
-                if (context.getElementCount() >= ContextFileSystem.MAX_ELEMENTS)
-                    throw new SoSimException("fs_11", "(max. : " + ContextFileSystem.MAX_ELEMENTS + ")");
-
                 labels = new Vector<String>();
                 labels.add("fs_44"); // Into folder
                 labels.add("fs_29"); // Link name
@@ -276,6 +293,12 @@ public class FileSystemPresenter extends Presenter {
                     ((FilesTreePainter) this.getPainter(FILESTREE_PAINTER)).addNode(pid, id);
                 }
                 break;
+            case 109:    // Import host folder
+                JFileChooser chooser = new JFileChooser();
+                chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+                chooser.setDialogTitle(Translation.getInstance().getLabel("fs_118"));
+                if (chooser.showOpenDialog(panel) == JFileChooser.APPROVE_OPTION) importHostFolder(chooser.getSelectedFile());
+                break;
             case 93:    // Update any item
                 values = new Vector<Object>();
                 labels = new Vector<String>();
@@ -324,34 +347,53 @@ public class FileSystemPresenter extends Presenter {
 
                 break;
 
-            case 96:    // Change block size
+            case 96:    // Change block size, device size or cleaner policy
 
                 if (blockSize == ((FileSystemSettings) settings).getBlockSize() &&
-                        devSize == ((FileSystemSettings) settings).getDevSize()) break;
+                        devSize == ((FileSystemSettings) settings).getDevSize() &&
+                        cleaner == ((FileSystemSettings) settings).getCleaner()) break;
+                if ("CLEANER".equals(actionCommand) && !"LFS".equals(mgnActionCommand)) {
+                    cleaner = ((FileSystemSettings) settings).getCleaner(); // Applies once LFS is selected
+                    break;
+                }
                 if (!context.areAnyFile() ||
                         (context.areAnyFile() &&
                                 JOptionPane.OK_OPTION == JOptionPane.showConfirmDialog(panel, Translation.getInstance().getError("fs_10"), "Warning", JOptionPane.OK_CANCEL_OPTION))) {
 
                     blockSize = ((FileSystemSettings) settings).getBlockSize();
                     devSize = ((FileSystemSettings) settings).getDevSize();
+                    cleaner = ((FileSystemSettings) settings).getCleaner();
                     getPainter(FOLDER_PAINTER).clearMenu();
                     if ("DOS".equals(mgnActionCommand)) {
-                        context.setAlgorithm(new FileSystemStrategyFAT(blockSize, devSize));
+                        context.setAlgorithm(FileSystemFactory.createAlgorithm(mgnActionCommand, blockSize, devSize, cleaner));
                         getPainter(FOLDER_PAINTER).addMenuItem(menuItemsFolder.get(0));
                         info.dispose();
-                        info = new InfoDialog(this, "fs_45", "fs_info", false, INFO_WIDTH, INFO_HEIGTH, null, context.getTableHeaderInfo(), context.getTableInfoData());
+                        info = new InfoDialog(this, "fs_45", "fs_info", false, INFO_WIDTH, INFO_HEIGTH, context.getTableStatsInfo(), context.getTableHeaderInfo(), context.getTableInfoSource());
                     }
                     if ("LINUX".equals(mgnActionCommand)) {
-                        context.setAlgorithm(new FileSystemStrategyUNIX(blockSize, devSize));
+                        context.setAlgorithm(FileSystemFactory.createAlgorithm(mgnActionCommand, blockSize, devSize, cleaner));
                         getPainter(FOLDER_PAINTER).addMenuItem(menuItemsFolder.get(1));
                         info.dispose();
-                        info = new InfoDialog(this, "fs_46", "fs_info", false, INFO_WIDTH, INFO_HEIGTH, null, context.getTableHeaderInfo(), context.getTableInfoData());
+                        info = new InfoDialog(this, "fs_46", "fs_info", false, INFO_WIDTH, INFO_HEIGTH, context.getTableStatsInfo(), context.getTableHeaderInfo(), context.getTableInfoSource());
+                    }
+                    if ("EXT4".equals(mgnActionCommand)) {
+                        context.setAlgorithm(FileSystemFactory.createAlgorithm(mgnActionCommand, blockSize, devSize, cleaner));
+                        getPainter(FOLDER_PAINTER).addMenuItem(menuItemsFolder.get(1));
+                        info.dispose();
+                        info = new InfoDialog(this, "fs_46", "fs_info", false, INFO_WIDTH, INFO_HEIGTH, context.getTableStatsInfo(), context.getTableHeaderInfo(), context.getTableInfoSource());
+                    }
+                    if ("LFS".equals(mgnActionCommand)) {
+                        context.setAlgorithm(FileSystemFactory.createAlgorithm(mgnActionCommand, blockSize, devSize, cleaner));
+                        getPainter(FOLDER_PAINTER).addMenuItem(menuItemsFolder.get(1));
+                        info.dispose();
+                        info = new InfoDialog(this, "fs_46", "fs_info", false, INFO_WIDTH, INFO_HEIGTH, context.getTableStatsInfo(), context.getTableHeaderInfo(), context.getTableInfoSource());
                     }
                     panel.setLabel(getAlgorithmInfo());
                     ((FilesTreePainter) getPainter(FILESTREE_PAINTER)).initTree();
                 } else {
                     ((FileSystemSettings) settings).setBlockSize(blockSize); // Restore selection
                     ((FileSystemSettings) settings).setDevSize(devSize); // Restore selection
+                    ((FileSystemSettings) settings).setCleaner(cleaner); // Restore selection
                 }
 
                 break;
@@ -362,16 +404,16 @@ public class FileSystemPresenter extends Presenter {
                 if (!context.areAnyFile() ||
                         (context.areAnyFile() &&
                                 JOptionPane.OK_OPTION == JOptionPane.showConfirmDialog(panel, Translation.getInstance().getError("fs_10"), "Warning", JOptionPane.OK_CANCEL_OPTION))) {
-                    context.setAlgorithm(new FileSystemStrategyFAT(blockSize, devSize));
+                    context.setAlgorithm(FileSystemFactory.createAlgorithm(actionCommand, blockSize, devSize, cleaner));
                     panel.setLabel(getAlgorithmInfo());
                     getPainter(FOLDER_PAINTER).clearMenu();
                     getPainter(FOLDER_PAINTER).addMenuItem(menuItemsFolder.get(0));
                     info.dispose();
-                    info = new InfoDialog(this, "fs_45", "fs_07", false, INFO_WIDTH, INFO_HEIGTH, null, context.getTableHeaderInfo(), context.getTableInfoData());
+                    info = new InfoDialog(this, "fs_45", "fs_07", false, INFO_WIDTH, INFO_HEIGTH, context.getTableStatsInfo(), context.getTableHeaderInfo(), context.getTableInfoSource());
                     mgnActionCommand = "DOS";
                     ((FilesTreePainter) getPainter(FILESTREE_PAINTER)).initTree();
                 } else {
-                    ((FileSystemSettings) settings).setAlgorithm("LINUX"); // Restore selection
+                    ((FileSystemSettings) settings).setAlgorithm(mgnActionCommand); // Restore selection
                 }
                 break;
             case 98:    // Linux
@@ -379,16 +421,99 @@ public class FileSystemPresenter extends Presenter {
                 if (!context.areAnyFile() ||
                         (context.areAnyFile() &&
                                 JOptionPane.OK_OPTION == JOptionPane.showConfirmDialog(panel, Translation.getInstance().getError("fs_10"), "Warning", JOptionPane.OK_CANCEL_OPTION))) {
-                    context.setAlgorithm(new FileSystemStrategyUNIX(blockSize, devSize));
+                    context.setAlgorithm(FileSystemFactory.createAlgorithm(actionCommand, blockSize, devSize, cleaner));
                     panel.setLabel(getAlgorithmInfo());
                     getPainter(FOLDER_PAINTER).clearMenu();
                     getPainter(FOLDER_PAINTER).addMenuItem(menuItemsFolder.get(1));
                     info.dispose();
-                    info = new InfoDialog(this, "fs_46", "fs_08", false, INFO_WIDTH, INFO_HEIGTH, null, context.getTableHeaderInfo(), context.getTableInfoData());
+                    info = new InfoDialog(this, "fs_46", "fs_08", false, INFO_WIDTH, INFO_HEIGTH, context.getTableStatsInfo(), context.getTableHeaderInfo(), context.getTableInfoSource());
                     mgnActionCommand = "LINUX";
                     ((FilesTreePainter) getPainter(FILESTREE_PAINTER)).initTree();
                 } else {
-                    ((FileSystemSettings) settings).setAlgorithm("DOS"); // Restore selection
+                    ((FileSystemSettings) settings).setAlgorithm(mgnActionCommand); // Restore selection
+                }
+                break;
+            case 102:    // Extents (ext4)
+                if (mgnActionCommand.equals(actionCommand)) break;
+                if (!context.areAnyFile() ||
+                        (context.areAnyFile() &&
+                                JOptionPane.OK_OPTION == JOptionPane.showConfirmDialog(panel, Translation.getInstance().getError("fs_10"), "Warning", JOptionPane.OK_CANCEL_OPTION))) {
+                    context.setAlgorithm(FileSystemFactory.createAlgorithm(actionCommand, blockSize, devSize, cleaner));
+                    panel.setLabel(getAlgorithmInfo());
+                    getPainter(FOLDER_PAINTER).clearMenu();
+                    getPainter(FOLDER_PAINTER).addMenuItem(menuItemsFolder.get(1));
+                    info.dispose();
+                    info = new InfoDialog(this, "fs_46", "fs_info", false, INFO_WIDTH, INFO_HEIGTH, context.getTableStatsInfo(), context.getTableHeaderInfo(), context.getTableInfoSource());
+                    mgnActionCommand = "EXT4";
+                    ((FilesTreePainter) getPainter(FILESTREE_PAINTER)).initTree();
+                } else {
+                    ((FileSystemSettings) settings).setAlgorithm(mgnActionCommand); // Restore selection
+                }
+                break;
+            case 104:    // Log-structured (LFS)
+                if (mgnActionCommand.equals(actionCommand)) break;
+                if (!context.areAnyFile() ||
+                        (context.areAnyFile() &&
+                                JOptionPane.OK_OPTION == JOptionPane.showConfirmDialog(panel, Translation.getInstance().getError("fs_10"), "Warning", JOptionPane.OK_CANCEL_OPTION))) {
+                    context.setAlgorithm(FileSystemFactory.createAlgorithm(actionCommand, blockSize, devSize, cleaner));
+                    panel.setLabel(getAlgorithmInfo());
+                    getPainter(FOLDER_PAINTER).clearMenu();
+                    getPainter(FOLDER_PAINTER).addMenuItem(menuItemsFolder.get(1));
+                    info.dispose();
+                    info = new InfoDialog(this, "fs_46", "fs_info", false, INFO_WIDTH, INFO_HEIGTH, context.getTableStatsInfo(), context.getTableHeaderInfo(), context.getTableInfoSource());
+                    mgnActionCommand = "LFS";
+                    ((FilesTreePainter) getPainter(FILESTREE_PAINTER)).initTree();
+                } else {
+                    ((FileSystemSettings) settings).setAlgorithm(mgnActionCommand); // Restore selection
+                }
+                break;
+
+            case 95:    // Journal mode or commit interval
+                context.setJournal(((FileSystemSettings) settings).getJournalMode(), ((FileSystemSettings) settings).getCommitInterval());
+                if (context.getDeviceImage() != null) context.getDeviceImage().setParams(getXMLData(0).get(0));
+                break;
+            case 105:    // Attach device image
+                File imageFile = new OpenSaveDialog(settings, "img", "fs_109", "fs_108").showSaveFileChooser();
+                if (imageFile != null) {
+                    DeviceImage image = context.createDeviceImage(imageFile);
+                    image.setParams(getXMLData(0).get(0));
+                    context.setDeviceImage(image);
+                }
+                break;
+            case 106:    // Open device image
+                imageFile = new OpenSaveDialog(settings, "img", "fs_109", "fs_108").showOpenFileChooser();
+                if (imageFile != null) {
+                    DeviceImage image = DeviceImage.open(imageFile);
+                    if (defragTimer != null) defragTimer.stop();
+                    FileSystemPresenter presenter = new FileSystemPresenter(false);
+                    AppSession.getInstance().setPresenter(presenter);
+                    presenter.loadImage(image);
+                    presenter.updateInfo(); // Update table info
+                    presenter.repaintPainters(); // Repaint painters
+                }
+                break;
+            case 107:    // Start or stop defragmenter
+                if (!context.isDefragmentable()) throw new SoSimException("fs_18");
+                if (defragTimer == null) {
+                    defragTimer = new javax.swing.Timer(DEFRAG_RATE, this);
+                    defragTimer.setActionCommand("DEFRAGSTEP");
+                }
+                if (defragTimer.isRunning()) defragTimer.stop();
+                else defragTimer.start();
+                break;
+            case 108:    // Defragmenter step, stops when algorithm changes to one not supporting it or it finishes
+                if (!context.isDefragmentable() || !context.defragment()) defragTimer.stop();
+                break;
+            case 103:    // Crash and recover
+                if (context.getJournalMode() == Journal.NONE) throw new SoSimException("fs_14");
+                int tick = context.getJournalTick();
+                String sTick = JOptionPane.showInputDialog(settings, Translation.getInstance().getLabel("fs_98", tick), Integer.valueOf(tick));
+                if (sTick != null) {
+                    try {
+                        JOptionPane.showMessageDialog(settings, context.getJournalRecovery(Integer.parseInt(sTick.trim())));
+                    } catch (NumberFormatException e) {
+                        throw new SoSimException("fs_15");
+                    }
                 }
                 break;
 
@@ -486,12 +611,12 @@ public class FileSystemPresenter extends Presenter {
     }
 
     /**
-     * Returns true if current algorithm is UNIX
+     * Returns true if current algorithm is UNIX, extents (ext4) or log-structured (LFS), all support hard links
      *
-     * @return true if current algorithm is UNIX
+     * @return true if current algorithm is UNIX, extents or log-structured
      */
     public boolean showSoftField() {
-        return "LINUX".equals(mgnActionCommand);
+        return "LINUX".equals(mgnActionCommand) || "EXT4".equals(mgnActionCommand) || "LFS".equals(mgnActionCommand);
     }
 
     /**************************************************************************************************/
@@ -503,7 +628,8 @@ public class FileSystemPresenter extends Presenter {
      */
     public void updateInfo() {
         // Puts data 
-        info.initData(context.getTableInfoData());
+        info.refreshData();
+        info.updateValues(context.getTableStatsData());
     }
 
     /**
@@ -657,6 +783,18 @@ public class FileSystemPresenter extends Presenter {
                 attribute.add("devSize");
                 attribute.add(Integer.toString(devSize));
                 param.add(attribute);
+                attribute = new Vector<String>();
+                attribute.add("journal");
+                attribute.add(Integer.toString(context.getJournalMode()));
+                param.add(attribute);
+                attribute = new Vector<String>();
+                attribute.add("commitInterval");
+                attribute.add(Integer.toString(context.getJournalInterval()));
+                param.add(attribute);
+                attribute = new Vector<String>();
+                attribute.add("cleaner");
+                attribute.add(Integer.toString(cleaner));
+                param.add(attribute);
                 data.add(param);
                 break;
             case 1:    // File system items: Folders, Files, Links
@@ -666,6 +804,74 @@ public class FileSystemPresenter extends Presenter {
         return data;
     }
 
+    /**
+     * Imports a host folder under selected folder. Host folder is scanned by a background worker, up to device free blocks
+     * entries (each imported entry takes a block at least), so the panel keeps responding while a large folder is scanned.
+     * Once scanned, scanned entries are imported into the folder selected when import began
+     *
+     * @param file host folder
+     * @see HostScanner#scan(File, int)
+     * @see ContextFileSystem#importHostFolder(HostEntry, int, boolean)
+     */
+    private void importHostFolder(final File file) {
+        final int folder = context.getSelectedFolderId();
+        final int limit = context.getFreeBlocks();
+        panel.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<HostEntry, Void>() {
+            protected HostEntry doInBackground() throws SoSimException {
+                return HostScanner.scan(file, limit);
+            }
+
+            protected void done() {
+                panel.setCursor(Cursor.getDefaultCursor());
+                if (AppSession.getInstance().getPresenter() != FileSystemPresenter.this) return; // Simulation closed while scanning
+                try {
+                    HostEntry host = get();
+                    if (!context.setSelectedLogicalObject(folder)) throw new SoSimException("fs_05");
+                    HostImport result = context.importHostFolder(host, HostImport.UNIT, showSoftField());
+                    int id = result.getFolderId();
+                    ((FilesTreePainter) getPainter(FILESTREE_PAINTER)).addNode(context.getParentId(id), id);
+                    Iterator<Integer> it = context.getSubtreeIds(id).iterator();
+                    while (it.hasNext()) {
+                        int child = it.next();
+                        ((FilesTreePainter) getPainter(FILESTREE_PAINTER)).addNode(context.getParentId(child), child);
+                    }
+                    updateInfo();
+                    repaintPainters();
+                    JOptionPane.showMessageDialog(panel, result.getInfo(host));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // Scan failed, shows scan error
+                    JOptionPane.showMessageDialog(panel, e.getCause().getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                } catch (SoSimException e) {
+                    JOptionPane.showMessageDialog(panel, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Restores file system from a device image, as a simulation file: parameters first and then objects,
+     * every object at blocks it had into image, and then mirrors device into image
+     *
+     * @param image device image
+     * @throws SoSimException image's file system can not be restored
+     * @see #putXMLData(int, Vector)
+     */
+    public void loadImage(DeviceImage image) throws SoSimException {
+        Vector<Vector<Vector<String>>> params = new Vector<Vector<Vector<String>>>();
+        params.add(image.getParams());
+        putXMLData(0, params);
+        context.startRestore(image);
+        try {
+            putXMLData(1, image.getItems());
+        } finally {
+            context.endRestore();
+        }
+        context.setDeviceImage(image);
+    }
+
     /**
      * Builds all model information from a concrete child identified by <code>child</code>
      *
@@ -683,42 +889,26 @@ public class FileSystemPresenter extends Presenter {
                     ((FileSystemSettings) settings).setBlockSize(blockSize); // Restore selection
                     devSize = Integer.parseInt(sdevSize);
                     ((FileSystemSettings) settings).setDevSize(devSize); // Restore selection
+                    if (data.get(0).size() > 4) { // Journal, files saved without it have no journal
+                        int mode = Integer.parseInt(data.get(0).get(3).get(1));
+                        int interval = Integer.parseInt(data.get(0).get(4).get(1));
+                        context.setJournal(mode, interval);
+                        ((FileSystemSettings) settings).setJournal(mode, interval); // Restore selection
+                    }
+                    if (data.get(0).size() > 5) { // Cleaner, files saved without it use greedy cleaner
+                        cleaner = Integer.parseInt(data.get(0).get(5).get(1));
+                        ((FileSystemSettings) settings).setCleaner(cleaner); // Restore selection
+                    }
                     mgnActionCommand = "";
                     actionSpecific(actionCommand); // Inits filesystem. Creates Root folder
                     break;
                 case 1:   // File system items: Folders, Files, Links
                     for (int i = 0; i < data.size(); i++) {
-                        Vector<Vector<String>> item = data.get(i);
-                        Vector<Object> itemData = new Vector<Object>();
-
-                        int id = Integer.parseInt(item.get(0).get(1)); // id. Value at position 1
-                        itemData.add(item.get(1).get(1)); // name. Value at position 1
-                        int parentid = Integer.parseInt(item.get(2).get(1)); // parent id. Value at position 1
-                        context.setSelectedLogicalObject(parentid);
-
-                        String type = item.get(3).get(1);
-                        if ("folder".equals(type)) {
-                            int[] ids = context.addFolder(id, itemData);
-                            ((FilesTreePainter) this.getPainter(FILESTREE_PAINTER)).addNode(parentid, ids[0]); // Folder
-                            ((FilesTreePainter) this.getPainter(FILESTREE_PAINTER)).addNode(ids[0], ids[1]); // "."
-                            ((FilesTreePainter) this.getPainter(FILESTREE_PAINTER)).addNode(ids[0], ids[2]); // ".."
-                        }
-                        if ("link".equals(type)) {
-                            itemData.add(Integer.valueOf(item.get(4).get(1))); // link id. Value at position 1
-                            itemData.add(Boolean.valueOf(item.get(5).get(1))); // Soft. Value at position 1
-                            if (item.size() > 6) {
-                                // Removed hard link target
-                                itemData.add(Integer.valueOf(item.get(6).get(1))); // target size. Value at position 1
-                                itemData.add(new Color(Integer.valueOf(item.get(7).get(1)))); // target color. Value at position 1
-                            }
-                            context.addLink(id, itemData);
-                            ((FilesTreePainter) this.getPainter(FILESTREE_PAINTER)).addNode(parentid, id);
-                        }
-                        if ("file".equals(type)) {
-                            itemData.add(Integer.valueOf(item.get(4).get(1))); // size. Value at position 1
-                            itemData.add(new Color(Integer.valueOf(item.get(5).get(1)))); // color. Value at position 1
-                            context.addFile(id, itemData);
-                            ((FilesTreePainter) this.getPainter(FILESTREE_PAINTER)).addNode(parentid, id);
+                        int[] ids = FileSystemFactory.addObject(context, data.get(i));
+                        if (ids.length == 0) continue; // Unknown type
+                        ((FilesTreePainter) this.getPainter(FILESTREE_PAINTER)).addNode(context.getParentId(ids[0]), ids[0]);
+                        for (int j = 1; j < ids.length; j++) {
+                            ((FilesTreePainter) this.getPainter(FILESTREE_PAINTER)).addNode(ids[0], ids[j]); // "." and ".."
                         }
                     }
                     break;
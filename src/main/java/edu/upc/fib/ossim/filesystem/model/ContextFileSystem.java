@@ -1,10 +1,15 @@
 package edu.upc.fib.ossim.filesystem.model;
 
 import edu.upc.fib.ossim.utils.ColorCell;
+import edu.upc.fib.ossim.utils.RowSource;
 import edu.upc.fib.ossim.utils.SoSimException;
 import edu.upc.fib.ossim.utils.Translation;
 
 import java.awt.*;
+import java.io.File;
+import java.text.DecimalFormat;
+import java.util.Collection;
+import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -13,63 +18,335 @@ import java.util.Vector;
 
 /**
  * File System Management Model (Model - View - Presenter Pattern). Different management algorithm are implemented
- * through Strategy Pattern. Model manage a maximum of<code>"MAX_ELEMENTS"</code> file system objects.
+ * through Strategy Pattern. Objects are indexed by identifier and folders keep their subtree counts, so
+ * queries don't depend on file system size.
  *
  * @author Alex Macia
  */
 public class ContextFileSystem {
-    public static final int MAX_ELEMENTS = 40;
-
     private FileSystemStrategy algorithm;
     private Block[] device;    // Disk blocks
     private int selectedBlock;
     private PhysicalFSObject selectedPhysicalObject;    // Folder painter
     private LogicalFSObject selectedObject; // Tree painter
     private LogicalFSObject root;
+    private Hashtable<Integer, LogicalFSObject> objects;    // Objects into tree by identifier
+    private DentryCache dentries;    // Path components resolution
+    private int journalMode;    // Journal.NONE, ORDERED or FULL
+    private int journalInterval;    // Operations per commit
+    private Journal journal;    // Null if journal mode is none
+    private DeviceImage image;    // Null if device isn't mirrored into an image file
+    private Hashtable<Integer, Vector<Integer>> placements;    // Objects blocks by identifier while an image is restored
+    private Hashtable<Integer, LogicalFSObject> removedTargets;    // Removed hard link targets read, by identifier
+    private Defragmenter defragmenter;    // Null if algorithm doesn't support defragmentation
 
     /**
-     * Constructs a ContextFileSystem: sets a concrete algorithm strategy,
-     * initialize device and creates file system root
+     * Constructs a ContextFileSystem: sets a FAT algorithm strategy,
+     * initialize device and creates file system root. FAT root is always allocated
      *
      * @param algorithm default algorithm
      */
-    public ContextFileSystem(FileSystemStrategy algorithm) {
-        setAlgorithm(algorithm);
+    public ContextFileSystem(FileSystemStrategyFAT algorithm) {
+        journalMode = Journal.NONE;
+        journalInterval = 1;
+        Block[] device = new Block[algorithm.getDevSize() / algorithm.getBlockSize()];
+        init(algorithm, device, algorithm.initRoot(device));
     }
 
     /**
-     * Returns file system objects count, total number of files, folders and links (Recursive)
+     * Returns file system objects count, total number of files and links (root's subtree count)
      *
      * @return    file system objects count
+     * @see FolderItem#getElements()
      */
     public int getElementCount() {
-        return getElementCount(root);
+        return root.getFolder().getElements();
+    }
+
+    /**
+     * Change algorithm strategy, initialize device and creates file system root. Device image, if any, is closed.
+     * Current file system is kept if new root can not be allocated
+     *
+     * @param algorithm default algorithm
+     * @throws SoSimException there are not enough free blocks or physical objects to allocate root
+     */
+    public void setAlgorithm(FileSystemStrategy algorithm) throws SoSimException {
+        Block[] device = new Block[algorithm.getDevSize() / algorithm.getBlockSize()];
+        init(algorithm, device, algorithm.initRoot(device));
+    }
+
+    private void init(FileSystemStrategy algorithm, Block[] device, LogicalFSObject root) {
+        if (image != null) image.close();
+        image = null;
+        this.algorithm = algorithm;
+        this.device = device;
+        this.root = root;
+        selectedObject = root;
+        objects = new Hashtable<Integer, LogicalFSObject>();
+        removedTargets = new Hashtable<Integer, LogicalFSObject>();
+        putObject(root);
+        dentries = new DentryCache();
+        journal = createJournal();
+        if (algorithm.getObjectBlocks(device, root) != null) defragmenter = new Defragmenter(algorithm);
+        else defragmenter = null;
+    }
+
+    /**
+     * Sets journal mode and commit interval, journal starts empty
+     *
+     * @param mode     journal mode: Journal.NONE, Journal.ORDERED or Journal.FULL
+     * @param interval operations grouped per commit
+     * @see Journal
+     */
+    public void setJournal(int mode, int interval) {
+        journalMode = mode;
+        journalInterval = interval;
+        journal = createJournal();
+    }
+
+    /**
+     * Gets journal mode
+     *
+     * @return    journal mode
+     */
+    public int getJournalMode() {
+        return journalMode;
+    }
+
+    /**
+     * Gets operations grouped per journal commit
+     *
+     * @return    commit interval
+     */
+    public int getJournalInterval() {
+        return journalInterval;
+    }
+
+    /**
+     * Gets operations journaled since journal started
+     *
+     * @return    operations journaled, 0 if journal mode is none
+     */
+    public int getJournalTick() {
+        if (journal == null) return 0;
+        return journal.getTick();
+    }
+
+    /**
+     * Simulates a crash after operation tick, recovers device from journal and
+     * returns recovery information: transactions and blocks replayed, operations lost and consistency
+     *
+     * @param tick last operation before crash
+     * @throws SoSimException journal mode is none or there is no such operation
+     * @return    recovery information
+     * @see Journal#crash(int)
+     */
+    public String getJournalRecovery(int tick) throws SoSimException {
+        if (journal == null) throw new SoSimException("fs_14");
+        if (tick < 1 || tick > journal.getTick()) throw new SoSimException("fs_15");
+
+        Journal crashed = journal.crash(tick);
+        String info = Translation.getInstance().getLabel("fs_91", tick) + "\n";
+        info += Translation.getInstance().getLabel("fs_92", crashed.getLastCommit()) + "\n";
+        info += Translation.getInstance().getLabel("fs_93", tick - crashed.getLastCommit()) + "\n";
+        info += Translation.getInstance().getLabel("fs_94", crashed.getTransactions()) + "\n";
+        info += Translation.getInstance().getLabel("fs_95", crashed.getReplayed()) + "\n";
+        if (crashed.isConsistent()) info += Translation.getInstance().getLabel("fs_96");
+        else info += Translation.getInstance().getLabel("fs_97", crashed.getInconsistent());
+        return info;
+    }
+
+    private Journal createJournal() {
+        if (journalMode == Journal.NONE) return null;
+        return new Journal(journalMode, journalInterval, getAdminBlocks(), device.length);
     }
 
-    private int getElementCount(LogicalFSObject node) {
-        // Recursive. Returns FileSystemItem identified by id
-        int count = 0;
-        if (node == null) return 0;
-        if (node.isFile() || node.isLink()) return 1;
-        FolderItem folder = node.getFolder();
-        Iterator<LogicalFSObject> childs = folder.getChilds().iterator();
-        while (childs.hasNext()) {
-            count += getElementCount(childs.next());
+    private int getAdminBlocks() {
+        int admin = 0;
+        while (algorithm.isAdminBlock(admin)) admin++;
+        return admin;
+    }
+
+    /**
+     * Creates a device image file sized for current device, it isn't attached until it is set
+     *
+     * @param file image file
+     * @throws SoSimException file can not be created
+     * @return    device image
+     * @see #setDeviceImage(DeviceImage)
+     */
+    public DeviceImage createDeviceImage(File file) throws SoSimException {
+        return DeviceImage.create(file, device.length, getAdminBlocks());
+    }
+
+    /**
+     * Mirrors device into an image, current device and objects are written and then every operation
+     * writes its changes through. Previous image, if any, is closed
+     *
+     * @param image device image, created or opened for a device with the same blocks
+     * @throws SoSimException image blocks don't match device or image can not be written
+     */
+    public void setDeviceImage(DeviceImage image) throws SoSimException {
+        if (image.getBlocks() != device.length) {
+            image.close();
+            throw new SoSimException("fs_17");
         }
-        return count;
+        if (this.image != null && this.image != image) this.image.close();
+        this.image = image;
+
+        // Whole device and all objects, records already written aren't written again
+        image.clearObjects();
+        algorithm.getBitmap().takeChanged();
+        Vector<Integer> blocks = new Vector<Integer>();
+        for (int i = getAdminBlocks(); i < device.length; i++) blocks.add(i);
+        image.setRoot(root.getId());
+        writeImage(new Vector<Integer>(objects.keySet()), blocks);
     }
 
     /**
-     * Change algorithm strategy, initialize device and creates file system root
+     * Starts restoring file system from a device image: root is moved to its recorded blocks and objects added
+     * until restore ends are allocated at blocks they had into image, as long as those blocks are free.
+     * Allocation goes on from image's log head
      *
-     * @param algorithm default algorithm
+     * @param image device image
+     * @throws SoSimException there are not enough free blocks to move root
+     * @see FileSystemStrategy#setPlacement(Vector)
+     */
+    public void startRestore(DeviceImage image) throws SoSimException {
+        placements = image.getPlacements();
+        Vector<Integer> blocks = placements.remove(image.getRoot());
+        if (blocks != null) placements.put(root.getId(), blocks);
+        algorithm.setLogHead(image.getLogHead());
+        place(root.getId());
+        algorithm.updatesObject(root, device);
+    }
+
+    /**
+     * Ends restoring file system from a device image
+     */
+    public void endRestore() {
+        placements = null;
+        algorithm.setPlacement(null);
+    }
+
+    private void place(int id) {
+        // While an image is restored, object is allocated at its recorded blocks
+        if (placements == null) return;
+        Vector<Integer> blocks = placements.get(id);
+        if (blocks == null) blocks = new Vector<Integer>();
+        algorithm.setPlacement(blocks);
+    }
+
+    /**
+     * Gets device image
      *
+     * @return    device image, null if device isn't mirrored
      */
-    public void setAlgorithm(FileSystemStrategy algorithm) {
-        this.algorithm = algorithm;
-        device = new Block[algorithm.getDevSize() / algorithm.getBlockSize()];
-        root = algorithm.initRoot(device);
-        selectedObject = root;
+    public DeviceImage getDeviceImage() {
+        return image;
+    }
+
+    private void writeImage(Vector<Integer> ids) throws SoSimException {
+        writeImage(ids, algorithm.getBitmap().takeChanged());
+    }
+
+    private void writeImage(Vector<Integer> ids, Vector<Integer> blocks) throws SoSimException {
+        // Only records of changed objects and blocks are written. Owners of blocks allocated or released
+        // are changed objects too (cleaner moves blocks of objects not changed by operation)
+        if (image == null) return;
+        Hashtable<Integer, LogicalFSObject> changed = new Hashtable<Integer, LogicalFSObject>();
+        Iterator<Integer> it = ids.iterator();
+        while (it.hasNext()) {
+            int id = it.next();
+            LogicalFSObject object = getByID(id);
+            if (object == null) image.removeObject(id);
+            else changed.put(id, object);
+        }
+        it = blocks.iterator();
+        while (it.hasNext()) {
+            int block = it.next();
+            if (device[block] == null) image.writeBlock(block, null, 0);
+            else if (device[block].getItem() != null) changed.put(device[block].getItem().getId(), device[block].getItem());
+        }
+
+        Iterator<LogicalFSObject> itObjects = changed.values().iterator();
+        while (itObjects.hasNext()) {
+            LogicalFSObject object = itObjects.next();
+            if (isImageItem(object)) image.writeObject(object.getXMLInfo());
+            if (object.isFile() && hasHardLinks(object)) writeHardLinks(object);
+            Vector<Integer> owned = algorithm.getAllocatedBlocks(device, object);
+            for (int i = 0; i < owned.size(); i++) image.writeBlock(owned.get(i), device[owned.get(i)], i);
+        }
+        image.setLogHead(algorithm.getLogHead());
+    }
+
+    private boolean isImageItem(LogicalFSObject object) {
+        // Image objects are simulation file objects: root, "." and ".." are not
+        return getByID(object.getId()) == object && object.getParent() != null &&
+                !".".equals(object.getName()) && !"..".equals(object.getName());
+    }
+
+    private boolean hasHardLinks(LogicalFSObject object) {
+        PhysicalFSObject fsObject = object.getFSObject();
+        if (fsObject instanceof Inode) return ((Inode) fsObject).getLinks() > 1;
+        if (fsObject instanceof ExtentInode) return ((ExtentInode) fsObject).getLinks() > 1;
+        return false;
+    }
+
+    private void writeHardLinks(LogicalFSObject target) throws SoSimException {
+        // Hard link records keep target's size and color
+        Iterator<LogicalFSObject> it = objects.values().iterator();
+        while (it.hasNext()) {
+            LogicalFSObject object = it.next();
+            if (object.isLink() && !object.isSoft() && object.getFSObject() == target.getFSObject() && isImageItem(object))
+                image.writeObject(object.getXMLInfo());
+        }
+    }
+
+    private Block[] getImage() {
+        // Device blocks before an operation, only if it is journaled
+        if (journal == null) return null;
+        return device.clone();
+    }
+
+    private void writeJournal(Block[] before, FolderItem folder, Vector<Integer> ids) {
+        if (journal != null) journal.write(before, device, folder, ids);
+    }
+
+    private void endOperation(Block[] before, FolderItem folder, Vector<Integer> ids) throws SoSimException {
+        // Operation is journaled and written through, it invalidates running defragmentation plan
+        writeJournal(before, folder, ids);
+        writeImage(ids);
+        if (defragmenter != null) defragmenter.cancel();
+    }
+
+    /**
+     * Returns if current algorithm supports defragmentation
+     *
+     * @return    algorithm supports defragmentation
+     */
+    public boolean isDefragmentable() {
+        return defragmenter != null;
+    }
+
+    /**
+     * Runs a defragmenter step, a bounded batch of blocks is moved. Moved blocks are journaled
+     * and written through as any other operation
+     *
+     * @throws SoSimException image can not be written
+     * @return    there are more blocks to move, false if defragmentation has finished
+     * @see Defragmenter#step(Block[], Hashtable)
+     */
+    public boolean defragment() throws SoSimException {
+        if (defragmenter == null) return false;
+        Block[] before = getImage();
+        LogicalFSObject moved = defragmenter.step(device, objects);
+        if (moved == null) return false;
+        Vector<Integer> ids = new Vector<Integer>();
+        ids.add(moved.getId());
+        writeJournal(before, null, ids);
+        writeImage(ids);
+        return true;
     }
 
     /**
@@ -130,7 +407,7 @@ public class ContextFileSystem {
      * @return object exist
      */
     public boolean setSelectedLogicalObject(int id) {
-        selectedObject = getByID(root, id);
+        selectedObject = getByID(id);
         return selectedObject != null;
     }
 
@@ -152,6 +429,24 @@ public class ContextFileSystem {
         selectedBlock = num;
     }
 
+    /**
+     * Gets selected folder identifier, selected object's folder if selected object is not a folder
+     *
+     * @return selected folder identifier
+     */
+    public int getSelectedFolderId() {
+        return selectedObject.getFolder().getId();
+    }
+
+    /**
+     * Gets device free blocks
+     *
+     * @return device free blocks
+     */
+    public int getFreeBlocks() {
+        return algorithm.getBitmap().getFree();
+    }
+
     /**
      * Gets a string that represents the path to the selected folder
      *
@@ -162,11 +457,17 @@ public class ContextFileSystem {
         return getPath(selectedObject.getFolder().getPath());
     }
 
-
+    /**
+     * Returns an error message if selected object is a link whose target doesn't exist, null otherwise.
+     * Soft links targets are resolved by the path they were created with, so a renamed or moved target is lost
+     *
+     * @return    error message or null
+     */
     public String getLinkTargetInfo() {
         if (selectedObject.isLink()) {
             LogicalFSObject target = ((LinkItem) selectedObject).getTarget();
-            if (target == null || getByID(root, target.getId()) == null) {
+            if (target == null || getByID(target.getId()) == null ||
+                    (selectedObject.isSoft() && resolvePath(((LinkItem) selectedObject).getTargetPath()) != target)) {
                 return Translation.getInstance().getError("fs_13");
             }
         }
@@ -222,7 +523,7 @@ public class ContextFileSystem {
         Vector<Vector<Object>> data = new Vector<Vector<Object>>();
 
         FolderItem folder = selectedObject.getFolder();
-        List<LogicalFSObject> childs = folder.getChilds();
+        Collection<LogicalFSObject> childs = folder.getChilds();
         Iterator<LogicalFSObject> it = childs.iterator();
         while (it.hasNext()) {
             Vector<Object> row = new Vector<Object>();
@@ -235,34 +536,49 @@ public class ContextFileSystem {
         return data;
     }
 
-    private LogicalFSObject getByID(LogicalFSObject node, int id) {
-        // Recursive. Returns FileSystemItem identified by id
-        if (node == null) return null;
-        if (node.getId() == id) return node;
-        if (node.isFolder()) {
-            FolderItem folder = node.getFolder();
-            Iterator<LogicalFSObject> childs = folder.getChilds().iterator();
-            LogicalFSObject child = null;
-            while (childs.hasNext() && child == null) {
-                child = getByID(childs.next(), id);
+    private LogicalFSObject getByID(int id) {
+        // Returns FileSystemItem identified by id, null if it is not into tree
+        return objects.get(id);
+    }
+
+    private LogicalFSObject resolvePath(List<String> path) {
+        // Resolves a path from root reading folders, not through dentry cache: showing a link is not a lookup
+        // made by file system operations. Null if it doesn't exist
+        Iterator<String> it = path.iterator();
+        if (!it.hasNext() || !root.getName().equals(it.next())) return null;
+        LogicalFSObject object = root;
+        while (it.hasNext()) {
+            if (object == null || !object.isFolder()) return null;
+            object = object.getFolder().getChildByName(it.next());
+        }
+        return object;
+    }
+
+    private void putObject(LogicalFSObject object) {
+        // Indexes a new object, new folders also their links "." and ".."
+        objects.put(object.getId(), object);
+        if (object.isFolder()) {
+            Iterator<LogicalFSObject> it = object.getFolder().getChilds().iterator();
+            while (it.hasNext()) {
+                LogicalFSObject child = it.next();
+                objects.put(child.getId(), child);
             }
-            return child;
         }
-        return null;
     }
 
     /**
-     * Gets file system object's name identified by id (Recursive)
+     * Gets file system object's name identified by id
      *
      * @param id system object identifier
-     * @return    file system object's name identified by id (Recursive)
+     * @return    file system object's name identified by id
      */
     public String getName(int id) {
-        return getByID(root, id).getName();
+        return getByID(id).getName();
     }
 
     /**
      * Returns block background color, it depends on object stored into it. Administrative blocks are painted in black,
+     * journal blocks in dark gray,
      * free blocks are painted in white, and blocks storing file system objects are painted in object's color
      *
      * @param block block identifier
@@ -270,6 +586,7 @@ public class ContextFileSystem {
      * @see LogicalFSObject#getColor()
      */
     public Color getBlockColor(int block) {
+        if (journal != null && journal.isJournalBlock(block)) return Color.DARK_GRAY;
         if (algorithm.isAdminBlock(block)) return Color.BLACK;
         if (device[block] == null) return Color.WHITE;
         LogicalFSObject item = device[block].getItem();
@@ -297,7 +614,7 @@ public class ContextFileSystem {
      * @return    file system object's color
      */
     public Color getColor(int id) {
-        LogicalFSObject item = getByID(root, id);
+        LogicalFSObject item = getByID(id);
         if (item != null && item.isFile()) return item.getColor();
         return Color.WHITE;
     }
@@ -309,7 +626,7 @@ public class ContextFileSystem {
      * @return    file system object's parent id
      */
     public int getParentId(int id) {
-        return getByID(root, id).getParent().getId();
+        return getByID(id).getParent().getId();
     }
 
     /**
@@ -323,7 +640,7 @@ public class ContextFileSystem {
         Vector<Vector<Vector<String>>> data = new Vector<Vector<Vector<String>>>();
         LogicalFSObject child;
         Iterator<LogicalFSObject> it;
-        List<LogicalFSObject> childs = root.getFolder().getChilds();
+        Collection<LogicalFSObject> childs = root.getFolder().getChilds();
         LinkedList<LogicalFSObject> links = new LinkedList<LogicalFSObject>();
 
         it = childs.iterator();
@@ -360,7 +677,7 @@ public class ContextFileSystem {
             data.add(node.getXMLInfo());
             if (node.isFolder()) {
                 // Recursive
-                List<LogicalFSObject> childs = node.getFolder().getChilds();
+                Collection<LogicalFSObject> childs = node.getFolder().getChilds();
                 Iterator<LogicalFSObject> it = childs.iterator();
                 while (it.hasNext()) {
                     LogicalFSObject child = it.next();
@@ -452,6 +769,93 @@ public class ContextFileSystem {
         return algorithm.getTableInfoData(device);
     }
 
+    /**
+     * Returns file system information table rows source, rows are device data blocks built on demand
+     * by current algorithm and sorted by block number without building them
+     *
+     * @return    file system information table rows source
+     * @see FileSystemStrategy#getTableInfoRow(Block[], int)
+     */
+    public RowSource getTableInfoSource() {
+        return new RowSource() {
+            public int getRowCount() {
+                return device.length - algorithm.getFirstDataBlock();
+            }
+
+            public Vector<Object> getRow(int row) {
+                return algorithm.getTableInfoRow(device, algorithm.getFirstDataBlock() + row);
+            }
+
+            public Object getKey(int row, int column) {
+                if (column == 0) return algorithm.getFirstDataBlock() + row; // Block number
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Returns statistics labels: dentry cache, journal and fragmentation (if algorithm supports defragmentation)
+     * followed by current algorithm allocation statistics, if any
+     *
+     * @return    statistics labels
+     * @see FileSystemStrategy#getTableStatsInfo()
+     */
+    public Vector<Vector<String>> getTableStatsInfo() {
+        Vector<Vector<String>> info = new Vector<Vector<String>>();
+        for (int i = 79; i <= 84; i++) {
+            Vector<String> row = new Vector<String>();
+            row.add("fs_" + i);
+            row.add("--");
+            info.add(row);
+        }
+        for (int i = 110; defragmenter != null && i <= 116; i++) {
+            Vector<String> row = new Vector<String>();
+            row.add("fs_" + i);
+            row.add("--");
+            info.add(row);
+        }
+        if (algorithm.getTableStatsInfo() != null) info.addAll(algorithm.getTableStatsInfo());
+        return info;
+    }
+
+    /**
+     * Returns statistics values: dentry cache, journal and fragmentation (if algorithm supports defragmentation)
+     * followed by current algorithm allocation statistics, if any
+     *
+     * @return    statistics values
+     * @see FileSystemStrategy#getTableStatsData()
+     */
+    public Vector<String> getTableStatsData() {
+        Vector<String> data = new Vector<String>();
+        DecimalFormat df = new DecimalFormat("#0.00");
+        if (dentries.getLookups() > 0) data.add(df.format(100.0 * dentries.getHits() / dentries.getLookups()));
+        else data.add("--");
+        data.add(Integer.toString(dentries.getReads()));
+        data.add(Integer.toString(dentries.getSaved()));
+        if (journal != null) {
+            data.add(journal.getCommits() + " / " + journal.getUnbatchedCommits());
+            data.add(df.format(journal.getAmplification()));
+            data.add(df.format(journal.getThroughputGain()));
+        } else {
+            data.add("--");
+            data.add("--");
+            data.add("--");
+        }
+        if (defragmenter != null) {
+            defragmenter.analyze(device, objects);
+            data.add(defragmenter.getFragmented() + " / " + defragmenter.getTotal());
+            data.add(df.format(defragmenter.getFragmentsPerObject()));
+            data.add(df.format(defragmenter.getRunLength()));
+            data.add(defragmenter.getFreeRuns() + " / " + defragmenter.getLargestFree());
+            data.add(df.format(defragmenter.getFreeFragmentation()));
+            if (defragmenter.getStartCost() != -1) data.add(defragmenter.getStartCost() + " / " + defragmenter.getCost());
+            else data.add("-- / " + defragmenter.getCost());
+            data.add(Integer.toString(defragmenter.getMoved()));
+        }
+        if (algorithm.getTableStatsData() != null) data.addAll(algorithm.getTableStatsData());
+        return data;
+    }
+
     /**
      * Adds new file under selected folder
      *
@@ -467,21 +871,36 @@ public class ContextFileSystem {
         // id -1 new.  id >= 0 keep
         FolderItem folder = selectedObject.getFolder();
 
-        if (folder.getChildByName(data.get(0).toString()) != null) throw new SoSimException("fs_02");
-        if (!algorithm.checkAvailableDisk(device, (Integer) data.get(1))) throw new SoSimException("fs_01");
-
-        PhysicalFSObject fsObject = algorithm.getNewPhysicalObject();
+        if (dentries.lookup(folder, data.get(0).toString()) != null) throw new SoSimException("fs_02");
+        if (!algorithm.checkAvailableDisk(device, (Integer) data.get(1))) throw notAvailable();
+        checkFolderGrowth(folder);
+        int folderSize = folder.getSize();
+        Block[] before = getImage();
 
+        Vector<Integer> ids = new Vector<Integer>();
+        ids.add(folder.getId());
         FileItem file;
-        if (id < 0)
-            file = new FileItem(fsObject, data.get(0).toString(), folder, (Integer) data.get(1), (Color) data.get(2));
-        else
-            file = new FileItem(id, fsObject, data.get(0).toString(), folder, (Integer) data.get(1), (Color) data.get(2));
-
-        folder.addChild(file);
-
-        algorithm.allocateObject(device, file);
+        try {
+            place(id);
+            PhysicalFSObject fsObject = algorithm.getNewPhysicalObject();
+
+            if (id < 0)
+                file = new FileItem(fsObject, data.get(0).toString(), folder, (Integer) data.get(1), (Color) data.get(2));
+            else
+                file = new FileItem(id, fsObject, data.get(0).toString(), folder, (Integer) data.get(1), (Color) data.get(2));
+
+            folder.addChild(file);
+            dentries.invalidate(folder, file.getName());
+            putObject(file);
+            ids.add(file.getId());
+
+            algorithm.allocateObject(device, file);
+            resizeFolder(folder, folderSize);
+        } catch (SoSimException e) {
+            throw failOperation(e, ids);
+        }
 
+        endOperation(before, folder, ids);
         return file.getId();
     }
 
@@ -500,23 +919,39 @@ public class ContextFileSystem {
         // id -1 new.  id >= 0 keep
         FolderItem folder = selectedObject.getFolder();
 
-        if (folder.getChildByName(data.get(0).toString()) != null) throw new SoSimException("fs_02");
-        if (!algorithm.checkAvailableDisk(device, 1)) throw new SoSimException("fs_01");
-
-        PhysicalFSObject fsObject = algorithm.getNewPhysicalObject();
+        if (dentries.lookup(folder, data.get(0).toString()) != null) throw new SoSimException("fs_02");
+        if (!algorithm.checkAvailableDisk(device, 1)) throw notAvailable();
+        checkFolderGrowth(folder);
+        int folderSize = folder.getSize();
+        Block[] before = getImage();
 
+        Vector<Integer> changed = new Vector<Integer>();
+        changed.add(folder.getId());
         FolderItem newFolder;
-        if (id < 0) newFolder = new FolderItem(fsObject, data.get(0).toString(), folder);
-        else newFolder = new FolderItem(id, fsObject, data.get(0).toString(), folder);
-
-        folder.addChild(newFolder);
-
-        algorithm.allocateObject(device, newFolder); // Each Folder only 1 block
+        try {
+            place(id);
+            PhysicalFSObject fsObject = algorithm.getNewPhysicalObject();
+
+            if (id < 0) newFolder = new FolderItem(fsObject, data.get(0).toString(), folder);
+            else newFolder = new FolderItem(id, fsObject, data.get(0).toString(), folder);
+
+            folder.addChild(newFolder);
+            dentries.invalidate(folder, newFolder.getName());
+            putObject(newFolder);
+            changed.add(newFolder.getId());
+
+            algorithm.allocateObject(device, newFolder); // New folder only 1 block
+            resizeFolder(folder, folderSize);
+        } catch (SoSimException e) {
+            throw failOperation(e, changed);
+        }
 
         int[] ids = new int[3]; // Folder + "." + ".."
         ids[0] = newFolder.getId();
         ids[1] = newFolder.getChildByName(".").getId();
         ids[2] = newFolder.getChildByName("..").getId();
+
+        endOperation(before, folder, changed);
         return ids;
     }
 
@@ -536,39 +971,194 @@ public class ContextFileSystem {
         // id -1 new.  id >= 0 keep
         FolderItem folder = selectedObject.getFolder();
 
-        if (folder.getChildByName(data.get(0).toString()) != null) throw new SoSimException("fs_02");
+        if (dentries.lookup(folder, data.get(0).toString()) != null) throw new SoSimException("fs_02");
 
         LinkItem newLink;
         LogicalFSObject target;
         Integer targetId = (Integer) data.get(1);
-        target = getByID(root, targetId);
+        target = getByID(targetId);
         if (target == null && id < 0) throw new SoSimException("fs_05");
-
+        checkFolderGrowth(folder);
+        int folderSize = folder.getSize();
+        Block[] before = getImage();
 
         Boolean soft = (Boolean) data.get(2);
-        PhysicalFSObject fsObject;
-        if (soft) {
-            fsObject = algorithm.getNewPhysicalObject();
-        } else {
-            if (target == null) {
+        if (target == null && !soft) target = removedTargets.get(targetId); // Shared by hard links read before
+        // A hard link to a hard link links its target, which is kept even if the first link is removed
+        if (target != null && !soft && target.isLink() && !target.isSoft()) target = ((LinkItem) target).getTarget();
+        Vector<Integer> ids = new Vector<Integer>();
+        ids.add(folder.getId());
+        try {
+            PhysicalFSObject fsObject;
+            if (soft) {
+                place(id);
                 fsObject = algorithm.getNewPhysicalObject();
-                target = new FileItem(fsObject, "", null, (Integer) data.get(3), (Color) data.get(4));
-                algorithm.allocateObject(device, target);
-                fsObject.removeLink();
-            } else fsObject = target.getFSObject(); // Same block
+            } else {
+                if (target == null) {
+                    place(targetId); // Removed target's blocks are still owned by it
+                    fsObject = algorithm.getNewPhysicalObject();
+                    // Removed target keeps its identifier, a new one would restart identifiers as a root does
+                    target = new FileItem(targetId, fsObject, "", null, (Integer) data.get(3), (Color) data.get(4));
+                    algorithm.allocateObject(device, target);
+                    fsObject.removeLink();
+                    removedTargets.put(targetId, target);
+                } else fsObject = target.getFSObject(); // Same block
+                place(id);
+            }
+
+            if (id < 0) { // New
+                newLink = new LinkItem(fsObject, data.get(0).toString(), folder, target, soft);
+            } else {
+                newLink = new LinkItem(id, fsObject, data.get(0).toString(), folder, target, soft);
+            }
+
+            try {
+                algorithm.allocateObject(device, newLink);
+            } catch (SoSimException e) {
+                if (!soft) algorithm.removeObject(newLink, device); // Target's links count is given back
+                throw e;
+            }
+
+            folder.addChild(newLink);
+            dentries.invalidate(folder, newLink.getName());
+            putObject(newLink);
+            ids.add(newLink.getId());
+            if (target != null) ids.add(target.getId()); // Links count
+            resizeFolder(folder, folderSize);
+        } catch (SoSimException e) {
+            throw failOperation(e, ids);
         }
 
-        if (id < 0) { // New
-            newLink = new LinkItem(fsObject, data.get(0).toString(), folder, target, soft);
-        } else {
-            newLink = new LinkItem(id, fsObject, data.get(0).toString(), folder, target, soft);
+        endOperation(before, folder, ids);
+        return newLink.getId();
+    }
+
+    /**
+     * Imports a scanned host folder under selected folder, the whole import is a single operation: journaled
+     * and written through once. Files are allocated as they are found, files sharing a host file key become
+     * hard links (if algorithm supports them) and symbolic links are added once all objects are imported,
+     * only if their target has been imported. Entries that don't fit into device are skipped, import goes on
+     *
+     * @param folder    host folder entry
+     * @param unit      bytes per unit
+     * @param hardLinks algorithm supports hard links, otherwise hard links are imported as copies
+     * @throws SoSimException exists other objects with the same name under selected folder
+     *                        or there are not enough blocks to allocate imported folder
+     * @return    import: imported folder and counts
+     * @see HostScanner#scan(java.io.File, int)
+     */
+    public HostImport importHostFolder(HostEntry folder, int unit, boolean hardLinks) throws SoSimException {
+        FolderItem parent = selectedObject.getFolder();
+
+        if (dentries.lookup(parent, folder.getName()) != null) throw new SoSimException("fs_02");
+        if (!algorithm.checkAvailableDisk(device, 1)) throw notAvailable();
+        checkFolderGrowth(parent);
+        Block[] before = getImage();
+
+        HostImport hostImport = new HostImport(unit, hardLinks);
+        try {
+            importEntry(parent, folder, hostImport);
+            for (int i = 0; i < hostImport.getSymlinks().size(); i++) {
+                importSymlink(hostImport.getSymlinkFolders().get(i), hostImport.getSymlinks().get(i), hostImport);
+            }
+        } catch (SoSimException e) {
+            throw failOperation(e, hostImport.getIds());
         }
+        endOperation(before, parent, hostImport.getIds());
+        return hostImport;
+    }
 
-        algorithm.allocateObject(device, newLink);
+    /**
+     * Returns identifiers of all objects under a folder, parents before their children (Recursive)
+     *
+     * @param id folder identifier
+     * @return    subtree objects identifiers, folder excluded
+     */
+    public Vector<Integer> getSubtreeIds(int id) {
+        Vector<Integer> ids = new Vector<Integer>();
+        Iterator<LogicalFSObject> it = getByID(id).getFolder().getChilds().iterator();
+        while (it.hasNext()) {
+            LogicalFSObject child = it.next();
+            ids.add(child.getId());
+            if (child.isFolder()) ids.addAll(getSubtreeIds(child.getId()));
+        }
+        return ids;
+    }
 
-        folder.addChild(newLink);
+    // Recursive
+    private void importEntry(FolderItem folder, HostEntry entry, HostImport hostImport) throws SoSimException {
+        if (entry.isSymlink()) {
+            hostImport.addSymlink(folder, entry);
+            return;
+        }
+        int newSize = FolderItem.getEntriesSize(folder.getChilds().size() + 1);
+        LogicalFSObject target = hostImport.getHardLinkTarget(entry);
+        int size = entry.isFile() ? hostImport.getUnits(entry.getSize()) : 1;
+        if ((target == null && !algorithm.checkAvailableDisk(device, size)) ||
+                (newSize > folder.getSize() && !algorithm.checkMoreAvailableDisk(device, newSize, folder))) {
+            hostImport.skip(entry);
+            return;
+        }
+        PhysicalFSObject fsObject;
+        try {
+            if (target != null) fsObject = target.getFSObject(); // Hard link, same physical object
+            else fsObject = algorithm.getNewPhysicalObject();
+        } catch (SoSimException e) {
+            hostImport.skip(entry); // No more i-nodes
+            return;
+        }
+        int folderSize = folder.getSize();
+
+        LogicalFSObject object;
+        if (target != null) {
+            object = new LinkItem(fsObject, entry.getName(), folder, target, false);
+            algorithm.allocateObject(device, object);
+            folder.addChild(object);
+        } else if (entry.isFolder()) {
+            object = new FolderItem(fsObject, entry.getName(), folder);
+            folder.addChild(object);
+            algorithm.allocateObject(device, object);
+        } else {
+            object = new FileItem(fsObject, entry.getName(), folder, size, hostImport.getColor(entry.getName()));
+            folder.addChild(object);
+            algorithm.allocateObject(device, object);
+        }
+        dentries.invalidate(folder, object.getName());
+        putObject(object);
+        resizeFolder(folder, folderSize);
+        hostImport.add(entry, object, folder);
 
-        return newLink.getId();
+        if (object.isFolder()) {
+            Iterator<HostEntry> it = entry.getChildren().iterator();
+            while (it.hasNext()) importEntry(object.getFolder(), it.next(), hostImport);
+        }
+    }
+
+    private void importSymlink(FolderItem folder, HostEntry entry, HostImport hostImport) throws SoSimException {
+        // Soft link to an imported object, skipped if target is outside imported folder or it doesn't fit
+        LogicalFSObject target = hostImport.getImported(entry.getTarget());
+        int newSize = FolderItem.getEntriesSize(folder.getChilds().size() + 1);
+        if (target == null || !algorithm.checkAvailableDisk(device, 1) ||
+                (newSize > folder.getSize() && !algorithm.checkMoreAvailableDisk(device, newSize, folder))) {
+            hostImport.skip(entry);
+            return;
+        }
+        PhysicalFSObject fsObject;
+        try {
+            fsObject = algorithm.getNewPhysicalObject();
+        } catch (SoSimException e) {
+            hostImport.skip(entry); // No more i-nodes
+            return;
+        }
+        int folderSize = folder.getSize();
+
+        LinkItem link = new LinkItem(fsObject, entry.getName(), folder, target, true);
+        algorithm.allocateObject(device, link);
+        folder.addChild(link);
+        dentries.invalidate(folder, link.getName());
+        putObject(link);
+        resizeFolder(folder, folderSize);
+        hostImport.add(entry, link, folder);
     }
 
     /**
@@ -590,17 +1180,24 @@ public class ContextFileSystem {
         if (".".equals(selectedObject.getName()) ||
                 "..".equals(selectedObject.getName())) throw new SoSimException("fs_03");
         if (!selectedObject.getName().equals(data.get(0).toString())) {
-            if (folder.getChildByName(data.get(0).toString()) != null) throw new SoSimException("fs_02");
+            if (dentries.lookup(folder, data.get(0).toString()) != null) throw new SoSimException("fs_02");
         }
 
+        Block[] before = getImage();
         if (selectedObject.isFile()) {
             int newSize = ((Integer) data.get(1)).intValue();
 
-            if (!(algorithm.checkMoreAvailableDisk(device, newSize, selectedObject))) throw new SoSimException("fs_01");
+            if (!(algorithm.checkMoreAvailableDisk(device, newSize, selectedObject))) throw notAvailable();
 
             ((FileItem) selectedObject).setSize((Integer) data.get(1));
 
-            algorithm.updatesObject(selectedObject, device); // Updates device
+            try {
+                algorithm.updatesObject(selectedObject, device); // Updates device
+            } catch (SoSimException e) {
+                Vector<Integer> ids = new Vector<Integer>();
+                ids.add(selectedObject.getId());
+                throw failOperation(e, ids);
+            }
 
             ((FileItem) selectedObject).setColor((Color) data.get(2));
         }
@@ -610,7 +1207,7 @@ public class ContextFileSystem {
     		/* Desactivated target modification
     		LogicalFSObject target, oldTarget;
     		Integer targetId = (Integer) data.get(1);
-    		target = getByID(root, targetId);
+    		target = getByID(targetId);
     		if (target.getId() == selectedObject.getId()) throw new SoSimException("fs_12"); // Itself
     		
     		oldTarget = ((LinkItem) selectedObject).getTarget();
@@ -619,12 +1216,19 @@ public class ContextFileSystem {
         		oldTarget.removeLink((LinkItem) selectedObject); 
         		selectedObject.getFolder().removeChild(selectedObject);
         		addLink(id, data);
-        		selectedObject = this.getByID(root, id);
+        		selectedObject = this.getByID(id);
     		}
     		*/
         }
 
+        // Old name no longer exists, new name may be a negative entry
+        dentries.setNegative(selectedObject.getParent(), selectedObject.getName());
+        dentries.invalidate(selectedObject.getParent(), data.get(0).toString());
         selectedObject.setName(data.get(0).toString());
+
+        Vector<Integer> ids = new Vector<Integer>();
+        ids.add(selectedObject.getId());
+        endOperation(before, folder, ids);
         return selectedObject.getId();
     }
 
@@ -641,11 +1245,46 @@ public class ContextFileSystem {
         if (".".equals(selectedObject.getName()) ||
                 "..".equals(selectedObject.getName())) throw new SoSimException("fs_03");
 
+        FolderItem parent = selectedObject.getParent();
+        int parentSize = parent.getSize();
+        Block[] before = getImage();
         Vector<Integer> ids = removeObject(selectedObject);
+        Vector<Integer> changed = new Vector<Integer>(ids);
+        changed.add(parent.getId());
+        try {
+            resizeFolder(parent, parentSize);
+        } catch (SoSimException e) {
+            throw failOperation(e, changed); // Objects are removed anyway, only folder keeps its size
+        }
 
+        endOperation(before, parent, changed);
         return ids;
     }
 
+    private void checkFolderGrowth(FolderItem folder) throws SoSimException {
+        // Folder may need more units to store a new entry
+        int newSize = FolderItem.getEntriesSize(folder.getChilds().size() + 1);
+        if (newSize > folder.getSize() && !algorithm.checkMoreAvailableDisk(device, newSize, folder))
+            throw notAvailable();
+    }
+
+    private SoSimException notAvailable() throws SoSimException {
+        // Cleaner may have moved blocks before checking failed
+        return failOperation(new SoSimException("fs_01"), new Vector<Integer>());
+    }
+
+    private SoSimException failOperation(SoSimException e, Vector<Integer> ids) throws SoSimException {
+        // Blocks and objects a failed operation has already changed are written through anyway
+        writeImage(ids);
+        return e;
+    }
+
+    private void resizeFolder(FolderItem folder, int oldSize) throws SoSimException {
+        // Folder gets or releases units its entries need, blocks kept are not moved
+        place(folder.getId());
+        if (folder.getSize() != oldSize) algorithm.resizeObject(folder, device, oldSize);
+    }
+
     // Recursive
     private Vector<Integer> removeObject(LogicalFSObject object) {
         Vector<Integer> ids = new Vector<Integer>();
@@ -654,16 +1293,19 @@ public class ContextFileSystem {
         if (object.isFolder()) {
             // Recursive
             FolderItem folder = object.getFolder();
-            List<LogicalFSObject> childs = folder.getChilds();
+            Collection<LogicalFSObject> childs = folder.getChilds();
             while (childs.size() > 0) {
-                LogicalFSObject child = childs.get(0);
+                LogicalFSObject child = childs.iterator().next();
                 ids.addAll(removeObject(child));
             }
         }
 
         ids.add(object.getId());
+        objects.remove(object.getId());
         FolderItem parent = algorithm.removeObject(object, device);
         parent.removeChild(object);
+        if (object.isFolder()) dentries.invalidate(object.getFolder());
+        dentries.setNegative(parent, object.getName());
 
         selectedObject = parent;
         return ids;
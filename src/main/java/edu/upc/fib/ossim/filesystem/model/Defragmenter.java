@@ -0,0 +1,306 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Vector;
+
+/**
+ * Fragmentation analyzer and online defragmenter. Objects' blocks, in sequential read order, are split into
+ * fragments (runs of contiguous blocks) and free space into free runs. Defragmenter works incrementally,
+ * every step moves a bounded batch of blocks so file system remains usable while it runs: most fragmented object
+ * that can be improved is planned to be placed into a contiguous run, and its blocks are moved
+ * into free blocks only. Any file system operation cancels running plan, next step plans again.
+ * Sequential read cost of an object is estimated as its blocks plus a seek per fragment
+ *
+ * @author Alex Macia
+ * @see FileSystemStrategy#getObjectBlocks(Block[], LogicalFSObject)
+ * @see FileSystemStrategy#moveBlock(Block[], LogicalFSObject, int, int)
+ */
+public class Defragmenter {
+    public static final int BATCH = 8;    // Blocks moved per step
+    public static final int SEEK_TIME = 10;    // Seek time, in block reads
+    private final FileSystemStrategy algorithm;
+
+    // Running plan
+    private LogicalFSObject object;    // Object being moved, null if there is no plan
+    private Vector<int[]> moves;    // Pending moves: from and to blocks
+
+    // Statistics
+    private int startCost = -1;    // Sequential read cost when defragmentation started, -1 if it has not started
+    private int moved;
+    private int steps;
+
+    // Last analysis
+    private int fragmented;
+    private int total;
+    private int fragments;
+    private int blocks;
+    private int freeRuns;
+    private int largestFree;
+    private int free;
+    private int cost;
+
+    /**
+     * Constructs a defragmenter for an algorithm supporting it
+     *
+     * @param algorithm file system algorithm
+     */
+    public Defragmenter(FileSystemStrategy algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Returns fragments (runs of contiguous blocks) of a list of blocks
+     *
+     * @param list blocks in sequential read order
+     * @return    fragments
+     */
+    public static int getFragments(Vector<Integer> list) {
+        int runs = 0;
+        for (int i = 0; i < list.size(); i++) {
+            if (i == 0 || list.get(i) != list.get(i - 1) + 1) runs++;
+        }
+        return runs;
+    }
+
+    /**
+     * Analyzes objects and free space fragmentation, results are kept until next analysis
+     *
+     * @param device  secondary storage device blocks
+     * @param objects file system objects by identifier
+     */
+    public void analyze(Block[] device, Hashtable<Integer, LogicalFSObject> objects) {
+        fragmented = 0;
+        total = 0;
+        fragments = 0;
+        blocks = 0;
+        cost = 0;
+        Iterator<LogicalFSObject> it = objects.values().iterator();
+        while (it.hasNext()) {
+            Vector<Integer> list = algorithm.getObjectBlocks(device, it.next());
+            if (list.isEmpty()) continue;
+            int runs = getFragments(list);
+            total++;
+            if (runs > 1) fragmented++;
+            fragments += runs;
+            blocks += list.size();
+            cost += list.size() + runs * SEEK_TIME;
+        }
+
+        // Free runs
+        FreeSpaceBitmap bitmap = algorithm.getBitmap();
+        freeRuns = 0;
+        largestFree = 0;
+        free = bitmap.getFree();
+        int start = bitmap.nextFree(0);
+        while (start != -1) {
+            int end = bitmap.nextUsed(start);
+            freeRuns++;
+            largestFree = Math.max(largestFree, end - start);
+            start = bitmap.nextFree(end);
+        }
+    }
+
+    /**
+     * Moves a batch of blocks, planning which object to defragment if there is no running plan
+     *
+     * @param device  secondary storage device blocks
+     * @param objects file system objects by identifier
+     * @return    moved object, null if no object can be improved (defragmentation has finished)
+     */
+    public LogicalFSObject step(Block[] device, Hashtable<Integer, LogicalFSObject> objects) {
+        if (startCost == -1) {
+            analyze(device, objects);
+            startCost = cost;
+        }
+        if (object == null && !plan(device, objects)) return null;
+
+        LogicalFSObject current = object;
+        FreeSpaceBitmap bitmap = algorithm.getBitmap();
+        int batch = 0;
+        while (batch < BATCH && !moves.isEmpty()) {
+            int[] move = moves.remove(0);
+            if (!bitmap.isFree(move[1])) {
+                // Free space has changed, plan again next step
+                cancel();
+                break;
+            }
+            algorithm.moveBlock(device, current, move[0], move[1]);
+            moved++;
+            batch++;
+        }
+        if (moves != null && moves.isEmpty()) cancel();
+        steps++;
+        return current;
+    }
+
+    private boolean plan(Block[] device, Hashtable<Integer, LogicalFSObject> objects) {
+        // Most fragmented object that can be placed into fewer fragments
+        int best = 1;
+        Iterator<LogicalFSObject> it = objects.values().iterator();
+        while (it.hasNext()) {
+            LogicalFSObject candidate = it.next();
+            Vector<Integer> list = algorithm.getObjectBlocks(device, candidate);
+            int runs = getFragments(list);
+            if (runs <= best) continue;
+            Vector<int[]> planned = plan(device, list, runs);
+            if (planned != null) {
+                best = runs;
+                object = candidate;
+                moves = planned;
+            }
+        }
+        return object != null;
+    }
+
+    private Vector<int[]> plan(Block[] device, Vector<Integer> list, int runs) {
+        // Leading blocks that can't be moved stay in place
+        int fixed = 0;
+        while (fixed < list.size() && !algorithm.isRelocatable(fixed)) fixed++;
+        int m = list.size() - fixed;
+        if (m == 0) return null;
+        FreeSpaceBitmap bitmap = algorithm.getBitmap();
+
+        // Right after fixed blocks: every block is free or it already holds the right block
+        if (fixed > 0) {
+            int start = list.get(fixed - 1) + 1;
+            boolean fits = start + m <= device.length;
+            for (int i = 0; fits && i < m; i++) {
+                fits = bitmap.isFree(start + i) || list.get(fixed + i) == start + i;
+            }
+            if (fits) return getMoves(list, fixed, start);
+        }
+
+        // First free run big enough
+        int start = bitmap.nextFree(0);
+        while (start != -1) {
+            int end = bitmap.nextUsed(start);
+            if (end - start >= m) {
+                int newRuns = fixed > 0 ? 2 : 1;
+                if (newRuns < runs) return getMoves(list, fixed, start);
+                return null;
+            }
+            start = bitmap.nextFree(end);
+        }
+        return null;
+    }
+
+    private Vector<int[]> getMoves(Vector<Integer> list, int fixed, int start) {
+        Vector<int[]> planned = new Vector<int[]>();
+        for (int i = fixed; i < list.size(); i++) {
+            int to = start + i - fixed;
+            if (list.get(i) != to) planned.add(new int[]{list.get(i), to});
+        }
+        return planned;
+    }
+
+    /**
+     * Cancels running plan, file system has changed
+     */
+    public void cancel() {
+        object = null;
+        moves = null;
+    }
+
+    /**
+     * Returns fragmented objects (more than one fragment) as of last analysis
+     *
+     * @return    fragmented objects
+     */
+    public int getFragmented() {
+        return fragmented;
+    }
+
+    /**
+     * Returns objects having blocks as of last analysis
+     *
+     * @return    objects having blocks
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns average fragments per object as of last analysis
+     *
+     * @return    average fragments per object
+     */
+    public double getFragmentsPerObject() {
+        if (total == 0) return 0;
+        return (double) fragments / total;
+    }
+
+    /**
+     * Returns average fragment (run) length in blocks as of last analysis
+     *
+     * @return    average run length
+     */
+    public double getRunLength() {
+        if (fragments == 0) return 0;
+        return (double) blocks / fragments;
+    }
+
+    /**
+     * Returns free space runs as of last analysis
+     *
+     * @return    free space runs
+     */
+    public int getFreeRuns() {
+        return freeRuns;
+    }
+
+    /**
+     * Returns largest free space run as of last analysis
+     *
+     * @return    largest free run
+     */
+    public int getLargestFree() {
+        return largestFree;
+    }
+
+    /**
+     * Returns free space fragmentation, percentage of free blocks out of largest free run, as of last analysis
+     *
+     * @return    free space fragmentation
+     */
+    public double getFreeFragmentation() {
+        if (free == 0) return 0;
+        return 100.0 * (1 - (double) largestFree / free);
+    }
+
+    /**
+     * Returns sequential read cost of all objects, in block reads, as of last analysis
+     *
+     * @return    sequential read cost
+     */
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * Returns sequential read cost when defragmentation started, -1 if it has not started
+     *
+     * @return    sequential read cost before defragmentation
+     */
+    public int getStartCost() {
+        return startCost;
+    }
+
+    /**
+     * Returns blocks moved
+     *
+     * @return    blocks moved
+     */
+    public int getMoved() {
+        return moved;
+    }
+
+    /**
+     * Returns steps (batches) run
+     *
+     * @return    steps run
+     */
+    public int getSteps() {
+        return steps;
+    }
+}
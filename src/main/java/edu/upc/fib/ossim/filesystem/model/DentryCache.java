@@ -0,0 +1,135 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Directory entry cache (dentry cache). Caches path components resolution: a name into a folder resolves
+ * to a file system object or to nothing (negative entry), so repeated lookups, also of names that don't exist,
+ * don't read folder's units again. Entries are keyed by folder identifier and name, renaming a folder doesn't
+ * invalidate entries under it. Least recently used entries are evicted once cache is full.<br/>
+ * Folder units read on misses and saved on hits are modeled through folder's index depth
+ *
+ * @author Alex Macia
+ * @see FolderItem#getLookupReads()
+ */
+public class DentryCache {
+    public static final int CAPACITY = 256;
+    private final LinkedHashMap<String, LogicalFSObject> entries; // Access ordered, null object is a negative entry
+    private int lookups;
+    private int hits;
+    private int reads;    // Folder units read on misses
+    private int saved;    // Folder units not read on hits
+
+    /**
+     * Constructs an empty dentry cache
+     */
+    public DentryCache() {
+        entries = new LinkedHashMap<String, LogicalFSObject>(CAPACITY, 0.75f, true);
+    }
+
+    /**
+     * Resolves a name into a folder. Misses read folder's units and cache result, also if name doesn't exist
+     *
+     * @param folder folder
+     * @param name   object name
+     * @return    object named name into folder, null if it doesn't exist
+     */
+    public LogicalFSObject lookup(FolderItem folder, String name) {
+        String key = getKey(folder, name);
+        lookups++;
+        LogicalFSObject object = entries.get(key); // Moves entry to most recently used
+        if (object != null || entries.containsKey(key)) {
+            hits++;
+            saved += folder.getLookupReads();
+            return object;
+        }
+
+        reads += folder.getLookupReads();
+        object = folder.getChildByName(name);
+        put(key, object);
+        return object;
+    }
+
+    /**
+     * Invalidates a name into a folder, next lookup reads folder
+     *
+     * @param folder folder
+     * @param name   object name
+     */
+    public void invalidate(FolderItem folder, String name) {
+        entries.remove(getKey(folder, name));
+    }
+
+    /**
+     * Invalidates all names into a folder, folder has been removed
+     *
+     * @param folder folder
+     */
+    public void invalidate(FolderItem folder) {
+        String prefix = folder.getId() + "/";
+        Iterator<String> it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().startsWith(prefix)) it.remove();
+        }
+    }
+
+    /**
+     * Turns a name into a folder into a negative entry, its object has been removed
+     *
+     * @param folder folder
+     * @param name   object name
+     */
+    public void setNegative(FolderItem folder, String name) {
+        put(getKey(folder, name), null);
+    }
+
+    /**
+     * Gets lookups count
+     *
+     * @return    lookups count
+     */
+    public int getLookups() {
+        return lookups;
+    }
+
+    /**
+     * Gets lookups resolved by cache, negative entries included
+     *
+     * @return    cache hits
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Gets folder units read resolving misses
+     *
+     * @return    folder units read
+     */
+    public int getReads() {
+        return reads;
+    }
+
+    /**
+     * Gets folder units not read thanks to cache hits
+     *
+     * @return    folder units saved
+     */
+    public int getSaved() {
+        return saved;
+    }
+
+    private void put(String key, LogicalFSObject object) {
+        if (!entries.containsKey(key) && entries.size() >= CAPACITY) {
+            Iterator<String> it = entries.keySet().iterator();
+            it.next();
+            it.remove(); // Least recently used
+        }
+        entries.put(key, object);
+    }
+
+    private String getKey(FolderItem folder, String name) {
+        return folder.getId() + "/" + name;
+    }
+}
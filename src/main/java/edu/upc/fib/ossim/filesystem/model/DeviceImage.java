@@ -0,0 +1,539 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import edu.upc.fib.ossim.utils.SoSimException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Vector;
+
+/**
+ * Device image, device blocks metadata and file system objects mirrored into a memory-mapped file with
+ * a fixed binary layout (big endian):
+ * <ul>
+ * <li>Header, 64 bytes: magic, version, blocks, administration blocks, block size, device size, journal mode,
+ * commit interval, cleaner policy, object records area slots (offset 36), objects count (offset 40), names area
+ * length (offset 44), allocation log head (offset 48), file system (offset 52, 8 ASCII characters) and root
+ * identifier (offset 60)</li>
+ * <li>Block records, 16 bytes per block: type, owner object identifier, owner color and position into owner's
+ * allocation order</li>
+ * <li>Object records, 32 bytes per object: identifier, parent, type, soft, size, color, target and name
+ * offset and length into names area</li>
+ * <li>Names area, UTF-8 object names</li>
+ * </ul>
+ * Image is written through after every operation, only records of blocks and objects that change are written,
+ * so it survives restarts. Object records are kept by identifier, a removed record is replaced by the last one and
+ * names are appended; records area doubles its slots and names area is compacted when most of it is dead.
+ * Opening an image only maps the file, pages are read on demand and nothing is parsed until file system is restored
+ * from its objects and blocks
+ *
+ * @author Alex Macia
+ * @see ContextFileSystem#setDeviceImage(DeviceImage)
+ */
+public class DeviceImage {
+    public static final int MAGIC = 0x4F534653;    // "OSFS"
+    public static final int VERSION = 1;
+    public static final byte FREE = 0;
+    public static final byte DATA = 1;
+    public static final byte INDIRECT = 2;
+    public static final byte INODE = 3;
+    public static final byte ADMIN = 4;
+    private static final int HEADER_SIZE = 64;
+    private static final int BLOCK_RECORD = 16;
+    private static final int OBJECT_RECORD = 32;
+    private static final int SLOTS = 36;    // Object records area slots offset into header
+    private static final int OBJECTS = 40;    // Objects count offset into header
+    private static final int NAMES = 44;    // Names area length offset into header
+    private static final int HEAD = 48;    // Allocation log head offset into header
+    private static final int NAME = 52;    // File system name offset into header
+    private static final int NAME_LENGTH = 8;
+    private static final int ROOT = 60;    // Root identifier offset into header
+    private static final int MIN_SLOTS = 64;
+    private static final byte FOLDER = 1;
+    private static final byte FILE = 2;
+    private static final byte LINK = 3;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private final int blocks;
+    private int writes;    // Block records written
+    private Hashtable<Integer, Integer> slots;    // Object record by object identifier, read on first object write
+    private int dead;    // Names area bytes no record refers to
+
+    private DeviceImage(RandomAccessFile file, long size) throws IOException {
+        this.file = file;
+        this.channel = file.getChannel();
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.blocks = buffer.getInt(8);
+    }
+
+    /**
+     * Creates a device image file, overwriting it if it exists. Administration blocks are marked, other blocks are free
+     *
+     * @param path   image file
+     * @param blocks device blocks
+     * @param admin  administration blocks
+     * @throws SoSimException file can not be created
+     * @return    device image
+     */
+    public static DeviceImage create(File path, int blocks, int admin) throws SoSimException {
+        try {
+            RandomAccessFile file = new RandomAccessFile(path, "rw");
+            file.setLength(0);
+            file.setLength(HEADER_SIZE + (long) blocks * BLOCK_RECORD); // Zero filled, all blocks free
+            MappedByteBuffer header = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, blocks);
+            header.putInt(12, admin);
+            header.putInt(HEAD, -1);
+            DeviceImage image = new DeviceImage(file, file.length());
+            for (int i = 0; i < admin; i++) image.buffer.put(image.getBlockRecord(i), ADMIN);
+            return image;
+        } catch (IOException e) {
+            throw new SoSimException("fs_16");
+        }
+    }
+
+    /**
+     * Opens a device image file, maps it without reading its records
+     *
+     * @param path image file
+     * @throws SoSimException file can not be opened or it isn't a device image
+     * @return    device image
+     */
+    public static DeviceImage open(File path) throws SoSimException {
+        DeviceImage image;
+        try {
+            RandomAccessFile file = new RandomAccessFile(path, "rw");
+            if (file.length() < HEADER_SIZE) {
+                file.close();
+                throw new SoSimException("fs_17");
+            }
+            image = new DeviceImage(file, file.length());
+        } catch (IOException e) {
+            throw new SoSimException("fs_16");
+        }
+
+        if (image.buffer.getInt(0) != MAGIC || image.buffer.getInt(4) != VERSION ||
+                image.getObjects() < 0 || image.getObjects() > image.buffer.getInt(SLOTS) || image.buffer.getInt(NAMES) < 0 ||
+                image.buffer.capacity() < HEADER_SIZE + (long) image.blocks * BLOCK_RECORD +
+                        (long) image.buffer.getInt(SLOTS) * OBJECT_RECORD + image.buffer.getInt(NAMES)) {
+            image.close();
+            throw new SoSimException("fs_17");
+        }
+        return image;
+    }
+
+    /**
+     * Gets device blocks
+     *
+     * @return    device blocks
+     */
+    public int getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Gets block records written since image was created or opened
+     *
+     * @return    block records written
+     */
+    public int getBlockWrites() {
+        return writes;
+    }
+
+    /**
+     * Writes simulation parameters: file system, block size, device size, journal mode,
+     * commit interval and cleaner policy, in this order
+     *
+     * @param params simulation parameters, attribute name and value
+     */
+    public void setParams(Vector<Vector<String>> params) {
+        byte[] name = params.get(0).get(1).getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < NAME_LENGTH; i++) buffer.put(NAME + i, i < name.length ? name[i] : 0);
+        for (int i = 1; i < params.size(); i++) buffer.putInt(12 + i * 4, Integer.parseInt(params.get(i).get(1)));
+    }
+
+    /**
+     * Reads simulation parameters: file system, block size, device size, journal mode,
+     * commit interval and cleaner policy
+     *
+     * @return    simulation parameters, attribute name and value
+     */
+    public Vector<Vector<String>> getParams() {
+        String[] attributes = {"fileSystem", "blockSize", "devSize", "journal", "commitInterval", "cleaner"};
+        Vector<Vector<String>> params = new Vector<Vector<String>>();
+        int length = 0;
+        while (length < NAME_LENGTH && buffer.get(NAME + length) != 0) length++;
+        byte[] name = new byte[length];
+        for (int i = 0; i < length; i++) name[i] = buffer.get(NAME + i);
+
+        for (int i = 0; i < attributes.length; i++) {
+            Vector<String> attribute = new Vector<String>();
+            attribute.add(attributes[i]);
+            if (i == 0) attribute.add(new String(name, StandardCharsets.US_ASCII));
+            else attribute.add(Integer.toString(buffer.getInt(12 + i * 4)));
+            params.add(attribute);
+        }
+        return params;
+    }
+
+    /**
+     * Gets allocation log head
+     *
+     * @return    allocation log head, -1 if file system allocates first free blocks
+     * @see FileSystemStrategy#getLogHead()
+     */
+    public int getLogHead() {
+        return buffer.getInt(HEAD);
+    }
+
+    /**
+     * Writes allocation log head
+     *
+     * @param head allocation log head, -1 if file system allocates first free blocks
+     */
+    public void setLogHead(int head) {
+        buffer.putInt(HEAD, head);
+    }
+
+    /**
+     * Gets root identifier, root's blocks are owned by it
+     *
+     * @return    root identifier
+     */
+    public int getRoot() {
+        return buffer.getInt(ROOT);
+    }
+
+    /**
+     * Writes root identifier
+     *
+     * @param id root identifier
+     */
+    public void setRoot(int id) {
+        buffer.putInt(ROOT, id);
+    }
+
+    /**
+     * Writes a block record if it changes
+     *
+     * @param num     block number
+     * @param block   device block, null if it is free
+     * @param ordinal block position into owner's allocation order
+     * @see FileSystemStrategy#getAllocatedBlocks(Block[], LogicalFSObject)
+     */
+    public void writeBlock(int num, Block block, int ordinal) {
+        byte type = FREE;
+        int owner = 0;
+        int color = 0;
+        if (block != null) {
+            type = DATA;
+            if (block.isIndirect()) type = INDIRECT;
+            if (block.isInode()) type = INODE;
+            if (block.getItem() != null) {
+                owner = block.getItem().getId();
+                color = block.getItem().getColor().getRGB();
+            }
+        } else ordinal = 0;
+
+        int record = getBlockRecord(num);
+        if (buffer.get(record) != type || buffer.getInt(record + 4) != owner || buffer.getInt(record + 8) != color ||
+                buffer.getInt(record + 12) != ordinal) {
+            buffer.put(record, type);
+            buffer.putInt(record + 4, owner);
+            buffer.putInt(record + 8, color);
+            buffer.putInt(record + 12, ordinal);
+            writes++;
+        }
+    }
+
+    /**
+     * Writes a file system object record, a new record if object hasn't any
+     *
+     * @param item file system object information
+     * @throws SoSimException image can not grow
+     * @see LogicalFSObject#getXMLInfo()
+     */
+    public void writeObject(Vector<Vector<String>> item) throws SoSimException {
+        int id = Integer.parseInt(item.get(0).get(1));
+        byte[] name = item.get(1).get(1).getBytes(StandardCharsets.UTF_8);
+        Integer slot = getSlots().get(id);
+        if (slot == null) {
+            if (getObjects() == buffer.getInt(SLOTS)) relocate(Math.max(MIN_SLOTS, 2 * getObjects()));
+            slot = getObjects();
+            slots.put(id, slot);
+            buffer.putInt(OBJECTS, slot + 1);
+            buffer.putInt(getObjectRecord(slot) + 28, -1); // No name yet
+        }
+
+        int record = getObjectRecord(slot);
+        buffer.putInt(record, id);
+        buffer.putInt(record + 4, Integer.parseInt(item.get(2).get(1)));
+        buffer.putInt(record + 12, 0);
+        buffer.putInt(record + 16, 0);
+        buffer.putInt(record + 20, -1);
+        buffer.put(record + 9, (byte) 0);
+        String type = item.get(3).get(1);
+        if ("folder".equals(type)) buffer.put(record + 8, FOLDER);
+        if ("file".equals(type)) {
+            buffer.put(record + 8, FILE);
+            buffer.putInt(record + 12, Integer.parseInt(item.get(4).get(1)));
+            buffer.putInt(record + 16, Integer.parseInt(item.get(5).get(1)));
+        }
+        if ("link".equals(type)) {
+            buffer.put(record + 8, LINK);
+            buffer.putInt(record + 20, Integer.parseInt(item.get(4).get(1)));
+            if (Boolean.parseBoolean(item.get(5).get(1))) buffer.put(record + 9, (byte) 1);
+            if (item.size() > 6) {
+                // Hard link, target size and color in case target is removed
+                buffer.putInt(record + 12, Integer.parseInt(item.get(6).get(1)));
+                buffer.putInt(record + 16, Integer.parseInt(item.get(7).get(1)));
+            }
+        }
+
+        // Renamed object's name is appended, its previous name is dead
+        if (buffer.getInt(record + 28) >= 0 && Arrays.equals(getName(record), name)) return;
+        if (buffer.getInt(record + 28) > 0) dead += buffer.getInt(record + 28);
+        int offset = buffer.getInt(NAMES);
+        ensureSize((long) getNamesArea() + offset + name.length);
+        buffer.put(getNamesArea() + offset, name);
+        buffer.putInt(record + 24, offset);
+        buffer.putInt(record + 28, name.length);
+        buffer.putInt(NAMES, offset + name.length);
+        if (dead > buffer.getInt(NAMES) / 2) relocate(buffer.getInt(SLOTS));
+    }
+
+    /**
+     * Removes a file system object record, last record takes its place
+     *
+     * @param id object identifier, nothing if object has no record
+     */
+    public void removeObject(int id) {
+        Integer slot = getSlots().remove(id);
+        if (slot == null) return;
+        int record = getObjectRecord(slot);
+        dead += buffer.getInt(record + 28);
+
+        int last = getObjects() - 1;
+        if (slot != last) {
+            byte[] moved = new byte[OBJECT_RECORD];
+            buffer.get(getObjectRecord(last), moved);
+            buffer.put(record, moved);
+            slots.put(buffer.getInt(record), slot);
+        }
+        buffer.putInt(OBJECTS, last);
+    }
+
+    /**
+     * Removes all file system object records
+     */
+    public void clearObjects() {
+        buffer.putInt(OBJECTS, 0);
+        buffer.putInt(NAMES, 0);
+        slots = new Hashtable<Integer, Integer>();
+        dead = 0;
+    }
+
+    /**
+     * Reads file system objects information, parents before their children and links once their target is read
+     *
+     * @return    file system objects information
+     * @see ContextFileSystem#getXMLDataFileSystemItems()
+     */
+    public Vector<Vector<Vector<String>>> getItems() {
+        Hashtable<Integer, Vector<Vector<String>>> byId = new Hashtable<Integer, Vector<Vector<String>>>();
+        Hashtable<Integer, Vector<Vector<Vector<String>>>> childs = new Hashtable<Integer, Vector<Vector<Vector<String>>>>();
+        LinkedList<Vector<Vector<String>>> links = new LinkedList<Vector<Vector<String>>>();
+        for (int i = 0; i < getObjects(); i++) {
+            int record = getObjectRecord(i);
+            Vector<Vector<String>> item = new Vector<Vector<String>>();
+            addAttribute(item, "id", Integer.toString(buffer.getInt(record)));
+            addAttribute(item, "name", new String(getName(record), StandardCharsets.UTF_8));
+            addAttribute(item, "parent", Integer.toString(buffer.getInt(record + 4)));
+            byte type = buffer.get(record + 8);
+            if (type == FOLDER) addAttribute(item, "type", "folder");
+            if (type == FILE) {
+                addAttribute(item, "type", "file");
+                addAttribute(item, "size", Integer.toString(buffer.getInt(record + 12)));
+                addAttribute(item, "color", Integer.toString(buffer.getInt(record + 16)));
+            }
+            if (type == LINK) {
+                boolean soft = buffer.get(record + 9) == 1;
+                addAttribute(item, "type", "link");
+                addAttribute(item, "target", Integer.toString(buffer.getInt(record + 20)));
+                addAttribute(item, "soft", Boolean.toString(soft));
+                if (!soft) {
+                    addAttribute(item, "size", Integer.toString(buffer.getInt(record + 12)));
+                    addAttribute(item, "color", Integer.toString(buffer.getInt(record + 16)));
+                }
+                links.add(item);
+            } else {
+                Vector<Vector<Vector<String>>> siblings = childs.get(buffer.getInt(record + 4));
+                if (siblings == null) {
+                    siblings = new Vector<Vector<Vector<String>>>();
+                    childs.put(buffer.getInt(record + 4), siblings);
+                }
+                siblings.add(item);
+            }
+            byId.put(buffer.getInt(record), item);
+        }
+
+        // Records are in no order: top level objects (root's children) first and then every folder's children
+        Vector<Vector<Vector<String>>> items = new Vector<Vector<Vector<String>>>();
+        Iterator<Integer> it = childs.keySet().iterator();
+        while (it.hasNext()) {
+            int parent = it.next();
+            if (!byId.containsKey(parent)) items.addAll(childs.get(parent));
+        }
+        for (int i = 0; i < items.size(); i++) {
+            Vector<Vector<Vector<String>>> folder = childs.get(Integer.parseInt(items.get(i).get(0).get(1)));
+            if (folder != null) items.addAll(folder);
+        }
+
+        // A link is only read once its target is read, links to links wait (links to removed targets don't)
+        Hashtable<Integer, Boolean> pending = new Hashtable<Integer, Boolean>();
+        Iterator<Vector<Vector<String>>> itLinks = links.iterator();
+        while (itLinks.hasNext()) pending.put(Integer.parseInt(itLinks.next().get(0).get(1)), Boolean.TRUE);
+        int waiting = 0;
+        while (links.size() > 0 && waiting <= links.size()) {
+            Vector<Vector<String>> link = links.removeFirst();
+            if (pending.containsKey(Integer.parseInt(link.get(4).get(1)))) {
+                links.addLast(link);
+                waiting++;
+            } else {
+                items.add(link);
+                pending.remove(Integer.parseInt(link.get(0).get(1)));
+                waiting = 0;
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Reads blocks every object had, in allocation order, so restored objects are stored as they were
+     *
+     * @return    blocks by owner object identifier
+     * @see FileSystemStrategy#setPlacement(Vector)
+     */
+    public Hashtable<Integer, Vector<Integer>> getPlacements() {
+        Hashtable<Integer, Vector<Integer>> placements = new Hashtable<Integer, Vector<Integer>>();
+        for (int i = buffer.getInt(12); i < blocks; i++) {
+            int record = getBlockRecord(i);
+            int ordinal = buffer.getInt(record + 12);
+            if (buffer.get(record) == FREE || buffer.get(record) == ADMIN || ordinal < 0 || ordinal >= blocks) continue;
+            Vector<Integer> owned = placements.get(buffer.getInt(record + 4));
+            if (owned == null) {
+                owned = new Vector<Integer>();
+                placements.put(buffer.getInt(record + 4), owned);
+            }
+            while (owned.size() <= ordinal) owned.add(-1);
+            owned.set(ordinal, i);
+        }
+
+        // Positions without a block are dropped
+        Iterator<Vector<Integer>> it = placements.values().iterator();
+        while (it.hasNext()) {
+            Vector<Integer> owned = it.next();
+            while (owned.remove(Integer.valueOf(-1))) ;
+        }
+        return placements;
+    }
+
+    /**
+     * Flushes mapped records to file and closes it
+     */
+    public void close() {
+        try {
+            buffer.force();
+            file.close();
+        } catch (IOException e) {
+            // Records are already into mapped pages, operating system writes them back
+        }
+    }
+
+    private int getObjects() {
+        return buffer.getInt(OBJECTS);
+    }
+
+    private Hashtable<Integer, Integer> getSlots() {
+        // Object records are indexed once, dead names are counted then
+        if (slots != null) return slots;
+        slots = new Hashtable<Integer, Integer>();
+        dead = buffer.getInt(NAMES);
+        for (int i = 0; i < getObjects(); i++) {
+            slots.put(buffer.getInt(getObjectRecord(i)), i);
+            dead -= buffer.getInt(getObjectRecord(i) + 28);
+        }
+        return slots;
+    }
+
+    private void relocate(int capacity) throws SoSimException {
+        // Records are moved to an area with capacity slots and names area is compacted, every record is rewritten
+        int objects = getObjects();
+        byte[][] records = new byte[objects][OBJECT_RECORD];
+        byte[][] names = new byte[objects][];
+        int length = 0;
+        for (int i = 0; i < objects; i++) {
+            buffer.get(getObjectRecord(i), records[i]);
+            names[i] = getName(getObjectRecord(i));
+            length += names[i].length;
+        }
+
+        buffer.putInt(SLOTS, capacity);
+        ensureSize((long) getNamesArea() + length);
+        int offset = 0;
+        for (int i = 0; i < objects; i++) {
+            int record = getObjectRecord(i);
+            buffer.put(record, records[i]);
+            buffer.putInt(record + 24, offset);
+            buffer.put(getNamesArea() + offset, names[i]);
+            offset += names[i].length;
+        }
+        buffer.putInt(NAMES, length);
+        dead = 0;
+    }
+
+    private void ensureSize(long size) throws SoSimException {
+        // File grows at least twice its size
+        if (size <= buffer.capacity()) return;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, 2L * buffer.capacity()));
+        } catch (IOException e) {
+            throw new SoSimException("fs_16");
+        }
+    }
+
+    private byte[] getName(int record) {
+        byte[] name = new byte[Math.max(0, buffer.getInt(record + 28))];
+        buffer.get(getNamesArea() + buffer.getInt(record + 24), name);
+        return name;
+    }
+
+    private int getBlockRecord(int block) {
+        return HEADER_SIZE + block * BLOCK_RECORD;
+    }
+
+    private int getObjectRecord(int object) {
+        return HEADER_SIZE + blocks * BLOCK_RECORD + object * OBJECT_RECORD;
+    }
+
+    private int getNamesArea() {
+        return getObjectRecord(buffer.getInt(SLOTS));
+    }
+
+    private void addAttribute(Vector<Vector<String>> item, String name, String value) {
+        Vector<String> attribute = new Vector<String>();
+        attribute.add(name);
+        attribute.add(value);
+        item.add(attribute);
+    }
+}
@@ -0,0 +1,73 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+/**
+ * File System extent definition (ext4 file system), an extent is a run of contiguous device blocks
+ * storing contiguous file blocks. It is described by first file (logical) block, first device block and length
+ *
+ * @author Alex Macia
+ * @see ExtentInode
+ */
+public class Extent {
+    private final int logical;
+    private final int start;
+    private final int length;
+
+    /**
+     * Constructs an extent
+     *
+     * @param logical first file block
+     * @param start   first device block
+     * @param length  blocks
+     */
+    public Extent(int logical, int start, int length) {
+        this.logical = logical;
+        this.start = start;
+        this.length = length;
+    }
+
+    /**
+     * Gets first file (logical) block
+     *
+     * @return    first file block
+     */
+    public int getLogical() {
+        return logical;
+    }
+
+    /**
+     * Gets first device block
+     *
+     * @return    first device block
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Gets extent blocks
+     *
+     * @return    extent blocks
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Gets device block following extent's last block
+     *
+     * @return    device block following extent
+     */
+    public int getEnd() {
+        return start + length;
+    }
+
+    /**
+     * Returns extent as shown in detail tables: "start-last" or block number if extent has a single block
+     *
+     * @return    extent device blocks
+     */
+    public String getString() {
+        if (length == 1) return Integer.toString(start);
+        return start + "-" + (getEnd() - 1);
+    }
+}
@@ -0,0 +1,106 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import java.util.Vector;
+
+/**
+ * File System extent tree block definition (ext4 file system), extent tree blocks are special blocks
+ * of entries, leaf blocks entries are file's extents and index blocks entries point to other extent tree blocks.
+ * Entries are sorted by first file (logical) block, as indirect blocks an extent tree block holds 20 entries
+ *
+ * @author Alex Macia
+ * @see ExtentInode
+ */
+public class ExtentBlock extends Block {
+    public final static int ENTRIES = IndirectBlock.ADDRESS_POINTERS;
+    private final boolean leaf;
+    private final int logical;    // First file block covered
+    private final Vector<Extent> extents;    // Leaf entries
+    private final Vector<ExtentBlock> index;    // Index entries
+
+    /**
+     * Constructs an extent tree block
+     *
+     * @param num     block number (identifier)
+     * @param leaf    leaf block (entries are extents) or index block
+     * @param logical first file block covered by this block
+     */
+    public ExtentBlock(int num, boolean leaf, int logical) {
+        super(num);
+        this.leaf = leaf;
+        this.logical = logical;
+        extents = new Vector<Extent>(ENTRIES);
+        index = new Vector<ExtentBlock>(ENTRIES);
+    }
+
+    /**
+     * Returns true if entries are extents, false if entries are extent tree blocks
+     *
+     * @return    block is a tree leaf
+     */
+    public boolean isLeaf() {
+        return leaf;
+    }
+
+    /**
+     * Gets first file (logical) block covered by this block
+     *
+     * @return    first file block
+     */
+    public int getLogical() {
+        return logical;
+    }
+
+    /**
+     * Gets leaf entries
+     *
+     * @return    extents, empty if it is an index block
+     */
+    public Vector<Extent> getExtents() {
+        return extents;
+    }
+
+    /**
+     * Gets index entries
+     *
+     * @return    pointed extent tree blocks, empty if it is a leaf block
+     */
+    public Vector<ExtentBlock> getIndex() {
+        return index;
+    }
+
+    /**
+     * Adds a leaf entry
+     *
+     * @param extent file extent
+     */
+    public void addExtent(Extent extent) {
+        extents.add(extent);
+    }
+
+    /**
+     * Adds an index entry
+     *
+     * @param block pointed extent tree block
+     */
+    public void addBlock(ExtentBlock block) {
+        index.add(block);
+    }
+
+    /**
+     * Returns "E" as it is shown in device painter to identify extent tree blocks
+     *
+     * @return "E"
+     */
+    public String getString() {
+        return "E";
+    }
+
+    /**
+     * Return true, extent tree blocks are metadata blocks as indirect blocks
+     *
+     * @return true
+     */
+    public boolean isIndirect() {
+        return true;
+    }
+}
@@ -0,0 +1,156 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import java.util.Vector;
+
+/**
+ * File System extent inode definition (ext4 file system), inode maps file blocks as extents (runs of contiguous blocks).
+ * It is structured as follows: general information (links) and extent tree root, root holds up to 4 entries,
+ * extents if tree depth is 0 or extent tree blocks otherwise
+ *
+ * @author Alex Macia
+ * @see Extent
+ * @see ExtentBlock
+ */
+public class ExtentInode extends PhysicalFSObject {
+    public final static int ROOT_ENTRIES = 4;
+    private int links;
+    private boolean file;
+    private int depth;
+    private Vector<Extent> extents;    // All extents, sorted by file block
+    private Vector<ExtentBlock> root;    // Root index entries, empty if depth is 0
+    private Vector<ExtentBlock> tree;    // All extent tree blocks in reading order
+
+    /**
+     * Constructs an extent i-node.
+     *
+     * @param id i-node identifier
+     */
+    public ExtentInode(int id) {
+        super(id);
+        links = 1;
+        initialize();
+    }
+
+    /**
+     * Gets i-node's links
+     *
+     * @return    i-node's links
+     */
+    public int getLinks() {
+        return links;
+    }
+
+    /**
+     * Returns true if i-node stores a file (not a folder or soft link)
+     *
+     * @return    i-node stores a file
+     */
+    public boolean isFile() {
+        return file;
+    }
+
+    /**
+     * Sets if i-node stores a file
+     *
+     * @param file i-node stores a file
+     */
+    public void setFile(boolean file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets extent tree depth, 0 if all extents fit into i-node
+     *
+     * @return    extent tree depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets all file extents sorted by file block
+     *
+     * @return    all file extents
+     */
+    public Vector<Extent> getExtents() {
+        return extents;
+    }
+
+    /**
+     * Gets extent tree blocks pointed from i-node
+     *
+     * @return    root index entries, empty if depth is 0
+     */
+    public Vector<ExtentBlock> getRoot() {
+        return root;
+    }
+
+    /**
+     * Gets all extent tree blocks in reading order, each index block before its entries
+     *
+     * @return    all extent tree blocks
+     */
+    public Vector<ExtentBlock> getTree() {
+        return tree;
+    }
+
+    /**
+     * Gets data blocks, all extents length
+     *
+     * @return    data blocks
+     */
+    public int getDataBlocks() {
+        int blocks = 0;
+        for (int i = 0; i < extents.size(); i++) blocks += extents.get(i).getLength();
+        return blocks;
+    }
+
+    /**
+     * Sets file extents and extent tree
+     *
+     * @param extents all file extents
+     * @param depth   extent tree depth
+     * @param root    root index entries
+     * @param tree    all extent tree blocks in reading order
+     */
+    public void setExtents(Vector<Extent> extents, int depth, Vector<ExtentBlock> root, Vector<ExtentBlock> tree) {
+        this.extents = extents;
+        this.depth = depth;
+        this.root = root;
+        this.tree = tree;
+    }
+
+    /**
+     * Initialize i-node structure, to reuse it
+     *
+     */
+    public void initialize() {
+        depth = 0;
+        extents = new Vector<Extent>(ROOT_ENTRIES);
+        root = new Vector<ExtentBlock>(ROOT_ENTRIES);
+        tree = new Vector<ExtentBlock>();
+    }
+
+    /**
+     * Adds a new link to this i-node
+     */
+    public void addLink() {
+        links++;
+    }
+
+    /**
+     * Removes a link from this i-node
+     */
+    public void removeLink() {
+        links--;
+    }
+
+    /**
+     * Return true
+     *
+     * @return true
+     */
+    public boolean isInode() {
+        return true;
+    }
+}
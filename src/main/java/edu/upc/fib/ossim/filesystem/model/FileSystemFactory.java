@@ -0,0 +1,74 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import edu.upc.fib.ossim.utils.SoSimException;
+
+import java.awt.*;
+import java.util.Vector;
+
+
+/**
+ * Builds file system model objects from settings and simulation files, shared by file system presenter
+ * and file system batch: file systems by name, and folders, files and links from simulation files
+ *
+ * @author Alex Macia
+ */
+public class FileSystemFactory {
+    public static final String[] ALGORITHMS = {"DOS", "LINUX", "EXT4", "LFS"};    // File systems names
+
+    private FileSystemFactory() {
+    }
+
+    /**
+     * Creates a file system
+     *
+     * @param fileSystem file system name: DOS, LINUX, EXT4 or LFS
+     * @param blockSize  block size
+     * @param devSize    device size
+     * @param cleaner    LFS segment cleaner policy, only LFS uses it
+     * @return file system
+     */
+    public static FileSystemStrategy createAlgorithm(String fileSystem, int blockSize, int devSize, int cleaner) {
+        if ("LINUX".equals(fileSystem)) return new FileSystemStrategyUNIX(blockSize, devSize);
+        if ("EXT4".equals(fileSystem)) return new FileSystemStrategyExtent(blockSize, devSize);
+        if ("LFS".equals(fileSystem)) return new FileSystemStrategyLFS(blockSize, devSize, cleaner);
+        return new FileSystemStrategyFAT(blockSize, devSize);
+    }
+
+    /**
+     * Adds a file system object read from a simulation file: folder, file or link, under its parent folder.
+     * Returns added objects identifiers, a folder also adds its "." and ".." entries
+     *
+     * @param context file system model
+     * @param item    file system object, every attribute is a name and value pair
+     * @return added objects identifiers: object, and "." and ".." if it is a folder
+     * @throws SoSimException exists other objects with the same name under parent folder or there are not
+     *                        enough blocks to allocate it
+     */
+    public static int[] addObject(ContextFileSystem context, Vector<Vector<String>> item) throws SoSimException {
+        Vector<Object> itemData = new Vector<Object>();
+
+        int id = Integer.parseInt(item.get(0).get(1)); // id. Value at position 1
+        itemData.add(item.get(1).get(1)); // name. Value at position 1
+        int parentid = Integer.parseInt(item.get(2).get(1)); // parent id. Value at position 1
+        context.setSelectedLogicalObject(parentid);
+
+        String type = item.get(3).get(1);
+        if ("folder".equals(type)) return context.addFolder(id, itemData);
+        if ("link".equals(type)) {
+            itemData.add(Integer.valueOf(item.get(4).get(1))); // link id. Value at position 1
+            itemData.add(Boolean.valueOf(item.get(5).get(1))); // Soft. Value at position 1
+            if (item.size() > 6) {
+                // Removed hard link target
+                itemData.add(Integer.valueOf(item.get(6).get(1))); // target size. Value at position 1
+                itemData.add(new Color(Integer.valueOf(item.get(7).get(1)))); // target color. Value at position 1
+            }
+            return new int[]{context.addLink(id, itemData)};
+        }
+        if ("file".equals(type)) {
+            itemData.add(Integer.valueOf(item.get(4).get(1))); // size. Value at position 1
+            itemData.add(new Color(Integer.valueOf(item.get(5).get(1)))); // color. Value at position 1
+            return new int[]{context.addFile(id, itemData)};
+        }
+        return new int[0];
+    }
+}
@@ -99,6 +99,36 @@ public interface FileSystemStrategy {
      */
     Vector<Vector<Object>> getTableInfoData(Block[] device);
 
+    /**
+     * Returns secondary storage device occupation table row for a block
+     *
+     * @param device secondary storage device blocks
+     * @param block  block number, not less than first data block
+     * @return    secondary storage device occupation table row
+     */
+    Vector<Object> getTableInfoRow(Block[] device, int block);
+
+    /**
+     * Returns first available data block number, first occupation table row
+     *
+     * @return first available data block number
+     */
+    int getFirstDataBlock();
+
+    /**
+     * Returns allocation statistics labels, null if algorithm has no statistics
+     *
+     * @return    allocation statistics labels
+     */
+    Vector<Vector<String>> getTableStatsInfo();
+
+    /**
+     * Returns allocation statistics values, null if algorithm has no statistics
+     *
+     * @return    allocation statistics values
+     */
+    Vector<String> getTableStatsData();
+
     /**
      * Returns file system path separator
      *
@@ -110,9 +140,10 @@ public interface FileSystemStrategy {
      * Initialize file system's root at start block, and then returns it.
      *
      * @param device secondary storage device blocks
+     * @throws SoSimException there are not enough free blocks or physical objects to allocate root
      * @return    file system's root
      */
-    LogicalFSObject initRoot(Block[] device);
+    LogicalFSObject initRoot(Block[] device) throws SoSimException;
 
     /**
      * Returns next available physical file system object
@@ -171,6 +202,16 @@ public interface FileSystemStrategy {
      */
     void updatesObject(LogicalFSObject object, Block[] device) throws SoSimException;
 
+    /**
+     * Resizes an allocated file system object, only blocks added or released change
+     *
+     * @param object  object resized
+     * @param device  secondary storage device blocks
+     * @param oldSize object's size before resizing
+     * @throws SoSimException not enough blocks to allocate new size
+     */
+    void resizeObject(LogicalFSObject object, Block[] device, int oldSize) throws SoSimException;
+
     /**
      * Removes a file system object from device, releasing all blocks that stored object
      *
@@ -179,4 +220,73 @@ public interface FileSystemStrategy {
      * @return parent folder that contained object
      */
     FolderItem removeObject(LogicalFSObject object, Block[] device);
+
+    /**
+     * Returns object's blocks in sequential read order, null if algorithm doesn't support defragmentation
+     *
+     * @param device secondary storage device blocks
+     * @param object file system object
+     * @return    object's blocks in sequential read order
+     * @see Defragmenter
+     */
+    Vector<Integer> getObjectBlocks(Block[] device, LogicalFSObject object);
+
+    /**
+     * Returns if object's block at a position of sequential read order can be moved to another block
+     *
+     * @param index block position into sequential read order
+     * @return    block can be moved
+     */
+    boolean isRelocatable(int index);
+
+    /**
+     * Moves an object's block to a free block, pointers to it are updated
+     *
+     * @param device secondary storage device blocks
+     * @param object file system object
+     * @param from   object's block
+     * @param to     free block
+     */
+    void moveBlock(Block[] device, LogicalFSObject object, int from, int to);
+
+    /**
+     * Returns object's blocks in allocation order: an object allocated again taking these blocks in this order
+     * is stored as it was. Hard links have no blocks, their target object has them
+     *
+     * @param device secondary storage device blocks
+     * @param object file system object
+     * @return    object's blocks in allocation order
+     * @see #setPlacement(Vector)
+     */
+    Vector<Integer> getAllocatedBlocks(Block[] device, LogicalFSObject object);
+
+    /**
+     * Sets blocks allocation takes, in order, before searching free blocks. Used while a file system is restored
+     * from a device image, every object is allocated at its recorded blocks if they are still free
+     *
+     * @param blocks object's blocks in allocation order, null once restore ends
+     * @see #getAllocatedBlocks(Block[], LogicalFSObject)
+     */
+    void setPlacement(Vector<Integer> blocks);
+
+    /**
+     * Gets block where allocation goes on, only log-structured algorithms allocate from a head
+     *
+     * @return    allocation head, -1 if algorithm allocates first free blocks
+     */
+    int getLogHead();
+
+    /**
+     * Sets block where allocation goes on, a restored log goes on where it was
+     *
+     * @param head allocation head, ignored if algorithm allocates first free blocks
+     */
+    void setLogHead(int head);
+
+    /**
+     * Gets device free space bitmap
+     *
+     * @return    free space bitmap
+     */
+    FreeSpaceBitmap getBitmap();
 }
@@ -1,5 +1,10 @@
 package edu.upc.fib.ossim.filesystem.model;
 
+import edu.upc.fib.ossim.utils.SoSimException;
+
+import java.util.Iterator;
+import java.util.Vector;
+
 /**
  * Abstract class that implements interface FileSystemStrategy and
  * contains common behaviors and parameters
@@ -10,9 +15,11 @@ public abstract class FileSystemStrategyAdapter implements FileSystemStrategy {
     protected static final int ADMIN_SIZE = 128; // FAT or Superblock size. Multiple 4
     protected int blockSize;
     protected int devSize;
+    protected FreeSpaceBitmap bitmap;    // Device free blocks
+    protected Vector<Integer> placement;    // Blocks taken before free blocks while restoring a device image, otherwise null
 
     /**
-     * FileStrategyAdapter constructor
+     * FileStrategyAdapter constructor, all data blocks are free
      *
      * @param blockSize block size
      * @param devSize   device size
@@ -21,6 +28,7 @@ public abstract class FileSystemStrategyAdapter implements FileSystemStrategy {
         super();
         this.blockSize = blockSize;
         this.devSize = devSize;
+        this.bitmap = new FreeSpaceBitmap(devSize / blockSize, getFirstDataBlock());
     }
 
     /**
@@ -58,4 +66,112 @@ public abstract class FileSystemStrategyAdapter implements FileSystemStrategy {
     public int getDevSize() {
         return devSize;
     }
+
+    /**
+     * Gets device free space bitmap
+     *
+     * @return    free space bitmap
+     */
+    public FreeSpaceBitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * Resizes an allocated file system object. Nothing changes if it keeps its blocks count,
+     * otherwise it is reallocated by default
+     *
+     * @param object  object resized
+     * @param device  secondary storage device blocks
+     * @param oldSize object's size before resizing
+     * @throws SoSimException not enough blocks to allocate new size
+     * @see #updatesObject(LogicalFSObject, Block[])
+     */
+    public void resizeObject(LogicalFSObject object, Block[] device, int oldSize) throws SoSimException {
+        if (getBlocks(object.getSize()) != getBlocks(oldSize)) updatesObject(object, device);
+    }
+
+    /**
+     * Returns blocks storing a size
+     *
+     * @param size object's size
+     * @return    blocks count
+     */
+    protected int getBlocks(int size) {
+        return ((size - 1) / blockSize) + 1;
+    }
+
+    /**
+     * Unused, algorithm doesn't support defragmentation
+     *
+     * @return null
+     */
+    public Vector<Integer> getObjectBlocks(Block[] device, LogicalFSObject object) {
+        return null;
+    }
+
+    /**
+     * Unused, algorithm doesn't support defragmentation
+     *
+     * @return false
+     */
+    public boolean isRelocatable(int index) {
+        return false;
+    }
+
+    /**
+     * Unused, algorithm doesn't support defragmentation
+     */
+    public void moveBlock(Block[] device, LogicalFSObject object, int from, int to) {
+    }
+
+    /**
+     * Returns object's blocks in sequential read order, which is allocation order
+     *
+     * @param device secondary storage device blocks
+     * @param object file system object
+     * @return    object's blocks in allocation order
+     * @see #getObjectBlocks(Block[], LogicalFSObject)
+     */
+    public Vector<Integer> getAllocatedBlocks(Block[] device, LogicalFSObject object) {
+        return getObjectBlocks(device, object);
+    }
+
+    /**
+     * Sets blocks allocation takes, in order, before searching free blocks
+     *
+     * @param blocks object's blocks in allocation order, null once restore ends
+     */
+    public void setPlacement(Vector<Integer> blocks) {
+        placement = blocks;
+    }
+
+    /**
+     * Returns first placement block still free
+     *
+     * @return    placement block, -1 if there is none
+     */
+    protected int getPlacedBlock() {
+        if (placement == null) return -1;
+        Iterator<Integer> it = placement.iterator();
+        while (it.hasNext()) {
+            int block = it.next();
+            if (bitmap.isFree(block)) return block;
+        }
+        return -1;
+    }
+
+    /**
+     * Unused, algorithm allocates first free blocks
+     *
+     * @return -1
+     */
+    public int getLogHead() {
+        return -1;
+    }
+
+    /**
+     * Unused, algorithm allocates first free blocks
+     */
+    public void setLogHead(int head) {
+    }
 }
@@ -0,0 +1,802 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import edu.upc.fib.ossim.utils.ColorCell;
+import edu.upc.fib.ossim.utils.SoSimException;
+import edu.upc.fib.ossim.utils.Translation;
+
+import java.awt.*;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Vector;
+
+
+/**
+ * File System Strategy implementation for extent based allocation with extent tree (ext4).
+ * Objects are stored as extents, runs of contiguous blocks, placed by a goal directed allocator: new objects are placed
+ * near their parent folder and updated files near their previous place. Whole object is stored into a single free run
+ * if there is one large enough, otherwise free runs following goal are used. Extents not fitting into i-node are
+ * stored into extent tree blocks.<br/>
+ * To compare allocation methods, objects are also allocated by first free block FAT and UNIX allocators
+ * (only blocks are counted) and sequential read seeks, non contiguous block reads, are compared
+ *
+ * @author Alex Macia
+ * @see ExtentInode
+ */
+public class FileSystemStrategyExtent extends FileSystemStrategyAdapter {
+    private static final int MAX_INODES = 128;
+    private final ExtentInode[] inodesTable;    // Inodes Table.
+    private final FreeSpaceBitmap fatBitmap;    // FAT allocator device (comparison)
+    private final FreeSpaceBitmap unixBitmap;    // UNIX allocator device (comparison)
+    private final Hashtable<ExtentInode, Vector<Integer>> fatBlocks;    // FAT blocks in reading order
+    private final Hashtable<ExtentInode, Vector<Integer>> unixBlocks;    // UNIX blocks in reading order
+
+    /**
+     * Constructs FileSystemStrategyExtent and initialize i-nodes table, 128 entries
+     *
+     * @param blockSize block size
+     * @param devSize   device size
+     */
+    public FileSystemStrategyExtent(int blockSize, int devSize) {
+        super(blockSize, devSize);
+        this.inodesTable = new ExtentInode[MAX_INODES];
+        this.fatBitmap = new FreeSpaceBitmap(devSize / blockSize, getFirstDataBlock());
+        this.unixBitmap = new FreeSpaceBitmap(devSize / blockSize, getFirstDataBlock());
+        this.fatBlocks = new Hashtable<ExtentInode, Vector<Integer>>();
+        this.unixBlocks = new Hashtable<ExtentInode, Vector<Integer>>();
+    }
+
+    /**
+     * Gets extent algorithm information including main settings values
+     *
+     * @return    algorithm information
+     */
+    public String getAlgorithmInfo() {
+        return Translation.getInstance().getLabel("fs_22", blockSize);
+    }
+
+    /**
+     * Returns folder's content table header
+     *
+     * @return    folder's content table header
+     *
+     */
+    public Vector<Object> getSelectedFolderHeader() {
+        // Get header.  FolderPainter
+        Vector<Object> header = new Vector<Object>();
+        header.add("");
+        header.add(Translation.getInstance().getLabel("fs_64")); // i-node
+        return header;
+    }
+
+    /**
+     * Returns i-node's detail information table header
+     *
+     * @return    file system object detail information table header
+     */
+    public Vector<Object> getDetailInfoHeader() {
+        // Table Header single item information. I-node
+        Vector<Object> header = new Vector<Object>();
+        header.add(Translation.getInstance().getLabel("fs_18"));  // Inode's field
+        header.add(Translation.getInstance().getLabel("fs_13"));  // Block
+        return header;
+    }
+
+    /**
+     * Returns extent tree blocks detail information table header
+     *
+     * @return    file system object detail information table header
+     */
+    public Vector<Object> getInnerDetailInfoHeader() {
+        // Table Header single item information. Extent tree block
+        Vector<Object> header = new Vector<Object>();
+        header.add(Translation.getInstance().getLabel("fs_69")); // Logical block
+        header.add(Translation.getInstance().getLabel("fs_13")); // block
+        header.add(Translation.getInstance().getLabel("fs_63")); // Type
+        return header;
+    }
+
+    /**
+     * Returns i-node information table data: links, extents count, extent tree depth and root entries
+     * (extents or extent tree blocks). Cells are ColorCell instance
+     *
+     * @param device secondary storage device blocks
+     * @param o      physical file system object
+     * @return    file system object detail information table data
+     * @see ColorCell
+     */
+    public Vector<Vector<Object>> getDetailInfoData(Block[] device, PhysicalFSObject o) {
+        // Table Data single item information. I-node
+        ExtentInode inode = (ExtentInode) o;
+        Color color = Color.WHITE;
+        Vector<Vector<Object>> data = new Vector<Vector<Object>>();
+        Vector<Object> row = new Vector<Object>();
+
+        // Info
+        row.add(new ColorCell(Translation.getInstance().getLabel("fs_60"), color));
+        row.add(new ColorCell(Integer.toString(inode.getLinks()), color));
+        data.add(row);
+
+        row = new Vector<Object>();
+        row.add(new ColorCell(Translation.getInstance().getLabel("fs_70"), color)); // Extents
+        row.add(new ColorCell(Integer.toString(inode.getExtents().size()), color));
+        data.add(row);
+
+        row = new Vector<Object>();
+        row.add(new ColorCell(Translation.getInstance().getLabel("fs_66"), color)); // Depth
+        row.add(new ColorCell(Integer.toString(inode.getDepth()), color));
+        data.add(row);
+
+        // Root entries, extents or extent tree blocks
+        for (int i = 0; i < ExtentInode.ROOT_ENTRIES; i++) {
+            row = new Vector<Object>();
+            if (inode.getDepth() == 0) {
+                row.add(new ColorCell(Translation.getInstance().getLabel("fs_67") + " " + i, color));
+                if (inode.getExtents().size() > i)
+                    row.add(new ColorCell(inode.getExtents().get(i).getString(), color));
+                else row.add(new ColorCell(Translation.getInstance().getLabel("fs_47"), color)); // nil
+            } else {
+                row.add(new ColorCell(Translation.getInstance().getLabel("fs_68") + " " + i, color));
+                if (inode.getRoot().size() > i)
+                    row.add(new ColorCell(Integer.toString(inode.getRoot().get(i).getId()), color));
+                else row.add(new ColorCell(Translation.getInstance().getLabel("fs_47"), color)); // nil
+            }
+            data.add(row);
+        }
+
+        return data;
+    }
+
+    /**
+     * Returns extent tree block information table data, for each entry: first logical block, blocks and type
+     * (extent or extent tree block). Cells are ColorCell instance
+     *
+     * @param device secondary storage device blocks
+     * @param id     extent tree block number
+     * @return    file system object detail information table data
+     * @see ColorCell
+     */
+    public Vector<Vector<Object>> getInnerDetailInfoData(Block[] device, int id) {
+        // Logical block, block, type (extent or extent tree block)
+        ExtentBlock block = (ExtentBlock) device[id];
+        Color color = block.getItem().getColor();
+        Vector<Vector<Object>> data = new Vector<Vector<Object>>();
+        Vector<Object> row;
+
+        if (block.isLeaf()) {
+            Iterator<Extent> it = block.getExtents().iterator();
+            while (it.hasNext()) {
+                Extent extent = it.next();
+                row = new Vector<Object>();
+                row.add(new ColorCell(Integer.toString(extent.getLogical()), color));
+                row.add(new ColorCell(extent.getString(), color));
+                row.add(new ColorCell(Translation.getInstance().getLabel("fs_67"), color)); // Extent
+                data.add(row);
+            }
+        } else {
+            Iterator<ExtentBlock> it = block.getIndex().iterator();
+            while (it.hasNext()) {
+                ExtentBlock child = it.next();
+                row = new Vector<Object>();
+                row.add(new ColorCell(Integer.toString(child.getLogical()), color));
+                row.add(new ColorCell(Integer.toString(child.getId()), color));
+                row.add(new ColorCell(Translation.getInstance().getLabel("fs_68"), color)); // Extent tree block
+                data.add(row);
+            }
+        }
+
+        return data;
+    }
+
+    /**
+     * Returns secondary storage device occupation table header: block number and type
+     * (data block, extent tree block)
+     *
+     * @return    secondary storage device occupation table header
+     */
+    public Vector<Object> getTableHeaderInfo() {
+        // Disk blocks table. Table Header
+        Vector<Object> header = new Vector<Object>();
+        header.add(Translation.getInstance().getLabel("fs_13")); // block
+        header.add(Translation.getInstance().getLabel("fs_63")); // type  (data, extent tree)
+        return header;
+    }
+
+    /**
+     * Returns block's table, for each device block, possible types are: data block, extent tree block
+     *
+     * @param device secondary storage device blocks
+     * @return    secondary storage device occupation table data
+     */
+    public Vector<Vector<Object>> getTableInfoData(Block[] device) {
+        // Disk blocks table. Table Data
+        Vector<Vector<Object>> data = new Vector<Vector<Object>>();
+        for (int i = getFirstDataBlock(); i < device.length; i++) data.add(getTableInfoRow(device, i));
+        return data;
+    }
+
+    /**
+     * Returns block's table row: block number and type, possible types are: data block, extent tree block
+     *
+     * @param device secondary storage device blocks
+     * @param block  block number
+     * @return    block's table row
+     */
+    public Vector<Object> getTableInfoRow(Block[] device, int block) {
+        Color color;
+        if (device[block] != null) color = device[block].getItem().getColor();
+        else color = Color.WHITE;
+
+        Vector<Object> row = new Vector<Object>();
+        row.add(new ColorCell(Integer.toString(block), color));
+
+        if (device[block] != null) {
+            if (device[block].isIndirect()) row.add(new ColorCell(Translation.getInstance().getLabel("fs_68"), color));
+            else row.add(new ColorCell(Translation.getInstance().getLabel("fs_61"), color));
+        } else {
+            row.add(new ColorCell("", color));
+        }
+        return row;
+    }
+
+    /**
+     * Returns allocation statistics labels: files, extents per file, metadata blocks and sequential read seeks
+     * compared with FAT and UNIX allocation
+     *
+     * @return    allocation statistics labels
+     */
+    public Vector<Vector<String>> getTableStatsInfo() {
+        Vector<Vector<String>> stats = new Vector<Vector<String>>();
+        Vector<String> row;
+
+        // Files
+        row = new Vector<String>();
+        row.add("fs_71");
+        row.add("--");
+        stats.add(row);
+
+        // Avg. extents per file
+        row = new Vector<String>();
+        row.add("fs_72");
+        row.add("--");
+        stats.add(row);
+
+        // Max. extents per file
+        row = new Vector<String>();
+        row.add("fs_73");
+        row.add("--");
+        stats.add(row);
+
+        // Metadata blocks: extent tree blocks / UNIX indirect blocks
+        row = new Vector<String>();
+        row.add("fs_74");
+        row.add("--");
+        stats.add(row);
+
+        // Metadata overhead: extent tree blocks / data blocks
+        row = new Vector<String>();
+        row.add("fs_75");
+        row.add("--");
+        stats.add(row);
+
+        // Sequential read seeks: extents / FAT / UNIX
+        row = new Vector<String>();
+        row.add("fs_76");
+        row.add("--");
+        stats.add(row);
+
+        // Seeks saved versus FAT
+        row = new Vector<String>();
+        row.add("fs_77");
+        row.add("--");
+        stats.add(row);
+
+        // Seeks saved versus UNIX
+        row = new Vector<String>();
+        row.add("fs_78");
+        row.add("--");
+        stats.add(row);
+
+        return stats;
+    }
+
+    /**
+     * Returns allocation statistics values, all files are read sequentially and each non contiguous block read
+     * (first file block included) is a seek
+     *
+     * @return    allocation statistics values
+     */
+    public Vector<String> getTableStatsData() {
+        Vector<String> values = new Vector<String>();
+        NumberFormat formatter = new DecimalFormat("#0.00");
+        int files = 0;
+        int extents = 0;
+        int maxExtents = 0;
+        int treeBlocks = 0;
+        int indirectBlocks = 0;
+        int dataBlocks = 0;
+        int seeks = 0;
+        int fatSeeks = 0;
+        int unixSeeks = 0;
+
+        for (int i = 0; i < inodesTable.length; i++) {
+            ExtentInode inode = inodesTable[i];
+            if (inode == null || !inode.isFile() || inode.getExtents().isEmpty()) continue;
+            files++;
+            extents += inode.getExtents().size();
+            maxExtents = Math.max(maxExtents, inode.getExtents().size());
+            treeBlocks += inode.getTree().size();
+            dataBlocks += inode.getDataBlocks();
+            indirectBlocks += unixBlocks.get(inode).size() - inode.getDataBlocks();
+            seeks += getSeeks(inode);
+            fatSeeks += getSeeks(fatBlocks.get(inode));
+            unixSeeks += getSeeks(unixBlocks.get(inode));
+        }
+
+        if (files == 0) {
+            for (int i = 0; i < 8; i++) values.add("--");
+            return values;
+        }
+
+        values.add(Integer.toString(files));
+        values.add(formatter.format((double) extents / (double) files));
+        values.add(Integer.toString(maxExtents));
+        values.add(treeBlocks + " / " + indirectBlocks);
+        values.add(formatter.format((double) treeBlocks * 100 / (double) dataBlocks));
+        values.add(seeks + " / " + fatSeeks + " / " + unixSeeks);
+        values.add(formatter.format((double) (fatSeeks - seeks) * 100 / (double) fatSeeks));
+        values.add(formatter.format((double) (unixSeeks - seeks) * 100 / (double) unixSeeks));
+        return values;
+    }
+
+    private int getSeeks(ExtentInode inode) {
+        // Extent tree blocks are read before data, then extents in file order
+        int seeks = 0;
+        int next = -1;
+        Iterator<ExtentBlock> itTree = inode.getTree().iterator();
+        while (itTree.hasNext()) {
+            ExtentBlock block = itTree.next();
+            if (block.getId() != next) seeks++;
+            next = block.getId() + 1;
+        }
+        Iterator<Extent> it = inode.getExtents().iterator();
+        while (it.hasNext()) {
+            Extent extent = it.next();
+            if (extent.getStart() != next) seeks++;
+            next = extent.getEnd();
+        }
+        return seeks;
+    }
+
+    private int getSeeks(Vector<Integer> blocks) {
+        // Blocks in reading order
+        int seeks = 0;
+        int next = -1;
+        Iterator<Integer> it = blocks.iterator();
+        while (it.hasNext()) {
+            int block = it.next();
+            if (block != next) seeks++;
+            next = block + 1;
+        }
+        return seeks;
+    }
+
+    /**
+     * Returns "/". Unix path separator
+     *
+     * @return "/"
+     */
+    public String getPathSeparator() {
+        return "/";
+    }
+
+    /**
+     * Initialize file system's root (/) i-node, data at start block, and then returns it.
+     *
+     * @param device secondary storage device blocks
+     * @return    file system's root
+     */
+    public LogicalFSObject initRoot(Block[] device) throws SoSimException {
+        PhysicalFSObject inode = getNewPhysicalObject();
+        FolderItem root = new FolderItem(inode, "/", null);
+        allocateObject(device, root); // Each Folder only 1 block
+        return root;
+    }
+
+    /**
+     * Returns next available physical file system object, i-node from i-node's table
+     *
+     * @throws SoSimException no free i-nodes available
+     * @return    next available physical file system object
+     */
+    public PhysicalFSObject getNewPhysicalObject() throws SoSimException {
+        for (int i = 0; i < inodesTable.length; i++) {
+            if (inodesTable[i] == null) {
+                inodesTable[i] = new ExtentInode(i);
+                return inodesTable[i];
+            }
+        }
+        // No i-nodes available for new items
+        throw new SoSimException("fs_06");
+    }
+
+    /**
+     * Returns physical object identified by id
+     *
+     * @param device secondary storage device blocks
+     * @param id     object identifier
+     * @return physical object identified by id
+     *
+     */
+    public PhysicalFSObject getPhysicalObject(Block[] device, int id) {
+        return inodesTable[id];
+    }
+
+    /**
+     * Returns if there is enough disk available to allocate data and extent tree blocks
+     *
+     * @param device     secondary storage device blocks
+     * @param objectSize object to allocate size
+     * @return    there is enough disk available to allocate data and extent tree blocks
+     */
+    public boolean checkAvailableDisk(Block[] device, int objectSize) {
+        return findExtents(getFirstDataBlock(), getDataBlocks(objectSize)) != null;
+    }
+
+    /**
+     * Returns if there is enough disk available to reallocate object with its new size
+     *
+     * @param device          secondary storage device blocks
+     * @param newSize         new object's size
+     * @param logicalFSObject object to allocate more data blocks
+     * @return    there is enough disk available to reallocate object
+     */
+    public boolean checkMoreAvailableDisk(Block[] device, int newSize, LogicalFSObject logicalFSObject) {
+        // Object blocks (data and extent tree blocks) are released before reallocating it
+        ExtentInode inode = (ExtentInode) logicalFSObject.getFSObject();
+        int goal = getGoal(logicalFSObject);
+        markBlocks(inode, false);
+        boolean available = findExtents(goal, getDataBlocks(newSize)) != null ||
+                findExtents(getFirstDataBlock(), getDataBlocks(newSize)) != null;
+        markBlocks(inode, true);
+        return available;
+    }
+
+    private int getDataBlocks(int objectSize) {
+        return ((objectSize - 1) / blockSize) + 1;
+    }
+
+    private int getGoal(LogicalFSObject object) {
+        // Object's first block if it is reallocated, otherwise parent folder's block
+        ExtentInode inode = (ExtentInode) object.getFSObject();
+        if (!inode.getExtents().isEmpty()) return inode.getExtents().get(0).getStart();
+        if (object.getParent() == null) return getFirstDataBlock();
+        ExtentInode folder = (ExtentInode) object.getParent().getFSObject();
+        if (folder.getExtents().isEmpty()) return getFirstDataBlock();
+        return folder.getExtents().get(0).getStart();
+    }
+
+    private Vector<Extent> findExtents(int goal, int blocks) {
+        // Extents to store blocks, null if free blocks can not store data and extent tree blocks
+        if (bitmap.getFree() < blocks) return null;
+        Vector<Extent> extents = findRuns(goal, blocks);
+        if (bitmap.getFree() < blocks + getTreeBlocks(extents.size())) return null;
+        return extents;
+    }
+
+    private Vector<Extent> findRuns(int goal, int blocks) {
+        // Free runs to store blocks, at least blocks are free
+        Vector<Extent> extents = new Vector<Extent>();
+        int first = getFirstDataBlock();
+        int size = bitmap.getSize();
+        if (goal < first || goal >= size) goal = first;
+
+        // Whole object into a single free run, from goal to device end and then from device start
+        int start = findRun(goal, size, blocks);
+        if (start < 0) start = findRun(first, goal, blocks);
+        if (start >= 0) {
+            extents.add(new Extent(0, start, blocks));
+            return extents;
+        }
+
+        // Free runs following goal, wrapping around device start
+        int logical = addRuns(extents, goal, size, 0, blocks);
+        addRuns(extents, first, goal, logical, blocks);
+        return extents;
+    }
+
+    private int findRun(int from, int to, int blocks) {
+        // First free run starting between from and to with at least blocks, -1 if none
+        int start = bitmap.nextFree(from);
+        while (start >= 0 && start < to) {
+            int end = bitmap.nextUsed(start);
+            if (end - start >= blocks) return start;
+            start = bitmap.nextFree(end);
+        }
+        return -1;
+    }
+
+    private int addRuns(Vector<Extent> extents, int from, int to, int logical, int blocks) {
+        // Adds free runs between from and to as extents until all blocks are stored, returns blocks stored
+        int start = bitmap.nextFree(from);
+        while (logical < blocks && start >= 0 && start < to) {
+            int end = Math.min(bitmap.nextUsed(start), to);
+            int length = Math.min(end - start, blocks - logical);
+            extents.add(new Extent(logical, start, length));
+            logical += length;
+            start = bitmap.nextFree(end);
+        }
+        return logical;
+    }
+
+    private int getTreeDepth(int extents) {
+        // Extent tree levels needed to store extents not fitting into i-node
+        int depth = 0;
+        int entries = extents;
+        while (entries > ExtentInode.ROOT_ENTRIES) {
+            entries = (entries - 1) / ExtentBlock.ENTRIES + 1;
+            depth++;
+        }
+        return depth;
+    }
+
+    private int getTreeBlocks(int extents) {
+        // Extent tree blocks, all levels, needed to store extents not fitting into i-node
+        int blocks = 0;
+        int entries = extents;
+        while (entries > ExtentInode.ROOT_ENTRIES) {
+            entries = (entries - 1) / ExtentBlock.ENTRIES + 1;
+            blocks += entries;
+        }
+        return blocks;
+    }
+
+    /**
+     * Allocates a file system object into device as extents near its parent folder, then stores extents
+     * not fitting into i-node into extent tree blocks. Hard links only increase i-node's link count
+     *
+     * @param device          secondary storage device blocks
+     * @param logicalFSObject logical File System Object
+     * @throws SoSimException not enough blocks to allocate all object
+     */
+    public void allocateObject(Block[] device, LogicalFSObject logicalFSObject) throws SoSimException {
+        ExtentInode inode = (ExtentInode) logicalFSObject.getFSObject();
+
+        if (logicalFSObject.isLink() && !logicalFSObject.isSoft()) inode.addLink(); // Inc link count
+        else allocateExtents(device, logicalFSObject, getGoal(logicalFSObject));
+    }
+
+    private void allocateExtents(Block[] device, LogicalFSObject logicalFSObject, int goal) throws SoSimException {
+        ExtentInode inode = (ExtentInode) logicalFSObject.getFSObject();
+        int blocks = getDataBlocks(logicalFSObject.getSize());
+
+        // Availability is checked from device start, goal placement may need more extent tree blocks.
+        // Restored objects keep their recorded extents
+        Vector<Extent> extents = getPlacedExtents(blocks);
+        if (extents == null) extents = findExtents(goal, blocks);
+        if (extents == null) extents = findExtents(getFirstDataBlock(), blocks);
+        if (extents == null) throw new SoSimException("fs_01");
+
+        Iterator<Extent> it = extents.iterator();
+        while (it.hasNext()) {
+            Extent extent = it.next();
+            for (int i = extent.getStart(); i < extent.getEnd(); i++) {
+                device[i] = new Block(i);
+                device[i].setItem(logicalFSObject);
+                bitmap.allocate(i);
+            }
+        }
+
+        // Extent tree blocks, near data and numbered in reading order
+        int depth = getTreeDepth(extents.size());
+        Vector<ExtentBlock> root = new Vector<ExtentBlock>(ExtentInode.ROOT_ENTRIES);
+        Vector<ExtentBlock> tree = new Vector<ExtentBlock>();
+        if (depth > 0) {
+            Vector<Integer> ids = getPlacedBlocks(getTreeBlocks(extents.size()));
+            if (ids == null) {
+                ids = new Vector<Integer>();
+                Iterator<Extent> itRuns = findRuns(extents.get(0).getStart(), getTreeBlocks(extents.size())).iterator();
+                while (itRuns.hasNext()) {
+                    Extent run = itRuns.next();
+                    for (int i = run.getStart(); i < run.getEnd(); i++) ids.add(i);
+                }
+            }
+
+            Iterator<Integer> itIds = ids.iterator();
+            int span = getSpan(depth);
+            for (int i = 0; i < extents.size(); i += span) {
+                root.add(buildTree(device, logicalFSObject, extents, i, Math.min(i + span, extents.size()), depth - 1, itIds, tree));
+            }
+        }
+
+        inode.setExtents(extents, depth, root, tree);
+        inode.setFile(logicalFSObject.isFile());
+        allocateCompared(inode, blocks);
+    }
+
+    private Vector<Extent> getPlacedExtents(int blocks) {
+        // Extents of recorded data blocks still free, consecutive blocks into a single extent. Null if there are not enough
+        Vector<Integer> placed = getPlacedBlocks(blocks);
+        if (placed == null) return null;
+        Vector<Extent> extents = new Vector<Extent>();
+        int logical = 0;
+        int start = placed.get(0);
+        for (int i = 1; i <= blocks; i++) {
+            if (i < blocks && placed.get(i) == start + i - logical) continue;
+            extents.add(new Extent(logical, start, i - logical));
+            logical = i;
+            if (i < blocks) start = placed.get(i);
+        }
+        return extents;
+    }
+
+    private Vector<Integer> getPlacedBlocks(int blocks) {
+        // First recorded blocks still free, null if restore isn't running or there are not enough
+        if (placement == null) return null;
+        Vector<Integer> placed = new Vector<Integer>(blocks);
+        Iterator<Integer> it = placement.iterator();
+        while (it.hasNext() && placed.size() < blocks) {
+            int block = it.next();
+            if (bitmap.isFree(block)) placed.add(block);
+        }
+        if (placed.size() < blocks) return null;
+        return placed;
+    }
+
+    private int getSpan(int height) {
+        // Extents covered by an extent tree block's entry at height (ENTRIES ^ height)
+        int span = 1;
+        for (int i = 0; i < height; i++) span *= ExtentBlock.ENTRIES;
+        return span;
+    }
+
+    private ExtentBlock buildTree(Block[] device, LogicalFSObject logicalFSObject, Vector<Extent> extents, int from, int to, int height, Iterator<Integer> ids, Vector<ExtentBlock> tree) {
+        // Extent tree block storing extents from..to, height 0 is a leaf. Index blocks before its entries (Recursive)
+        int num = ids.next();
+        ExtentBlock block = new ExtentBlock(num, height == 0, extents.get(from).getLogical());
+        device[num] = block;
+        device[num].setItem(logicalFSObject);
+        bitmap.allocate(num);
+        tree.add(block);
+
+        if (height == 0) {
+            for (int i = from; i < to; i++) block.addExtent(extents.get(i));
+        } else {
+            int span = getSpan(height);
+            for (int i = from; i < to; i += span) {
+                block.addBlock(buildTree(device, logicalFSObject, extents, i, Math.min(i + span, to), height - 1, ids, tree));
+            }
+        }
+        return block;
+    }
+
+    private void allocateCompared(ExtentInode inode, int blocks) {
+        // FAT chain and UNIX i-node (data and indirect blocks), both allocating first free block
+        fatBlocks.put(inode, allocateFirstFree(fatBitmap, blocks));
+        int indexed = FileSystemStrategyUNIX.getIndexedBlocks(blocks);
+        if (indexed < 0) indexed = blocks; // Larger than UNIX maximum file size
+        unixBlocks.put(inode, allocateFirstFree(unixBitmap, indexed));
+    }
+
+    private Vector<Integer> allocateFirstFree(FreeSpaceBitmap device, int blocks) {
+        // Blocks in allocation order, which is reading order
+        Vector<Integer> allocated = new Vector<Integer>(blocks);
+        int block = device.firstFree();
+        while (allocated.size() < blocks && block >= 0) {
+            device.allocate(block);
+            allocated.add(block);
+            block = device.firstFree();
+        }
+        return allocated;
+    }
+
+    private void releaseCompared(ExtentInode inode) {
+        Vector<Integer> blocks = fatBlocks.remove(inode);
+        if (blocks != null) {
+            Iterator<Integer> it = blocks.iterator();
+            while (it.hasNext()) fatBitmap.release(it.next());
+        }
+        blocks = unixBlocks.remove(inode);
+        if (blocks != null) {
+            Iterator<Integer> it = blocks.iterator();
+            while (it.hasNext()) unixBitmap.release(it.next());
+        }
+    }
+
+    /**
+     * Updates a file system object from device. Releases object's blocks and then reallocates it near its previous
+     * place. Keeps object's i-node and links
+     *
+     * @param object object to be updated
+     * @param device secondary storage device blocks
+     * @throws SoSimException not enough blocks to allocate all object
+     * @see #allocateObject(Block[], LogicalFSObject)
+     */
+    public void updatesObject(LogicalFSObject object, Block[] device) throws SoSimException {
+        ExtentInode inode = (ExtentInode) object.getFSObject();
+        int goal = getGoal(object);
+        releaseBlocks(inode, device);
+        allocateExtents(device, object, goal); // Reallocates
+    }
+
+    /**
+     * Removes a file system object from device, decrease i-nodes link count and releases i-node and all
+     * its blocks (data and extent tree blocks) if count reaches 0.
+     *
+     * @param object object to be removed
+     * @param device secondary storage device blocks
+     * @return parent folder that contained object
+     */
+    public FolderItem removeObject(LogicalFSObject object, Block[] device) {
+        ExtentInode inode = (ExtentInode) object.getFSObject();
+        inode.removeLink();
+
+        if (inode.getLinks() <= 0) {
+            releaseBlocks(inode, device);
+            inodesTable[inode.getId()] = null;
+        }
+
+        return object.getParent();
+    }
+
+    /**
+     * Returns object's blocks in allocation order: data blocks in logical order and then extent tree blocks
+     * in reading order. Hard links have no blocks, their target object has them
+     *
+     * @param device secondary storage device blocks
+     * @param object file system object
+     * @return    object's blocks in allocation order
+     */
+    public Vector<Integer> getAllocatedBlocks(Block[] device, LogicalFSObject object) {
+        Vector<Integer> blocks = new Vector<Integer>();
+        if (object.isLink() && !object.isSoft()) return blocks;
+        ExtentInode inode = (ExtentInode) object.getFSObject();
+        Iterator<Extent> it = inode.getExtents().iterator();
+        while (it.hasNext()) {
+            Extent extent = it.next();
+            for (int i = extent.getStart(); i < extent.getEnd(); i++) blocks.add(i);
+        }
+        Iterator<ExtentBlock> itTree = inode.getTree().iterator();
+        while (itTree.hasNext()) blocks.add(itTree.next().getId());
+        return blocks;
+    }
+
+    private void releaseBlocks(ExtentInode inode, Block[] device) {
+        // Releases data and extent tree blocks
+        Iterator<Extent> it = inode.getExtents().iterator();
+        while (it.hasNext()) {
+            Extent extent = it.next();
+            for (int i = extent.getStart(); i < extent.getEnd(); i++) {
+                device[i] = null;
+                bitmap.release(i);
+            }
+        }
+        Iterator<ExtentBlock> itTree = inode.getTree().iterator();
+        while (itTree.hasNext()) {
+            int num = itTree.next().getId();
+            device[num] = null;
+            bitmap.release(num);
+        }
+        releaseCompared(inode);
+        inode.initialize();
+    }
+
+    private void markBlocks(ExtentInode inode, boolean used) {
+        // Marks object's blocks as used or free, device is not modified
+        Iterator<Extent> it = inode.getExtents().iterator();
+        while (it.hasNext()) {
+            Extent extent = it.next();
+            for (int i = extent.getStart(); i < extent.getEnd(); i++) {
+                if (used) bitmap.allocate(i);
+                else bitmap.release(i);
+            }
+        }
+        Iterator<ExtentBlock> itTree = inode.getTree().iterator();
+        while (itTree.hasNext()) {
+            int num = itTree.next().getId();
+            if (used) bitmap.allocate(num);
+            else bitmap.release(num);
+        }
+    }
+}
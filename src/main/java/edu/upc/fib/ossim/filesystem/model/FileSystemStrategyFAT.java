@@ -135,22 +135,47 @@ public class FileSystemStrategyFAT extends FileSystemStrategyAdapter {
     public Vector<Vector<Object>> getTableInfoData(Block[] device) {
         // FAT. Table Data
         Vector<Vector<Object>> data = new Vector<Vector<Object>>();
-        Color color;
+        for (int i = getFirstDataBlock(); i < fatTable.length; i++) data.add(getTableInfoRow(device, i));
+        return data;
+    }
 
-        for (int i = getFirstDataBlock(); i < fatTable.length; i++) {
-            if (device[i] != null) color = device[i].getItem().getColor();
-            else color = Color.WHITE;
+    /**
+     * Returns FAT table row for a block: block number, next block number (or -1 if last) and state (free, used)
+     *
+     * @param device secondary storage device blocks
+     * @param block  block number
+     * @return    FAT table row
+     */
+    public Vector<Object> getTableInfoRow(Block[] device, int block) {
+        Color color;
+        if (device[block] != null) color = device[block].getItem().getColor();
+        else color = Color.WHITE;
+
+        Vector<Object> row = new Vector<Object>();
+        row.add(new ColorCell(Integer.toString(block), color));
+        if (fatTable[block] == -1) row.add(new ColorCell(Translation.getInstance().getLabel("fs_47"), color));
+        else row.add(new ColorCell(Integer.toString(fatTable[block]), color));
+        if (fatTable[block] != 0) row.add(new ColorCell(Translation.getInstance().getLabel("fs_16"), color));
+        else row.add(new ColorCell(Translation.getInstance().getLabel("fs_17"), color));
+        return row;
+    }
 
-            Vector<Object> row = new Vector<Object>();
-            row.add(new ColorCell(Integer.toString(i), color));
-            if (fatTable[i] == -1) row.add(new ColorCell(Translation.getInstance().getLabel("fs_47"), color));
-            else row.add(new ColorCell(Integer.toString(fatTable[i]), color));
-            if (fatTable[i] != 0) row.add(new ColorCell(Translation.getInstance().getLabel("fs_16"), color));
-            else row.add(new ColorCell(Translation.getInstance().getLabel("fs_17"), color));
+    /**
+     * Unused
+     *
+     * @return null
+     */
+    public Vector<Vector<String>> getTableStatsInfo() {
+        return null;
+    }
 
-            data.add(row);
-        }
-        return data;
+    /**
+     * Unused
+     *
+     * @return null
+     */
+    public Vector<String> getTableStatsData() {
+        return null;
     }
 
     /**
@@ -173,6 +198,7 @@ public class FileSystemStrategyFAT extends FileSystemStrategyAdapter {
         LogicalFSObject root = new FolderItem(device[getFirstDataBlock()], "C:", null);
         device[getFirstDataBlock()].setItem(root);
         fatTable[getFirstDataBlock()] = -1;
+        bitmap.allocate(getFirstDataBlock());
         return root;
     }
 
@@ -202,12 +228,10 @@ public class FileSystemStrategyFAT extends FileSystemStrategyAdapter {
 
 
     private int getFreeBlock() throws SoSimException {
-        // Returns first free Init block from table FAT, and creates device Block
-        for (int i = getFirstDataBlock(); i < fatTable.length; i++) {
-            if (fatTable[i] == 0) {
-                return i;
-            }
-        }
+        // Returns first free Init block from free space bitmap, or its recorded block while restoring
+        int i = getPlacedBlock();
+        if (i < 0) i = bitmap.firstFree();
+        if (i >= 0) return i;
         // No blocks available for new items
         throw new SoSimException("fs_01");
     }
@@ -220,16 +244,8 @@ public class FileSystemStrategyFAT extends FileSystemStrategyAdapter {
      * @return    there is enough disk available to allocate data blocks
      */
     public boolean checkAvailableDisk(Block[] device, int objectSize) {
-        int i = getFirstDataBlock();
-
         int dataBlocks = ((objectSize - 1) / blockSize) + 1;
-        while (i < fatTable.length && dataBlocks > 0) {
-            if (fatTable[i] == 0) {
-                dataBlocks--;
-            }
-            i++;
-        }
-        return dataBlocks == 0;
+        return bitmap.getFree() >= dataBlocks;
     }
 
     /**
@@ -262,12 +278,14 @@ public class FileSystemStrategyFAT extends FileSystemStrategyAdapter {
         device[previous] = (Block) logicalFSObject.getFSObject();
         device[previous].setItem(logicalFSObject);
         fatTable[previous] = -1;
+        bitmap.allocate(previous);
 
         while (necessaryBlocks > 0) {
             int freeBlock = getFreeBlock();
             device[freeBlock] = new Block(freeBlock);
             device[freeBlock].setItem(logicalFSObject);
             fatTable[freeBlock] = -1;
+            bitmap.allocate(freeBlock);
             // Update FAT
             fatTable[previous] = freeBlock;
             previous = freeBlock;
@@ -288,6 +306,43 @@ public class FileSystemStrategyFAT extends FileSystemStrategyAdapter {
         allocateObject(device, object); // Reallocates
     }
 
+    /**
+     * Resizes an allocated file system object extending or truncating its FAT chain,
+     * blocks kept are not moved
+     *
+     * @param object  object resized
+     * @param device  secondary storage device blocks
+     * @param oldSize object's size before resizing
+     * @throws SoSimException not enough blocks to allocate new size
+     */
+    public void resizeObject(LogicalFSObject object, Block[] device, int oldSize) throws SoSimException {
+        int blocks = getBlocks(object.getSize());
+        int last = object.getFSObject().getId();
+        for (int i = 1; i < blocks && fatTable[last] != -1; i++) last = fatTable[last];
+
+        // Truncates chain after its last block
+        int next = fatTable[last];
+        fatTable[last] = -1;
+        while (next != -1) {
+            int aux = next;
+            device[aux] = null;
+            next = fatTable[aux];
+            fatTable[aux] = 0;
+            bitmap.release(aux);
+        }
+
+        // Extends chain up to new blocks count
+        for (int i = getBlocks(oldSize); i < blocks; i++) {
+            int freeBlock = getFreeBlock();
+            device[freeBlock] = new Block(freeBlock);
+            device[freeBlock].setItem(object);
+            fatTable[freeBlock] = -1;
+            bitmap.allocate(freeBlock);
+            fatTable[last] = freeBlock;
+            last = freeBlock;
+        }
+    }
+
     /**
      * Removes a file system object from device, releasing all blocks that stored object
      *
@@ -297,22 +352,68 @@ public class FileSystemStrategyFAT extends FileSystemStrategyAdapter {
      */
     public FolderItem removeObject(LogicalFSObject object, Block[] device) {
         int next = object.getFSObject().getId();
-        if (object.isFolder() ||
+        if (object.isFile() || object.isFolder() ||
                 (object.isLink() && object.isSoft())) {  // Nothing to do with hard links "." and ".."
-            // Remove folder fat entry
-            device[next] = null;
-            fatTable[next] = 0;
-        }
-
-        if (object.isFile()) {
+            // Remove fat entries chain, folders may have more than one block
             while (next != -1) {
                 int aux = next;
                 device[aux] = null;
                 next = fatTable[aux];
                 fatTable[aux] = 0;
+                bitmap.release(aux);
             }
         }
 
         return object.getParent();
     }
+
+    /**
+     * Returns object's blocks following its FAT chain, hard links "." and ".." have no blocks
+     *
+     * @param device secondary storage device blocks
+     * @param object file system object
+     * @return    object's blocks in sequential read order
+     */
+    public Vector<Integer> getObjectBlocks(Block[] device, LogicalFSObject object) {
+        Vector<Integer> blocks = new Vector<Integer>();
+        if (object.isLink() && !object.isSoft()) return blocks;
+        int next = object.getFSObject().getId();
+        while (next != -1) {
+            blocks.add(next);
+            next = fatTable[next];
+        }
+        return blocks;
+    }
+
+    /**
+     * Returns if object's block can be moved, all blocks except first one that identifies object
+     *
+     * @param index block position into FAT chain
+     * @return    block can be moved
+     */
+    public boolean isRelocatable(int index) {
+        return index > 0;
+    }
+
+    /**
+     * Moves an object's block to a free block, previous block into FAT chain points to it
+     *
+     * @param device secondary storage device blocks
+     * @param object file system object
+     * @param from   object's block, not the first one
+     * @param to     free block
+     */
+    public void moveBlock(Block[] device, LogicalFSObject object, int from, int to) {
+        int previous = object.getFSObject().getId();
+        while (fatTable[previous] != from) previous = fatTable[previous];
+
+        device[to] = new Block(to);
+        device[to].setItem(object);
+        fatTable[to] = fatTable[from];
+        bitmap.allocate(to);
+        fatTable[previous] = to;
+        device[from] = null;
+        fatTable[from] = 0;
+        bitmap.release(from);
+    }
 }
@@ -0,0 +1,551 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import edu.upc.fib.ossim.utils.SoSimException;
+import edu.upc.fib.ossim.utils.Translation;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Vector;
+
+
+/**
+ * File System Strategy implementation for log-structured file system (LFS).
+ * Objects are indexed by i-nodes and indirect blocks as UNIX file system, but blocks are never updated in place:
+ * every write (data, indirect blocks and i-node) is appended sequentially at log head, into segments of 32 blocks.
+ * Previous copies become dead blocks, log head only moves into clean segments (without live blocks).
+ * I-nodes are written into the log too, inode map keeps where every i-node was last written and it is
+ * checkpointed into administration blocks every 16 operations.<br/>
+ * A background cleaner keeps 2 clean segments, it chooses a victim segment (greedy: least utilized,
+ * or cost-benefit: highest free space by age per cost), reads it and rewrites its live blocks at log head.
+ * One segment is reserved for the cleaner.<br/>
+ * To compare write performance, objects are also written by first free block FAT and UNIX allocators
+ * (only blocks are counted) and write seeks and time are compared
+ *
+ * @author Alex Macia
+ * @see InodeBlock
+ */
+public class FileSystemStrategyLFS extends FileSystemStrategyUNIX {
+    public static final int GREEDY = 0;
+    public static final int COST_BENEFIT = 1;
+    public static final int SEGMENT_BLOCKS = 32;
+    public static final int SEEK_TIME = 10;    // Seek time, in block transfers
+    private static final int MIN_CLEAN = 2;    // Clean segments kept by background cleaner
+    private static final int CHECKPOINT_INTERVAL = 16;    // Operations between inode map checkpoints
+    private final int policy;
+    private final InodeBlock[] inodeMap;    // Last written i-node blocks
+    private final int segments;
+    private final int[] segmentTime;    // Last operation writing into every segment
+    private int segment;    // Log head segment
+    private int head;    // Log head block
+    private int tick;    // Operations
+
+    // Cleaner
+    private boolean cleaning;
+    private int cleaned;    // Segments cleaned
+    private int cleanedLive;    // Live blocks moved by cleaner
+    private int cleanerReads;
+    private int cleanerWrites;
+    private int newBlocks;    // Blocks written by operations
+
+    // Comparison
+    private final FreeSpaceBitmap fatBitmap;    // FAT allocator device (comparison)
+    private final FreeSpaceBitmap unixBitmap;    // UNIX allocator device (comparison)
+    private final Hashtable<Inode, Vector<Integer>> fatBlocks;    // FAT blocks
+    private final Hashtable<Inode, Vector<Integer>> unixBlocks;    // UNIX blocks
+    private final int[] lfsDisk;    // Head position, seeks and transfers
+    private final int[] fatDisk;
+    private final int[] unixDisk;
+
+    /**
+     * Constructs FileSystemStrategyLFS, initialize i-nodes table, 128 entries, and its inode map
+     *
+     * @param blockSize block size
+     * @param devSize   device size
+     * @param policy    cleaner victim selection policy, greedy or cost-benefit
+     */
+    public FileSystemStrategyLFS(int blockSize, int devSize, int policy) {
+        super(blockSize, devSize);
+        this.policy = policy;
+        this.inodeMap = new InodeBlock[MAX_INODES];
+        this.segments = (devSize / blockSize - getFirstDataBlock() - 1) / SEGMENT_BLOCKS + 1;
+        this.segmentTime = new int[segments];
+        this.segment = 0;
+        this.head = getSegmentStart(0);
+        this.fatBitmap = new FreeSpaceBitmap(devSize / blockSize, getFirstDataBlock());
+        this.unixBitmap = new FreeSpaceBitmap(devSize / blockSize, getFirstDataBlock());
+        this.fatBlocks = new Hashtable<Inode, Vector<Integer>>();
+        this.unixBlocks = new Hashtable<Inode, Vector<Integer>>();
+        this.lfsDisk = new int[3];
+        this.fatDisk = new int[3];
+        this.unixDisk = new int[3];
+    }
+
+    /**
+     * Gets LFS algorithm information including main settings values
+     *
+     * @return    algorithm information
+     */
+    public String getAlgorithmInfo() {
+        if (policy == GREEDY) return Translation.getInstance().getLabel("fs_23", blockSize, "fs_58");
+        return Translation.getInstance().getLabel("fs_23", blockSize, "fs_59");
+    }
+
+    /**
+     * Returns cleaner and write statistics labels: segments, segments cleaned and their utilization,
+     * cleaning overhead, write cost and write seeks and throughput compared with FAT and UNIX allocation
+     *
+     * @return    cleaner and write statistics labels
+     */
+    public Vector<Vector<String>> getTableStatsInfo() {
+        Vector<Vector<String>> stats = new Vector<Vector<String>>();
+        for (int i = 99; i <= 106; i++) {
+            Vector<String> row = new Vector<String>();
+            row.add("fs_" + i);
+            row.add("--");
+            stats.add(row);
+        }
+        return stats;
+    }
+
+    /**
+     * Returns cleaner and write statistics values. Write time is blocks transferred plus seeks,
+     * a seek is a non contiguous block transfer
+     *
+     * @return    cleaner and write statistics values
+     */
+    public Vector<String> getTableStatsData() {
+        Vector<String> values = new Vector<String>();
+        NumberFormat formatter = new DecimalFormat("#0.00");
+
+        int clean = 0;
+        for (int s = 0; s < segments; s++) if (isClean(s)) clean++;
+        values.add(clean + " / " + segments);
+        values.add(Integer.toString(cleaned));
+        if (cleaned > 0) values.add(formatter.format(100.0 * cleanedLive / (cleaned * SEGMENT_BLOCKS)));
+        else values.add("--");
+        if (lfsDisk[2] > 0) values.add(formatter.format(100.0 * (cleanerReads + cleanerWrites) / lfsDisk[2]));
+        else values.add("--");
+        if (newBlocks > 0) values.add(formatter.format((double) lfsDisk[2] / newBlocks));
+        else values.add("--");
+        values.add(lfsDisk[1] + " / " + fatDisk[1] + " / " + unixDisk[1]);
+        if (getTime(lfsDisk) > 0) {
+            values.add(formatter.format((double) getTime(fatDisk) / getTime(lfsDisk)));
+            values.add(formatter.format((double) getTime(unixDisk) / getTime(lfsDisk)));
+        } else {
+            values.add("--");
+            values.add("--");
+        }
+        return values;
+    }
+
+    /**
+     * Returns if there is enough disk available to allocate data blocks, indirect blocks and i-node at log head.
+     * Cleaner runs first if there are not enough clean segments. Restored objects only need free blocks
+     *
+     * @param device     secondary storage device blocks
+     * @param objectSize object to allocate size
+     * @return    there is enough disk available to allocate data blocks
+     */
+    public boolean checkAvailableDisk(Block[] device, int objectSize) {
+        int totalBlocks = getIndexedBlocks(((objectSize - 1) / blockSize) + 1);
+        if (totalBlocks < 0) return false;
+        if (placement != null) return bitmap.getFree() >= totalBlocks + 1;
+        clean(device, totalBlocks + 1 + SEGMENT_BLOCKS);
+        return getWritable() - SEGMENT_BLOCKS >= totalBlocks + 1;
+    }
+
+    /**
+     * Returns if there is enough disk available to rewrite an object with its new size at log head,
+     * previous blocks are dead once object is rewritten. Cleaner runs first if there are not enough clean segments
+     *
+     * @param device          secondary storage device blocks
+     * @param newSize         new object's size
+     * @param logicalFSObject object to allocate more data blocks
+     * @return    there is enough disk available to rewrite object
+     */
+    public boolean checkMoreAvailableDisk(Block[] device, int newSize, LogicalFSObject logicalFSObject) {
+        return checkAvailableDisk(device, newSize);
+    }
+
+    /**
+     * Appends a file system object at log head: data blocks, indirect blocks and its i-node,
+     * then runs background cleaner and checkpoints inode map if it is time to
+     *
+     * @param device          secondary storage device blocks
+     * @param logicalFSObject logical File System Object
+     * @throws SoSimException not enough clean segments to write all object
+     */
+    public void allocateObject(Block[] device, LogicalFSObject logicalFSObject) throws SoSimException {
+        tick++;
+        int transfers = lfsDisk[2];
+        super.allocateObject(device, logicalFSObject);
+        writeInode(device, logicalFSObject);
+        newBlocks += lfsDisk[2] - transfers;
+
+        Inode inode = (Inode) logicalFSObject.getFSObject();
+        if (logicalFSObject.isLink() && !logicalFSObject.isSoft()) writeCompared(inode, 0); // Links count
+        else writeCompared(inode, ((logicalFSObject.getSize() - 1) / blockSize) + 1);
+
+        endOperation(device);
+    }
+
+    /**
+     * Resizes an allocated file system object. Blocks are never rewritten in place: if blocks count
+     * changes the whole object is written again at log head
+     *
+     * @param object  object resized
+     * @param device  secondary storage device blocks
+     * @param oldSize object's size before resizing
+     * @throws SoSimException not enough clean segments to write all object
+     */
+    public void resizeObject(LogicalFSObject object, Block[] device, int oldSize) throws SoSimException {
+        if (getBlocks(object.getSize()) != getBlocks(oldSize)) updatesObject(object, device);
+    }
+
+    /**
+     * Removes a file system object, its blocks are dead from now on. I-node is rewritten
+     * if it has other links, otherwise inode map forgets it
+     *
+     * @param object object to be removed
+     * @param device secondary storage device blocks
+     * @return parent folder that contained object
+     */
+    public FolderItem removeObject(LogicalFSObject object, Block[] device) {
+        tick++;
+        Inode inode = (Inode) object.getFSObject();
+        FolderItem parent = super.removeObject(object, device);
+
+        try {
+            if (inode.getLinks() <= 0) {
+                release(device, inodeMap[inode.getId()]);
+                inodeMap[inode.getId()] = null;
+                releaseCompared(inode);
+            } else writeInode(device, object);
+            write(fatDisk, 0); // FAT table
+            write(unixDisk, 0); // I-nodes table and free blocks bitmap
+            endOperation(device);
+        } catch (SoSimException e) {
+            // No clean segment to rewrite i-node, it remains at its previous place
+        }
+        return parent;
+    }
+
+    /**
+     * Unused, log-structured file system blocks are only relocated by its cleaner
+     *
+     * @return null
+     */
+    public Vector<Integer> getObjectBlocks(Block[] device, LogicalFSObject object) {
+        return null;
+    }
+
+    /**
+     * Returns object's blocks in allocation order: data and indirect blocks as UNIX allocates them and then
+     * its i-node block, if object created it
+     *
+     * @param device secondary storage device blocks
+     * @param object file system object
+     * @return    object's blocks in allocation order
+     */
+    public Vector<Integer> getAllocatedBlocks(Block[] device, LogicalFSObject object) {
+        Vector<Integer> blocks = super.getObjectBlocks(device, object);
+        InodeBlock block = inodeMap[object.getFSObject().getId()];
+        if (block != null && block.getItem() == object) blocks.add(block.getId());
+        return blocks;
+    }
+
+    /**
+     * Gets log head block
+     *
+     * @return    log head block
+     */
+    public int getLogHead() {
+        return head;
+    }
+
+    /**
+     * Sets log head block, log goes on from segment last written
+     *
+     * @param head log head block, ignored if it is out of device
+     */
+    public void setLogHead(int head) {
+        if (head < getFirstDataBlock() || head > devSize / blockSize) return;
+        // Head at a segment's end moves to a clean segment on next write
+        if (head > getFirstDataBlock()) this.segment = getSegment(head - 1);
+        else this.segment = 0;
+        this.head = head;
+    }
+
+    /**
+     * Returns log head block, first block of next clean segment if head segment is full
+     *
+     * @param device secondary storage device blocks
+     * @throws SoSimException no clean segments available
+     * @return    log head block
+     */
+    protected int getFreeBlock(Block[] device) throws SoSimException {
+        // Restored blocks keep their recorded place, log head doesn't move
+        int placed = getPlacedBlock();
+        if (placed >= 0) {
+            segmentTime[getSegment(placed)] = tick;
+            return placed;
+        }
+
+        if (head >= getSegmentEnd(segment)) nextSegment();
+        int block = head++;
+        segmentTime[segment] = tick;
+        write(lfsDisk, block);
+        if (cleaning) cleanerWrites++;
+        return block;
+    }
+
+    private void nextSegment() throws SoSimException {
+        // Log wraps around device
+        for (int i = 1; i <= segments; i++) {
+            int s = (segment + i) % segments;
+            if (isClean(s)) {
+                segment = s;
+                head = getSegmentStart(s);
+                return;
+            }
+        }
+        throw new SoSimException("fs_01");
+    }
+
+    private void writeInode(Block[] device, LogicalFSObject object) throws SoSimException {
+        // I-node is appended, previous copy is dead. I-node block belongs to object that created it (hard links)
+        Inode inode = (Inode) object.getFSObject();
+        InodeBlock old = inodeMap[inode.getId()];
+        int num;
+        if (placement != null && !placement.isEmpty() && bitmap.isFree(placement.lastElement())) {
+            num = placement.lastElement(); // Restored i-node at its recorded block, last of object's blocks
+        } else if (placement != null && old != null) {
+            return; // Restored i-node stays where it is
+        } else num = getFreeBlock(device);
+        InodeBlock block = new InodeBlock(num, inode);
+        if (old != null) block.setItem(old.getItem());
+        else block.setItem(object);
+        device[num] = block;
+        bitmap.allocate(num);
+        release(device, old);
+        inodeMap[inode.getId()] = block;
+    }
+
+    private void endOperation(Block[] device) {
+        if (tick % CHECKPOINT_INTERVAL == 0) {
+            // Inode map is stored into administration blocks, as indirect blocks every block holds 20 entries
+            for (int i = 0; i < (MAX_INODES - 1) / IndirectBlock.ADDRESS_POINTERS + 1; i++) write(lfsDisk, i);
+        }
+        clean(device, MIN_CLEAN * SEGMENT_BLOCKS);
+    }
+
+    private void clean(Block[] device, int writable) {
+        // Cleans victims until there are writable blocks enough, or cleaning doesn't gain any block
+        // (moved blocks also rewrite indirect blocks and i-nodes pointing to them). Restored log isn't cleaned
+        if (placement != null) return;
+        cleaning = true;
+        try {
+            int previous = -1;
+            while (getWritable() < writable && getWritable() > previous) {
+                previous = getWritable();
+                int victim = getVictim();
+                if (victim < 0) break;
+                int live = getLive(victim);
+                if (live >= getSegmentEnd(victim) - getSegmentStart(victim) || live > getWritable()) break;
+
+                // Whole segment is read, then live blocks are rewritten at log head
+                for (int i = getSegmentStart(victim); i < getSegmentEnd(victim); i++) write(lfsDisk, i);
+                cleanerReads += getSegmentEnd(victim) - getSegmentStart(victim);
+                moveLive(device, victim);
+                cleaned++;
+                cleanedLive += live;
+            }
+        } catch (SoSimException e) {
+            // Log is full, nothing else can be cleaned
+        }
+        cleaning = false;
+    }
+
+    private int getVictim() {
+        // Greedy: least live blocks. Cost-benefit: highest (1 - u) * age / (1 + u), u segment utilization
+        int victim = -1;
+        double best = -1;
+        for (int s = 0; s < segments; s++) {
+            if (s == segment || isClean(s)) continue;
+            double u = (double) getLive(s) / (getSegmentEnd(s) - getSegmentStart(s));
+            double score;
+            if (policy == GREEDY) score = 1 - u;
+            else score = (1 - u) * (tick - segmentTime[s] + 1) / (1 + u);
+            if (score > best) {
+                best = score;
+                victim = s;
+            }
+        }
+        return victim;
+    }
+
+    private void moveLive(Block[] device, int victim) throws SoSimException {
+        // Objects with blocks into victim segment
+        Vector<LogicalFSObject> items = new Vector<LogicalFSObject>();
+        Vector<Inode> inodes = new Vector<Inode>();
+        for (int i = getSegmentStart(victim); i < getSegmentEnd(victim); i++) {
+            if (device[i] == null) continue;
+            Inode inode = (Inode) device[i].getItem().getFSObject();
+            if (!inodes.contains(inode)) {
+                inodes.add(inode);
+                items.add(device[i].getItem());
+            }
+        }
+
+        // Live blocks are moved, blocks pointing to them and i-node are rewritten
+        for (int i = 0; i < inodes.size(); i++) {
+            Inode inode = inodes.get(i);
+            boolean moved = getSegment(inodeMap[inode.getId()].getId()) == victim;
+            Vector<Block> direct = inode.getDirect();
+            for (int j = 0; j < direct.size(); j++) {
+                Block block = relocate(device, direct.get(j), victim);
+                if (block != direct.get(j)) {
+                    direct.set(j, block);
+                    moved = true;
+                }
+            }
+            IndirectBlock indirect = (IndirectBlock) relocate(device, inode.getIndirect_1(), victim);
+            if (indirect != inode.getIndirect_1()) {
+                inode.setIndirect_1(indirect);
+                moved = true;
+            }
+            indirect = (IndirectBlock) relocate(device, inode.getIndirect_2(), victim);
+            if (indirect != inode.getIndirect_2()) {
+                inode.setIndirect_2(indirect);
+                moved = true;
+            }
+            indirect = (IndirectBlock) relocate(device, inode.getIndirect_3(), victim);
+            if (indirect != inode.getIndirect_3()) {
+                inode.setIndirect_3(indirect);
+                moved = true;
+            }
+            if (moved) writeInode(device, items.get(i));
+        }
+    }
+
+    private Block relocate(Block[] device, Block block, int victim) throws SoSimException {
+        // Returns block, or its copy at log head if block or any pointed block is into victim segment (Recursive)
+        if (block == null) return null;
+        boolean moved = getSegment(block.getId()) == victim;
+        if (block.isIndirect()) {
+            Vector<Block> pointers = ((IndirectBlock) block).getPointers();
+            for (int i = 0; i < pointers.size(); i++) {
+                Block pointed = relocate(device, pointers.get(i), victim);
+                if (pointed != pointers.get(i)) {
+                    pointers.set(i, pointed);
+                    moved = true;
+                }
+            }
+        }
+        if (!moved) return block;
+
+        int num = getFreeBlock(device);
+        Block copy;
+        if (block.isIndirect()) {
+            copy = new IndirectBlock(num);
+            Iterator<Block> it = ((IndirectBlock) block).getPointers().iterator();
+            while (it.hasNext()) ((IndirectBlock) copy).addBlock(it.next());
+        } else copy = new Block(num);
+        copy.setItem(block.getItem());
+        device[num] = copy;
+        bitmap.allocate(num);
+        release(device, block);
+        return copy;
+    }
+
+    private void release(Block[] device, Block block) {
+        // Block is dead, its segment is clean once all its blocks are dead
+        if (block == null) return;
+        device[block.getId()] = null;
+        bitmap.release(block.getId());
+    }
+
+    private int getWritable() {
+        // Blocks left at head segment plus clean segments blocks
+        int writable = getSegmentEnd(segment) - head;
+        for (int s = 0; s < segments; s++) {
+            if (s != segment && isClean(s)) writable += getSegmentEnd(s) - getSegmentStart(s);
+        }
+        return writable;
+    }
+
+    private boolean isClean(int s) {
+        return bitmap.nextUsed(getSegmentStart(s)) >= getSegmentEnd(s);
+    }
+
+    private int getLive(int s) {
+        int live = 0;
+        for (int i = getSegmentStart(s); i < getSegmentEnd(s); i++) if (!bitmap.isFree(i)) live++;
+        return live;
+    }
+
+    private int getSegment(int block) {
+        return (block - getFirstDataBlock()) / SEGMENT_BLOCKS;
+    }
+
+    private int getSegmentStart(int s) {
+        return getFirstDataBlock() + s * SEGMENT_BLOCKS;
+    }
+
+    private int getSegmentEnd(int s) {
+        return Math.min(getSegmentStart(s) + SEGMENT_BLOCKS, devSize / blockSize);
+    }
+
+    private void write(int[] disk, int block) {
+        // Non contiguous transfer is a seek
+        if (block != disk[0] + 1) disk[1]++;
+        disk[0] = block;
+        disk[2]++;
+    }
+
+    private int getTime(int[] disk) {
+        return disk[2] + disk[1] * SEEK_TIME;
+    }
+
+    private void writeCompared(Inode inode, int blocks) {
+        // Objects rewritten by first free block FAT and UNIX allocators, table entry first
+        write(fatDisk, 0);
+        write(unixDisk, 0);
+        if (blocks == 0) return;
+        releaseCompared(inode);
+        Vector<Integer> fat = allocateFirstFree(fatBitmap, blocks);
+        Vector<Integer> unix = allocateFirstFree(unixBitmap, getIndexedBlocks(blocks));
+        fatBlocks.put(inode, fat);
+        unixBlocks.put(inode, unix);
+        Iterator<Integer> it = fat.iterator();
+        while (it.hasNext()) write(fatDisk, it.next());
+        it = unix.iterator();
+        while (it.hasNext()) write(unixDisk, it.next());
+    }
+
+    private Vector<Integer> allocateFirstFree(FreeSpaceBitmap device, int blocks) {
+        Vector<Integer> allocated = new Vector<Integer>();
+        int block = device.firstFree();
+        while (allocated.size() < blocks && block >= 0) {
+            device.allocate(block);
+            allocated.add(block);
+            block = device.nextFree(block + 1);
+        }
+        return allocated;
+    }
+
+    private void releaseCompared(Inode inode) {
+        Vector<Integer> blocks = fatBlocks.remove(inode);
+        if (blocks != null) {
+            Iterator<Integer> it = blocks.iterator();
+            while (it.hasNext()) fatBitmap.release(it.next());
+        }
+        blocks = unixBlocks.remove(inode);
+        if (blocks != null) {
+            Iterator<Integer> it = blocks.iterator();
+            while (it.hasNext()) unixBitmap.release(it.next());
+        }
+    }
+}
@@ -5,11 +5,12 @@ import edu.upc.fib.ossim.utils.SoSimException;
 import edu.upc.fib.ossim.utils.Translation;
 
 import java.awt.*;
+import java.util.Iterator;
 import java.util.Vector;
 
 
 public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
-    private static final int MAX_INODES = 128;
+    protected static final int MAX_INODES = 128;
     private final Inode[] inodesTable;    // Inodes Table.
 
     /**
@@ -197,26 +198,52 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
     public Vector<Vector<Object>> getTableInfoData(Block[] device) {
         // Disk blocks table. Table Data
         Vector<Vector<Object>> data = new Vector<Vector<Object>>();
+        for (int i = getFirstDataBlock(); i < device.length; i++) data.add(getTableInfoRow(device, i));
+        return data;
+    }
+
+    /**
+     * Returns block's table row: block number and type, possible types are: data block, i-node, indirect block
+     *
+     * @param device secondary storage device blocks
+     * @param block  block number
+     * @return    block's table row
+     */
+    public Vector<Object> getTableInfoRow(Block[] device, int block) {
         Color color;
+        if (device[block] != null) color = device[block].getItem().getColor();
+        else color = Color.WHITE;
 
-        for (int i = getFirstDataBlock(); i < device.length; i++) {
-            if (device[i] != null) color = device[i].getItem().getColor();
-            else color = Color.WHITE;
+        Vector<Object> row = new Vector<Object>();
+        row.add(new ColorCell(Integer.toString(block), color));
+
+        if (device[block] != null) {
+            if (device[block].isInode()) row.add(new ColorCell(Translation.getInstance().getLabel("fs_64"), color));
+            if (device[block].isIndirect()) row.add(new ColorCell(Translation.getInstance().getLabel("fs_62"), color));
+            if (!device[block].isIndirect() && !device[block].isInode())
+                row.add(new ColorCell(Translation.getInstance().getLabel("fs_61"), color));
+        } else {
+            row.add(new ColorCell("", color));
+        }
+        return row;
+    }
 
-            Vector<Object> row = new Vector<Object>();
-            row.add(new ColorCell(Integer.toString(i), color));
+    /**
+     * Unused
+     *
+     * @return null
+     */
+    public Vector<Vector<String>> getTableStatsInfo() {
+        return null;
+    }
 
-            if (device[i] != null) {
-                //if (device[i].isInode()) row.add(new ColorCell(Translation.getInstance().getLabel("fs_64"), color));
-                if (device[i].isIndirect()) row.add(new ColorCell(Translation.getInstance().getLabel("fs_62"), color));
-                if (!device[i].isIndirect() && !device[i].isInode())
-                    row.add(new ColorCell(Translation.getInstance().getLabel("fs_61"), color));
-            } else {
-                row.add(new ColorCell("", color));
-            }
-            data.add(row);
-        }
-        return data;
+    /**
+     * Unused
+     *
+     * @return null
+     */
+    public Vector<String> getTableStatsData() {
+        return null;
     }
 
     /**
@@ -232,22 +259,13 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
      * Initialize file system's root (/) i-node 2, data at start block, and then returns it.
      *
      * @param device secondary storage device blocks
-     * @throws SoSimException
+     * @throws SoSimException there are not enough free blocks or i-nodes to allocate root
      * @return    file system's root
      */
-    public LogicalFSObject initRoot(Block[] device) {
-        PhysicalFSObject inode;
-        FolderItem root = null;
-
-        try {
-            inode = getNewPhysicalObject();
-            root = new FolderItem(inode, "/", null);
-            allocateObject(device, root); // Each Folder only 1 block
-
-        } catch (SoSimException e) {
-            System.out.println("error initRoot a FileSystemStrategyUNIX");
-            e.printStackTrace();
-        }
+    public LogicalFSObject initRoot(Block[] device) throws SoSimException {
+        PhysicalFSObject inode = getNewPhysicalObject();
+        FolderItem root = new FolderItem(inode, "/", null);
+        allocateObject(device, root); // Each Folder only 1 block
         return root;
     }
 
@@ -283,17 +301,17 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
 
 
     /**
-     * Returns first free block from device, sequentially search into device starting at start block
+     * Returns first free block from device, first free block into free space bitmap
      *
      * @param device secondary storage device blocks
      * @throws SoSimException no free blocks available
      * @return    first free block from device
      */
-    private int getFreeBlock(Block[] device) throws SoSimException {
-        // Returns first free Init block from device, and creates device inode
-        for (int i = getFirstDataBlock(); i < device.length; i++) {
-            if (device[i] == null) return i;
-        }
+    protected int getFreeBlock(Block[] device) throws SoSimException {
+        // Returns first free Init block from device, or its recorded block while restoring
+        int i = getPlacedBlock();
+        if (i < 0) i = bitmap.firstFree();
+        if (i >= 0) return i;
         // No blocks available for new items
         throw new SoSimException("fs_01");
     }
@@ -306,17 +324,8 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
      * @return    there is enough disk available to allocate data blocks
      */
     public boolean checkAvailableDisk(Block[] device, int objectSize) {
-        int i = getFirstDataBlock();
         int totalBlocks = getBlocksNeeded(objectSize);
-
-        while (i < device.length && totalBlocks > 0) {
-            if (device[i] == null) {
-                totalBlocks--;
-            }
-            i++;
-        }
-
-        return totalBlocks == 0;
+        return totalBlocks >= 0 && bitmap.getFree() >= totalBlocks;
     }
 
     /**
@@ -330,22 +339,22 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
     public boolean checkMoreAvailableDisk(Block[] device, int newSize, LogicalFSObject logicalFSObject) {
         if (logicalFSObject.getSize() >= newSize) return true;
 
-        int i = getFirstDataBlock();
+        // Object blocks (data and indirect blocks) are released before reallocating it
         int totalBlocks = getBlocksNeeded(newSize);
-
-        while (i < device.length && totalBlocks > 0) {
-            if (device[i] == null || logicalFSObject.equals(device[i].getItem())) {
-                totalBlocks--;
-            }
-            i++;
-        }
-
-        return totalBlocks == 0;
+        return totalBlocks >= 0 && bitmap.getFree() + getBlocksNeeded(logicalFSObject.getSize()) >= totalBlocks;
     }
 
     private int getBlocksNeeded(int objectSize) {
-        int dataBlocks = ((objectSize - 1) / blockSize) + 1;
+        return getIndexedBlocks(((objectSize - 1) / blockSize) + 1);
+    }
 
+    /**
+     * Returns blocks allocated to store data blocks, data blocks plus indirect blocks, -1 if they don't fit into i-node
+     *
+     * @param dataBlocks data blocks
+     * @return    data and indirect blocks
+     */
+    static int getIndexedBlocks(int dataBlocks) {
         int limitDirect = Inode.DIRECT_BLOCKS;
         int limit1Indirect = limitDirect + IndirectBlock.ADDRESS_POINTERS;
         int limit2Indirect = limit1Indirect + IndirectBlock.ADDRESS_POINTERS * IndirectBlock.ADDRESS_POINTERS;
@@ -385,6 +394,7 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
                 inode.setIndirect_1(indirect);
                 device[freeBlock] = indirect;
                 device[freeBlock].setItem(logicalFSObject);
+                bitmap.allocate(freeBlock);
                 necessaryBlocks = addIndirectBlocks(indirect, necessaryBlocks, device, logicalFSObject);
             }
 
@@ -395,6 +405,7 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
                 inode.setIndirect_2(indirect2);
                 device[freeBlock] = indirect2;
                 device[freeBlock].setItem(logicalFSObject);
+                bitmap.allocate(freeBlock);
                 necessaryBlocks = allocateIndirect2(indirect2, necessaryBlocks, device, logicalFSObject);
             }
 
@@ -405,6 +416,7 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
                 inode.setIndirect_3(indirect3);
                 device[freeBlock] = indirect3;
                 device[freeBlock].setItem(logicalFSObject);
+                bitmap.allocate(freeBlock);
 
                 necessaryBlocks = allocateIndirect3(indirect3, necessaryBlocks, device, logicalFSObject);
             }
@@ -420,6 +432,7 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
             freeBlock = getFreeBlock(device);
             device[freeBlock] = new Block(freeBlock);
             device[freeBlock].setItem(logicalFSObject);
+            bitmap.allocate(freeBlock);
             inode.addDirectBlock(device[freeBlock]);
             directs--;
             necessaryBlocks--;
@@ -438,6 +451,7 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
             freeBlock = getFreeBlock(device);
             device[freeBlock] = new Block(freeBlock);
             device[freeBlock].setItem(logicalFSObject);
+            bitmap.allocate(freeBlock);
             indirect.addBlock(device[freeBlock]);
             indirects--;
             necessaryBlocks--;
@@ -457,6 +471,7 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
             IndirectBlock indirect = new IndirectBlock(freeBlock);
             device[freeBlock] = indirect;
             device[freeBlock].setItem(logicalFSObject); // Same Item as inode
+            bitmap.allocate(freeBlock);
             indirect2.addBlock(indirect);
 
             necessaryBlocks = addIndirectBlocks(indirect, necessaryBlocks, device, logicalFSObject);
@@ -476,6 +491,7 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
             IndirectBlock indirect2 = new IndirectBlock(freeBlock);
             device[freeBlock] = indirect2;
             device[freeBlock].setItem(logicalFSObject);
+            bitmap.allocate(freeBlock);
             indirect3.addBlock(indirect2);
 
             necessaryBlocks = allocateIndirect2(indirect2, necessaryBlocks, device, logicalFSObject);
@@ -486,21 +502,43 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
     }
 
     /**
-     * Updates a file system object from device. Removes the object and the reallocates it. Keeps object's inode
+     * Updates a file system object from device. Releases object's blocks and then reallocates it. Keeps object's inode
+     * and its links
      *
-     * @param object object to be removed
+     * @param object object to be updated
      * @param device secondary storage device blocks
      * @see #allocateObject(Block[], LogicalFSObject)
-     * @see #removeObject(LogicalFSObject, Block[])
      */
     public void updatesObject(LogicalFSObject object, Block[] device) throws SoSimException {
-        removeObject(object, device); // Remove from device
         Inode inode = (Inode) object.getFSObject();
+        releaseBlocks(inode, device); // Remove from device
         inode.initialize();
-        inodesTable[inode.getId()] = inode;  // keeps inode
         allocateObject(device, object); // Reallocates
     }
 
+    /**
+     * Resizes an allocated file system object. While it fits into direct blocks, direct blocks are added
+     * or released and blocks kept are not moved, otherwise it is reallocated
+     *
+     * @param object  object resized
+     * @param device  secondary storage device blocks
+     * @param oldSize object's size before resizing
+     * @throws SoSimException not enough blocks to allocate new size
+     */
+    public void resizeObject(LogicalFSObject object, Block[] device, int oldSize) throws SoSimException {
+        Inode inode = (Inode) object.getFSObject();
+        int blocks = getBlocks(object.getSize());
+        if (blocks == getBlocks(oldSize)) return;
+        if (blocks > Inode.DIRECT_BLOCKS || inode.getIndirect_1() != null) {
+            updatesObject(object, device);
+            return;
+        }
+
+        Vector<Block> direct = inode.getDirect();
+        while (direct.size() > blocks) releaseBlock(direct.remove(direct.size() - 1), device);
+        if (direct.size() < blocks) allocateDirect(inode, blocks - direct.size(), device, object);
+    }
+
     /**
      * Removes a file system object from device, releasing all blocks that stored object,
      * decrease i-nodes link count and releases i-node if count reaches 0.
@@ -514,37 +552,114 @@ public class FileSystemStrategyUNIX extends FileSystemStrategyAdapter {
         inode.removeLink();
 
         if (inode.getLinks() <= 0) {
-            if (object.isFolder()) {
-                // Remove inode and folder data block
-                Block direct = inode.getDirect().get(0);
-                device[direct.getId()] = null;
-            }
+            // Removes all blocks related with object (or hard link's target), walking i-node's blocks
+            releaseBlocks(inode, device);
+            inodesTable[inode.getId()] = null;
+        }
 
-            if (object.isFile()) { // Removes all blocks related with object
-                for (int i = getFirstDataBlock(); i < device.length; i++) {
-                    if (device[i] != null && device[i].getItem().equals(object)) {
-                        device[i] = null;
-                    }
-                }
-            }
+        return object.getParent();
+    }
 
-            if (object.isLink() && !object.isSoft()) { // Removes all blocks related with object
-                for (int i = getFirstDataBlock(); i < device.length; i++) {
-                    if (device[i] != null && device[i].getItem().getFSObject().equals(inode)) {
-                        device[i] = null;
-                    }
-                }
-            }
+    private void releaseBlocks(Inode inode, Block[] device) {
+        // Releases direct and indirect blocks (data blocks of files, folders and soft links)
+        Iterator<Block> it = inode.getDirect().iterator();
+        while (it.hasNext()) releaseBlock(it.next(), device);
+        releaseBlock(inode.getIndirect_1(), device);
+        releaseBlock(inode.getIndirect_2(), device);
+        releaseBlock(inode.getIndirect_3(), device);
+    }
 
-            if (object.isLink() && object.isSoft()) {
-                // Soft link
-                Block direct = inode.getDirect().get(0);
-                device[direct.getId()] = null;
-            }
+    /**
+     * Returns object's blocks as they are read: direct blocks, then every indirect block followed by blocks it points to.
+     * Hard links have no blocks, their target object has them
+     *
+     * @param device secondary storage device blocks
+     * @param object file system object
+     * @return    object's blocks in sequential read order
+     */
+    public Vector<Integer> getObjectBlocks(Block[] device, LogicalFSObject object) {
+        Vector<Integer> blocks = new Vector<Integer>();
+        if (object.isLink() && !object.isSoft()) return blocks;
+        Inode inode = (Inode) object.getFSObject();
+        Iterator<Block> it = inode.getDirect().iterator();
+        while (it.hasNext()) addObjectBlock(blocks, it.next());
+        addObjectBlock(blocks, inode.getIndirect_1());
+        addObjectBlock(blocks, inode.getIndirect_2());
+        addObjectBlock(blocks, inode.getIndirect_3());
+        return blocks;
+    }
 
-            inodesTable[inode.getId()] = null;
+    private void addObjectBlock(Vector<Integer> blocks, Block block) {
+        // Indirect blocks are read before blocks they point to (Recursive)
+        if (block == null) return;
+        blocks.add(block.getId());
+        if (block.isIndirect()) {
+            Iterator<Block> it = ((IndirectBlock) block).getPointers().iterator();
+            while (it.hasNext()) addObjectBlock(blocks, it.next());
         }
+    }
 
-        return object.getParent();
+    /**
+     * Returns true, i-nodes aren't stored into data blocks so any block can be moved
+     *
+     * @param index block position into sequential read order
+     * @return true
+     */
+    public boolean isRelocatable(int index) {
+        return true;
+    }
+
+    /**
+     * Moves an object's block to a free block, i-node or indirect block pointing to it is updated
+     *
+     * @param device secondary storage device blocks
+     * @param object file system object
+     * @param from   object's block
+     * @param to     free block
+     */
+    public void moveBlock(Block[] device, LogicalFSObject object, int from, int to) {
+        Inode inode = (Inode) object.getFSObject();
+        Block block = device[from];
+        Block moved;
+        if (block.isIndirect()) {
+            moved = new IndirectBlock(to);
+            Iterator<Block> it = ((IndirectBlock) block).getPointers().iterator();
+            while (it.hasNext()) ((IndirectBlock) moved).addBlock(it.next());
+        } else moved = new Block(to);
+        moved.setItem(block.getItem());
+        device[to] = moved;
+        bitmap.allocate(to);
+        device[from] = null;
+        bitmap.release(from);
+
+        int i = inode.getDirect().indexOf(block);
+        if (i >= 0) inode.getDirect().set(i, moved);
+        if (inode.getIndirect_1() == block) inode.setIndirect_1((IndirectBlock) moved);
+        if (inode.getIndirect_2() == block) inode.setIndirect_2((IndirectBlock) moved);
+        if (inode.getIndirect_3() == block) inode.setIndirect_3((IndirectBlock) moved);
+        replacePointer(inode.getIndirect_1(), block, moved);
+        replacePointer(inode.getIndirect_2(), block, moved);
+        replacePointer(inode.getIndirect_3(), block, moved);
+    }
+
+    private void replacePointer(Block indirect, Block block, Block moved) {
+        // Indirect block pointing to block points to moved block (Recursive)
+        if (indirect == null || !indirect.isIndirect()) return;
+        Vector<Block> pointers = ((IndirectBlock) indirect).getPointers();
+        for (int i = 0; i < pointers.size(); i++) {
+            if (pointers.get(i) == block) pointers.set(i, moved);
+            else replacePointer(pointers.get(i), block, moved);
+        }
+    }
+
+    private void releaseBlock(Block block, Block[] device) {
+        // Releases block, indirect blocks release pointed blocks first (Recursive)
+        if (block == null) return;
+        if (block.isIndirect()) {
+            Iterator<Block> it = ((IndirectBlock) block).getPointers().iterator();
+            while (it.hasNext()) releaseBlock(it.next(), device);
+        }
+        device[block.getId()] = null;
+        bitmap.release(block.getId());
     }
 }
@@ -1,21 +1,28 @@
 package edu.upc.fib.ossim.filesystem.model;
 
 import java.awt.*;
+import java.util.Collection;
+import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Vector;
 
 /**
  * Folder definition, besides common file system objects ({@link LogicalFSObject}) folders have
  * a reference to all file system objects that contain, every folder has always at least two
- * objects, links "." and ".."
+ * objects, links "." and "..".<br/>
+ * Objects are also indexed by name (hashed index, as ext3/ext4 HTree directories) and kept in folder order
+ * by a linked hash set, so lookups and removals don't depend on folder size. Folder size charges its entries and, once they exceed a unit, its index units to the device
  *
  * @author Alex Macia
  *
  */
 public class FolderItem extends LogicalFSObject {
-    private final List<LogicalFSObject> childs;
+    public static final int ENTRIES_PER_UNIT = 8;    // Directory entries stored per size unit
+    public static final int INDEX_ENTRIES = 16;    // Units indexed per index unit
+    private final LinkedHashSet<LogicalFSObject> childs;    // Folder order
+    private final Hashtable<String, LogicalFSObject> index;    // Name index
+    private int elements;    // Files and links into folder's subtree
 
     /**
      * Constructs a FolderItem and adds two links "." and "..",
@@ -27,7 +34,8 @@ public class FolderItem extends LogicalFSObject {
      */
     public FolderItem(PhysicalFSObject fsObject, String name, FolderItem parent) {
         super(fsObject, name, parent);
-        childs = new LinkedList<LogicalFSObject>();
+        childs = new LinkedHashSet<LogicalFSObject>();
+        index = new Hashtable<String, LogicalFSObject>();
         LinkItem linkSelf, linkParent;
 
         linkSelf = new LinkItem(fsObject, ".", this, this, false); // hard link
@@ -40,8 +48,8 @@ public class FolderItem extends LogicalFSObject {
             fsObject.addLink();
         }
 
-        childs.add(linkSelf); // Self link
-        childs.add(linkParent); // Parent link
+        initChild(linkSelf); // Self link
+        initChild(linkParent); // Parent link
     }
 
     /**
@@ -53,7 +61,8 @@ public class FolderItem extends LogicalFSObject {
      */
     public FolderItem(int id, PhysicalFSObject fsObject, String name, FolderItem parent) {
         super(id, fsObject, name, parent);
-        childs = new LinkedList<LogicalFSObject>();
+        childs = new LinkedHashSet<LogicalFSObject>();
+        index = new Hashtable<String, LogicalFSObject>();
         LinkItem linkSelf, linkParent;
 
         linkSelf = new LinkItem(id + 1, fsObject, ".", this, this, false); // hard link
@@ -67,8 +76,8 @@ public class FolderItem extends LogicalFSObject {
             fsObject.addLink();
         }
 
-        childs.add(linkSelf); // Self link
-        childs.add(linkParent); // Parent link
+        initChild(linkSelf); // Self link
+        initChild(linkParent); // Parent link
     }
 
     /**
@@ -89,6 +98,13 @@ public class FolderItem extends LogicalFSObject {
         return this;
     }
 
+    private void initChild(LogicalFSObject child) {
+        // Folder is not yet into its parent, ancestors counts are not updated
+        childs.add(child);
+        index.put(child.getName(), child);
+        elements++;
+    }
+
     /**
      * Adds a file system object into folder
      *
@@ -96,6 +112,8 @@ public class FolderItem extends LogicalFSObject {
      */
     public void addChild(LogicalFSObject child) {
         childs.add(child);
+        index.put(child.getName(), child);
+        updateElements(getElements(child));
     }
 
     /**
@@ -105,6 +123,42 @@ public class FolderItem extends LogicalFSObject {
      */
     public void removeChild(LogicalFSObject child) {
         childs.remove(child);
+        if (index.get(child.getName()) == child) index.remove(child.getName());
+        updateElements(-getElements(child));
+    }
+
+    /**
+     * Gets files and links count into folder's subtree, links "." and ".." included
+     *
+     * @return    files and links count into folder's subtree
+     */
+    public int getElements() {
+        return elements;
+    }
+
+    private int getElements(LogicalFSObject child) {
+        if (child.isFolder()) return ((FolderItem) child).getElements();
+        return 1;
+    }
+
+    private void updateElements(int n) {
+        // Subtree counts of this folder and all its ancestors
+        FolderItem folder = this;
+        while (folder != null) {
+            folder.elements += n;
+            folder = folder.getParent();
+        }
+    }
+
+    /**
+     * Updates name index when a contained file system object is renamed
+     *
+     * @param child   file system object
+     * @param oldName object's previous name
+     */
+    public void renameChild(LogicalFSObject child, String oldName) {
+        if (index.get(oldName) == child) index.remove(oldName);
+        index.put(child.getName(), child);
     }
 
     /**
@@ -112,16 +166,17 @@ public class FolderItem extends LogicalFSObject {
      *
      * @param childs set of file system object
      */
-    public void removeChild(List<LogicalFSObject> childs) {
-        childs.removeAll(childs);
+    public void removeChild(Collection<LogicalFSObject> childs) {
+        Iterator<LogicalFSObject> it = new Vector<LogicalFSObject>(childs).iterator();
+        while (it.hasNext()) removeChild(it.next());
     }
 
     /**
-     * Gets all file system object contained into folder
+     * Gets all file system object contained into folder, in folder order
      *
      * @return    all file system object contained into folder
      */
-    public List<LogicalFSObject> getChilds() {
+    public Collection<LogicalFSObject> getChilds() {
         return childs;
     }
 
@@ -132,12 +187,47 @@ public class FolderItem extends LogicalFSObject {
      * @return    file system object contained into folder identified by name
      */
     public LogicalFSObject getChildByName(String name) {
-        Iterator<LogicalFSObject> it = childs.iterator();
-        while (it.hasNext()) {
-            LogicalFSObject child = it.next();
-            if (child.getName().equals(name)) return child;
+        return index.get(name);
+    }
+
+    /**
+     * Returns folder size: units storing its entries plus, if entries exceed a unit, index units
+     *
+     * @return    folder size
+     */
+    public int getSize() {
+        return getEntriesSize(childs.size());
+    }
+
+    /**
+     * Returns folder size for a number of entries, entries units plus index units (all index levels)
+     *
+     * @param entries folder entries
+     * @return    folder size
+     */
+    public static int getEntriesSize(int entries) {
+        int units = Math.max(0, entries - 1) / ENTRIES_PER_UNIT + 1;
+        int size = units;
+        while (units > 1) {
+            units = (units - 1) / INDEX_ENTRIES + 1;
+            size += units;
+        }
+        return size;
+    }
+
+    /**
+     * Returns units read to look up an entry by name: one per index level plus the entries unit
+     *
+     * @return    units read looking up an entry
+     */
+    public int getLookupReads() {
+        int reads = 1;
+        int units = Math.max(0, childs.size() - 1) / ENTRIES_PER_UNIT + 1;
+        while (units > 1) {
+            units = (units - 1) / INDEX_ENTRIES + 1;
+            reads++;
         }
-        return null;
+        return reads;
     }
 
     /**
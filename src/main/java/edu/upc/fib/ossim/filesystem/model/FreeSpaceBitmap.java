@@ -0,0 +1,172 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import java.util.Iterator;
+import java.util.Vector;
+
+/**
+ * Device free space bitmap, one bit per block (set if used) packed into 64 bits words, and free blocks count.
+ * Free blocks are searched a word at a time, skipping full words, starting at the first word that may contain a
+ * free block, so allocation and availability checks don't depend on device size. Blocks allocated or released are
+ * kept until they are taken, so a device image only writes them
+ *
+ * @author Alex Macia
+ */
+public class FreeSpaceBitmap {
+    private static final int WORD_BITS = 64;
+    private final long[] words;    // Bit set, block used
+    private final int size;    // Device blocks
+    private int free;    // Free blocks count
+    private int hint;    // No free block before this word
+    private final long[] marks;    // Bit set, block is into changed blocks
+    private Vector<Integer> changed;    // Blocks allocated or released since they were last taken
+
+    /**
+     * Constructs a bitmap with all blocks free, except administrative blocks (less than first)
+     *
+     * @param size  device blocks
+     * @param first first data block
+     */
+    public FreeSpaceBitmap(int size, int first) {
+        this.size = size;
+        words = new long[(size + WORD_BITS - 1) / WORD_BITS];
+        free = size;
+        hint = 0;
+        marks = new long[words.length];
+        changed = new Vector<Integer>();
+
+        // Bits after last block are never free
+        if (size % WORD_BITS != 0) words[words.length - 1] = -1L << (size % WORD_BITS);
+        for (int i = 0; i < first && i < size; i++) allocate(i);
+        takeChanged();
+    }
+
+    /**
+     * Gets device blocks
+     *
+     * @return    device blocks
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Gets free blocks count
+     *
+     * @return    free blocks count
+     */
+    public int getFree() {
+        return free;
+    }
+
+    /**
+     * Returns true if block is free
+     *
+     * @param block block number
+     * @return    block is free
+     */
+    public boolean isFree(int block) {
+        return (words[block / WORD_BITS] & (1L << (block % WORD_BITS))) == 0;
+    }
+
+    /**
+     * Marks block as used, nothing if already used
+     *
+     * @param block block number
+     */
+    public void allocate(int block) {
+        if (!isFree(block)) return;
+        words[block / WORD_BITS] |= 1L << (block % WORD_BITS);
+        free--;
+        mark(block);
+    }
+
+    /**
+     * Marks block as free, nothing if already free
+     *
+     * @param block block number
+     */
+    public void release(int block) {
+        if (isFree(block)) return;
+        words[block / WORD_BITS] &= ~(1L << (block % WORD_BITS));
+        free++;
+        hint = Math.min(hint, block / WORD_BITS);
+        mark(block);
+    }
+
+    /**
+     * Returns first free block, -1 if device is full
+     *
+     * @return    first free block or -1
+     */
+    public int firstFree() {
+        // Full words are skipped next time
+        while (hint < words.length && words[hint] == -1L) hint++;
+        if (hint == words.length) return -1;
+        return hint * WORD_BITS + Long.numberOfTrailingZeros(~words[hint]);
+    }
+
+    /**
+     * Returns first free block from block <code>from</code> (included), -1 if there is no free block after it
+     *
+     * @param from first block searched
+     * @return    first free block from block <code>from</code> or -1
+     */
+    public int nextFree(int from) {
+        if (from < 0) from = 0;
+        if (from >= size) return -1;
+        int w = Math.max(from / WORD_BITS, hint);
+        if (w == words.length) return -1; // All words are full
+        long word = ~words[w];
+        if (w == from / WORD_BITS) word &= -1L << (from % WORD_BITS); // Blocks before from are ignored
+        while (word == 0) {
+            w++;
+            if (w == words.length) return -1;
+            word = ~words[w];
+        }
+        return w * WORD_BITS + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Returns first used block from block <code>from</code> (included), device size if there is no used block after it.
+     * Free blocks from <code>from</code> until returned block are a contiguous free run
+     *
+     * @param from first block searched
+     * @return    first used block from block <code>from</code> or device size
+     */
+    public int nextUsed(int from) {
+        if (from < 0) from = 0;
+        if (from >= size) return size;
+        int w = from / WORD_BITS;
+        long word = words[w] & (-1L << (from % WORD_BITS)); // Blocks before from are ignored
+        while (word == 0) {
+            w++;
+            if (w == words.length) return size;
+            word = words[w];
+        }
+        // Bits after last block are set, never beyond device size
+        return Math.min(size, w * WORD_BITS + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * Returns blocks allocated or released since they were last taken, each block once. Changes start again
+     *
+     * @return    changed blocks
+     */
+    public Vector<Integer> takeChanged() {
+        Vector<Integer> taken = changed;
+        changed = new Vector<Integer>();
+        Iterator<Integer> it = taken.iterator();
+        while (it.hasNext()) {
+            int block = it.next();
+            marks[block / WORD_BITS] &= ~(1L << (block % WORD_BITS));
+        }
+        return taken;
+    }
+
+    private void mark(int block) {
+        long bit = 1L << (block % WORD_BITS);
+        if ((marks[block / WORD_BITS] & bit) != 0) return;
+        marks[block / WORD_BITS] |= bit;
+        changed.add(block);
+    }
+}
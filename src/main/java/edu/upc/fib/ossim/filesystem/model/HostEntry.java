@@ -0,0 +1,163 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import java.nio.file.Path;
+import java.util.Vector;
+
+/**
+ * Host file system entry, a file, folder or symbolic link found scanning a host folder.
+ * Files sharing a file key (device and i-node on UNIX hosts) are hard links to the same file,
+ * symbolic links keep their target path, absolute and normalized
+ *
+ * @author Alex Macia
+ * @see HostScanner
+ */
+public class HostEntry {
+    public static final int FILE = 0;
+    public static final int FOLDER = 1;
+    public static final int SYMLINK = 2;
+    private final Path path;
+    private final int type;
+    private final long size;    // Bytes
+    private final Object key;    // Host file key, null if host doesn't provide it
+    private final Path target;    // Symbolic link target, null if it isn't a symbolic link
+    private final Vector<HostEntry> children;    // Folder entries sorted by name
+    private int count = 1;    // Entries into subtree, itself included
+    private boolean truncated;    // Scan stopped before whole subtree was listed
+
+    /**
+     * Constructs a host entry
+     *
+     * @param path   absolute and normalized host path
+     * @param type   HostEntry.FILE, HostEntry.FOLDER or HostEntry.SYMLINK
+     * @param size   file size in bytes
+     * @param key    host file key, may be null
+     * @param target symbolic link target, may be null
+     */
+    public HostEntry(Path path, int type, long size, Object key, Path target) {
+        this.path = path;
+        this.type = type;
+        this.size = size;
+        this.key = key;
+        this.target = target;
+        this.children = new Vector<HostEntry>();
+    }
+
+    /**
+     * Gets host path
+     *
+     * @return    absolute and normalized host path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets entry name, last path component
+     *
+     * @return    entry name
+     */
+    public String getName() {
+        if (path.getFileName() == null) return path.toString(); // Host root
+        return path.getFileName().toString();
+    }
+
+    /**
+     * Returns true if entry is a regular file
+     *
+     * @return    entry is a file
+     */
+    public boolean isFile() {
+        return type == FILE;
+    }
+
+    /**
+     * Returns true if entry is a folder
+     *
+     * @return    entry is a folder
+     */
+    public boolean isFolder() {
+        return type == FOLDER;
+    }
+
+    /**
+     * Returns true if entry is a symbolic link
+     *
+     * @return    entry is a symbolic link
+     */
+    public boolean isSymlink() {
+        return type == SYMLINK;
+    }
+
+    /**
+     * Gets file size
+     *
+     * @return    file size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets host file key, files with the same key are hard links to the same file
+     *
+     * @return    host file key, null if host doesn't provide it
+     */
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * Gets symbolic link target
+     *
+     * @return    absolute and normalized target path, null if entry isn't a symbolic link
+     */
+    public Path getTarget() {
+        return target;
+    }
+
+    /**
+     * Gets folder entries
+     *
+     * @return    folder entries sorted by name
+     */
+    public Vector<HostEntry> getChildren() {
+        return children;
+    }
+
+    /**
+     * Adds an entry to this folder, subtree count is updated
+     *
+     * @param child folder entry
+     */
+    public void addChild(HostEntry child) {
+        children.add(child);
+        count += child.getCount();
+    }
+
+    /**
+     * Gets entries into subtree, itself included
+     *
+     * @return    subtree entries
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns true if scan stopped before whole subtree was listed
+     *
+     * @return    subtree is truncated
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Sets subtree truncated, scan stopped before it was listed
+     *
+     * @param truncated subtree is truncated
+     */
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+}
@@ -0,0 +1,219 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import edu.upc.fib.ossim.utils.Translation;
+
+import java.awt.*;
+import java.nio.file.Path;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * Host folder import state. Keeps objects already imported by host path and by host file key,
+ * so later entries become hard links to files already imported, symbolic links waiting for their targets
+ * and import counts. Host sizes are mapped onto units, <code>unit</code> bytes per unit rounding up
+ *
+ * @author Alex Macia
+ * @see ContextFileSystem#importHostFolder(HostEntry, int, boolean)
+ */
+public class HostImport {
+    public static final int UNIT = 1024;    // Default bytes per unit
+    private final int unit;
+    private final boolean hardLinks;    // Algorithm supports hard links
+    private final Hashtable<Path, LogicalFSObject> imported;    // Objects by host path
+    private final Hashtable<Object, LogicalFSObject> files;    // Files by host file key
+    private final Vector<HostEntry> symlinks;    // Symbolic links not yet imported
+    private final Vector<FolderItem> symlinkFolders;    // Their folders
+    private final Vector<Integer> ids;    // Imported objects and folders that changed
+    private int folderId = -1;    // Imported host folder, -1 if it has not been imported
+    private int importedFiles;
+    private int importedFolders;
+    private int importedLinks;
+    private int skipped;
+
+    /**
+     * Constructs an empty import
+     *
+     * @param unit      bytes per unit
+     * @param hardLinks algorithm supports hard links, otherwise every hard link is imported as a copy
+     */
+    public HostImport(int unit, boolean hardLinks) {
+        this.unit = unit;
+        this.hardLinks = hardLinks;
+        imported = new Hashtable<Path, LogicalFSObject>();
+        files = new Hashtable<Object, LogicalFSObject>();
+        symlinks = new Vector<HostEntry>();
+        symlinkFolders = new Vector<FolderItem>();
+        ids = new Vector<Integer>();
+    }
+
+    /**
+     * Returns host file size into units, at least one unit
+     *
+     * @param size host file size in bytes
+     * @return    file size in units
+     */
+    public int getUnits(long size) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, (size + unit - 1) / unit));
+    }
+
+    /**
+     * Returns file color, files with the same extension have the same color
+     *
+     * @param name file name
+     * @return    file color
+     */
+    public Color getColor(String name) {
+        int dot = name.lastIndexOf('.');
+        String extension = dot > 0 ? name.substring(dot + 1).toLowerCase() : "";
+        return Color.getHSBColor((extension.hashCode() & 0xFF) / 256f, 0.5f, 0.9f);
+    }
+
+    /**
+     * Returns file already imported sharing a host file key, new entry is a hard link to it
+     *
+     * @param entry host file
+     * @return    imported file, null if there is none or algorithm doesn't support hard links
+     */
+    public LogicalFSObject getHardLinkTarget(HostEntry entry) {
+        if (!hardLinks || entry.getKey() == null) return null;
+        return files.get(entry.getKey());
+    }
+
+    /**
+     * Returns object imported from a host path
+     *
+     * @param path host path
+     * @return    imported object, null if path hasn't been imported
+     */
+    public LogicalFSObject getImported(Path path) {
+        return imported.get(path);
+    }
+
+    /**
+     * Records an imported object
+     *
+     * @param entry  host entry
+     * @param object imported object
+     * @param folder folder where object has been added
+     */
+    public void add(HostEntry entry, LogicalFSObject object, FolderItem folder) {
+        if (imported.isEmpty()) folderId = object.getId();
+        imported.put(entry.getPath(), object);
+        ids.add(object.getId());
+        ids.add(folder.getId());
+        if (object.isFolder()) importedFolders++;
+        else if (object.isLink()) importedLinks++;
+        else {
+            importedFiles++;
+            if (entry.getKey() != null) files.put(entry.getKey(), object);
+        }
+    }
+
+    /**
+     * Defers a symbolic link until all objects are imported, its target may come later
+     *
+     * @param folder folder where link will be added
+     * @param entry  host symbolic link
+     */
+    public void addSymlink(FolderItem folder, HostEntry entry) {
+        symlinks.add(entry);
+        symlinkFolders.add(folder);
+    }
+
+    /**
+     * Gets symbolic links not yet imported
+     *
+     * @return    host symbolic links
+     */
+    public Vector<HostEntry> getSymlinks() {
+        return symlinks;
+    }
+
+    /**
+     * Gets folders of symbolic links not yet imported, in the same order
+     *
+     * @return    symbolic links' folders
+     */
+    public Vector<FolderItem> getSymlinkFolders() {
+        return symlinkFolders;
+    }
+
+    /**
+     * Records an entry that has not been imported, with its whole subtree
+     *
+     * @param entry host entry
+     */
+    public void skip(HostEntry entry) {
+        skipped += entry.getCount();
+    }
+
+    /**
+     * Gets imported objects and folders that changed
+     *
+     * @return    objects identifiers
+     */
+    public Vector<Integer> getIds() {
+        return ids;
+    }
+
+    /**
+     * Gets imported host folder identifier
+     *
+     * @return    imported folder identifier
+     */
+    public int getFolderId() {
+        return folderId;
+    }
+
+    /**
+     * Returns import information: entries scanned, files, folders and links imported and entries skipped
+     *
+     * @param folder scanned host folder
+     * @return    import information
+     */
+    public String getInfo(HostEntry folder) {
+        String info = Translation.getInstance().getLabel("fs_119", folder.getCount()) + "\n";
+        info += Translation.getInstance().getLabel("fs_120", importedFiles) + "\n";
+        info += Translation.getInstance().getLabel("fs_121", importedFolders) + "\n";
+        info += Translation.getInstance().getLabel("fs_122", importedLinks) + "\n";
+        info += Translation.getInstance().getLabel("fs_123", skipped);
+        if (folder.isTruncated()) info += "\n" + Translation.getInstance().getLabel("fs_124");
+        return info;
+    }
+
+    /**
+     * Gets imported files
+     *
+     * @return    imported files
+     */
+    public int getImportedFiles() {
+        return importedFiles;
+    }
+
+    /**
+     * Gets imported folders
+     *
+     * @return    imported folders
+     */
+    public int getImportedFolders() {
+        return importedFolders;
+    }
+
+    /**
+     * Gets imported links, hard and soft
+     *
+     * @return    imported links
+     */
+    public int getImportedLinks() {
+        return importedLinks;
+    }
+
+    /**
+     * Gets host entries not imported: not enough blocks or i-nodes, or symbolic link target not imported
+     *
+     * @return    skipped entries
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+}
@@ -0,0 +1,121 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import edu.upc.fib.ossim.utils.SoSimException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parallel host folder scanner. Every subfolder is scanned by its own fork/join task, so large trees
+ * are listed by all processors, and results are joined in name order: same tree, same entries order.
+ * Symbolic links are not followed. Entries that can not be read (permissions, removed while scanning)
+ * and special files (devices, pipes, sockets) are ignored. <br/>
+ * Scan is bounded: every object but hard links takes at least a block, so entries beyond device's free blocks
+ * could never be imported. Once that many entries have been found tasks stop listing and forking and the
+ * scanned tree is marked truncated, entries kept past the bound may vary between scans
+ *
+ * @author Alex Macia
+ * @see HostEntry
+ */
+public class HostScanner extends RecursiveTask<HostEntry> {
+    private static final long serialVersionUID = 1L;
+    private final Path path;
+    private final AtomicInteger budget;    // Entries still to be found, shared by all tasks
+
+    /**
+     * Constructs a scanner task for a host folder
+     *
+     * @param path   absolute and normalized host folder
+     * @param budget entries still to be found, shared by all tasks of a scan
+     */
+    public HostScanner(Path path, AtomicInteger budget) {
+        this.path = path;
+        this.budget = budget;
+    }
+
+    /**
+     * Scans a host folder and its subtree, up to a number of entries
+     *
+     * @param folder host folder
+     * @param limit  entries found at most, host folder excluded
+     * @throws SoSimException folder doesn't exist or it can not be read
+     * @return    host folder entry, truncated if subtree has more entries than limit
+     */
+    public static HostEntry scan(File folder, int limit) throws SoSimException {
+        Path path = folder.toPath().toAbsolutePath().normalize();
+        if (!Files.isDirectory(path) || !Files.isReadable(path)) throw new SoSimException("fs_19");
+        AtomicInteger budget = new AtomicInteger(limit);
+        HostEntry root = ForkJoinPool.commonPool().invoke(new HostScanner(path, budget));
+        if (root == null) throw new SoSimException("fs_19");
+        root.setTruncated(budget.get() < 0);
+        return root;
+    }
+
+    /**
+     * Scans this task's folder, subfolders are forked
+     *
+     * @return    folder entry, null if it can not be read
+     */
+    protected HostEntry compute() {
+        HostEntry folder = getEntry(path);
+        if (folder == null || !folder.isFolder()) return folder;
+
+        Vector<Path> paths = new Vector<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            for (Path child : stream) paths.add(child);
+        } catch (IOException | SecurityException e) {
+            return folder; // Unreadable folder is imported empty
+        }
+        Collections.sort(paths);
+
+        // Files are read now, subfolders forked and joined in order. Scan stops once budget is spent
+        Vector<Object> children = new Vector<Object>();
+        Iterator<Path> it = paths.iterator();
+        while (it.hasNext()) {
+            Path child = it.next();
+            if (budget.getAndDecrement() <= 0) break;
+            if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                HostScanner task = new HostScanner(child, budget);
+                task.fork();
+                children.add(task);
+            } else children.add(getEntry(child));
+        }
+        Iterator<Object> ic = children.iterator();
+        while (ic.hasNext()) {
+            Object child = ic.next();
+            HostEntry entry;
+            if (child instanceof HostScanner) entry = ((HostScanner) child).join();
+            else entry = (HostEntry) child;
+            if (entry != null) folder.addChild(entry);
+        }
+        return folder;
+    }
+
+    private static HostEntry getEntry(Path path) {
+        // Reads an entry attributes without following symbolic links, null if it can't be read or it is special
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (attributes.isDirectory()) return new HostEntry(path, HostEntry.FOLDER, 0, null, null);
+            if (attributes.isRegularFile())
+                return new HostEntry(path, HostEntry.FILE, attributes.size(), attributes.fileKey(), null);
+            if (attributes.isSymbolicLink()) {
+                Path target = path.getParent().resolve(Files.readSymbolicLink(path)).toAbsolutePath().normalize();
+                return new HostEntry(path, HostEntry.SYMLINK, 0, null, target);
+            }
+        } catch (IOException | SecurityException e) {
+            // Ignored
+        }
+        return null;
+    }
+}
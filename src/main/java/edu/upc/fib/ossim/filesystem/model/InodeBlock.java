@@ -0,0 +1,50 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+/**
+ * File System i-node block definition (log-structured file system), i-nodes are not stored into a fixed i-node
+ * table but written into the log as any other block, inode map keeps where every i-node was last written
+ *
+ * @author Alex Macia
+ * @see FileSystemStrategyLFS
+ */
+public class InodeBlock extends Block {
+    private final Inode inode;
+
+    /**
+     * Constructs an i-node block
+     *
+     * @param num   block number (identifier)
+     * @param inode stored i-node
+     */
+    public InodeBlock(int num, Inode inode) {
+        super(num);
+        this.inode = inode;
+    }
+
+    /**
+     * Gets stored i-node
+     *
+     * @return    stored i-node
+     */
+    public Inode getInode() {
+        return inode;
+    }
+
+    /**
+     * Returns "i" as it is shown in device painter to identify i-node blocks
+     *
+     * @return "i"
+     */
+    public String getString() {
+        return "i";
+    }
+
+    /**
+     * Return true
+     *
+     * @return true
+     */
+    public boolean isInode() {
+        return true;
+    }
+}
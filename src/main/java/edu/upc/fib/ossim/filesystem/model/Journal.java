@@ -0,0 +1,445 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Vector;
+
+/**
+ * Write-ahead journal (jbd2 like) for file system operations. Journal region takes the upper half of device's
+ * administration blocks, lower half keeps allocation and i-node tables. Every operation (tick) dirties metadata
+ * blocks (tables, folders, indirect blocks), data blocks and frees other blocks, all of them are grouped into the
+ * running transaction, which is committed to the journal every commit interval operations (group commit), and
+ * committed transactions are written into their home locations (checkpoint) when journal gets full.
+ * Two modes are supported:
+ * <ul>
+ * <li>Ordered (metadata only): data blocks are written in place before its metadata commits, only metadata is logged</li>
+ * <li>Full data: metadata and data blocks are logged</li>
+ * </ul>
+ * Block images are identified by their version, the tick that last wrote them. Operations are recorded so a crash
+ * after any tick can be replayed and its recovery verified against the state as of last commit.
+ * A unbatched journal, committing every operation, runs alongside to measure group commit throughput gain
+ *
+ * @author Alex Macia
+ * @see JournalTransaction
+ */
+public class Journal {
+    public static final int NONE = 0;
+    public static final int ORDERED = 1;
+    public static final int FULL = 2;
+    public static final int FLUSH_TIME = 10;    // Write barrier time, in block writes
+    private static final int FREE = 0;
+    private static final int METADATA = 1;
+    private static final int DATA = 2;
+    private final int mode;
+    private final int interval;    // Operations per commit
+    private final int first;    // First journal block
+    private final int size;    // Journal blocks
+    private final Journal unbatched;    // Commits every operation, null if interval is 1
+    private final Vector<int[][]> history;    // Operations: metadata, data and freed blocks
+    private int tick;
+
+    // Running transaction
+    private Hashtable<Integer, Integer> running;    // Logged blocks and versions
+    private Vector<Integer> revoking;    // Blocks written in place still logged into journal
+    private Hashtable<Integer, int[]> touched;    // All blocks written or freed: version and kind
+    private int runningTicks;
+
+    // Device
+    private final LinkedList<JournalTransaction> log;    // Committed transactions not checkpointed
+    private int used;    // Journal blocks used
+    private final int[] home;    // Versions into home locations
+    private final int[] committed;    // Versions as of last commit
+    private final int[] kinds;    // Kinds as of last commit
+    private int lastCommit;
+
+    // Statistics
+    private int writes;    // Blocks dirtied by operations, writes without journal
+    private int journalWrites;
+    private int homeWrites;
+    private int commits;
+    private int checkpoints;
+
+    // Recovery
+    private int replayed;
+    private int transactions;
+    private int inconsistent;
+
+    /**
+     * Constructs an empty journal
+     *
+     * @param mode     journal mode, ordered or full data
+     * @param interval operations per commit
+     * @param admin    device administration blocks
+     * @param blocks   device blocks
+     */
+    public Journal(int mode, int interval, int admin, int blocks) {
+        this(mode, interval, admin, blocks, interval > 1 ? new Journal(mode, 1, admin, blocks, null) : null);
+    }
+
+    private Journal(int mode, int interval, int admin, int blocks, Journal unbatched) {
+        this.mode = mode;
+        this.interval = interval;
+        this.size = admin / 2;
+        this.first = admin - size;
+        this.unbatched = unbatched;
+        history = new Vector<int[][]>();
+        log = new LinkedList<JournalTransaction>();
+        home = new int[blocks];
+        committed = new int[blocks];
+        kinds = new int[blocks];
+        inconsistent = -1;
+        newTransaction();
+    }
+
+    /**
+     * Gets journal mode
+     *
+     * @return    journal mode
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * Gets operations per commit
+     *
+     * @return    commit interval
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Gets operations journaled
+     *
+     * @return    current tick
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * Returns true if block identified by num belongs to journal region
+     *
+     * @param num block number
+     * @return    block is a journal block
+     */
+    public boolean isJournalBlock(int num) {
+        return num >= first && num < first + size;
+    }
+
+    /**
+     * Journals an operation comparing device blocks before and after it. Blocks whose content changed and blocks
+     * of folder whose entries changed are written, allocation table entries of changed blocks and table entries
+     * (FAT entries or i-nodes) of objects identified by ids are written too
+     *
+     * @param before device blocks before operation
+     * @param after  device blocks after operation
+     * @param folder folder whose entries changed, may be null
+     * @param ids    objects whose table entries changed
+     */
+    public void write(Block[] before, Block[] after, FolderItem folder, Vector<Integer> ids) {
+        Vector<Integer> metadata = new Vector<Integer>();
+        Vector<Integer> data = new Vector<Integer>();
+        Vector<Integer> freed = new Vector<Integer>();
+        Vector<Integer> tables = new Vector<Integer>();
+
+        for (int i = 0; i < after.length; i++) {
+            Block block = after[i];
+            if (before[i] != block) {
+                if (block == null) freed.add(i);
+                addTableBlock(tables, i * first / after.length);
+            }
+            if (block != null && (before[i] != block || (folder != null && block.getItem() == folder))) {
+                if (isMetadata(block)) metadata.add(i);
+                else data.add(i);
+            }
+        }
+        Iterator<Integer> it = ids.iterator();
+        while (it.hasNext()) addTableBlock(tables, it.next() % first);
+        metadata.addAll(tables);
+
+        int[][] operation = new int[3][];
+        operation[0] = toArray(metadata);
+        operation[1] = toArray(data);
+        operation[2] = toArray(freed);
+        operation(operation);
+        if (unbatched != null) unbatched.operation(operation);
+    }
+
+    /**
+     * Replays journal operations up to a crash after tick, then recovers device from journal and
+     * verifies that recovered device matches file system state as of last commit
+     *
+     * @param tick last operation before crash
+     * @return    crashed journal, after recovery
+     * @see #isConsistent()
+     */
+    public Journal crash(int tick) {
+        Journal crashed = new Journal(mode, interval, first + size, home.length, null);
+        for (int i = 0; i < tick; i++) crashed.operation(history.get(i));
+        crashed.recover();
+        return crashed;
+    }
+
+    /**
+     * Gets last committed tick, operations after it are lost on a crash
+     *
+     * @return    last commit tick
+     */
+    public int getLastCommit() {
+        return lastCommit;
+    }
+
+    /**
+     * Gets committed transactions found into journal by recovery
+     *
+     * @return    transactions replayed
+     */
+    public int getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * Gets blocks written into home locations by recovery
+     *
+     * @return    blocks replayed
+     */
+    public int getReplayed() {
+        return replayed;
+    }
+
+    /**
+     * Returns true if recovered device matches file system state as of last commit
+     *
+     * @return    recovery is consistent
+     */
+    public boolean isConsistent() {
+        return inconsistent < 0;
+    }
+
+    /**
+     * Gets first block whose recovered version doesn't match its committed version
+     *
+     * @return    first inconsistent block, -1 if recovery is consistent
+     */
+    public int getInconsistent() {
+        return inconsistent;
+    }
+
+    /**
+     * Gets commits, write barriers included synchronous ones
+     *
+     * @return    commits
+     */
+    public int getCommits() {
+        return commits;
+    }
+
+    /**
+     * Gets commits journal would have done committing every operation
+     *
+     * @return    unbatched commits
+     */
+    public int getUnbatchedCommits() {
+        if (unbatched == null) return commits;
+        return unbatched.getCommits();
+    }
+
+    /**
+     * Gets write amplification: blocks written into journal and home locations, pending checkpoint included,
+     * per block dirtied by operations
+     *
+     * @return    write amplification
+     */
+    public double getAmplification() {
+        if (writes == 0) return 0;
+        return (double) (journalWrites + homeWrites + getLatest(revoking).size()) / writes;
+    }
+
+    /**
+     * Gets modeled device time: blocks written plus a write barrier time on every commit and checkpoint
+     *
+     * @return    modeled device time
+     */
+    public int getTime() {
+        return journalWrites + homeWrites + (commits + checkpoints) * FLUSH_TIME;
+    }
+
+    /**
+     * Gets group commit throughput gain, time committing every operation per time batching commits
+     *
+     * @return    throughput gain
+     */
+    public double getThroughputGain() {
+        if (unbatched == null || getTime() == 0) return 1;
+        return (double) unbatched.getTime() / getTime();
+    }
+
+    private void operation(int[][] operation) {
+        tick++;
+        history.add(operation);
+        writes += operation[0].length + operation[1].length;
+
+        Hashtable<Integer, Integer> record = new Hashtable<Integer, Integer>();    // Logged blocks and kinds
+        Vector<Integer> inPlace = new Vector<Integer>();
+        for (int i = 0; i < operation[0].length; i++) record.put(operation[0][i], METADATA);
+        for (int i = 0; i < operation[1].length; i++) {
+            int block = operation[1][i];
+            if (mode == FULL || !isInPlace(block)) record.put(block, DATA);
+            else inPlace.add(block);
+        }
+
+        // Commits running transaction if operation doesn't fit into journal
+        int blocks = running.size();
+        Enumeration<Integer> e = record.keys();
+        while (e.hasMoreElements()) if (!running.containsKey(e.nextElement())) blocks++;
+        if (JournalTransaction.getSize(blocks, revoking.size() + inPlace.size()) > size) commit();
+
+        // Ordered data, written before its metadata commits
+        Iterator<Integer> it = inPlace.iterator();
+        while (it.hasNext()) {
+            int block = it.next();
+            home[block] = tick;
+            homeWrites++;
+            if (isLogged(block)) revoking.add(block);
+            touched.put(block, new int[]{tick, DATA});
+        }
+        e = record.keys();
+        while (e.hasMoreElements()) {
+            int block = e.nextElement();
+            running.put(block, tick);
+            touched.put(block, new int[]{tick, record.get(block)});
+        }
+        for (int i = 0; i < operation[2].length; i++) touched.put(operation[2][i], new int[]{tick, FREE});
+
+        runningTicks++;
+        if (runningTicks >= interval) commit();
+    }
+
+    private void commit() {
+        if (runningTicks == 0) return;
+        if (!running.isEmpty() || !revoking.isEmpty()) {
+            JournalTransaction transaction = new JournalTransaction(tick, running, revoking);
+            if (transaction.getSize() > size) {
+                // Doesn't fit into journal, written synchronously into home locations
+                log.add(transaction);
+                checkpoint();
+            } else {
+                if (used + transaction.getSize() > size) checkpoint();
+                log.add(transaction);
+                used += transaction.getSize();
+                journalWrites += transaction.getSize();
+            }
+        }
+        commits++;
+
+        Enumeration<Integer> e = touched.keys();
+        while (e.hasMoreElements()) {
+            int block = e.nextElement();
+            committed[block] = touched.get(block)[0];
+            kinds[block] = touched.get(block)[1];
+        }
+        lastCommit = tick;
+        newTransaction();
+    }
+
+    private void checkpoint() {
+        // Blocks revoked by running transaction have been written in place, they are not checkpointed
+        Hashtable<Integer, Integer> latest = getLatest(revoking);
+        Enumeration<Integer> e = latest.keys();
+        while (e.hasMoreElements()) {
+            int block = e.nextElement();
+            home[block] = latest.get(block);
+        }
+        homeWrites += latest.size();
+        checkpoints++;
+        log.clear();
+        used = 0;
+    }
+
+    private void recover() {
+        int[] image = home.clone();
+        Hashtable<Integer, Integer> latest = getLatest(new Vector<Integer>()); // Running transaction is lost
+        Enumeration<Integer> e = latest.keys();
+        while (e.hasMoreElements()) {
+            int block = e.nextElement();
+            image[block] = latest.get(block);
+        }
+        transactions = log.size();
+        replayed = latest.size();
+
+        // Metadata and journaled data must match last commit, ordered data may be newer never older
+        for (int i = 0; i < image.length && inconsistent < 0; i++) {
+            if (kinds[i] == METADATA || (kinds[i] == DATA && mode == FULL)) {
+                if (image[i] != committed[i]) inconsistent = i;
+            } else if (kinds[i] == DATA && image[i] < committed[i]) inconsistent = i;
+        }
+    }
+
+    private Hashtable<Integer, Integer> getLatest(Vector<Integer> pending) {
+        // Latest logged version of every block, blocks revoked by a newer transaction are skipped
+        Hashtable<Integer, Integer> revokedAt = new Hashtable<Integer, Integer>();
+        int i = 0;
+        Iterator<JournalTransaction> it = log.iterator();
+        while (it.hasNext()) {
+            Iterator<Integer> r = it.next().getRevoked().iterator();
+            while (r.hasNext()) revokedAt.put(r.next(), i);
+            i++;
+        }
+        Iterator<Integer> r = pending.iterator();
+        while (r.hasNext()) revokedAt.put(r.next(), i);
+
+        Hashtable<Integer, Integer> latest = new Hashtable<Integer, Integer>();
+        i = 0;
+        it = log.iterator();
+        while (it.hasNext()) {
+            Hashtable<Integer, Integer> blocks = it.next().getBlocks();
+            Enumeration<Integer> e = blocks.keys();
+            while (e.hasMoreElements()) {
+                int block = e.nextElement();
+                Integer revoked = revokedAt.get(block);
+                if (revoked == null || revoked <= i) latest.put(block, blocks.get(block));
+                else latest.remove(block);
+            }
+            i++;
+        }
+        return latest;
+    }
+
+    private boolean isInPlace(int block) {
+        // Data may be written in place only over committed data or free blocks, not freed nor logged by running transaction
+        if (kinds[block] == METADATA) return false;
+        int[] state = touched.get(block);
+        return state == null || (state[1] == DATA && !running.containsKey(block));
+    }
+
+    private boolean isLogged(int block) {
+        Iterator<JournalTransaction> it = log.iterator();
+        while (it.hasNext()) if (it.next().getBlocks().containsKey(block)) return true;
+        return false;
+    }
+
+    private boolean isMetadata(Block block) {
+        return block.isIndirect() || block.isInode() || block.getItem() == null || !block.getItem().isFile();
+    }
+
+    private void addTableBlock(Vector<Integer> tables, int block) {
+        if (!tables.contains(block)) tables.add(block);
+    }
+
+    private int[] toArray(Vector<Integer> blocks) {
+        int[] array = new int[blocks.size()];
+        for (int i = 0; i < array.length; i++) array[i] = blocks.get(i);
+        return array;
+    }
+
+    private void newTransaction() {
+        running = new Hashtable<Integer, Integer>();
+        revoking = new Vector<Integer>();
+        touched = new Hashtable<Integer, int[]>();
+        runningTicks = 0;
+    }
+}
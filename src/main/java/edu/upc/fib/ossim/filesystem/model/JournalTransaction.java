@@ -0,0 +1,78 @@
+package edu.upc.fib.ossim.filesystem.model;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * Journal transaction definition. A committed transaction is written into journal as a descriptor block,
+ * its logged blocks images, a revoke block if it revokes any block and a commit block.
+ * Block images are identified by their version, the operation (tick) that last wrote them
+ *
+ * @author Alex Macia
+ * @see Journal
+ */
+public class JournalTransaction {
+    private final int tick;    // Last operation grouped into transaction
+    private final Hashtable<Integer, Integer> blocks;    // Logged blocks and their versions
+    private final Vector<Integer> revoked;    // Blocks that must not be replayed from older transactions
+
+    /**
+     * Constructs a committed transaction
+     *
+     * @param tick    last operation grouped into transaction
+     * @param blocks  logged blocks and their versions
+     * @param revoked revoked blocks
+     */
+    public JournalTransaction(int tick, Hashtable<Integer, Integer> blocks, Vector<Integer> revoked) {
+        this.tick = tick;
+        this.blocks = blocks;
+        this.revoked = revoked;
+    }
+
+    /**
+     * Gets last operation grouped into transaction
+     *
+     * @return    commit tick
+     */
+    public int getTick() {
+        return tick;
+    }
+
+    /**
+     * Gets logged blocks and their versions
+     *
+     * @return    logged blocks
+     */
+    public Hashtable<Integer, Integer> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Gets revoked blocks
+     *
+     * @return    revoked blocks
+     */
+    public Vector<Integer> getRevoked() {
+        return revoked;
+    }
+
+    /**
+     * Gets journal blocks used by this transaction: descriptor, logged blocks, revoke block and commit
+     *
+     * @return    transaction size in blocks
+     */
+    public int getSize() {
+        return getSize(blocks.size(), revoked.size());
+    }
+
+    /**
+     * Gets journal blocks used by a transaction logging some blocks and revoking others
+     *
+     * @param blocks  logged blocks
+     * @param revoked revoked blocks
+     * @return    transaction size in blocks
+     */
+    public static int getSize(int blocks, int revoked) {
+        return blocks + 2 + (revoked > 0 ? 1 : 0);
+    }
+}
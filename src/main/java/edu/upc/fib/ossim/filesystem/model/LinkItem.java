@@ -1,11 +1,13 @@
 package edu.upc.fib.ossim.filesystem.model;
 
 import java.awt.*;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Vector;
 
 /**
  * Link definition, besides common file system objects ({@link LogicalFSObject}) links have
- * a reference to other file system objects
+ * a reference to other file system objects. Soft links also keep their target path as it was when they were created
  *
  * @author Alex Macia
  *
@@ -13,6 +15,7 @@ import java.util.Vector;
 public class LinkItem extends LogicalFSObject {
     private final LogicalFSObject target;
     private final boolean soft;
+    private final List<String> targetPath; // Target names from root when link was created, null if hard link
 
     /**
      * Constructs a LinkItem, unique identifier is automatically generated
@@ -27,6 +30,7 @@ public class LinkItem extends LogicalFSObject {
         super(fsObject, name, parent);
         this.target = target; // Target 
         this.soft = soft;
+        this.targetPath = soft ? getNames(target) : null;
     }
 
     /**
@@ -43,6 +47,7 @@ public class LinkItem extends LogicalFSObject {
         super(id, fsObject, name, parent);
         this.target = target; // Target 
         this.soft = soft;
+        this.targetPath = soft ? getNames(target) : null;
     }
 
     /**
@@ -72,6 +77,25 @@ public class LinkItem extends LogicalFSObject {
         return soft;
     }
 
+    /**
+     * Gets soft link target path, names from root when link was created
+     *
+     * @return target path, null if it is a hard link
+     */
+    public List<String> getTargetPath() {
+        return targetPath;
+    }
+
+    private static List<String> getNames(LogicalFSObject object) {
+        // Object's current path, names from root walking parents
+        LinkedList<String> names = new LinkedList<String>();
+        while (object != null) {
+            names.addFirst(object.getName());
+            object = object.getParent();
+        }
+        return names;
+    }
+
     /**
      * Returns cyan
      *
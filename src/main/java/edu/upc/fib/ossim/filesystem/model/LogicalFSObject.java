@@ -102,7 +102,9 @@ public abstract class LogicalFSObject {
      * @param name object name
      */
     public void setName(String name) {
+        String oldName = this.name;
         this.name = name;
+        if (parent != null) parent.renameChild(this, oldName); // Keeps parent's name index
     }
 
     /**
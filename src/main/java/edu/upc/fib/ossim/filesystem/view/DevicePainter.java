@@ -6,12 +6,15 @@ import edu.upc.fib.ossim.template.view.PainterTemplate;
 
 import java.awt.*;
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.List;
 
 
 /**
  * Paints Storage Device (Secondary Memory Device). File System objects (files, folders and links)
  * are allocated into memory or released from it, device painter shows all device blocks, block may be free
  * (available) or may contain piece of a file system object, then it is highlighted using that object's color.
+ * Background and addresses are a cached static layer, only blocks changed since last paint are repainted
  *
  * @author Alex Macia
  */
@@ -26,10 +29,16 @@ public class DevicePainter extends PainterTemplate {
     private static final int RIGHT_MARGIN = 5;
     private static final int TOP_MARGIN = 10;
     private static final int BOTTOM_MARGIN = 10;
+    private static final Font LABEL_FONT = new Font(Font.MONOSPACED, Font.BOLD, 10);
+    private static final Font TEXT_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Font TITLE_FONT = new Font(Font.MONOSPACED, Font.BOLD, 12);
     private double colwidth;
     private double rowheight;
     private int blockxrow;
     private final String admStr;
+    private List<Object> drawnGrid;    // Device geometry drawn by last paint
+    private String[] drawnStrings;    // Blocks labels drawn, null if block hasn't been drawn yet
+    private int[] drawnColors;    // Blocks colors drawn
 
     /**
      * Constructs a DevicePainter.
@@ -46,7 +55,8 @@ public class DevicePainter extends PainterTemplate {
     /**
      * Draws device blocks as a grid, every block is a colored rectangles,
      * when it contains a piece of a file system object it is highlighted using that object's color.
-     * When memory size height exceeds canvas height, memory enlarge and revalidates to perform scroll update
+     * When memory size height exceeds canvas height, memory enlarge and revalidates to perform scroll update.
+     * Only rows into clip area are drawn
      *
      * @param g graphic context
      */
@@ -56,44 +66,109 @@ public class DevicePainter extends PainterTemplate {
         int w = (int) size.getWidth();
         int h = (int) size.getHeight();
 
-        g2.setPaint(Color.white);
-        g2.fillRect(0, 0, w, h);
-
-        g2.fillRect(LEFT_MARGIN, TOP_MARGIN, w - LEFT_MARGIN - RIGHT_MARGIN, h - TOP_MARGIN - BOTTOM_MARGIN);
-
-        map.clear();
+        remapObjects();
 
         int diskSize = ((FileSystemPresenter) presenter).getDiskSize();
         int blockSize = ((FileSystemPresenter) presenter).getBlockSize();
         int rows = diskSize / ROW_UNITS;
 
         int newHeight = BLOCK_HEIGTH * rows + TOP_MARGIN + BOTTOM_MARGIN;
-        setPreferredSize(new Dimension(w, newHeight));
-        revalidate(); // Updates scroll 
-
-        blockxrow = ROW_UNITS / blockSize; // Block in every row 
-        colwidth = (w - LEFT_MARGIN - RIGHT_MARGIN) / blockxrow;  // block's width
-        //rowheight = (h-TOP_MARGIN-BOTTOM_MARGIN) / rows; // row height. Constant
-        rowheight = BLOCK_HEIGTH;
-
-        g2.setFont(new Font(Font.MONOSPACED, Font.BOLD, 10));
-        g2.setColor(Color.BLACK);
-        //g2.drawString("@0", 0, TOP_MARGIN + 5);
+        if (getPreferredSize().width != w || getPreferredSize().height != newHeight) {
+            setPreferredSize(new Dimension(w, newHeight));
+            revalidate(); // Updates scroll
+        }
 
-        // Init device
-        for (int i = 0; i < diskSize / blockSize; i++) {
-            drawBlock(i, ((FileSystemPresenter) presenter).getBlockString(i), ((FileSystemPresenter) presenter).getBlockColor(i));
+        setupParameters(w, blockSize);
+        List<Object> grid = getGrid();
+        if (!grid.equals(drawnGrid)) {
+            drawnStrings = new String[diskSize / blockSize];
+            drawnColors = new int[diskSize / blockSize];
         }
+        drawnGrid = grid;
+        drawStaticLayer(g2, drawnGrid);
+
+        // Device blocks, labels may overflow into next row
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, w, h);
+        int first = Math.max(0, (int) ((clip.y - TOP_MARGIN) / rowheight) - 1);
+        int last = (int) ((clip.y + clip.height - TOP_MARGIN) / rowheight);
+        for (int i = first * blockxrow; i < Math.min((last + 1) * blockxrow, drawnStrings.length); i++) {
+            String s = ((FileSystemPresenter) presenter).getBlockString(i);
+            Color color = ((FileSystemPresenter) presenter).getBlockColor(i);
+            drawBlock(i, s, color);
+            drawnStrings[i] = s;
+            drawnColors[i] = color.getRGB();
+        }
+
+        g2.setColor(Color.WHITE);
+        g2.setFont(TEXT_FONT);
+        g2.drawString(admStr, LEFT_MARGIN + 20, TOP_MARGIN + 20);
+    }
 
-        // Init addresses
+    /**
+     * Paints background and addresses
+     *
+     * @param g static layer graphics
+     */
+    protected void paintStaticLayer(Graphics2D g) {
+        int w = getWidth();
+        int h = getHeight();
+        g.setPaint(Color.white);
+        g.fillRect(0, 0, w, h);
+
+        g.setFont(LABEL_FONT);
+        g.setColor(Color.BLACK);
+        int rows = ((FileSystemPresenter) presenter).getDiskSize() / ROW_UNITS;
         for (int i = 0; i <= rows; i += 2) {  // Every 2 rows, shows address
             int y = (int) (TOP_MARGIN + 7 + rowheight * i);
-            g2.drawString("@" + i * ROW_UNITS, 0, y);
+            g.drawString("@" + i * ROW_UNITS, 0, y);
         }
+    }
 
-        g2.setColor(Color.WHITE);
-        g2.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
-        g2.drawString(admStr, LEFT_MARGIN + 20, TOP_MARGIN + 20);
+    /**
+     * Returns region covering blocks whose label or color changed since last paint
+     *
+     * @return changed region, null if device has not been painted
+     */
+    protected Rectangle getDirtyRegion() {
+        if (drawnStrings == null || !getGrid().equals(drawnGrid)) return null;
+        FontMetrics fm = getFontMetrics(TITLE_FONT);
+        Rectangle dirty = new Rectangle();
+        for (int i = 0; i < drawnStrings.length; i++) {
+            String s = ((FileSystemPresenter) presenter).getBlockString(i);
+            Color color = ((FileSystemPresenter) presenter).getBlockColor(i);
+            if (s.equals(drawnStrings[i]) && color.getRGB() == drawnColors[i]) continue;
+            dirty = union(dirty, getBlockBounds(i, s, fm));
+            if (drawnStrings[i] != null) dirty = union(dirty, getBlockBounds(i, drawnStrings[i], fm));
+        }
+        return dirty;
+    }
+
+    private List<Object> getGrid() {
+        // Device geometry, every block moves when it changes
+        return Arrays.asList(((FileSystemPresenter) presenter).getDiskSize(), ((FileSystemPresenter) presenter).getBlockSize(), getSize());
+    }
+
+    private void setupParameters(int w, int blockSize) {
+        blockxrow = ROW_UNITS / blockSize; // Block in every row
+        colwidth = (w - LEFT_MARGIN - RIGHT_MARGIN) / blockxrow;  // block's width
+        //rowheight = (h-TOP_MARGIN-BOTTOM_MARGIN) / rows; // row height. Constant
+        rowheight = BLOCK_HEIGTH;
+    }
+
+    private Rectangle getBlockBounds(int b, String s, FontMetrics fm) {
+        // Block and its label
+        int x = (int) (LEFT_MARGIN + (b % blockxrow) * colwidth);
+        int y = (int) (TOP_MARGIN + (b / blockxrow) * rowheight);
+        int width = (int) Math.max(colwidth, 2 + fm.stringWidth(s));
+        Rectangle bounds = new Rectangle(x, y, width, (int) rowheight + fm.getDescent());
+        bounds.grow(2, 2);
+        return bounds;
+    }
+
+    private static Rectangle union(Rectangle dirty, Rectangle r) {
+        if (dirty.isEmpty()) return new Rectangle(r);
+        return dirty.union(r);
     }
 
     private void drawBlock(int b, String s, Color color) {
@@ -113,7 +188,7 @@ public class DevicePainter extends PainterTemplate {
         g2.setColor(Color.BLACK);
         g2.draw(block);
 
-        g2.setFont(new Font(Font.MONOSPACED, Font.BOLD, 12));
+        g2.setFont(TITLE_FONT);
         //g2.drawString(s, (int) (x + colwidth/2), (int) (y + rowheight/2));
         //g2.drawString(s, (int) x+2, (int) y+2);
         g2.drawString(s, (int) x + 2, (int) (y + rowheight));
@@ -10,11 +10,15 @@ import java.awt.*;
 
 /**
  * File System settings panel. Allows setting memory and block size controls, besides
- * two file System management algorithm are available:
+ * three file System management algorithm are available:
  * <ul>
  * <li>linked allocation with file-allocation table (FAT)</li>
  * <li>indexed allocation with triple indirection (UNIX)</li>
+ * <li>extent allocation with extent tree (ext4)</li>
+ * <li>log-structured file system with segment cleaner (LFS)</li>
+ * <li>device image, mirrors device into a file</li>
  * <ul>
+ * Journal mode and commit interval can be set, and a crash can be simulated to verify journal recovery
  *
  * @author Alex Macia
  */
@@ -22,6 +26,7 @@ public class FileSystemSettings extends SettingsTemplate {
     private static final long serialVersionUID = 1L;
     private static final Integer[] BLOCK_VALUES = {1, 2, 4};
     private static final Integer[] MEM_VALUES = {4, 6, 8};
+    private static final Integer[] INTERVAL_VALUES = {1, 2, 4, 8, 16};
 
     private TitledBorder titleD;
     private JComboBox blockSize;
@@ -32,6 +37,20 @@ public class FileSystemSettings extends SettingsTemplate {
     private TitledBorder titleA;
     private JRadioButton linked;
     private JRadioButton indexed;
+    private JRadioButton extent;
+    private JRadioButton lfs;
+    private JLabel lcleaner;
+    private JComboBox cleaner;
+    private JButton defragment;
+
+    private TitledBorder titleJ;
+    private JComboBox journalMode;
+    private JComboBox commitInterval;
+    private TitledBorder titleI;
+    private JButton attachImage;
+    private JButton openImage;
+    private JLabel linterval;
+    private JButton crash;
 
     /**
      * Constructs a FileSystemSettings panel
@@ -44,8 +63,10 @@ public class FileSystemSettings extends SettingsTemplate {
     }
 
     /**
-     * Adds components to panel, memory size combo, block size combo and algorithm selection button group:
-     * linked allocation (FAT) and indexed allocation (UNIX).
+     * Adds components to panel, memory size combo, block size combo, algorithm selection button group:
+     * linked allocation (FAT), indexed allocation (UNIX), extent allocation (ext4) and log-structured (LFS)
+     * with its cleaner policy combo and defragment button, and journal controls:
+     * journal mode combo, commit interval combo and crash button, and device image buttons: attach and open.
      */
     public void initSpecific() {
         blockSize = new JComboBox(BLOCK_VALUES);
@@ -65,9 +86,22 @@ public class FileSystemSettings extends SettingsTemplate {
         indexed = new JRadioButton(Translation.getInstance().getLabel("fs_54"));
         indexed.setActionCommand("LINUX");
         indexed.addActionListener(presenter);
+        extent = new JRadioButton(Translation.getInstance().getLabel("fs_55"));
+        extent.setActionCommand("EXT4");
+        extent.addActionListener(presenter);
+        lfs = new JRadioButton(Translation.getInstance().getLabel("fs_56"));
+        lfs.setActionCommand("LFS");
+        lfs.addActionListener(presenter);
+
+        cleaner = new JComboBox(getCleaners());
+        cleaner.setSelectedIndex(0);
+        cleaner.setActionCommand("CLEANER");
+        cleaner.addActionListener(presenter);
 
         addAlgorithm(linked);
         addAlgorithm(indexed);
+        addAlgorithm(extent);
+        addAlgorithm(lfs);
 
         JPanel devSet = new JPanel();
         devSet.setLayout(new BoxLayout(devSet, BoxLayout.PAGE_AXIS));
@@ -98,10 +132,77 @@ public class FileSystemSettings extends SettingsTemplate {
         JPanel index = new JPanel(new FlowLayout(FlowLayout.LEFT));
         index.add(indexed);
         allocationMethod.add(index);
+        JPanel ext = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        ext.add(extent);
+        allocationMethod.add(ext);
+        JPanel log = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        log.add(lfs);
+        allocationMethod.add(log);
+        JPanel pcleaner = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        lcleaner = new JLabel(Translation.getInstance().getLabel("fs_57"));
+        pcleaner.add(lcleaner);
+        pcleaner.add(cleaner);
+        allocationMethod.add(pcleaner);
+        defragment = new JButton(Translation.getInstance().getLabel("fs_117"));
+        defragment.setActionCommand("DEFRAG");
+        defragment.addActionListener(presenter);
+        JPanel pdefrag = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        pdefrag.add(defragment);
+        allocationMethod.add(pdefrag);
+
+        journalMode = new JComboBox(getJournalModes());
+        journalMode.setSelectedIndex(0);
+        journalMode.setActionCommand("JOURNAL");
+        journalMode.addActionListener(presenter);
+
+        commitInterval = new JComboBox(INTERVAL_VALUES);
+        commitInterval.setSelectedIndex(0);
+        commitInterval.setActionCommand("JOURNAL");
+        commitInterval.addActionListener(presenter);
+
+        crash = new JButton(Translation.getInstance().getLabel("fs_90"));
+        crash.setActionCommand("CRASH");
+        crash.addActionListener(presenter);
+
+        JPanel journal = new JPanel();
+        journal.setLayout(new BoxLayout(journal, BoxLayout.PAGE_AXIS));
+        titleJ = BorderFactory.createTitledBorder(Translation.getInstance().getLabel("fs_85"));
+        journal.setBorder(titleJ);
+
+        JPanel pmode = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        pmode.add(journalMode);
+        journal.add(pmode);
+
+        JPanel pinterval = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        linterval = new JLabel(Translation.getInstance().getLabel("fs_89"));
+        pinterval.add(linterval);
+        pinterval.add(commitInterval);
+        journal.add(pinterval);
+
+        JPanel pcrash = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        pcrash.add(crash);
+        journal.add(pcrash);
 
         pane.add(devSet);
 
         pane.add(allocationMethod);
+
+        pane.add(journal);
+
+        attachImage = new JButton(Translation.getInstance().getLabel("fs_108"));
+        attachImage.setActionCommand("IMAGE");
+        attachImage.addActionListener(presenter);
+        openImage = new JButton(Translation.getInstance().getLabel("fs_109"));
+        openImage.setActionCommand("OPENIMG");
+        openImage.addActionListener(presenter);
+
+        JPanel image = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        titleI = BorderFactory.createTitledBorder(Translation.getInstance().getLabel("fs_107"));
+        image.setBorder(titleI);
+        image.add(attachImage);
+        image.add(openImage);
+
+        pane.add(image);
     }
 
     /**
@@ -115,6 +216,26 @@ public class FileSystemSettings extends SettingsTemplate {
         titleA.setTitle(Translation.getInstance().getLabel("fs_52"));
         linked.setText(Translation.getInstance().getLabel("fs_53"));
         indexed.setText(Translation.getInstance().getLabel("fs_54"));
+        extent.setText(Translation.getInstance().getLabel("fs_55"));
+        lfs.setText(Translation.getInstance().getLabel("fs_56"));
+        lcleaner.setText(Translation.getInstance().getLabel("fs_57"));
+        int policy = cleaner.getSelectedIndex();
+        cleaner.removeActionListener(presenter); // Avoid triggering action event
+        cleaner.setModel(new DefaultComboBoxModel(getCleaners()));
+        cleaner.setSelectedIndex(policy);
+        cleaner.addActionListener(presenter);
+        defragment.setText(Translation.getInstance().getLabel("fs_117"));
+        titleJ.setTitle(Translation.getInstance().getLabel("fs_85"));
+        int mode = journalMode.getSelectedIndex();
+        journalMode.removeActionListener(presenter); // Avoid triggering action event
+        journalMode.setModel(new DefaultComboBoxModel(getJournalModes()));
+        journalMode.setSelectedIndex(mode);
+        journalMode.addActionListener(presenter);
+        linterval.setText(Translation.getInstance().getLabel("fs_89"));
+        crash.setText(Translation.getInstance().getLabel("fs_90"));
+        titleI.setTitle(Translation.getInstance().getLabel("fs_107"));
+        attachImage.setText(Translation.getInstance().getLabel("fs_108"));
+        openImage.setText(Translation.getInstance().getLabel("fs_109"));
         help = presenter.createHelp("fs_01");
         this.pack();
     }
@@ -167,5 +288,77 @@ public class FileSystemSettings extends SettingsTemplate {
     public void setAlgorithm(String actionCommand) {
         if (linked.getActionCommand().equals(actionCommand)) linked.setSelected(true);
         if (indexed.getActionCommand().equals(actionCommand)) indexed.setSelected(true);
+        if (extent.getActionCommand().equals(actionCommand)) extent.setSelected(true);
+        if (lfs.getActionCommand().equals(actionCommand)) lfs.setSelected(true);
+    }
+
+    /**
+     * Returns log-structured file system cleaner policy, its index: greedy or cost-benefit
+     *
+     * @return    cleaner policy
+     * @see edu.upc.fib.ossim.filesystem.model.FileSystemStrategyLFS
+     */
+    public int getCleaner() {
+        return cleaner.getSelectedIndex();
+    }
+
+    /**
+     * Sets log-structured file system cleaner policy
+     *
+     * @param policy cleaner policy
+     */
+    public void setCleaner(int policy) {
+        cleaner.removeActionListener(presenter); // Avoid triggering action event
+        cleaner.setSelectedIndex(policy);
+        cleaner.addActionListener(presenter);
+    }
+
+    /**
+     * Returns journal mode, its index: none, ordered (metadata only) or full data
+     *
+     * @return    journal mode
+     * @see edu.upc.fib.ossim.filesystem.model.Journal
+     */
+    public int getJournalMode() {
+        return journalMode.getSelectedIndex();
+    }
+
+    /**
+     * Returns journal commit interval, operations grouped per commit
+     *
+     * @return    commit interval
+     */
+    public int getCommitInterval() {
+        return (Integer) commitInterval.getSelectedItem();
+    }
+
+    /**
+     * Sets journal mode and commit interval
+     *
+     * @param mode     journal mode
+     * @param interval commit interval
+     */
+    public void setJournal(int mode, int interval) {
+        journalMode.removeActionListener(presenter); // Avoid triggering action event
+        commitInterval.removeActionListener(presenter);
+        journalMode.setSelectedIndex(mode);
+        commitInterval.setSelectedItem(Integer.valueOf(interval));
+        journalMode.addActionListener(presenter);
+        commitInterval.addActionListener(presenter);
+    }
+
+    private String[] getCleaners() {
+        String[] policies = new String[2];
+        policies[0] = Translation.getInstance().getLabel("fs_58");
+        policies[1] = Translation.getInstance().getLabel("fs_59");
+        return policies;
+    }
+
+    private String[] getJournalModes() {
+        String[] modes = new String[3];
+        modes[0] = Translation.getInstance().getLabel("fs_86");
+        modes[1] = Translation.getInstance().getLabel("fs_87");
+        modes[2] = Translation.getInstance().getLabel("fs_88");
+        return modes;
     }
-} 
+}
@@ -7,8 +7,7 @@ import edu.upc.fib.ossim.template.view.PainterTemplate;
 import javax.swing.*;
 import javax.swing.tree.*;
 import java.awt.*;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.Hashtable;
 import java.util.Vector;
 
 
@@ -23,6 +22,7 @@ public class FilesTreePainter extends PainterTemplate {
 
     private JTree tree;
     private DefaultTreeModel treeModel;
+    private final Hashtable<Integer, DefaultMutableTreeNode> nodes;    // Tree nodes by object identifier
 
     /**
      * Constructs a FilesTreePainter, creates the pop up menu and and initialize system's file tree
@@ -36,6 +36,7 @@ public class FilesTreePainter extends PainterTemplate {
      */
     public FilesTreePainter(Presenter presenter, Vector<String[]> menuItems, int width, int height) {
         super(presenter, menuItems, width, height);
+        nodes = new Hashtable<Integer, DefaultMutableTreeNode>();
         init();
     }
 
@@ -50,6 +51,7 @@ public class FilesTreePainter extends PainterTemplate {
 
     private void init() {
         map.clear();
+        nodes.clear();
 
         int[] rootBlocks = ((FileSystemPresenter) presenter).getRootIds();
         String sroot = ((FileSystemPresenter) presenter).getName(rootBlocks[0]);
@@ -59,6 +61,7 @@ public class FilesTreePainter extends PainterTemplate {
         tree = new JTree(treeModel);
 
         map.put(root, rootBlocks[0]);
+        nodes.put(rootBlocks[0], root);
 
         addNode(rootBlocks[0], rootBlocks[1]); // "."
         addNode(rootBlocks[0], rootBlocks[2]); // ".."
@@ -92,8 +95,10 @@ public class FilesTreePainter extends PainterTemplate {
             treeModel.removeNodeFromParent(child);
         }
         map.clear();
+        nodes.clear();
 
         map.put(root, rootBlocks[0]);
+        nodes.put(rootBlocks[0], root);
         updNode(rootBlocks[0]); // Update root
         addNode(rootBlocks[0], rootBlocks[1]); // "."
         addNode(rootBlocks[0], rootBlocks[2]); // ".."
@@ -115,6 +120,7 @@ public class FilesTreePainter extends PainterTemplate {
             DefaultMutableTreeNode child = new DefaultMutableTreeNode(schild);
 
             map.put(child, id);
+            nodes.put(id, child);
 
             treeModel.insertNodeInto(child, parent, parent.getChildCount());
 
@@ -152,17 +158,13 @@ public class FilesTreePainter extends PainterTemplate {
 
         if (node != null) {
             treeModel.removeNodeFromParent(node);
+            map.remove(node);
+            nodes.remove(id);
         }
     }
 
     private DefaultMutableTreeNode getNode(int id) {
-        Set<Object> keys = map.keySet();
-        Iterator<Object> it = keys.iterator();
-        while (it.hasNext()) {
-            DefaultMutableTreeNode aux = (DefaultMutableTreeNode) it.next();
-            if (map.get(aux).intValue() == id) return aux;
-        }
-        return null;
+        return nodes.get(id);
     }
 
     /**
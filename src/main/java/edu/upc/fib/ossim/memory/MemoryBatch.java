@@ -0,0 +1,120 @@
+package edu.upc.fib.ossim.memory;
+
+import edu.upc.fib.ossim.memory.model.*;
+import edu.upc.fib.ossim.memory.view.MemorySettings;
+import edu.upc.fib.ossim.template.BatchTemplate;
+import edu.upc.fib.ossim.utils.Functions;
+import edu.upc.fib.ossim.utils.SoSimException;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+
+/**
+ * Memory batch runs memory management simulations without views, settings are the ones memory management
+ * settings dialog exposes: management (FIX, VAR, PAG, SEG), memorySize, soSize, pageSize and policy (FF, BF, WF).
+ * Simulation ends once memory can not change any more, programs with infinite duration are never released
+ *
+ * @author Alex Macia
+ * @see MemoryPresenter
+ */
+public class MemoryBatch extends BatchTemplate {
+    private static final String[] SIZES = {"1", "2", "4"};    // Operating system and page sizes
+    private final ContextMemory context;
+
+    /**
+     * Constructs a MemoryBatch, initial context strategy is Fixed-size partitions
+     */
+    public MemoryBatch() {
+        super(0);
+        context = new ContextMemory(MemorySettings.MIN_MEMSIZE, MemorySettings.SO_VALUES[2], 1, new MemStrategyFIXED("FF"));
+    }
+
+    /**
+     * Returns XML root element for memory management simulation files
+     */
+    public String getXMLRoot() {
+        return Functions.getInstance().getPropertyString("xml_root_mem");
+    }
+
+    /**
+     * Returns XML root children for memory management simulation files: "memory" and "programs_queue"
+     */
+    public Vector<String> getXMLChilds() {
+        Vector<String> childs = new Vector<String>();
+        childs.add("memory");
+        childs.add("programs_queue");
+        return childs;
+    }
+
+    /**
+     * Returns memory management settings names
+     */
+    public Vector<String> getParamNames() {
+        return new Vector<String>(Arrays.asList("management", "memorySize", "soSize", "pageSize", "policy"));
+    }
+
+    /**
+     * Sets memory size, operating system size and management algorithm with its policy or page size
+     *
+     * @see MemoryFactory
+     */
+    public void putParams() throws SoSimException {
+        String management = getParamChoice("management", "FIX", MemoryFactory.ALGORITHMS);
+        String policy = getParamChoice("policy", "FF", MemoryFactory.POLICIES);
+        int memSize = getParamInt("memorySize", MemorySettings.MIN_MEMSIZE);
+        int soSize = Integer.parseInt(getParamChoice("soSize", MemorySettings.SO_VALUES[2].toString(), SIZES));
+        int pageSize = Integer.parseInt(getParamChoice("pageSize", "1", SIZES));
+        if (memSize < MemorySettings.MIN_MEMSIZE || memSize > MemorySettings.MAX_MEMSIZE)
+            throw new SoSimException("all_11", "memorySize=" + memSize);
+
+        context.setMemorySizeParams(memSize, soSize);
+        context.setAlgorithm(MemoryFactory.createAlgorithm(management, policy, pageSize));
+    }
+
+    /**
+     * Builds memory partitions and programs
+     *
+     * @see #getXMLChilds()
+     */
+    public void putXMLData(int child, Vector<Vector<Vector<String>>> data) throws SoSimException {
+        if (child == 0) MemoryFactory.addPartitions(context, data);
+        else MemoryFactory.addPrograms(context, data);
+    }
+
+    /**
+     * Validates memory structure at time 0, simulation ends if there are no programs
+     */
+    public boolean actionPlay() throws SoSimException {
+        return context.forwardTime(clock.getTime());
+    }
+
+    /**
+     * Forwards time using memory management context. Programs that can not be allocated keep waiting,
+     * as they do while simulation runs. Simulation ends once memory can not change any more: no program
+     * in memory will be released and either no program is waiting or first waiting program does not fit
+     */
+    public boolean actionTimer() throws SoSimException {
+        try {
+            context.forwardTime(clock.getTime());
+            return context.getProcessCount() == 0 && !context.isReleasing();
+        } catch (SoSimException e) {
+            if ("me_08".equals(e.getKey())) return !context.isReleasing();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns memory management statistics names
+     */
+    public Vector<Vector<String>> getTableStatsInfo() {
+        return context.getTableStatsInfo();
+    }
+
+    /**
+     * Returns memory management statistics values
+     */
+    public Vector<String> getTableStatsData() {
+        return context.getTableStatsData();
+    }
+}
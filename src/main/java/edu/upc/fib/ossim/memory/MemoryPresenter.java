@@ -13,6 +13,7 @@ import javax.swing.event.ChangeEvent;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseEvent;
+import java.io.Serializable;
 import java.util.Iterator;
 import java.util.Vector;
 
@@ -45,7 +46,8 @@ public class MemoryPresenter extends Presenter {
     private Vector<String[]> menuItemsSwap;
     private String mgnActionCommand; // Keeps current memory management
     private int pageSize;
-    private ContextMemory context;
+    private ContextMemory context;    // Shown model, a frame copy while simulation runs
+    private ContextMemory simulated;    // Simulated model
     private boolean allocationFailure;
     /**************************************************************************************************/
     /*************************************   Class  management  ***************************************/
@@ -157,6 +159,7 @@ public class MemoryPresenter extends Presenter {
      */
     public void createContext() {
         context = new ContextMemory(MemorySettings.MIN_MEMSIZE, MemorySettings.SO_VALUES[2], 1, new MemStrategyFIXED("FF"));
+        simulated = context;
         mgnActionCommand = "FIX";
         pageSize = 1;
     }
@@ -254,14 +257,15 @@ public class MemoryPresenter extends Presenter {
     // Method overridden
     public boolean actionTimer() throws SoSimException {
         try {
-            boolean end = context.forwardTime(timecontrols.getTime());
+            boolean end = simulated.forwardTime(timecontrols.getTime());
             allocationFailure = false;
             return end;
         } catch (SoSimException e) {
             // Error allocating. Error message only once and don't stop simulation
             if ("me_08".equals(e.getKey())) {
                 if (!allocationFailure) {
-                    JOptionPane.showMessageDialog(panel, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    String message = e.getMessage();
+                    SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(panel, message, "Error", JOptionPane.ERROR_MESSAGE));
                     allocationFailure = true;
                 }
                 return false;
@@ -269,6 +273,26 @@ public class MemoryPresenter extends Presenter {
         }
     }
 
+    /**
+     * Gets simulated model, copied into frames while simulation runs (Template Pattern)
+     *
+     * @return simulated model
+     * @see Presenter#forwardEvent(boolean, boolean)
+     */
+    public Serializable getModel() {
+        return simulated;
+    }
+
+    /**
+     * Shows a model copy from a frame, or simulated model again if null (Template Pattern)
+     *
+     * @param model model copy, null for simulated model
+     */
+    public void showModel(Object model) {
+        if (model == null) context = simulated;
+        else context = (ContextMemory) model;
+    }
+
     /**
      * Implements management concrete concrete action events (Template Pattern).
      * <ul>
@@ -425,7 +449,7 @@ public class MemoryPresenter extends Presenter {
                     mgnActionCommand = actionCommand;
 
                     if (action == 71) {
-                        context.setAlgorithm(new MemStrategyFIXED(((MemorySettings) settings).getPolicy()));
+                        context.setAlgorithm(MemoryFactory.createAlgorithm(actionCommand, ((MemorySettings) settings).getPolicy(), pageSize));
 
                         ((MemorySettings) settings).paginationSetVisible(false);
                         ((MemorySettings) settings).policyEnable(true);
@@ -435,19 +459,19 @@ public class MemoryPresenter extends Presenter {
                         super.getPainter(MEM_PAINTER).addMenuItem(menuItemsMem.get(2));
                     }
                     if (action == 72) {
-                        context.setAlgorithm(new MemStrategyVAR(((MemorySettings) settings).getPolicy()));
+                        context.setAlgorithm(MemoryFactory.createAlgorithm(actionCommand, ((MemorySettings) settings).getPolicy(), pageSize));
                         ((MemorySettings) settings).paginationSetVisible(false);
                         ((MemorySettings) settings).policyEnable(true);
                         super.getPainter(MEM_PAINTER).clearMenu();
                     }
                     if (action == 73) {
-                        context.setAlgorithm(new MemStrategyPAG(pageSize));
+                        context.setAlgorithm(MemoryFactory.createAlgorithm(actionCommand, ((MemorySettings) settings).getPolicy(), pageSize));
                         ((MemorySettings) settings).paginationSetVisible(true);
                         ((MemorySettings) settings).policyEnable(false);
                         super.getPainter(MEM_PAINTER).clearMenu();
                     }
                     if (action == 74) {
-                        context.setAlgorithm(new MemStrategySEG());
+                        context.setAlgorithm(MemoryFactory.createAlgorithm(actionCommand, ((MemorySettings) settings).getPolicy(), pageSize));
                         ((MemorySettings) settings).paginationSetVisible(false);
                         ((MemorySettings) settings).policyEnable(false);
                         super.getPainter(MEM_PAINTER).clearMenu();
@@ -472,7 +496,7 @@ public class MemoryPresenter extends Presenter {
             case 78: // Change page size
                 if (confirmChange(pageSize != ((MemorySettings) settings).getPageSize())) {
                     pageSize = ((MemorySettings) settings).getPageSize();
-                    context.setAlgorithm(new MemStrategyPAG(pageSize));
+                    context.setAlgorithm(MemoryFactory.createAlgorithm("PAG", ((MemorySettings) settings).getPolicy(), pageSize));
                     context.setMemorySizeParams(((MemorySettings) settings).getMemSize(), ((MemorySettings) settings).getSOSize());
                     panel.setLabel(getAlgorithmInfo());
                 } else {
@@ -874,42 +898,10 @@ public class MemoryPresenter extends Presenter {
 
                     break;
                 case 1:   // Memory blocks
-                    for (int i = 0; i < data.size(); i++) {
-                        Vector<Vector<String>> block = data.get(i);
-                        Vector<Object> blockData = new Vector<Object>();
-
-                        blockData.add(Integer.valueOf(block.get(0).get(1))); // start. Value at position 1
-                        blockData.add(Integer.valueOf(block.get(1).get(1))); // size. Value at position 1
-                        context.addMemPartition(blockData);
-                    }
+                    MemoryFactory.addPartitions(context, data);
                     break;
                 case 2:  // Programs
-                    for (int i = 0; i < data.size(); i++) {
-                        Vector<Vector<String>> program = data.get(i);
-                        Vector<Object> programData = new Vector<Object>();
-
-                        programData.add(program.get(0).get(1));            // pid. Value at position 1
-                        programData.add(program.get(1).get(1));                // name. Value at position 1
-                        programData.add(Integer.valueOf(program.get(2).get(1))); // size. Value at position 1
-                        programData.add(Integer.valueOf(program.get(3).get(1))); // duration. Value at position 1
-                        programData.add(new Color(Integer.valueOf(program.get(4).get(1)))); // color. Value at position 1 (RGB value)
-
-                        if (program.size() > 5) { // Components
-                            Vector<Vector> components = new Vector<>();
-
-                            int num = (program.size() - 5) / 3; // bid, size, load?
-                            if ((program.size() - 5) % 3 != 0) throw new SoSimException("all_04");
-                            int k = 5;
-                            for (int j = 0; j < num; j++) {
-                                Vector<Object> component = new Vector<Object>();
-                                component.add(Integer.valueOf(program.get(k + j * 3).get(1)));    // bid
-                                component.add(Integer.valueOf(program.get(k + j * 3 + 1).get(1)));    // size
-                                component.add(Boolean.valueOf(program.get(k + j * 3 + 2).get(1)));    // load?
-                                components.add(component);
-                            }
-                            context.addProgram(programData, components);
-                        } else context.addProgram(programData, null);
-                    }
+                    MemoryFactory.addPrograms(context, data);
                     break;
             }
         } catch (Exception e) {
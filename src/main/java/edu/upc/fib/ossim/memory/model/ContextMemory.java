@@ -4,6 +4,9 @@ import edu.upc.fib.ossim.utils.SoSimException;
 import edu.upc.fib.ossim.utils.Translation;
 
 import java.awt.*;
+import java.io.Serializable;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -16,7 +19,8 @@ import java.util.Vector;
  *
  * @author Alex Macia
  */
-public class ContextMemory {
+public class ContextMemory implements Serializable {
+    private static final long serialVersionUID = 1L;
     public static final int MAX_PROCESSES = 20;
     private MemStrategy algorithm;
     private int memorySize;
@@ -564,6 +568,59 @@ public class ContextMemory {
         return algorithm.getTableBlockInfo(m);
     }
 
+    /**
+     * Returns initial statistical memory management information: memory in use, internal fragmentation,
+     * programs waiting and components swapped out
+     *
+     * @return    statistical memory management information
+     */
+    public Vector<Vector<String>> getTableStatsInfo() {
+        // Initial Statistics Information windows
+        Vector<Vector<String>> stats = new Vector<Vector<String>>();
+        String[] keys = {"me_91", "me_92", "me_93", "me_94"};
+        for (int i = 0; i < keys.length; i++) {
+            Vector<String> row = new Vector<String>();
+            row.add(keys[i]);
+            row.add("--");
+            stats.add(row);
+        }
+        return stats;
+    }
+
+    /**
+     * Returns statistical memory management information at current simulation time
+     *
+     * @return    statistical memory management information
+     */
+    public Vector<String> getTableStatsData() {
+        // Statistics Information windows
+        Vector<String> values = new Vector<String>();
+        NumberFormat formatter = new DecimalFormat("#0.00");
+        int used = 0;
+        int internal = 0;
+        Iterator<MemPartition> it = memory.iterator();
+        while (it.hasNext()) {
+            MemPartition m = it.next();
+            if (m.getAllocated() != null) {
+                used += m.getAllocated().getSize();
+                internal += m.getSize() - m.getAllocated().getSize();
+            }
+        }
+
+        // Memory in use: allocated units (operating system included) / memory size
+        if (memorySize == 0) values.add("--");
+        else values.add(formatter.format((double) used * 100 / (double) memorySize));
+
+        // Internal fragmentation: partitions units not used by their allocated units
+        values.add(Integer.toString(internal));
+
+        // Programs waiting to be allocated and components swapped out
+        values.add(Integer.toString(processQueue.size()));
+        values.add(Integer.toString(swap.size()));
+
+        return values;
+    }
+
     /**
      * Returns process creation table header depending on current algorithm
      *
@@ -790,6 +847,21 @@ public class ContextMemory {
         return false;
     }
 
+    /**
+     * Returns true while any program allocated into memory will be released, its duration is not infinite.
+     * Otherwise memory will not change any more unless a program waiting to be allocated fits
+     *
+     * @return any program allocated into memory will be released
+     */
+    public boolean isReleasing() {
+        Iterator<MemPartition> it = memory.iterator();
+        while (it.hasNext()) {
+            ProcessMemUnit p = it.next().getAllocated();
+            if (p != null && p.getParent().getDuration() >= 0) return true;  // Duration -1 infinite
+        }
+        return false;
+    }
+
     private void releasePrograms(List<MemPartition> memory) {
         // Release terminated programs from memory, and decrements duration 
         Iterator<MemPartition> it = memory.iterator();
@@ -1,5 +1,6 @@
 package edu.upc.fib.ossim.memory.model;
 
+import java.io.Serializable;
 import java.util.Vector;
 
 /**
@@ -8,7 +9,8 @@ import java.util.Vector;
  *
  * @author Alex Macia
  */
-public class MemPartition implements Comparable<MemPartition>, Cloneable {
+public class MemPartition implements Comparable<MemPartition>, Cloneable, Serializable {
+    private static final long serialVersionUID = 1L;
     private int start;
     private int size;
     private ProcessMemUnit allocated;
@@ -3,6 +3,7 @@ package edu.upc.fib.ossim.memory.model;
 import edu.upc.fib.ossim.utils.SoSimException;
 
 import java.awt.*;
+import java.io.Serializable;
 import java.util.List;
 import java.util.Vector;
 
@@ -13,7 +14,7 @@ import java.util.Vector;
  *
  * @author Alex Macia
  */
-public interface MemStrategy {
+public interface MemStrategy extends Serializable {
     /**
      * Gets algorithm information including main settings values
      *
@@ -15,6 +15,7 @@ import java.util.Vector;
  * @author Àlex
  */
 public abstract class MemStrategyAdapterCONT implements MemStrategy {
+    private static final long serialVersionUID = 1L;
     protected String policy; // allocation policy: "FF", "BF", "WF"
 
     public MemStrategyAdapterCONT(String policy) {
@@ -12,6 +12,7 @@ import java.util.Vector;
  * @author Àlex
  */
 public abstract class MemStrategyAdapterNOCONT implements MemStrategy {
+    private static final long serialVersionUID = 1L;
     /**
      * Non contiguous algorithms has nothing to do with policy
      */
@@ -13,6 +13,7 @@ import java.util.Vector;
  * @author Alex Macia
  */
 public class MemStrategyFIXED extends MemStrategyAdapterCONT {
+    private static final long serialVersionUID = 1L;
 
     public MemStrategyFIXED(String policy) {
         super(policy);
@@ -15,6 +15,7 @@ import java.util.List;
  * @author Alex Macia
  */
 public class MemStrategyPAG extends MemStrategyAdapterNOCONT {
+    private static final long serialVersionUID = 1L;
     private final int pageSize;
 
     public MemStrategyPAG(int pageSize) {
@@ -15,6 +15,7 @@ import java.util.List;
  * @author Alex Macia
  */
 public class MemStrategySEG extends MemStrategyAdapterNOCONT {
+    private static final long serialVersionUID = 1L;
     /**
      * Gets Segmentation algorithm information
      *
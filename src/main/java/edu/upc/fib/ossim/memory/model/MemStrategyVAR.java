@@ -8,6 +8,7 @@ import java.util.*;
  * @author Alex Macia
  */
 public class MemStrategyVAR extends MemStrategyAdapterCONT {
+    private static final long serialVersionUID = 1L;
 
     public MemStrategyVAR(String policy) {
         super(policy);
@@ -0,0 +1,91 @@
+package edu.upc.fib.ossim.memory.model;
+
+import edu.upc.fib.ossim.utils.SoSimException;
+
+import java.awt.*;
+import java.util.Vector;
+
+
+/**
+ * Builds memory management model objects from settings and simulation files, shared by memory presenter
+ * and memory batch: management algorithms by name, and memory partitions and programs from simulation files
+ *
+ * @author Alex Macia
+ */
+public class MemoryFactory {
+    public static final String[] ALGORITHMS = {"FIX", "VAR", "PAG", "SEG"};    // Management algorithms names
+    public static final String[] POLICIES = {"FF", "BF", "WF"};    // Allocation policies names
+
+    private MemoryFactory() {
+    }
+
+    /**
+     * Creates a memory management algorithm
+     *
+     * @param management algorithm name: FIX, VAR, PAG or SEG
+     * @param policy     allocation policy: FF, BF or WF, only contiguous management uses it
+     * @param pageSize   page size, only pagination uses it
+     * @return memory management algorithm
+     */
+    public static MemStrategy createAlgorithm(String management, String policy, int pageSize) {
+        if ("VAR".equals(management)) return new MemStrategyVAR(policy);
+        if ("PAG".equals(management)) return new MemStrategyPAG(pageSize);
+        if ("SEG".equals(management)) return new MemStrategySEG();
+        return new MemStrategyFIXED(policy);
+    }
+
+    /**
+     * Adds memory partitions read from a simulation file
+     *
+     * @param context memory management model
+     * @param data    memory blocks, every block attribute is a name and value pair
+     * @throws SoSimException partition overlaps operating system or another partition
+     */
+    public static void addPartitions(ContextMemory context, Vector<Vector<Vector<String>>> data) throws SoSimException {
+        for (int i = 0; i < data.size(); i++) {
+            Vector<Vector<String>> block = data.get(i);
+            Vector<Object> blockData = new Vector<Object>();
+
+            blockData.add(Integer.valueOf(block.get(0).get(1))); // start. Value at position 1
+            blockData.add(Integer.valueOf(block.get(1).get(1))); // size. Value at position 1
+            context.addMemPartition(blockData);
+        }
+    }
+
+    /**
+     * Adds programs read from a simulation file, with their components (pages or segments) if any
+     *
+     * @param context memory management model
+     * @param data    programs, every program attribute is a name and value pair
+     * @throws SoSimException program components are incomplete
+     */
+    @SuppressWarnings("rawtypes")
+    public static void addPrograms(ContextMemory context, Vector<Vector<Vector<String>>> data) throws SoSimException {
+        for (int i = 0; i < data.size(); i++) {
+            Vector<Vector<String>> program = data.get(i);
+            Vector<Object> programData = new Vector<Object>();
+
+            programData.add(program.get(0).get(1));            // pid. Value at position 1
+            programData.add(program.get(1).get(1));                // name. Value at position 1
+            programData.add(Integer.valueOf(program.get(2).get(1))); // size. Value at position 1
+            programData.add(Integer.valueOf(program.get(3).get(1))); // duration. Value at position 1
+            programData.add(new Color(Integer.valueOf(program.get(4).get(1)))); // color. Value at position 1 (RGB value)
+
+            if (program.size() > 5) { // Components
+                Vector<Vector> components = new Vector<Vector>(); // Strategies read components as form table rows
+
+                int num = (program.size() - 5) / 3; // bid, size, load?
+                if ((program.size() - 5) % 3 != 0) throw new SoSimException("all_04");
+                int k = 5;
+                for (int j = 0; j < num; j++) {
+                    Vector<Object> component = new Vector<Object>();
+                    component.add(Integer.valueOf(program.get(k + j * 3).get(1)));    // bid
+                    component.add(Integer.valueOf(program.get(k + j * 3 + 1).get(1)));    // size
+                    component.add(Boolean.valueOf(program.get(k + j * 3 + 2).get(1)));    // load?
+                    components.add(component);
+                }
+                context.addProgram(programData, components);
+            } else context.addProgram(programData, null);
+        }
+    }
+}
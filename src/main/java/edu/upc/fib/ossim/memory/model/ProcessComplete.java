@@ -20,6 +20,7 @@ import java.util.Vector;
  * @see ProcessComponent
  */
 public class ProcessComplete implements ProcessMemUnit, Cloneable {
+    private static final long serialVersionUID = 1L;
     private static int maxpid = 1;
     private final int pid;
     private final String name;
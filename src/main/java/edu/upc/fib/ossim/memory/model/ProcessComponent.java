@@ -14,6 +14,7 @@ import java.util.Vector;
  *
  */
 public abstract class ProcessComponent implements ProcessMemUnit, Cloneable {
+    private static final long serialVersionUID = 1L;
     // Part of a program (Segment or Page)
     protected ProcessComplete parent;
     protected int bid;
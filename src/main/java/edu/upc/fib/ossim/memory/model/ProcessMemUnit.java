@@ -2,6 +2,7 @@ package edu.upc.fib.ossim.memory.model;
 
 import edu.upc.fib.ossim.utils.ColorCell;
 
+import java.io.Serializable;
 import java.util.Vector;
 
 
@@ -15,7 +16,7 @@ import java.util.Vector;
  * @see ProcessComplete
  * @see ProcessComponent
  */
-public interface ProcessMemUnit {
+public interface ProcessMemUnit extends Serializable {
 
     /**
      * Complete Processes returns itself, components returns their parents
@@ -11,6 +11,7 @@ import java.util.Vector;
  * @author Àlex
  */
 public class ProcessPage extends ProcessComponent {
+    private static final long serialVersionUID = 1L;
 
     /**
      * Constructs a process page
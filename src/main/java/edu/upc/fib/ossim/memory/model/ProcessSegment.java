@@ -15,6 +15,7 @@ import java.util.Vector;
  * @author Àlex
  */
 public class ProcessSegment extends ProcessComponent {
+    private static final long serialVersionUID = 1L;
 
     // Segments: code, data, stack. Reference to labels Bundle
     private static final String[] KEYS = {"me_72", "me_73", "me_74"};
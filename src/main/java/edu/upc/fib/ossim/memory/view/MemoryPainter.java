@@ -9,14 +9,18 @@ import edu.upc.fib.ossim.utils.Translation;
 import java.awt.*;
 import java.awt.font.FontRenderContext;
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 
 
 /**
  * Paints Main Memory. Processes are load into memory or released from it, main memory painter
  * shows memory occupation, internal and external fragmentation at a concrete simulation time .
- * A pop up menu allows remove or swap out processes and address translation
+ * A pop up menu allows remove or swap out processes and address translation.
+ * Title, addresses and empty memory are a cached static layer, only memory blocks changed since last paint are repainted
  *
  * @author Alex Macia
  */
@@ -28,6 +32,11 @@ public class MemoryPainter extends PainterTemplate {
     private static final int ADDR_WIDTH = 30;
     private static final int BORDER = 20;
     private static final Color EMPTY = Color.white;
+    private static final Font TITLE_FONT = new Font(Font.MONOSPACED, Font.BOLD, 12);
+    private static final Font TEXT_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 10);
+    private List<Object> drawnMemory;    // Memory geometry drawn by last paint
+    private Hashtable<Integer, String> drawn;    // Memory blocks drawn by last paint, by start, null if not painted yet
+    private Hashtable<Integer, Rectangle> drawnBounds;    // Their bounds, information included
 
     /**
      * Constructs a MemoryPainter, creates the pop up menu and and initialize memory.
@@ -54,44 +63,25 @@ public class MemoryPainter extends PainterTemplate {
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         Dimension size = getSize();
         int w = (int) size.getWidth();
-        int h = (int) size.getHeight();
 
-        g2.setPaint(Color.white);
-        g2.fillRect(0, 0, w, h);
-
-        // Draw Addresses
         int memHeight = ((MemoryPresenter) presenter).getMemorySize();
 
         // Scroll control height
-        //if (M_UNITHEIGTH *  memHeight + 2*BORDER > h) {
         int newHeigth = M_UNITHEIGTH * memHeight + 2 * BORDER;
-        setPreferredSize(new Dimension(MemoryPresenter.MEMORY_WIDTH, newHeigth));
-        revalidate(); // Updates scroll 
-        //}
-
-
-        g2.setColor(Color.BLACK);
-        g2.setFont(new Font(Font.MONOSPACED, Font.BOLD, 12));
-        String s = Translation.getInstance().getLabel("me_03");
-        FontRenderContext frc = g2.getFontRenderContext();
-        Rectangle2D bounds = g2.getFont().getStringBounds(s, frc);
-        g.drawString(s, (int) (w / 2 - bounds.getWidth() / 2), (int) (BORDER / 2 + bounds.getHeight() / 2)); // Main memory
-
-        g2.setColor(Color.BLACK);
-        g2.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 10));
-
-
-        // Fill empty memory
-        Functions.getInstance().drawTexture(g2, EMPTY, ADDR_WIDTH, BORDER, w - ADDR_WIDTH - BORDER, M_UNITHEIGTH * memHeight);
-
-        for (int i = 0; i < memHeight; i++) {
-            g.setColor(Color.BLACK);
-            g.drawString("@" + i, 2, i * M_UNITHEIGTH + 8 + BORDER);
+        if (getPreferredSize().width != MemoryPresenter.MEMORY_WIDTH || getPreferredSize().height != newHeigth) {
+            setPreferredSize(new Dimension(MemoryPresenter.MEMORY_WIDTH, newHeigth));
+            revalidate(); // Updates scroll
         }
 
+        drawnMemory = getMemory();
+        drawStaticLayer(g2, drawnMemory);
+
+        g2.setFont(TEXT_FONT);
         Iterator<Integer> it = presenter.iterator(0);
         int start = 0, height = 0, prog_height = 0, memStart = 0;
-        map.clear();
+        remapObjects();
+        drawn = new Hashtable<Integer, String>();
+        drawnBounds = new Hashtable<Integer, Rectangle>();
 
         while (it.hasNext()) {
             start = it.next().intValue();
@@ -111,9 +101,103 @@ public class MemoryPainter extends PainterTemplate {
                 Functions.getInstance().drawTexture(g2, bground, ADDR_WIDTH, memStart, w - ADDR_WIDTH - BORDER, height);
             }
             map.put(new Rectangle2D.Double(ADDR_WIDTH, memStart, w - ADDR_WIDTH - BORDER, height), Integer.valueOf(start));
+            drawn.put(start, getBlock(start));
+            drawnBounds.put(start, getBlockBounds(start, g2.getFontMetrics()));
         }
     }
 
+    /**
+     * Paints title, addresses and empty memory
+     *
+     * @param g static layer graphics
+     */
+    protected void paintStaticLayer(Graphics2D g) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int w = getWidth();
+        int h = getHeight();
+        g.setPaint(Color.white);
+        g.fillRect(0, 0, w, h);
+
+        int memHeight = ((MemoryPresenter) presenter).getMemorySize();
+
+        g.setColor(Color.BLACK);
+        g.setFont(TITLE_FONT);
+        String s = Translation.getInstance().getLabel("me_03");
+        FontRenderContext frc = g.getFontRenderContext();
+        Rectangle2D bounds = g.getFont().getStringBounds(s, frc);
+        g.drawString(s, (int) (w / 2 - bounds.getWidth() / 2), (int) (BORDER / 2 + bounds.getHeight() / 2)); // Main memory
+
+        g.setColor(Color.BLACK);
+        g.setFont(TEXT_FONT);
+
+        // Fill empty memory
+        Functions.getInstance().drawTexture(g, EMPTY, ADDR_WIDTH, BORDER, w - ADDR_WIDTH - BORDER, M_UNITHEIGTH * memHeight);
+
+        for (int i = 0; i < memHeight; i++) {
+            g.setColor(Color.BLACK);
+            g.drawString("@" + i, 2, i * M_UNITHEIGTH + 8 + BORDER);
+        }
+    }
+
+    /**
+     * Returns region covering memory blocks that changed since last paint: allocated, released,
+     * resized or whose program information changed
+     *
+     * @return changed region, null if memory has not been painted
+     */
+    protected Rectangle getDirtyRegion() {
+        if (drawn == null || !getMemory().equals(drawnMemory)) return null;
+        FontMetrics fm = getFontMetrics(TEXT_FONT);
+        Hashtable<Integer, String> current = new Hashtable<Integer, String>();
+        Rectangle dirty = new Rectangle();
+        Iterator<Integer> it = presenter.iterator(0);
+        while (it.hasNext()) {
+            Integer start = it.next();
+            String block = getBlock(start);
+            current.put(start, block);
+            if (block.equals(drawn.get(start))) continue;
+            dirty = union(dirty, getBlockBounds(start, fm));
+            dirty = union(dirty, drawnBounds.get(start));
+        }
+        it = drawn.keySet().iterator();
+        while (it.hasNext()) {
+            Integer start = it.next();
+            if (!current.containsKey(start)) dirty = union(dirty, drawnBounds.get(start));
+        }
+        return dirty;
+    }
+
+    private List<Object> getMemory() {
+        // Memory geometry, every block moves when it changes
+        return Arrays.<Object>asList(((MemoryPresenter) presenter).getMemorySize(), getSize());
+    }
+
+    private String getBlock(int start) {
+        // Memory block appearance: size and program loaded, or fragmentation if it is empty
+        MemoryPresenter memory = (MemoryPresenter) presenter;
+        Color color = memory.getMemProcessColor(start);
+        if (color == null) return memory.getMemSize(start) + "/" + memory.hasExternalFragmentation();
+        return memory.getMemSize(start) + "/" + color.getRGB() + "/" + memory.getMemProcessSize(start) + "/" + memory.getMemProgramInfo(start);
+    }
+
+    private Rectangle getBlockBounds(int start, FontMetrics fm) {
+        // Memory block and its program information, that may overflow a small block
+        int w = getWidth();
+        int memStart = start * M_UNITHEIGTH + BORDER;
+        int height = ((MemoryPresenter) presenter).getMemSize(start) * M_UNITHEIGTH;
+        if (((MemoryPresenter) presenter).getMemProcessColor(start) != null)
+            height = Math.max(height, 15 + ((MemoryPresenter) presenter).getMemProgramInfo(start).size() * fm.getHeight());
+        Rectangle bounds = new Rectangle(ADDR_WIDTH, memStart, w - ADDR_WIDTH - BORDER, height);
+        bounds.grow(2, 2);
+        return bounds;
+    }
+
+    private static Rectangle union(Rectangle dirty, Rectangle r) {
+        if (r == null) return dirty;
+        if (dirty.isEmpty()) return new Rectangle(r);
+        return dirty.union(r);
+    }
+
     private void drawProgram(int start, int x, int y, int width, int height) {
         Rectangle2D rect = new Rectangle2D.Double(x, y, width, height); // Memory block
 
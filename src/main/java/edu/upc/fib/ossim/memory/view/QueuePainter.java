@@ -12,6 +12,7 @@ import java.awt.geom.Rectangle2D;
 import java.awt.geom.RoundRectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 
 
@@ -19,7 +20,8 @@ import java.util.Vector;
  * Represents a processes queue. Processes are queued as they are created,
  * and are laid out horizontally, an arrow is placed between processes
  * showing queue direction. A brief information is shown over every process. <br/>
- * A pop up menu allows process update and delete
+ * A pop up menu allows process update and delete. Background and title are a cached static layer,
+ * only queue positions whose process changed since last paint are repainted
  *
  * @author Alex Macia
  * @see PainterTemplate
@@ -33,8 +35,14 @@ public class QueuePainter extends PainterTemplate {
     private static final int P_UNITHEIGHT = 10;
     private static final int ARROW_HEIGHT = 20;
     private static final int ARROW_WIDTH = 20;
+    private static final Font TITLE_FONT = new Font(Font.MONOSPACED, Font.BOLD, 12);
+    private static final Font TEXT_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Font LABEL_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 10);
     private final BufferedImage arrow;
     private final String keytitle;
+    private Dimension drawnSize;    // Painter size drawn by last paint
+    private Vector<String> drawn;    // Processes drawn by last paint, by queue position, null if not painted yet
+    private Vector<Rectangle> drawnBounds;    // Their queue positions bounds
 
     /**
      * Constructs a ProgramsPainter, creates the pop up menu.
@@ -64,34 +72,21 @@ public class QueuePainter extends PainterTemplate {
         Dimension size = getSize();
         int w = (int) size.getWidth();
         int h = (int) size.getHeight();
-        g2.setPaint(Color.white);
-        g2.fillRect(0, 0, w, h);
+        drawStaticLayer(g2, keytitle);
 
-        map.clear();
+        remapObjects();
+        drawnSize = size;
+        drawn = new Vector<String>();
+        drawnBounds = new Vector<Rectangle>();
 
         // Draws a processes queue into area x,y,w,h 
         int last_x = w - 20; // Starts at queue's right side 
         int program_y = 30;
 
-        // background
-        //g2.setPaint(bg);
-        g2.setColor(Color.WHITE);
-        g2.fillRect(2, 2, w - 2, h - 2);
-        g2.setColor(Color.BLACK);
-        g2.drawRect(0, 0, w, h);
-
-        // Draw ready queue
-        g2.setColor(Color.LIGHT_GRAY);
-        g2.setFont(new Font(Font.MONOSPACED, Font.BOLD, 12));
-        FontRenderContext frc = g2.getFontRenderContext();
-        String title = Translation.getInstance().getLabel(keytitle);
-        Rectangle2D bounds = g2.getFont().getStringBounds(title, frc);
-        g2.drawString(title, (int) (w / 2 - bounds.getWidth() / 2), 20);
-
         Iterator<Integer> it = presenter.iterator(getQueue());
 
         while (it.hasNext()) {
-            g2.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            g2.setFont(TEXT_FONT);
             Integer pid = it.next();
 
             if (last_x - P_WIDTH - 10 - ARROW_WIDTH < 0) {
@@ -99,6 +94,8 @@ public class QueuePainter extends PainterTemplate {
                 setPreferredSize(new Dimension(newWidth, h));
                 revalidate(); // Updates scroll 
             }
+            drawn.add(getProgram(pid));
+            drawnBounds.add(getPositionBounds(pid, last_x));
 
             // Program
             drawProgram(pid.intValue(), last_x - P_WIDTH, program_y, P_WIDTH, P_HEIGHT);
@@ -114,13 +111,97 @@ public class QueuePainter extends PainterTemplate {
             last_x -= 10 + ARROW_WIDTH;
         }
 
-        if (w - last_x < MemoryPresenter.PROGRAMS_WIDTH) {
+        if (w - last_x < MemoryPresenter.PROGRAMS_WIDTH && (getPreferredSize().width != MemoryPresenter.PROGRAMS_WIDTH ||
+                getPreferredSize().height != MemoryPresenter.PROGRAMS_HEIGHT)) {
             // Restore initial width
             setPreferredSize(new Dimension(MemoryPresenter.PROGRAMS_WIDTH, MemoryPresenter.PROGRAMS_HEIGHT));
             revalidate(); // Updates scroll 
         }
     }
 
+    /**
+     * Paints background and queue title
+     *
+     * @param g static layer graphics
+     */
+    protected void paintStaticLayer(Graphics2D g) {
+        int w = getWidth();
+        int h = getHeight();
+        g.setPaint(Color.white);
+        g.fillRect(0, 0, w, h);
+
+        // background
+        g.setColor(Color.WHITE);
+        g.fillRect(2, 2, w - 2, h - 2);
+        g.setColor(Color.BLACK);
+        g.drawRect(0, 0, w, h);
+
+        // Draw ready queue
+        g.setColor(Color.LIGHT_GRAY);
+        g.setFont(TITLE_FONT);
+        FontRenderContext frc = g.getFontRenderContext();
+        String title = Translation.getInstance().getLabel(keytitle);
+        Rectangle2D bounds = g.getFont().getStringBounds(title, frc);
+        g.drawString(title, (int) (w / 2 - bounds.getWidth() / 2), 20);
+    }
+
+    /**
+     * Returns region covering queue positions whose program changed since last paint, a program
+     * leaving the queue moves every program behind it
+     *
+     * @return changed region, null if queue has not been painted
+     */
+    protected Rectangle getDirtyRegion() {
+        if (drawn == null || !getSize().equals(drawnSize)) return null;
+        Vector<String> current = new Vector<String>();
+        Vector<Rectangle> bounds = new Vector<Rectangle>();
+        int last_x = getWidth() - 20;
+        Iterator<Integer> it = presenter.iterator(getQueue());
+        while (it.hasNext()) {
+            Integer pid = it.next();
+            current.add(getProgram(pid));
+            bounds.add(getPositionBounds(pid, last_x));
+            last_x -= P_WIDTH + 10 + ARROW_WIDTH;
+        }
+        return getDirtyPositions(current, bounds, drawn, drawnBounds);
+    }
+
+    private static Rectangle getDirtyPositions(List<String> current, List<Rectangle> bounds, List<String> previous, List<Rectangle> previousBounds) {
+        // Positions whose program or bounds changed, and positions no longer used
+        Rectangle dirty = new Rectangle();
+        for (int i = 0; i < Math.max(current.size(), previous.size()); i++) {
+            if (i < current.size() && i < previous.size() &&
+                    current.get(i).equals(previous.get(i)) && bounds.get(i).equals(previousBounds.get(i))) continue;
+            if (i < current.size()) dirty = dirty.isEmpty() ? new Rectangle(bounds.get(i)) : dirty.union(bounds.get(i));
+            if (i < previous.size()) dirty = dirty.isEmpty() ? new Rectangle(previousBounds.get(i)) : dirty.union(previousBounds.get(i));
+        }
+        return dirty;
+    }
+
+    private Rectangle getPositionBounds(int pid, int last_x) {
+        // Program, its size label that may overflow it, its components and arrow before it
+        int x = last_x - P_WIDTH - 10 - ARROW_WIDTH;
+        String sizeinfo = ((MemoryPresenter) presenter).getComponentSizeInfo(pid);
+        int labelWidth = getFontMetrics(LABEL_FONT).stringWidth(sizeinfo);
+        int right = Math.max(last_x, last_x - P_WIDTH + labelWidth);
+        return new Rectangle(x, 28, right - x + 2, getHeight() - 28);
+    }
+
+    private String getProgram(int pid) {
+        // Queued program appearance: information and its components
+        MemoryPresenter memory = (MemoryPresenter) presenter;
+        StringBuilder program = new StringBuilder();
+        program.append(pid).append('/').append(presenter.getColor(pid).getRGB()).append('/').append(presenter.getInfo(pid));
+        program.append('/').append(memory.getComponentSizeInfo(pid));
+        int blocks = memory.getTotalComponents(pid);
+        for (int b = 0; b < blocks; b++) {
+            program.append('/').append(memory.getSizeOfComponents(pid, b));
+            program.append(memory.isComponentSwapped(pid, b) ? 'S' : 'M');
+            program.append(memory.isComponentPage(pid, b) ? 'P' : 'B');
+        }
+        return program.toString();
+    }
+
     private void drawProgram(int pid, int x, int y, int width, int height) {
         RoundRectangle2D rect = new RoundRectangle2D.Double(x, y, width, height, 5, 5); // Process Rectangle
         Rectangle rec = new Rectangle(x, y, width, height);
@@ -157,7 +238,7 @@ public class QueuePainter extends PainterTemplate {
 
     private void drawBlocks(int pid, int x_ini, int y_ini) {
         g2.setColor(Color.BLACK);
-        g2.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 10));
+        g2.setFont(LABEL_FONT);
         String sizeinfo = ((MemoryPresenter) presenter).getComponentSizeInfo(pid);
         g2.drawString(sizeinfo, x_ini, y_ini + 15);
 
@@ -0,0 +1,108 @@
+package edu.upc.fib.ossim.process;
+
+import edu.upc.fib.ossim.process.model.*;
+import edu.upc.fib.ossim.template.BatchTemplate;
+import edu.upc.fib.ossim.utils.Functions;
+import edu.upc.fib.ossim.utils.SoSimException;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+
+/**
+ * Process batch runs process scheduling simulations without views, settings are the ones process scheduling
+ * settings dialog exposes: management (FCFS, SJF, PRI, RR), multiprogramming, preemptive and quantum
+ *
+ * @author Alex Macia
+ * @see ProcessPresenter
+ */
+public class ProcessBatch extends BatchTemplate {
+    private final ContextProcess context;
+    private boolean multiprogramming;
+    private boolean preemptive;
+    private int quantum;
+
+    /**
+     * Constructs a ProcessBatch, initial context strategy is FCFS
+     */
+    public ProcessBatch() {
+        super(0);
+        context = new ContextProcess(new ProcessStrategyFCFS());
+    }
+
+    /**
+     * Returns XML root element for process scheduling simulation files
+     */
+    public String getXMLRoot() {
+        return Functions.getInstance().getPropertyString("xml_root_pro");
+    }
+
+    /**
+     * Returns XML root children for process scheduling simulation files: "ready_queue" and "arriving_queue"
+     */
+    public Vector<String> getXMLChilds() {
+        Vector<String> childs = new Vector<String>();
+        childs.add("ready_queue");
+        childs.add("arriving_queue");
+        return childs;
+    }
+
+    /**
+     * Returns process scheduling settings names
+     */
+    public Vector<String> getParamNames() {
+        return new Vector<String>(Arrays.asList("management", "multiprogramming", "preemptive", "quantum"));
+    }
+
+    /**
+     * Sets scheduling algorithm, same constraints as settings dialog: only FCFS may disable multiprogramming,
+     * FCFS is never preemptive and Round Robin always is
+     *
+     * @see ProcessFactory
+     */
+    public void putParams() throws SoSimException {
+        String management = getParamChoice("management", "FCFS", ProcessFactory.ALGORITHMS);
+        quantum = getParamInt("quantum", 1);
+        if (quantum < 1) throw new SoSimException("all_11", "quantum=" + quantum);
+        multiprogramming = ProcessFactory.isMultiprogramming(management, getParamBoolean("multiprogramming", true));
+        preemptive = ProcessFactory.isPreemptive(management, getParamBoolean("preemptive", false));
+        context.setAlgorithm(ProcessFactory.createAlgorithm(management, preemptive, quantum));
+    }
+
+    /**
+     * Builds processes from ready and arriving queues
+     *
+     * @see #getXMLChilds()
+     */
+    public void putXMLData(int child, Vector<Vector<Vector<String>>> data) {
+        ProcessFactory.addProcesses(context, data, clock.getTime());
+    }
+
+    /**
+     * Starts scheduling at time 0
+     */
+    public boolean actionPlay() {
+        return actionTimer();
+    }
+
+    /**
+     * Forwards time using process scheduling context
+     */
+    public boolean actionTimer() {
+        return context.forwardTime(clock.getTime(), multiprogramming, preemptive, quantum);
+    }
+
+    /**
+     * Returns process scheduling statistics names
+     */
+    public Vector<Vector<String>> getTableStatsInfo() {
+        return context.getTableStatsInfo();
+    }
+
+    /**
+     * Returns process scheduling statistics values
+     */
+    public Vector<String> getTableStatsData() {
+        return context.getTableStatsData(clock.getTime());
+    }
+}
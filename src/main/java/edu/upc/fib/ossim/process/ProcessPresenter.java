@@ -12,6 +12,7 @@ import javax.swing.event.ChangeEvent;
 import javax.swing.event.ListSelectionEvent;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.io.Serializable;
 import java.util.Iterator;
 import java.util.Vector;
 
@@ -29,6 +30,7 @@ public class ProcessPresenter extends Presenter {
     public static final String ARRIVING_PAINTER = "arriving";
     public static final String IO_PAINTER = "io";
     public static final String PROCESSOR_PAINTER = "processor";
+    public static final String GANTT_PAINTER = "gantt";
     private static final int INFO_WIDTH = 790;
     private static final int INFO_HEIGTH = 200;
     private static final int READY_WIDTH = 750;
@@ -39,8 +41,14 @@ public class ProcessPresenter extends Presenter {
     private static final int IO_HEIGTH = 191;
     private static final int CPU_WIDTH = 300;
     private static final int CPU_HEIGHT = 190;
+    private static final int GANTT_HEIGHT = 150;
     private Vector<String[]> menuItemsMem;
-    private ContextProcess context;
+    private ContextProcess context;    // Shown model, a frame copy while simulation runs
+    private ContextProcess simulated;    // Simulated model
+    private Timeline timeline;    // Processes run by simulated model
+    private volatile boolean multiprogramming;    // Settings read by simulation thread, updated on event dispatch thread
+    private volatile boolean preemptive;
+    private volatile int quantum;
     /**************************************************************************************************/
     /*************************************   Class  management  ***************************************/
     /**************************************************************************************************/
@@ -65,7 +73,9 @@ public class ProcessPresenter extends Presenter {
         super.addPainter(new IOPainter(this, "pr_08", "", context.getIOHeaderInfo(), IO_WIDTH, IO_HEIGTH), IO_PAINTER);
         super.addPainter(new ProcessorPainter(this, CPU_WIDTH, CPU_HEIGHT), PROCESSOR_PAINTER);
         settings = new ProcessSettings(this, "sch_set");
+        super.addPainter(new GanttPainter(this, INFO_WIDTH, GANTT_HEIGHT), GANTT_PAINTER);
         info = new InfoDialog(this, "pr_41", "sch_info", false, INFO_WIDTH, INFO_HEIGTH, context.getTableStatsInfo(), context.getTableHeaderInfo());
+        info.addPainter(getPainter(GANTT_PAINTER));
         return new PanelProcess(this, "pr_42");
     }
 
@@ -105,6 +115,8 @@ public class ProcessPresenter extends Presenter {
      */
     public void createContext() {
         context = new ContextProcess(new ProcessStrategyFCFS());
+        simulated = context;
+        timeline = new Timeline();
     }
 
     /**************************************************************************************************/
@@ -123,8 +135,9 @@ public class ProcessPresenter extends Presenter {
 
         if ("quantum".equals(spin.getName())) {
             // Quantum update algorithm information
-            context.setAlgorithm(new ProcessStrategyRR(((ProcessSettings) settings).getQuantumSize()));
+            context.setAlgorithm(ProcessFactory.createAlgorithm("RR", true, ((ProcessSettings) settings).getQuantumSize()));
             panel.setLabel(getAlgorithmInfo());
+            readSettings();
         }
 
         if ("bursts".equals(spin.getName())) {
@@ -167,8 +180,14 @@ public class ProcessPresenter extends Presenter {
                 Integer row = this.getPainter(ARRIVING_PAINTER).detectMouseOver(0, 0);
                 if (row != null) {
                     pid = Integer.valueOf((String) ((ArrivingPainter) this.getPainter(ARRIVING_PAINTER)).getValueAt(row, 0));
+                    wasrunning = false;
+                    if (timecontrols.isRunning()) { // Selects into simulated model
+                        wasrunning = true;
+                        timecontrols.pause();
+                    }
                     boolean popup = selectElement(pid, this.getPainter(ARRIVING_PAINTER));
                     if (popup) this.getPainter(ARRIVING_PAINTER).showPopupMenu();
+                    else if (wasrunning) timecontrols.play();
                 }
             }
         }
@@ -186,7 +205,9 @@ public class ProcessPresenter extends Presenter {
         // Remove context menu items
         this.getPainter(PROCS_PAINTER).clearMenu();
         this.getPainter(ARRIVING_PAINTER).clearMenu();
-        return context.forwardTime(timecontrols.getTime(), ((ProcessSettings) settings).getMultiprogramming(), ((ProcessSettings) settings).getPreemptive(), ((ProcessSettings) settings).getQuantumSize());
+        timeline.clear();
+        readSettings();
+        return forwardTime();
     }
 
     /**
@@ -203,17 +224,65 @@ public class ProcessPresenter extends Presenter {
         this.getPainter(ARRIVING_PAINTER).addMenuItem(menuItemsMem.get(0));
         this.getPainter(ARRIVING_PAINTER).addMenuItem(menuItemsMem.get(1));
         context.restoreBackup();
+        timeline.clear();
     }
 
     /**
      * Adds process scheduling concrete implementation to timer event (Template Pattern).
-     * Forwards time using process scheduling context.
+     * Forwards time using process scheduling context, process running is recorded into timeline.
      *
      * @see Presenter#actionPerformed(ActionEvent e)
      *
      */
     public boolean actionTimer() {
-        return context.forwardTime(timecontrols.getTime(), ((ProcessSettings) settings).getMultiprogramming(), ((ProcessSettings) settings).getPreemptive(), ((ProcessSettings) settings).getQuantumSize());
+        return forwardTime();
+    }
+
+    private boolean forwardTime() {
+        // Forwards simulated model and records process running next time unit
+        int time = timecontrols.getTime();
+        boolean end = simulated.forwardTime(time, multiprogramming, preemptive, quantum);
+        if (!end) {
+            int pid = simulated.getPIDrunning();
+            timeline.record(time, pid, pid == 0 ? null : simulated.getColor(pid));
+        }
+        return end;
+    }
+
+    private void readSettings() {
+        // Settings controls are read on event dispatch thread only, simulation thread reads these fields
+        multiprogramming = ((ProcessSettings) settings).getMultiprogramming();
+        preemptive = ((ProcessSettings) settings).getPreemptive();
+        quantum = ((ProcessSettings) settings).getQuantumSize();
+    }
+
+    /**
+     * Gets scheduling timeline, processes run by simulated model
+     *
+     * @return scheduling timeline
+     */
+    public Timeline getTimeline() {
+        return timeline;
+    }
+
+    /**
+     * Gets simulated model, copied into frames while simulation runs (Template Pattern)
+     *
+     * @return simulated model
+     * @see Presenter#forwardEvent(boolean, boolean)
+     */
+    public Serializable getModel() {
+        return simulated;
+    }
+
+    /**
+     * Shows a model copy from a frame, or simulated model again if null (Template Pattern)
+     *
+     * @param model model copy, null for simulated model
+     */
+    public void showModel(Object model) {
+        if (model == null) context = simulated;
+        else context = (ContextProcess) model;
     }
 
     /**
@@ -273,7 +342,7 @@ public class ProcessPresenter extends Presenter {
                 ((ProcessSettings) settings).enableMultiprogramming(true);
                 ((ProcessSettings) settings).enablePreemptive(false);
                 ((ProcessSettings) settings).visibleQuantum(false);
-                context.setAlgorithm(new ProcessStrategyFCFS());
+                context.setAlgorithm(ProcessFactory.createAlgorithm(actionCommand, ((ProcessSettings) settings).getPreemptive(), ((ProcessSettings) settings).getQuantumSize()));
                 panel.setLabel(getAlgorithmInfo());
                 break;
             case 24:
@@ -282,7 +351,7 @@ public class ProcessPresenter extends Presenter {
                 ((ProcessSettings) settings).selectMultiprogramming(true);
                 ((ProcessSettings) settings).enablePreemptive(true);
                 ((ProcessSettings) settings).visibleQuantum(false);
-                context.setAlgorithm(new ProcessStrategySJF(((ProcessSettings) settings).getPreemptive()));
+                context.setAlgorithm(ProcessFactory.createAlgorithm(actionCommand, ((ProcessSettings) settings).getPreemptive(), ((ProcessSettings) settings).getQuantumSize()));
                 panel.setLabel(getAlgorithmInfo());
                 break;
             case 25:
@@ -291,7 +360,7 @@ public class ProcessPresenter extends Presenter {
                 ((ProcessSettings) settings).selectMultiprogramming(true);
                 ((ProcessSettings) settings).enablePreemptive(true);
                 ((ProcessSettings) settings).visibleQuantum(false);
-                context.setAlgorithm(new ProcessStrategyPrio(((ProcessSettings) settings).getPreemptive()));
+                context.setAlgorithm(ProcessFactory.createAlgorithm(actionCommand, ((ProcessSettings) settings).getPreemptive(), ((ProcessSettings) settings).getQuantumSize()));
                 panel.setLabel(getAlgorithmInfo());
                 break;
             case 26:
@@ -301,7 +370,7 @@ public class ProcessPresenter extends Presenter {
                 ((ProcessSettings) settings).selectPreemptive(true);
                 ((ProcessSettings) settings).enablePreemptive(false);
                 ((ProcessSettings) settings).visibleQuantum(true);
-                context.setAlgorithm(new ProcessStrategyRR(((ProcessSettings) settings).getQuantumSize()));
+                context.setAlgorithm(ProcessFactory.createAlgorithm(actionCommand, ((ProcessSettings) settings).getPreemptive(), ((ProcessSettings) settings).getQuantumSize()));
                 panel.setLabel(getAlgorithmInfo());
                 break;
             case 27:
@@ -314,6 +383,7 @@ public class ProcessPresenter extends Presenter {
                 panel.setLabel(getAlgorithmInfo());
                 break;
         }
+        if (action >= 23 && action <= 28) readSettings();
     }
 
     /**
@@ -338,9 +408,9 @@ public class ProcessPresenter extends Presenter {
      */
     public void updateInfo() {
         // Update possible value changed. Running process and ready queue and optionally arriving queue and IO operations
-        info.updateValues(context.getTableStatsData(timecontrols.getTime()));
-        info.initData(context.getTableInfoData(timecontrols.getTime()));
-        ((ArrivingPainter) this.getPainter(ARRIVING_PAINTER)).initData(context.getArrivingInfoData(timecontrols.getTime()));
+        info.updateValues(context.getTableStatsData(timecontrols.getShownTime()));
+        info.initData(context.getTableInfoData(timecontrols.getShownTime()));
+        ((ArrivingPainter) this.getPainter(ARRIVING_PAINTER)).initData(context.getArrivingInfoData(timecontrols.getShownTime()));
         ((IOPainter) this.getPainter(IO_PAINTER)).initData(context.getIOInfoData());
     }
 
@@ -545,27 +615,7 @@ public class ProcessPresenter extends Presenter {
                     break;
                 case 1:
                 case 2:
-
-                    for (int i = 0; i < data.size(); i++) { // Processes
-                        Vector<Vector<String>> process = data.get(i);
-                        Vector<Object> processData = new Vector<Object>();
-
-                        processData.add(process.get(0).get(1)); // pid. Value at position 1
-                        processData.add(process.get(1).get(1));             // name. Value at position 1
-                        processData.add(Integer.valueOf(process.get(2).get(1))); // prio. Value at position 1
-                        processData.add(Integer.valueOf(process.get(3).get(1))); // submission. Value at position 1
-                        processData.add(Boolean.valueOf(process.get(4).get(1))); // periodic. Value at position 1
-                        processData.add(new Color(Integer.valueOf(process.get(6).get(1)))); // color. Value at position 1 (RGB value)
-
-                        Vector<Integer> bursts = new Vector<Integer>();
-                        String[] sbursts = process.get(5).get(1).split(" ");
-                        for (int k = 0; k < sbursts.length; k++) {
-                            bursts.add(Integer.valueOf(sbursts[k]));
-                        }
-                        processData.add(bursts);
-
-                        context.addProcess(processData, timecontrols.getTime());
-                    }
+                    ProcessFactory.addProcesses(context, data, timecontrols.getTime());
                     break;
             }
         } catch (Exception e) {
@@ -4,6 +4,7 @@ import edu.upc.fib.ossim.utils.ColorCell;
 import edu.upc.fib.ossim.utils.Translation;
 
 import java.awt.*;
+import java.io.Serializable;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
@@ -17,7 +18,8 @@ import java.util.List;
  *
  * @author Alex Macia
  */
-public class ContextProcess {
+public class ContextProcess implements Serializable {
+    private static final long serialVersionUID = 1L;
     public static final int MAX_PROCESSES = 20;
     private ProcessStrategy algorithm;
     // Separate queue's cause different orders   
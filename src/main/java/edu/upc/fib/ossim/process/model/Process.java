@@ -4,6 +4,7 @@ import edu.upc.fib.ossim.utils.ColorCell;
 import edu.upc.fib.ossim.utils.Translation;
 
 import java.awt.*;
+import java.io.Serializable;
 import java.util.Vector;
 
 
@@ -12,7 +13,8 @@ import java.util.Vector;
  *
  * @author Alex Macia
  */
-public class Process implements Comparable<Process>, Cloneable {
+public class Process implements Comparable<Process>, Cloneable, Serializable {
+    private static final long serialVersionUID = 1L;
     private static int maxpid = 1;
     private final int pid;
     private final String name;
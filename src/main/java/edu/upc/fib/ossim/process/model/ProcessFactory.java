@@ -0,0 +1,87 @@
+package edu.upc.fib.ossim.process.model;
+
+import java.awt.*;
+import java.util.Vector;
+
+
+/**
+ * Builds process scheduling model objects from settings and simulation files, shared by process presenter
+ * and process batch: scheduling algorithms by name, with settings dialog constraints, and processes
+ * from simulation file queues
+ *
+ * @author Alex Macia
+ */
+public class ProcessFactory {
+    public static final String[] ALGORITHMS = {"FCFS", "SJF", "PRI", "RR"};    // Scheduling algorithms names
+
+    private ProcessFactory() {
+    }
+
+    /**
+     * Creates a scheduling algorithm
+     *
+     * @param management algorithm name: FCFS, SJF, PRI or RR
+     * @param preemptive preemptive algorithm, only SJF and PRI may choose it
+     * @param quantum    Round Robin quantum
+     * @return scheduling algorithm
+     */
+    public static ProcessStrategy createAlgorithm(String management, boolean preemptive, int quantum) {
+        if ("SJF".equals(management)) return new ProcessStrategySJF(preemptive);
+        if ("PRI".equals(management)) return new ProcessStrategyPrio(preemptive);
+        if ("RR".equals(management)) return new ProcessStrategyRR(quantum);
+        return new ProcessStrategyFCFS();
+    }
+
+    /**
+     * Returns multiprogramming as settings dialog allows it: only FCFS may disable multiprogramming
+     *
+     * @param management       algorithm name
+     * @param multiprogramming multiprogramming chosen
+     * @return multiprogramming
+     */
+    public static boolean isMultiprogramming(String management, boolean multiprogramming) {
+        return multiprogramming || !"FCFS".equals(management);
+    }
+
+    /**
+     * Returns preemption as settings dialog allows it: FCFS is never preemptive and Round Robin always is
+     *
+     * @param management algorithm name
+     * @param preemptive preemption chosen
+     * @return preemption
+     */
+    public static boolean isPreemptive(String management, boolean preemptive) {
+        if ("FCFS".equals(management)) return false;
+        return preemptive || "RR".equals(management);
+    }
+
+    /**
+     * Adds processes read from a simulation file queue: ready or arriving queue
+     *
+     * @param context process scheduling model
+     * @param data    queue processes, every process attribute is a name and value pair
+     * @param time    current time
+     */
+    public static void addProcesses(ContextProcess context, Vector<Vector<Vector<String>>> data, int time) {
+        for (int i = 0; i < data.size(); i++) { // Processes
+            Vector<Vector<String>> process = data.get(i);
+            Vector<Object> processData = new Vector<Object>();
+
+            processData.add(process.get(0).get(1)); // pid. Value at position 1
+            processData.add(process.get(1).get(1));             // name. Value at position 1
+            processData.add(Integer.valueOf(process.get(2).get(1))); // prio. Value at position 1
+            processData.add(Integer.valueOf(process.get(3).get(1))); // submission. Value at position 1
+            processData.add(Boolean.valueOf(process.get(4).get(1))); // periodic. Value at position 1
+            processData.add(new Color(Integer.valueOf(process.get(6).get(1)))); // color. Value at position 1 (RGB value)
+
+            Vector<Integer> bursts = new Vector<Integer>();
+            String[] sbursts = process.get(5).get(1).split(" ");
+            for (int k = 0; k < sbursts.length; k++) {
+                bursts.add(Integer.valueOf(sbursts[k]));
+            }
+            processData.add(bursts);
+
+            context.addProcess(processData, time);
+        }
+    }
+}
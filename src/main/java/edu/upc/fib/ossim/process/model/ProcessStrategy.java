@@ -1,5 +1,6 @@
 package edu.upc.fib.ossim.process.model;
 
+import java.io.Serializable;
 import java.util.PriorityQueue;
 
 /**
@@ -8,7 +9,7 @@ import java.util.PriorityQueue;
  *
  * @author Alex Macia
  */
-public interface ProcessStrategy {
+public interface ProcessStrategy extends Serializable {
     /**
      * Gets algorithm information including main settings values
      *
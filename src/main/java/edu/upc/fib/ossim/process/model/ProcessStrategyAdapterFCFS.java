@@ -8,6 +8,7 @@ import java.util.PriorityQueue;
  * @author Àlex
  */
 public abstract class ProcessStrategyAdapterFCFS implements ProcessStrategy {
+    private static final long serialVersionUID = 1L;
     private static int order = 0;
 
     /**
@@ -10,6 +10,7 @@ import java.util.PriorityQueue;
  * @author Àlex
  */
 public abstract class ProcessStrategyAdapterPrio implements ProcessStrategy {
+    private static final long serialVersionUID = 1L;
     protected boolean preemptive;
 
     public ProcessStrategyAdapterPrio(boolean preemptive) {
@@ -10,6 +10,7 @@ import java.util.PriorityQueue;
  * @author Alex Macia
  */
 public class ProcessStrategyFCFS extends ProcessStrategyAdapterFCFS {
+    private static final long serialVersionUID = 1L;
     /**
      * Gets first come first served algorithm information, never preemptive
      *
@@ -8,6 +8,7 @@ import java.util.PriorityQueue;
  * @author Alex Macia
  */
 public class ProcessStrategyPrio extends ProcessStrategyAdapterPrio {
+    private static final long serialVersionUID = 1L;
     public ProcessStrategyPrio(boolean preemptive) {
         super(preemptive);
     }
@@ -10,6 +10,7 @@ import java.util.PriorityQueue;
  * @author Alex Macia
  */
 public class ProcessStrategyRR extends ProcessStrategyAdapterFCFS {
+    private static final long serialVersionUID = 1L;
     private final int quantum;
 
     public ProcessStrategyRR(int quantum) {
@@ -9,6 +9,7 @@ import java.util.PriorityQueue;
  * @author Alex Macia
  */
 public class ProcessStrategySJF extends ProcessStrategyAdapterPrio {
+    private static final long serialVersionUID = 1L;
 
     public ProcessStrategySJF(boolean preemptive) {
         super(preemptive);
@@ -0,0 +1,219 @@
+package edu.upc.fib.ossim.process.model;
+
+import java.awt.*;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Vector;
+
+/**
+ * Scheduling timeline, time units every process has run kept as run-length intervals by process.
+ * Besides recorded units (level 0), every level aggregates <code>FACTOR</code> buckets of previous one,
+ * so level k bucket spans FACTOR<sup>k</sup> time units and a process is present in it when it has run
+ * during any of its time units: short bursts are kept at every level. Queries are answered from the coarsest
+ * level whose bucket fits into requested resolution, so intervals returned are proportional to resolution
+ * and processes, not to time units. <br/>
+ * Timeline is recorded by simulation thread and read by painters, its methods are synchronized
+ *
+ * @author Alex Macia
+ * @see edu.upc.fib.ossim.process.view.GanttPainter
+ */
+public class Timeline {
+    public static final int FACTOR = 4;    // Buckets aggregated from one level to next
+    private static final int MAX_LEVELS = 15;    // FACTOR^14 time units top bucket
+    private final Hashtable<Integer, Vector<Runs>> runs;    // Run-length intervals by process and level
+    private final Vector<Vector<Integer>> present;    // Processes run during current bucket by level, level 0 unused
+    private final Hashtable<Integer, Color> colors;    // Processes colors by pid
+    private final Vector<Integer> pids;    // Processes that have run, sorted
+    private int length;    // Time units recorded
+
+    /**
+     * Constructs an empty timeline
+     */
+    public Timeline() {
+        runs = new Hashtable<Integer, Vector<Runs>>();
+        present = new Vector<Vector<Integer>>();
+        colors = new Hashtable<Integer, Color>();
+        pids = new Vector<Integer>();
+        clear();
+    }
+
+    /**
+     * Removes all time units recorded
+     */
+    public synchronized void clear() {
+        runs.clear();
+        present.clear();
+        colors.clear();
+        pids.clear();
+        for (int level = 0; level < MAX_LEVELS; level++) present.add(new Vector<Integer>());
+        length = 0;
+    }
+
+    /**
+     * Records process running during a time unit. Time units already recorded are ignored,
+     * and missing ones are recorded as idle
+     *
+     * @param time  time unit
+     * @param pid   running process identifier, 0 if cpu is idle
+     * @param color running process color, unused if cpu is idle
+     */
+    public synchronized void record(int time, int pid, Color color) {
+        if (time < length) return;
+        while (length < time) add(0);
+        if (pid != 0 && !colors.containsKey(pid)) {
+            colors.put(pid, color);
+            pids.add(pid);
+            Collections.sort(pids);
+        }
+        add(pid);
+    }
+
+    private void add(int pid) {
+        // Adds a time unit to level 0, upper levels are completed bucket by bucket
+        if (pid != 0) getRuns(pid, 0).add(length, length + 1);
+        length++;
+        Vector<Integer> completed = new Vector<Integer>();    // Processes run during bucket completed by previous level
+        if (pid != 0) completed.add(pid);
+        int size = 1;
+        for (int level = 1; level < MAX_LEVELS; level++) {
+            size *= FACTOR;
+            Vector<Integer> bucket = present.get(level);
+            for (int i = 0; i < completed.size(); i++) if (!bucket.contains(completed.get(i))) bucket.add(completed.get(i));
+            if (length % size != 0) return;
+
+            Iterator<Integer> it = bucket.iterator();
+            while (it.hasNext()) getRuns(it.next(), level).add(length - size, length);
+            present.set(level, new Vector<Integer>());
+            completed = bucket;
+        }
+    }
+
+    private Runs getRuns(int pid, int level) {
+        // Process intervals at a level, created on demand
+        Vector<Runs> levels = runs.get(pid);
+        if (levels == null) {
+            levels = new Vector<Runs>();
+            runs.put(pid, levels);
+        }
+        while (levels.size() <= level) levels.add(new Runs());
+        return levels.get(level);
+    }
+
+    private int getEnd(int level) {
+        // Time units covered by complete buckets of a level
+        int size = 1;
+        for (int i = 0; i < level; i++) size *= FACTOR;
+        return length - length % size;
+    }
+
+    /**
+     * Returns intervals where processes run between two time units at a given resolution. Intervals are taken
+     * from the coarsest level whose bucket is not greater than resolution, so they are not shorter than
+     * about a resolution unit except at both ends. A process has an interval wherever it has run, however
+     * short its bursts are
+     *
+     * @param from       first time unit
+     * @param to         time unit after last one
+     * @param resolution time units per drawing unit (pixel)
+     * @return    intervals: start, end (excluded) and pid, idle cpu intervals are excluded
+     */
+    public synchronized Vector<int[]> getIntervals(int from, int to, double resolution) {
+        Vector<int[]> intervals = new Vector<int[]>();
+        from = Math.max(0, from);
+        to = Math.min(to, length);
+        if (from >= to) return intervals;
+
+        int level = 0;
+        double size = FACTOR;
+        while (level + 1 < MAX_LEVELS && size <= resolution) {
+            level++;
+            size *= FACTOR;
+        }
+        Iterator<Integer> it = pids.iterator();
+        while (it.hasNext()) collect(it.next(), level, from, to, intervals);
+        return intervals;
+    }
+
+    private void collect(int pid, int level, int from, int to, Vector<int[]> intervals) {
+        // Process intervals covered by level, time units after its last complete bucket are taken from finer levels
+        Vector<Runs> levels = runs.get(pid);
+        int end = Math.min(to, getEnd(level));
+        if (levels != null && level < levels.size() && from < end) {
+            Runs r = levels.get(level);
+            for (int i = r.find(from); i < r.size && r.starts[i] < end; i++) {
+                int start = Math.max(from, r.starts[i]);
+                int stop = Math.min(end, r.ends[i]);
+                int[] last = intervals.isEmpty() ? null : intervals.lastElement();
+                if (last != null && last[2] == pid && last[1] == start) last[1] = stop;
+                else intervals.add(new int[]{start, stop, pid});
+            }
+        }
+        if (to > getEnd(level) && level > 0) collect(pid, level - 1, Math.max(from, getEnd(level)), to, intervals);
+    }
+
+    /**
+     * Gets time units recorded
+     *
+     * @return    time units recorded
+     */
+    public synchronized int getLength() {
+        return length;
+    }
+
+    /**
+     * Gets processes that have run
+     *
+     * @return    processes identifiers, sorted
+     */
+    public synchronized Vector<Integer> getPids() {
+        return new Vector<Integer>(pids);
+    }
+
+    /**
+     * Gets color of a process that has run
+     *
+     * @param pid process identifier
+     * @return    process color
+     */
+    public synchronized Color getColor(int pid) {
+        return colors.get(pid);
+    }
+
+    private static class Runs {
+        // Run-length intervals: start and end (excluded) time units, sorted and disjoint
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int size;
+
+        private void add(int start, int end) {
+            if (size > 0 && ends[size - 1] == start) { // Extends last interval
+                ends[size - 1] = end;
+                return;
+            }
+            if (size == starts.length) {
+                int[] s = new int[size * 2];
+                int[] e = new int[size * 2];
+                System.arraycopy(starts, 0, s, 0, size);
+                System.arraycopy(ends, 0, e, 0, size);
+                starts = s;
+                ends = e;
+            }
+            starts[size] = start;
+            ends[size] = end;
+            size++;
+        }
+
+        private int find(int time) {
+            // First interval ending after time unit, binary search
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ends[mid] <= time) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package edu.upc.fib.ossim.process.view;
+
+import edu.upc.fib.ossim.process.ProcessPresenter;
+import edu.upc.fib.ossim.process.model.Timeline;
+import edu.upc.fib.ossim.template.Presenter;
+import edu.upc.fib.ossim.template.view.PainterTemplate;
+import edu.upc.fib.ossim.utils.Translation;
+
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.util.Iterator;
+import java.util.Vector;
+
+
+/**
+ * Gantt chart, one row per process showing time units it has run until shown simulation time.
+ * Whole schedule is fitted into painter until it is zoomed (mouse wheel) or panned (mouse drag),
+ * double click fits it again. Intervals are taken from scheduling timeline at painter resolution,
+ * so long schedules cost as much as visible pixels. Zoomed out, a process row shows every pixel
+ * where the process has run, however short its bursts are
+ *
+ * @author Alex Macia
+ * @see Timeline
+ */
+public class GanttPainter extends PainterTemplate {
+    private static final long serialVersionUID = 1L;
+    private static final int MARGIN = 5;
+    private static final int LABEL_WIDTH = 45;
+    private static final int HEADER = 35;
+    private static final int ROW_HEIGHT = 14;    // Maximum row height
+    private static final int AXIS_STEP = 60;    // Minimum pixels between time labels
+    private static final double MIN_SCALE = 1.0 / 32;    // Time units per pixel, most zoomed in
+    private static final Font TITLE_FONT = new Font(Font.MONOSPACED, Font.BOLD, 12);
+    private static final Font LABEL_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 10);
+    private double scale = 1;    // Time units per pixel
+    private double origin;    // Time unit at chart left side
+    private boolean fit = true;    // Whole schedule is fitted
+    private int dragX;
+
+    /**
+     * Constructs a GanttPainter
+     *
+     * @param presenter event manager
+     * @param width     canvas width
+     * @param height    canvas height
+     */
+    public GanttPainter(Presenter presenter, int width, int height) {
+        super(presenter, width, height);
+        MouseAdapter mouse = new MouseAdapter() {
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoom(e.getX(), e.getWheelRotation() > 0 ? 2 : 0.5);
+            }
+
+            public void mousePressed(MouseEvent e) {
+                dragX = e.getX();
+            }
+
+            public void mouseDragged(MouseEvent e) {
+                pan(e.getX() - dragX);
+                dragX = e.getX();
+            }
+
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    fit = true;
+                    repaint();
+                }
+            }
+        };
+        addMouseWheelListener(mouse);
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+    }
+
+    private void zoom(int x, double factor) {
+        // Time unit under mouse stays under it
+        double time = origin + Math.max(0, x - LABEL_WIDTH) * scale;
+        scale = Math.max(MIN_SCALE, scale * factor);
+        origin = time - Math.max(0, x - LABEL_WIDTH) * scale;
+        fit = false;
+        repaint();
+    }
+
+    private void pan(int dx) {
+        origin -= dx * scale;
+        fit = false;
+        repaint();
+    }
+
+    /**
+     * Draws process rows and time units they have run, a time axis and process identifiers
+     *
+     * @param g graphic context
+     */
+    public void paint(Graphics g) {
+        g2 = (Graphics2D) g;
+        Dimension size = getSize();
+        int w = (int) size.getWidth();
+        int h = (int) size.getHeight();
+        g2.setPaint(Color.white);
+        g2.fillRect(0, 0, w, h);
+        g2.setPaint(Color.BLACK);
+        g2.drawRect(0, 0, w - 1, h - 1);
+
+        g2.setFont(TITLE_FONT);
+        g2.drawString(Translation.getInstance().getLabel("pr_75"), MARGIN, 15);
+
+        Timeline timeline = ((ProcessPresenter) presenter).getTimeline();
+        int end = Math.min(timeline.getLength(), presenter.getTimecontrols().getShownTime());
+        int chart = w - LABEL_WIDTH - MARGIN;
+        if (chart <= 0) return;
+
+        // View fitted or kept into schedule
+        if (fit) {
+            scale = Math.max(MIN_SCALE, (double) end / chart);
+            origin = 0;
+        }
+        origin = Math.max(0, Math.min(origin, end - chart * scale));
+        int from = (int) Math.floor(origin);
+        int to = (int) Math.ceil(origin + chart * scale);
+
+        // Time axis, labels every 1, 2 or 5 power of ten time units
+        g2.setFont(LABEL_FONT);
+        int step = 1;
+        int base = 1;
+        while (step / scale < AXIS_STEP) {
+            if (2 * base / scale >= AXIS_STEP) step = 2 * base;
+            else if (5 * base / scale >= AXIS_STEP) step = 5 * base;
+            else step = 10 * base;
+            base *= 10;
+        }
+        for (int t = from - from % step; t <= to; t += step) {
+            int x = LABEL_WIDTH + (int) Math.round((t - origin) / scale);
+            if (x < LABEL_WIDTH) continue;
+            g2.drawLine(x, HEADER - 5, x, HEADER);
+            g2.drawString(Integer.toString(t), x + 2, HEADER - 5);
+        }
+
+        // Process rows
+        Vector<Integer> pids = timeline.getPids();
+        if (pids.isEmpty()) return;
+        int row = Math.max(1, Math.min(ROW_HEIGHT, (h - HEADER - MARGIN) / pids.size()));
+        for (int i = 0; i < pids.size(); i++) {
+            g2.setColor(Color.BLACK);
+            if (row >= 8) g2.drawString("PID " + pids.get(i), MARGIN, HEADER + (i + 1) * row - 2);
+            g2.setColor(Color.LIGHT_GRAY);
+            g2.drawLine(LABEL_WIDTH, HEADER + (i + 1) * row, w - MARGIN, HEADER + (i + 1) * row);
+        }
+
+        // Intervals at painter resolution, clipped to chart
+        Shape clip = g2.getClip();
+        g2.clipRect(LABEL_WIDTH, HEADER, chart, h - HEADER - MARGIN);
+        Iterator<int[]> it = timeline.getIntervals(from, to, scale).iterator();
+        while (it.hasNext()) {
+            int[] interval = it.next();
+            int i = pids.indexOf(interval[2]);
+            if (i < 0) continue;
+            int x1 = LABEL_WIDTH + (int) Math.round((interval[0] - origin) / scale);
+            int x2 = LABEL_WIDTH + (int) Math.round((interval[1] - origin) / scale);
+            int y = HEADER + i * row + 1;
+            g2.setColor(timeline.getColor(interval[2]));
+            g2.fillRect(x1, y, Math.max(1, x2 - x1), row - 1);
+            if (x2 - x1 >= 4 && row >= 4) {
+                g2.setColor(Color.BLACK);
+                g2.drawRect(x1, y, x2 - x1, row - 1);
+            }
+        }
+        g2.setClip(clip);
+    }
+
+    /**
+     * Returns false. Chart rows don't generate presenter events
+     *
+     * @param o unused
+     * @param x x 	unused
+     * @param y y 	unused
+     * @return false
+     */
+    public boolean contains(Object o, int x, int y) {
+        return false;
+    }
+}
@@ -16,12 +16,19 @@ import java.util.Vector;
 
 /**
  * Paints CPU. Processes enter into CPU and are executed while time goes,
- * process execution time remaining is highlighted, and a brief process information is shown
+ * process execution time remaining is highlighted, and a brief process information is shown.
+ * Background and processor are a cached static layer, running process is repainted only when it changes
+ * and its bursts cycle only when current burst moves
  *
  * @author Alex Macia
  */
 public class ProcessorPainter extends PainterTemplate {
     private static final long serialVersionUID = 1L;
+    private static final Font TITLE_FONT = new Font(Font.MONOSPACED, Font.BOLD, 14);
+    private static final Font LABEL_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 10);
+    private static final int OFFSET = 10;
+    private String drawnProcess;    // Running process drawn by last paint, null if not painted yet
+    private int drawnCurrent;    // Its current burst drawn
 
     /**
      * Constructs a ProcessorPainter
@@ -42,69 +49,30 @@ public class ProcessorPainter extends PainterTemplate {
     public void paint(Graphics g) {
         g2 = (Graphics2D) g;
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        Dimension size = getSize();
-        int w = (int) size.getWidth();
-        int h = (int) size.getHeight();
-        g2.setPaint(Color.gray);
-        g2.fillRect(0, 0, w, h);
-
-        // Process in processor 
-        String proc = Translation.getInstance().getLabel("pr_03");
-        String idle = Translation.getInstance().getLabel("pr_04");
-        String running = Translation.getInstance().getLabel("pr_05");
-        String[] s = {proc, idle, running};
-        int maxStrWidth = Functions.getInstance().maxStringsWidth(s, g2.getFontRenderContext(), g2.getFont());
-
-        // Measures
-        int offset = 10;
-        int x_proc = maxStrWidth + 2 * offset;
-        int y_proc = 2 * offset;
-        int w_proc = w - maxStrWidth - 4 * offset;
-        int h_proc = h - 4 * offset;
+        int h = getHeight();
+        drawStaticLayer(g2, getFont());
 
-        // background
-        g2.setColor(Color.GRAY);
-        g2.fillRect(2, 2, w - 2, h - 2);
-        g2.setColor(Color.BLACK);
-        g2.drawRect(0, 0, w - 1, h - 1);
-
-        g2.setFont(new Font(Font.MONOSPACED, Font.BOLD, 14));
+        remapObjects();
+        g2.setFont(TITLE_FONT);
         g2.setColor(Color.BLACK);
-        g2.drawString(proc, offset, h / 2);
-
-        g2.drawRect(x_proc, y_proc, w_proc, h_proc);
 
         int pid = ((ProcessPresenter) presenter).getRunning();
+        drawnProcess = getProcess(pid);
+        drawnCurrent = pid == 0 ? -1 : ((ProcessPresenter) presenter).getCurrent(pid);
         if (pid == 0) {
-            g2.drawString(idle, offset, h / 2 + 2 * offset);
+            g2.drawString(Translation.getInstance().getLabel("pr_04"), OFFSET, h / 2 + 2 * OFFSET);
         } else {
-            g2.drawString(running, offset, h / 2 + 2 * offset);
+            g2.drawString(Translation.getInstance().getLabel("pr_05"), OFFSET, h / 2 + 2 * OFFSET);
 
             int psize = ((ProcessPresenter) presenter).getSize(pid);
-            int current = ((ProcessPresenter) presenter).getCurrent(pid);
+            Rectangle process = getProcessBounds();
 
-            x_proc += 3 * offset;
-            y_proc += offset;
-            w_proc -= 6 * offset;
-            h_proc /= 2;
-
-            drawProcess(pid, x_proc, y_proc, w_proc, h_proc);
+            drawProcess(pid, process.x, process.y, process.width, process.height);
 
             // CPU I/O burst cycle
-            int last_x = x_proc;
-            int hburstunit = w_proc / 5;
-            int wburstunit;
-            if (psize > 5) wburstunit = w_proc / psize;
-            else wburstunit = w_proc / 5;
-
             for (int i = 0; i < psize; i++) {
-                boolean cpuBurst = ((ProcessPresenter) presenter).isCPUBurst(pid, i);
-                Rectangle rect = null;
-                if (cpuBurst)
-                    rect = new Rectangle(last_x + i * wburstunit, y_proc + h_proc + 10, wburstunit, hburstunit);
-                else
-                    rect = new Rectangle(last_x + i * wburstunit, y_proc + h_proc + hburstunit + 10, wburstunit, hburstunit);
-                if (i == current) g2.setColor(Color.RED);
+                Rectangle rect = getBurstBounds(process, psize, i, ((ProcessPresenter) presenter).isCPUBurst(pid, i));
+                if (i == drawnCurrent) g2.setColor(Color.RED);
                 else g2.setColor(Color.LIGHT_GRAY);
                 g2.fill(rect);
                 g2.setColor(Color.BLACK);
@@ -112,12 +80,104 @@ public class ProcessorPainter extends PainterTemplate {
             }
 
             g2.setColor(Color.BLACK);
-            g2.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 10));
-            g2.drawString("CPU", x_proc - 3 * offset + 2, y_proc + h_proc + 27);
-            g2.drawString("I/O", x_proc - 3 * offset + 2, y_proc + h_proc + hburstunit + 27);
+            g2.setFont(LABEL_FONT);
+            g2.drawString("CPU", process.x - 3 * OFFSET + 2, process.y + process.height + 27);
+            g2.drawString("I/O", process.x - 3 * OFFSET + 2, process.y + process.height + process.width / 5 + 27);
         }
     }
 
+    /**
+     * Paints background and processor
+     *
+     * @param g static layer graphics
+     */
+    protected void paintStaticLayer(Graphics2D g) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int w = getWidth();
+        int h = getHeight();
+        g.setPaint(Color.gray);
+        g.fillRect(0, 0, w, h);
+
+        // background
+        g.setColor(Color.GRAY);
+        g.fillRect(2, 2, w - 2, h - 2);
+        g.setColor(Color.BLACK);
+        g.drawRect(0, 0, w - 1, h - 1);
+
+        g.setFont(TITLE_FONT);
+        g.setColor(Color.BLACK);
+        g.drawString(Translation.getInstance().getLabel("pr_03"), OFFSET, h / 2);
+
+        int maxStrWidth = getMaxStringWidth();
+        g.drawRect(maxStrWidth + 2 * OFFSET, 2 * OFFSET, w - maxStrWidth - 4 * OFFSET, h - 4 * OFFSET);
+    }
+
+    /**
+     * Returns region changed since last paint: whole processor if running process or its information
+     * has changed, otherwise bursts whose current state has changed
+     *
+     * @return changed region, null if processor has not been painted
+     */
+    protected Rectangle getDirtyRegion() {
+        if (drawnProcess == null) return null;
+        int pid = ((ProcessPresenter) presenter).getRunning();
+        if (!getProcess(pid).equals(drawnProcess)) return new Rectangle(1, 1, getWidth() - 2, getHeight() - 2);
+
+        int current = pid == 0 ? -1 : ((ProcessPresenter) presenter).getCurrent(pid);
+        if (current == drawnCurrent) return new Rectangle();
+        Rectangle process = getProcessBounds();
+        int psize = ((ProcessPresenter) presenter).getSize(pid);
+        Rectangle dirty = new Rectangle();
+        if (current >= 0 && current < psize)
+            dirty = getBurstBounds(process, psize, current, ((ProcessPresenter) presenter).isCPUBurst(pid, current));
+        if (drawnCurrent >= 0 && drawnCurrent < psize) {
+            Rectangle previous = getBurstBounds(process, psize, drawnCurrent, ((ProcessPresenter) presenter).isCPUBurst(pid, drawnCurrent));
+            dirty = dirty.isEmpty() ? previous : dirty.union(previous);
+        }
+        dirty.grow(1, 1);
+        return dirty;
+    }
+
+    private String getProcess(int pid) {
+        // Running process appearance but its current burst
+        if (pid == 0) return "0";
+        StringBuilder process = new StringBuilder();
+        process.append(pid).append('/').append(presenter.getColor(pid).getRGB()).append('/').append(presenter.getInfo(pid));
+        int psize = ((ProcessPresenter) presenter).getSize(pid);
+        process.append('/');
+        for (int i = 0; i < psize; i++) process.append(((ProcessPresenter) presenter).isCPUBurst(pid, i) ? 'C' : 'I');
+        return process.toString();
+    }
+
+    private int getMaxStringWidth() {
+        // Process in processor
+        String[] s = {Translation.getInstance().getLabel("pr_03"), Translation.getInstance().getLabel("pr_04"),
+                Translation.getInstance().getLabel("pr_05")};
+        return Functions.getInstance().maxStringsWidth(s, getFontMetrics(getFont()).getFontRenderContext(), getFont());
+    }
+
+    private Rectangle getProcessBounds() {
+        // Running process rectangle, inside processor
+        int maxStrWidth = getMaxStringWidth();
+        int x_proc = maxStrWidth + 2 * OFFSET + 3 * OFFSET;
+        int y_proc = 2 * OFFSET + OFFSET;
+        int w_proc = getWidth() - maxStrWidth - 4 * OFFSET - 6 * OFFSET;
+        int h_proc = (getHeight() - 4 * OFFSET) / 2;
+        return new Rectangle(x_proc, y_proc, w_proc, h_proc);
+    }
+
+    private Rectangle getBurstBounds(Rectangle process, int psize, int i, boolean cpuBurst) {
+        // CPU bursts above I/O bursts, under running process
+        int hburstunit = process.width / 5;
+        int wburstunit;
+        if (psize > 5) wburstunit = process.width / psize;
+        else wburstunit = process.width / 5;
+
+        if (cpuBurst)
+            return new Rectangle(process.x + i * wburstunit, process.y + process.height + 10, wburstunit, hburstunit);
+        return new Rectangle(process.x + i * wburstunit, process.y + process.height + hburstunit + 10, wburstunit, hburstunit);
+    }
+
     private void drawProcess(int pid, int x, int y, double width, double height) {
         RoundRectangle2D rect = new RoundRectangle2D.Double(x, y, width, height, 5, 5); // Process Rectangle
         map.put(rect, Integer.valueOf(pid));
@@ -12,6 +12,7 @@ import java.awt.geom.Rectangle2D;
 import java.awt.geom.RoundRectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Vector;
 
 
@@ -19,7 +20,8 @@ import java.util.Vector;
  * Represents a processes queue. Processes enter queue at its appropriate position depending on
  * scheduler settings, and are laid out horizontally, an arrow is placed between processes
  * showing queue direction. A brief information is shown over every process. <br/>
- * A pop up menu allows process update and delete
+ * A pop up menu allows process update and delete. Background and title are a cached static layer,
+ * only queue positions whose process changed since last paint are repainted
  *
  * @author Alex Macia
  * @see PainterTemplate
@@ -31,10 +33,16 @@ public class QueuePainter extends PainterTemplate {
     private static final int P_HEIGHT = 70;
     private static final int P_MINWIDTH = 70;
     private static final int P_MINBURSTS = 5;
+    private static final Font TITLE_FONT = new Font(Font.MONOSPACED, Font.BOLD, 12);
+    private static final Font TEXT_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Font LABEL_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 10);
     private final BufferedImage arrow;
     private final int viewPortwidth;
     private final int viewPortheight;
     private final String keytitle;
+    private Dimension drawnSize;    // Painter size drawn by last paint
+    private Vector<String> drawn;    // Processes drawn by last paint, by queue position, null if not painted yet
+    private Vector<Rectangle> drawnBounds;    // Their queue positions bounds
 
     /**
      * Constructs a ProcessPainter, creates the pop up menu and initialize painter's title.
@@ -66,47 +74,35 @@ public class QueuePainter extends PainterTemplate {
         Dimension size = getSize();
         int w = (int) size.getWidth();
         int h = (int) size.getHeight();
-        g2.setPaint(Color.gray);
-        g2.fillRect(0, 0, w, h);
+        drawStaticLayer(g2, keytitle);
 
-        map.clear();
+        remapObjects();
+        drawnSize = size;
+        drawn = new Vector<String>();
+        drawnBounds = new Vector<Rectangle>();
 
         // Draws a processes queue into area x,y,w,h 
         int width = 0;
         int last_x = w - 20; // Starts at queue's right side 
         int process_y = 40;
 
-        // background
-        //g2.setPaint(bg);
-        g2.setColor(Color.GRAY);
-        g2.fillRect(2, 2, w - 2, h - 2);
-        g2.setColor(Color.BLACK);
-        g2.drawRect(0, 0, w, h);
-
-        // Draw ready queue
-        g2.setFont(new Font(Font.MONOSPACED, Font.BOLD, 12));
-        g2.setColor(Color.BLACK);
-        g2.drawString(Translation.getInstance().getLabel(keytitle), w / 2 - 30, 20);
-
-
         Iterator<Integer> it = presenter.iterator(0);
 
         int psize;
         while (it.hasNext()) {
-            g2.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            g2.setFont(TEXT_FONT);
             Integer pid = it.next();
 
             psize = ((ProcessPresenter) presenter).getSize(pid);
-
-            // Rectangle width 
-            if (psize > 5) width = P_MINWIDTH + (psize - 5) * P_MINWIDTH / P_MINBURSTS;
-            else width = P_MINWIDTH;
+            width = getProcessWidth(psize);
 
             if (last_x - width - 10 - ARROW_WIDTH < 0) {
                 int newWidth = w - (last_x - width - 10 - ARROW_WIDTH) + 20;
                 setPreferredSize(new Dimension(newWidth, h));
                 revalidate(); // Updates scroll 
             }
+            drawn.add(getProcess(pid));
+            drawnBounds.add(getPositionBounds(last_x, width));
 
             // Process
             drawProcess(pid.intValue(), last_x - width, process_y, width, P_HEIGHT);
@@ -119,20 +115,100 @@ public class QueuePainter extends PainterTemplate {
             drawArrow(arrow, last_x - 25 - ARROW_WIDTH, process_y + (P_HEIGHT / 2) - (ARROW_HEIGHT / 2), ARROW_HEIGHT, ARROW_WIDTH);
             // I/O CPU
             g2.setColor(Color.BLACK);
-            g2.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 10));
+            g2.setFont(LABEL_FONT);
             g2.drawString("CPU", last_x - ARROW_WIDTH - 5, process_y + P_HEIGHT + 23);
             g2.drawString("I/O", last_x - ARROW_WIDTH - 5, process_y + P_HEIGHT + 38);
 
             last_x -= 30 + ARROW_WIDTH;
         }
 
-        if (w - last_x < viewPortwidth) {
+        if (w - last_x < viewPortwidth && (getPreferredSize().width != viewPortwidth || getPreferredSize().height != viewPortheight)) {
             // Restore initial width
             setPreferredSize(new Dimension(viewPortwidth, viewPortheight));
             revalidate(); // Updates scroll 
         }
     }
 
+    /**
+     * Paints background and queue title
+     *
+     * @param g static layer graphics
+     */
+    protected void paintStaticLayer(Graphics2D g) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int w = getWidth();
+        int h = getHeight();
+        g.setPaint(Color.gray);
+        g.fillRect(0, 0, w, h);
+
+        // background
+        g.setColor(Color.GRAY);
+        g.fillRect(2, 2, w - 2, h - 2);
+        g.setColor(Color.BLACK);
+        g.drawRect(0, 0, w, h);
+
+        // Draw ready queue
+        g.setFont(TITLE_FONT);
+        g.setColor(Color.BLACK);
+        g.drawString(Translation.getInstance().getLabel(keytitle), w / 2 - 30, 20);
+    }
+
+    /**
+     * Returns region covering queue positions whose process changed since last paint, processes
+     * behind a process that changed its width are moved
+     *
+     * @return changed region, null if queue has not been painted
+     */
+    protected Rectangle getDirtyRegion() {
+        if (drawn == null || !getSize().equals(drawnSize)) return null;
+        Vector<String> current = new Vector<String>();
+        Vector<Rectangle> bounds = new Vector<Rectangle>();
+        int last_x = getWidth() - 20;
+        Iterator<Integer> it = presenter.iterator(0);
+        while (it.hasNext()) {
+            Integer pid = it.next();
+            int width = getProcessWidth(((ProcessPresenter) presenter).getSize(pid));
+            current.add(getProcess(pid));
+            bounds.add(getPositionBounds(last_x, width));
+            last_x -= width + 30 + ARROW_WIDTH;
+        }
+        return getDirtyPositions(current, bounds, drawn, drawnBounds);
+    }
+
+    private static Rectangle getDirtyPositions(List<String> current, List<Rectangle> bounds, List<String> previous, List<Rectangle> previousBounds) {
+        // Positions whose process or bounds changed, and positions no longer used
+        Rectangle dirty = new Rectangle();
+        for (int i = 0; i < Math.max(current.size(), previous.size()); i++) {
+            if (i < current.size() && i < previous.size() &&
+                    current.get(i).equals(previous.get(i)) && bounds.get(i).equals(previousBounds.get(i))) continue;
+            if (i < current.size()) dirty = dirty.isEmpty() ? new Rectangle(bounds.get(i)) : dirty.union(bounds.get(i));
+            if (i < previous.size()) dirty = dirty.isEmpty() ? new Rectangle(previousBounds.get(i)) : dirty.union(previousBounds.get(i));
+        }
+        return dirty;
+    }
+
+    private int getProcessWidth(int psize) {
+        // Rectangle width
+        if (psize > 5) return P_MINWIDTH + (psize - 5) * P_MINWIDTH / P_MINBURSTS;
+        return P_MINWIDTH;
+    }
+
+    private Rectangle getPositionBounds(int last_x, int width) {
+        // Process, its bursts cycle, and arrow and labels before it
+        int x = last_x - width - 30 - ARROW_WIDTH;
+        return new Rectangle(x, 30, last_x - x + 2, getHeight() - 32);
+    }
+
+    private String getProcess(int pid) {
+        // Queued process appearance
+        StringBuilder process = new StringBuilder();
+        process.append(pid).append('/').append(presenter.getColor(pid).getRGB()).append('/').append(presenter.getInfo(pid));
+        int psize = ((ProcessPresenter) presenter).getSize(pid);
+        process.append('/').append(((ProcessPresenter) presenter).getCurrent(pid)).append('/');
+        for (int i = 0; i < psize; i++) process.append(((ProcessPresenter) presenter).isCPUBurst(pid, i) ? 'C' : 'I');
+        return process.toString();
+    }
+
     private void drawBurstsCycle(int pid, int psize, int x, int y, int width, int height) {
         int current = ((ProcessPresenter) presenter).getCurrent(pid);
         for (int i = 0; i < psize; i++) {
@@ -0,0 +1,263 @@
+package edu.upc.fib.ossim.template;
+
+import edu.upc.fib.ossim.utils.SimulationClock;
+import edu.upc.fib.ossim.utils.SoSimException;
+import edu.upc.fib.ossim.utils.Translation;
+import edu.upc.fib.ossim.utils.XMLParserJDOM;
+
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Vector;
+
+
+/**
+ * Application batch template (Template Pattern).
+ * Batch template runs a simulation without views nor settings dialogs: loads a simulation file, overrides its
+ * settings and forwards time with a simulation clock, the same events a running simulation forwards, until
+ * simulation ends or a time budget is spent.<br/>
+ * Settings are simulation file parameters (<code>params</code> element) read by name, so parameters missing in
+ * older files take their default values. Statistics are the ones shown by simulation's information dialog
+ *
+ * @author Alex Macia
+ * @see Presenter
+ * @see SimulationClock
+ */
+public abstract class BatchTemplate implements SimulationClock.Target {
+    protected final SimulationClock clock;
+    private final Hashtable<String, String> params;    // Simulation file parameters and overrides by name
+    private SoSimException error;    // Error forwarding time, null if none
+
+    /**
+     * Constructs a BatchTemplate
+     *
+     * @param timesfaster subtimer events per time unit, 0 if there is no subtimer
+     */
+    public BatchTemplate(int timesfaster) {
+        clock = new SimulationClock(0, timesfaster);
+        params = new Hashtable<String, String>();
+    }
+
+    /**
+     * Loads a simulation file, parameters are overridden before model is built
+     *
+     * @param parser    simulation file
+     * @param overrides parameters values by name
+     * @throws SoSimException unknown parameter, invalid value or file that can not be loaded
+     * @see #getParamNames()
+     */
+    public void loadXML(XMLParserJDOM parser, Hashtable<String, String> overrides) throws SoSimException {
+        Vector<Vector<Vector<String>>> data = parser.getElements("params");
+        params.clear();
+        if (data.size() > 0) {
+            Iterator<Vector<String>> it = data.get(0).iterator();
+            while (it.hasNext()) {
+                Vector<String> attribute = it.next();
+                params.put(attribute.get(0), attribute.get(1));
+            }
+        }
+        Iterator<Map.Entry<String, String>> ito = overrides.entrySet().iterator();
+        while (ito.hasNext()) {
+            Map.Entry<String, String> override = ito.next();
+            if (!getParamNames().contains(override.getKey()))
+                throw new SoSimException("all_10", override.getKey() + " " + getParamNames());
+            params.put(override.getKey(), override.getValue());
+        }
+
+        try {
+            putParams();
+            for (int i = 0; i < getXMLChilds().size(); i++) putXMLData(i, parser.getElements(getXMLChilds().get(i)));
+        } catch (SoSimException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SoSimException("all_04");
+        }
+    }
+
+    /**
+     * Gets a parameter value
+     *
+     * @param name  parameter name
+     * @param value default value, parameter missing in simulation file
+     * @return parameter value
+     */
+    protected String getParam(String name, String value) {
+        return params.containsKey(name) ? params.get(name) : value;
+    }
+
+    /**
+     * Gets a parameter integer value
+     *
+     * @param name  parameter name
+     * @param value default value, parameter missing in simulation file
+     * @return parameter value
+     * @throws SoSimException parameter value is not an integer
+     */
+    protected int getParamInt(String name, int value) throws SoSimException {
+        try {
+            return Integer.parseInt(getParam(name, Integer.toString(value)).trim());
+        } catch (NumberFormatException e) {
+            throw new SoSimException("all_11", name + "=" + getParam(name, ""));
+        }
+    }
+
+    /**
+     * Gets a parameter boolean value
+     *
+     * @param name  parameter name
+     * @param value default value, parameter missing in simulation file
+     * @return parameter value
+     */
+    protected boolean getParamBoolean(String name, boolean value) {
+        return Boolean.parseBoolean(getParam(name, Boolean.toString(value)).trim());
+    }
+
+    /**
+     * Checks that a parameter value is one of its choices
+     *
+     * @param name    parameter name
+     * @param value   default value, parameter missing in simulation file
+     * @param choices valid values
+     * @return parameter value
+     * @throws SoSimException parameter value is not a valid one
+     */
+    protected String getParamChoice(String name, String value, String[] choices) throws SoSimException {
+        String param = getParam(name, value);
+        for (int i = 0; i < choices.length; i++) if (choices[i].equals(param)) return param;
+        throw new SoSimException("all_11", name + "=" + param);
+    }
+
+    /**
+     * Runs simulation from time 0 until it ends or time budget is spent
+     *
+     * @param budget time units forwarded at most
+     * @return simulation has ended
+     * @throws SoSimException simulation error
+     */
+    public boolean run(int budget) throws SoSimException {
+        clock.reset();
+        error = null;
+        boolean end = actionPlay();
+        while (!end && clock.getTime() < budget) end = clock.forwardTime(this);
+        if (error != null) throw error;
+        return end;
+    }
+
+    /**
+     * Forwards a time event straight to model
+     *
+     * @param timer   timer event, otherwise subtimer event
+     * @param publish unused
+     * @return simulation has ended or failed
+     */
+    public boolean forwardEvent(boolean timer, boolean publish) {
+        try {
+            if (timer) return actionTimer();
+            actionDecimal();
+            return false;
+        } catch (SoSimException e) {
+            error = e;
+            return true;
+        }
+    }
+
+    /**
+     * Gets simulation time
+     *
+     * @return simulation time
+     */
+    public int getTime() {
+        return clock.getTime();
+    }
+
+    /**
+     * Gets statistics at current simulation time, translated
+     *
+     * @return statistics: name and value
+     */
+    public Vector<String[]> getStats() {
+        Vector<String[]> stats = new Vector<String[]>();
+        Vector<Vector<String>> info = getTableStatsInfo();
+        Vector<String> data = getTableStatsData();
+        if (info == null) return stats;
+        for (int i = 0; i < info.size(); i++)
+            stats.add(new String[]{Translation.getInstance().getLabel(info.get(i).get(0)), data.get(i)});
+        return stats;
+    }
+
+    /**
+     * Abstract method that may return simulation file's root element
+     *
+     * @return root element value
+     */
+    public abstract String getXMLRoot();
+
+    /**
+     * Abstract method that may return simulation file's root children loaded after parameters
+     *
+     * @return root children
+     */
+    public abstract Vector<String> getXMLChilds();
+
+    /**
+     * Abstract method that may return parameters names, settings that may be overridden
+     *
+     * @return parameters names
+     */
+    public abstract Vector<String> getParamNames();
+
+    /**
+     * Abstract method that may build model settings from parameters
+     *
+     * @throws SoSimException invalid parameter value
+     * @see #getParam(String, String)
+     */
+    public abstract void putParams() throws SoSimException;
+
+    /**
+     * Abstract method that may build model information from a child identified by <code>child</code>
+     *
+     * @param child child index
+     * @param data  child data
+     * @throws SoSimException model error
+     * @see #getXMLChilds()
+     */
+    public abstract void putXMLData(int child, Vector<Vector<Vector<String>>> data) throws SoSimException;
+
+    /**
+     * Abstract method that may start simulation at time 0. Returns true when simulation ends
+     *
+     * @return simulation ends
+     * @throws SoSimException simulation error
+     */
+    public abstract boolean actionPlay() throws SoSimException;
+
+    /**
+     * Abstract method that may forward model 1 time unit. Returns true when simulation ends
+     *
+     * @return simulation ends
+     * @throws SoSimException simulation error
+     */
+    public abstract boolean actionTimer() throws SoSimException;
+
+    /**
+     * Additional subtiming actions. <br/>
+     * Do nothing by default. Should be overridden by simulations with subtimer
+     */
+    public void actionDecimal() {
+    }
+
+    /**
+     * Abstract method that may return statistics names (label keys), as information dialog
+     *
+     * @return statistics names, null if none
+     */
+    public abstract Vector<Vector<String>> getTableStatsInfo();
+
+    /**
+     * Abstract method that may return statistics values at current simulation time, as information dialog
+     *
+     * @return statistics values
+     */
+    public abstract Vector<String> getTableStatsData();
+}
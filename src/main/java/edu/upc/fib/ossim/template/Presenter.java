@@ -13,8 +13,10 @@ import javax.swing.text.JTextComponent;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.File;
+import java.io.Serializable;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -36,11 +38,13 @@ import java.util.*;
  * <li>All simulation forms (FormTemplate implementation)</li>
  * <li>And optionally a time panel (TimerPanel implementation)</li>
  * </ul>
- * Access to model (context from Strategy Pattern) are implemented at concrete simulations presenters
+ * Access to model (context from Strategy Pattern) are implemented at concrete simulations presenters.<br/>
+ * While simulation runs, time is forwarded by a simulation thread and the event dispatch thread shows published frames:
+ * the latest frame is kept into a single slot, replaced without locking, and views are updated from it
  *
  * @author Alex Macia
  */
-public abstract class Presenter implements Observer, ChangeListener, ActionListener, MouseListener, MouseMotionListener, ListSelectionListener, PopupMenuListener, FocusListener {
+public abstract class Presenter implements Observer, ChangeListener, ActionListener, MouseListener, MouseMotionListener, ListSelectionListener, PopupMenuListener, FocusListener, SimulationClock.Target {
     // 1. Receive events/actions from views  
     // 2. Access model
     // 3. Updates view
@@ -60,8 +64,9 @@ public abstract class Presenter implements Observer, ChangeListener, ActionListe
     protected Hashtable<String, Integer> actions;
 
     protected boolean wasrunning; // Pause simulation while popup is shown  
-    protected boolean simulationComplete;  // Simulation complete  
+    protected volatile boolean simulationComplete;  // Simulation complete  
     protected boolean started; // Simulation started
+    private final AtomicReference<SimulationFrame> frame = new AtomicReference<SimulationFrame>(); // Latest frame not shown yet
 
 
     /**************************************************************************************************/
@@ -109,8 +114,8 @@ public abstract class Presenter implements Observer, ChangeListener, ActionListe
         actions.put("step", 2);
         actions.put("stop", 3);
         actions.put("pause", 4);
-        actions.put("timer", 5);
-        actions.put("subtimer", 6);
+        actions.put("turbo", 5);
+        // 6, timer and subtimer events, are forwarded by simulation thread
         actions.put("OK", 7);
         actions.put("panel_st", 10);
         actions.put("panel_vd", 11);
@@ -332,35 +337,34 @@ public abstract class Presenter implements Observer, ChangeListener, ActionListe
                 switch (action) {
                     case 1:    // Start
                         panel.disableRunning(true);
-                        timecontrols.play();
                         if (!started) {
                             started = true;
                             end = actionPlay();
                             if (end) {
-                                timecontrols.stop();
                                 if (JOptionPane.OK_OPTION != JOptionPane.showConfirmDialog(panel, Translation.getInstance().getError("all_07"), "Warning", JOptionPane.OK_CANCEL_OPTION)) {
                                     simulationComplete = true;
-                                    timecontrols.play();
                                 } else {
                                     panel.disableRunning(false);
                                     actionStop();
+                                    break;
                                 }
                             }
                         }
+                        timecontrols.play();
                         break;
                     case 2:    // Step
+                        wasrunning = timecontrols.isRunning();
+                        if (wasrunning) timecontrols.pause(); // Steps simulated model
                         if (!started) {
                             started = true;
                             actionPlay();
                             panel.disableRunning(true);
                         }
 
-                        for (int i = 0; i < timecontrols.getTimesfaster(); i++) {
-                            actionDecimal();
-                        }
-                        timecontrols.timer();
-                        actionTimer();
-
+                        // Forwards what is left of current time unit, same events a running simulation forwards
+                        timecontrols.getClock().forwardTime(this);
+                        timecontrols.showTime(timecontrols.getTime());
+                        if (wasrunning) timecontrols.play();
                         break;
                     case 3:  // Stop
                         simulationComplete = false;
@@ -374,18 +378,8 @@ public abstract class Presenter implements Observer, ChangeListener, ActionListe
                     case 4:  // pause
                         timecontrols.pause();
                         break;
-                    case 5:  // timer
-                        // Increments 1 time unit
-                        timecontrols.timer();
-                        end = actionTimer();
-                        if (!simulationComplete && end) {
-                            if (JOptionPane.OK_OPTION == JOptionPane.showConfirmDialog(panel, Translation.getInstance().getError("all_07"), "Warning", JOptionPane.OK_CANCEL_OPTION))
-                                timecontrols.pause();
-                            simulationComplete = true;
-                        }
-                        break;
-                    case 6:  // Subtimer
-                        actionDecimal();
+                    case 5:  // turbo
+                        timecontrols.turbo();
                         break;
                 }
             } else {
@@ -430,26 +424,107 @@ public abstract class Presenter implements Observer, ChangeListener, ActionListe
                 actionSpecific(actionCommand);
                 if (wasrunning) timecontrols.play(); // Start forwarding time again
             }
-        } catch (SoSimException ex) {
-            panel.disableRunning(false);
-            if (timecontrols != null) timecontrols.stop();
-            wasrunning = false;
-            started = false;
-            actionStop();
-            JOptionPane.showMessageDialog(AppSession.getInstance().getApp().getComponent(), ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         } catch (Exception ex) {
-            ex.printStackTrace();
-            panel.disableRunning(false);
-            if (timecontrols != null) timecontrols.stop();
-            wasrunning = false;
-            started = false;
-            actionStop();
-            JOptionPane.showMessageDialog(AppSession.getInstance().getApp().getComponent(), ex.toString(), "Error", JOptionPane.ERROR_MESSAGE);
+            actionFailed(ex);
         }
         if (action != 11) updateInfo(); // Update table info, only if not opening info action
         repaintPainters(); // Repaint painters
     }
 
+    private void actionFailed(Exception ex) {
+        // Stops simulation and shows error
+        if (!(ex instanceof SoSimException)) ex.printStackTrace();
+        panel.disableRunning(false);
+        if (timecontrols != null) timecontrols.stop();
+        wasrunning = false;
+        started = false;
+        actionStop();
+        String message = ex instanceof SoSimException ? ex.getMessage() : ex.toString();
+        JOptionPane.showMessageDialog(AppSession.getInstance().getApp().getComponent(), message, "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Forwards a time event, called by simulation clock while simulation runs or steps: subtimer events call actionDecimal,
+     * timer events call actionTimer once clock has increased main timing. Then a frame is published:
+     * a model copy if simulation thread asks for it and last frame has already been shown, otherwise event is not published,
+     * or a frame ending simulation when it ends or fails
+     *
+     * @param timer   timer event, otherwise subtimer event
+     * @param publish publish a model copy, in turbo mode only some events are published
+     * @return simulation has ended or failed, simulation thread halts
+     * @see SimulationClock
+     * @see SimulationThread
+     * @see #getModel()
+     */
+    public boolean forwardEvent(boolean timer, boolean publish) {
+        SimulationFrame published;
+        try {
+            boolean end = false;
+            if (timer) {
+                end = actionTimer() && !simulationComplete;
+            } else actionDecimal();
+
+            if (end) published = new SimulationFrame(timecontrols.getTime(), null, true, null);
+            else if (publish && frame.get() == null) published = new SimulationFrame(timecontrols.getTime(), SimulationFrame.copy(getModel()), false, null);
+            else return false; // Last frame not shown yet
+        } catch (Exception ex) {
+            published = new SimulationFrame(timecontrols.getTime(), null, false, ex);
+        }
+        if (frame.getAndSet(published) == null) SwingUtilities.invokeLater(this::showFrame);
+        return published.isEnd() || published.getError() != null;
+    }
+
+    private void showFrame() {
+        // Event dispatch thread shows latest frame
+        SimulationFrame shown = frame.getAndSet(null);
+        if (shown == null) return; // Simulation halted, simulated model is already shown
+        if (shown.getError() != null) {
+            actionFailed(shown.getError());
+        } else if (shown.isEnd()) {
+            timecontrols.pause();
+            simulationComplete = true;
+        } else {
+            showModel(shown.getModel());
+            timecontrols.showTime(shown.getTime());
+        }
+        updateInfo();
+        repaintPainters();
+        if (shown.isEnd() && JOptionPane.OK_OPTION != JOptionPane.showConfirmDialog(panel, Translation.getInstance().getError("all_07"), "Warning", JOptionPane.OK_CANCEL_OPTION))
+            timecontrols.play();
+    }
+
+    /**
+     * Simulation thread has halted, drops frame not shown yet and shows simulated model again
+     *
+     * @see TimerPanel#pause()
+     */
+    public void simulationHalted() {
+        frame.set(null);
+        showModel(null);
+    }
+
+    /**
+     * Gets simulated model, it is copied into frames while simulation runs <br/>
+     * Returns null by default (frames without copy). Should be overridden
+     *
+     * @return null
+     * @see #showModel(Object)
+     */
+    public Serializable getModel() {
+        return null;
+    }
+
+    /**
+     * Shows a model copy from a frame: painters and information read it until next frame.
+     * Null shows simulated model again <br/>
+     * Do nothing by default. Should be overridden
+     *
+     * @param model model copy, null for simulated model
+     * @see #getModel()
+     */
+    public void showModel(Object model) {
+    }
+
     /**
      * Additional play actions. Returns true when simulation ends <br/>
      * Returns false by default. Should be overridden
@@ -704,9 +779,9 @@ public abstract class Presenter implements Observer, ChangeListener, ActionListe
      *
      */
     public void repaintPainters() {
-        // Repaint set of painters
+        // Repaint set of painters, only their changed regions
         Enumeration<PainterTemplate> paintersEnum = painters.elements();
-        while (paintersEnum.hasMoreElements()) paintersEnum.nextElement().repaint();
+        while (paintersEnum.hasMoreElements()) paintersEnum.nextElement().repaintDirty();
     }
 
     /**
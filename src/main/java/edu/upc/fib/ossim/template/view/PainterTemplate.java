@@ -1,14 +1,17 @@
 package edu.upc.fib.ossim.template.view;
 
+import edu.upc.fib.ossim.AppSession;
 import edu.upc.fib.ossim.template.Presenter;
 import edu.upc.fib.ossim.utils.Functions;
 import edu.upc.fib.ossim.utils.Translation;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.VolatileImage;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.Set;
 import java.util.Vector;
 
 
@@ -16,7 +19,10 @@ import java.util.Vector;
  * Application Painter template (Template Pattern).
  * Painter template manage common application canvas behavior.
  * Maps objects that may generate events and detects mouse events over them.
- * Optionally a pop up menu is also associated with each painter displaying actions associated to that mouse events
+ * Optionally a pop up menu is also associated with each painter displaying actions associated to that mouse events.<br/>
+ * Painters may cache a static layer (backgrounds, grids, axes, legends) into a volatile image, painted again only
+ * when its size, parameters or session language change, and may report the region changed since last paint,
+ * so only that region is repainted
  *
  * @author Alex Macia
  */
@@ -29,6 +35,9 @@ public abstract class PainterTemplate extends JPanel {
     private JPopupMenu popup;
     private Vector<JMenuItem> items;
     private Vector<String[]> menuItems;
+    private VolatileImage layer;    // Cached static layer, null if not created yet
+    private Object layerKey;    // Parameters static layer has been painted with, null if it must be painted
+    private SpatialIndex index;    // Mapped objects index, null if map contents have changed
 
 
     /**
@@ -47,7 +56,7 @@ public abstract class PainterTemplate extends JPanel {
         this.addMouseMotionListener(presenter);
         this.setName("painter");
         createPopupMenu();
-        this.map = new Hashtable<Object, Integer>(); // map processes to shapes (requests)		
+        this.map = new ShapeMap(); // map processes to shapes (requests)
         this.setPreferredSize(new Dimension(width, height));
     }
 
@@ -61,7 +70,7 @@ public abstract class PainterTemplate extends JPanel {
     public PainterTemplate(Presenter presenter, int width, int height) {
         super();
         this.presenter = presenter;
-        this.map = new Hashtable<Object, Integer>(); // map processes to shapes (requests)		
+        this.map = new ShapeMap(); // map processes to shapes (requests)
         this.setPreferredSize(new Dimension(width, height));
     }
 
@@ -85,7 +94,8 @@ public abstract class PainterTemplate extends JPanel {
 
     /**
      * Returns object identifier detected by a mouse event over the canvas or null
-     * if any object is mapped under mouse position
+     * if any object is mapped under mouse position. Only objects into mouse position's grid cell are checked,
+     * index is built again only after map contents change
      *
      * @param x mouse x position
      * @param y mouse y position
@@ -93,9 +103,14 @@ public abstract class PainterTemplate extends JPanel {
      * @see #contains(Object, int, int)
      */
     public Integer detectMouseOver(int x, int y) {
-        Set<Object> rectangles = map.keySet();
+        SpatialIndex grid = ((ShapeMap) map).getIndex();
 
-        Iterator<Object> it = rectangles.iterator();
+        Iterator<Object> it = grid.get(x, y).iterator();
+        while (it.hasNext()) {
+            Object o = it.next();
+            if (contains(o, x, y)) return map.get(o);
+        }
+        it = grid.getOthers().iterator();
         while (it.hasNext()) {
             Object o = it.next();
             if (contains(o, x, y)) return map.get(o);
@@ -103,6 +118,17 @@ public abstract class PainterTemplate extends JPanel {
         return null;
     }
 
+    /**
+     * Starts mapping painter's objects again, painters mapping their objects on every paint call it instead of clearing
+     * their map. Objects mapped again to the same identifier are left untouched, so spatial index is kept while
+     * painter's objects don't change, objects not mapped again are unmapped before next mouse detection
+     *
+     * @see #detectMouseOver(int, int)
+     */
+    protected void remapObjects() {
+        ((ShapeMap) map).remap();
+    }
+
     /**
      * Abstract method to implement specific contains operation.
      * Returns true when graphic object contains position (x,y) and false otherwise
@@ -179,6 +205,77 @@ public abstract class PainterTemplate extends JPanel {
         }
     }
 
+    /**
+     * Draws cached static layer, painting it again if painter's size, key or session language have changed
+     * or image contents have been lost
+     *
+     * @param g   painter graphics
+     * @param key static layer parameters
+     * @see #paintStaticLayer(Graphics2D)
+     */
+    protected void drawStaticLayer(Graphics2D g, Object key) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc == null) { // Not displayable, nothing to cache
+            paintStaticLayer(g);
+            return;
+        }
+        Object current = Arrays.asList(key, AppSession.getInstance().getIdioma());
+        do {
+            int status = layer == null ? VolatileImage.IMAGE_INCOMPATIBLE : layer.validate(gc);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE || layer.getWidth() != getWidth() || layer.getHeight() != getHeight()) {
+                if (layer != null) layer.flush();
+                layer = createVolatileImage(Math.max(1, getWidth()), Math.max(1, getHeight()));
+                layerKey = null;
+            } else if (status == VolatileImage.IMAGE_RESTORED) layerKey = null;
+
+            if (!current.equals(layerKey)) {
+                Graphics2D lg = layer.createGraphics();
+                paintStaticLayer(lg);
+                lg.dispose();
+                layerKey = current;
+            }
+            g.drawImage(layer, 0, 0, null);
+        } while (layer.contentsLost());
+    }
+
+    /**
+     * Paints static layer, cached until <code>drawStaticLayer</code> key changes <br/>
+     * Do nothing by default. Should be overridden by painters drawing a static layer
+     *
+     * @param g static layer graphics
+     * @see #drawStaticLayer(Graphics2D, Object)
+     */
+    protected void paintStaticLayer(Graphics2D g) {
+    }
+
+    /**
+     * Static layer will be painted again on next paint
+     */
+    public void invalidateStaticLayer() {
+        layerKey = null;
+    }
+
+    /**
+     * Returns painter's region changed since last paint <br/>
+     * Returns null by default (whole painter). Should be overridden by painters tracking their changes
+     *
+     * @return changed region, empty if nothing has changed, null for whole painter
+     */
+    protected Rectangle getDirtyRegion() {
+        return null;
+    }
+
+    /**
+     * Repaints only region changed since last paint
+     *
+     * @see #getDirtyRegion()
+     */
+    public void repaintDirty() {
+        Rectangle dirty = getDirtyRegion();
+        if (dirty == null) repaint();
+        else if (!dirty.isEmpty()) repaint(dirty);
+    }
+
     /**
      * By default alias is component name
      *
@@ -187,4 +284,49 @@ public abstract class PainterTemplate extends JPanel {
     public String getAlias() {
         return this.getName();
     }
+
+    /**
+     * Painter's map, spatial index is dropped only when its contents change: a new object is mapped, an object
+     * is mapped to another identifier, or it is unmapped
+     */
+    private class ShapeMap extends Hashtable<Object, Integer> {
+        private static final long serialVersionUID = 1L;
+        private final HashSet<Object> stale = new HashSet<Object>();    // Objects not mapped again since remap began
+
+        public synchronized Integer put(Object key, Integer value) {
+            stale.remove(key);
+            Integer old = super.put(key, value);
+            if (!value.equals(old)) index = null;
+            return old;
+        }
+
+        public synchronized Integer remove(Object key) {
+            stale.remove(key);
+            Integer old = super.remove(key);
+            if (old != null) index = null;
+            return old;
+        }
+
+        public synchronized void clear() {
+            stale.clear();
+            if (!isEmpty()) index = null;
+            super.clear();
+        }
+
+        public synchronized void remap() {
+            stale.addAll(keySet());
+        }
+
+        public synchronized SpatialIndex getIndex() {
+            // Objects not mapped again are gone
+            if (!stale.isEmpty()) {
+                Iterator<Object> it = stale.iterator();
+                while (it.hasNext()) super.remove(it.next());
+                stale.clear();
+                index = null;
+            }
+            if (index == null) index = new SpatialIndex(keySet());
+            return index;
+        }
+    }
 }
@@ -0,0 +1,105 @@
+package edu.upc.fib.ossim.template.view;
+
+import java.awt.*;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * Uniform grid spatial index over painter's mapped objects. Shapes are added to every grid cell their bounds
+ * overlap, cells are sized so there is about one shape per cell, so a position only checks shapes into its cell.
+ * Objects that are not shapes (tree nodes) can not be located and they are kept apart, checked always
+ *
+ * @author Alex Macia
+ * @see PainterTemplate#detectMouseOver(int, int)
+ */
+public class SpatialIndex {
+    private static final int MIN_CELL = 16;    // Minimum cell side in pixels
+    private static final Vector<Object> EMPTY = new Vector<Object>();
+    private final Vector<Vector<Object>> cells;    // Cells by row, shapes in map order
+    private final Vector<Object> others;    // Objects that are not shapes
+    private int x;    // Grid origin
+    private int y;
+    private int cell;    // Cell side
+    private int cols;
+    private int rows;
+
+    /**
+     * Constructs an index over a set of mapped objects
+     *
+     * @param objects painter's mapped objects
+     */
+    public SpatialIndex(Set<Object> objects) {
+        cells = new Vector<Vector<Object>>();
+        others = new Vector<Object>();
+
+        // Grid bounds
+        Rectangle bounds = null;
+        Vector<Object> shapes = new Vector<Object>();
+        Vector<Rectangle> shapesBounds = new Vector<Rectangle>();
+        Iterator<Object> it = objects.iterator();
+        while (it.hasNext()) {
+            Object o = it.next();
+            if (o instanceof Shape) {
+                Rectangle r = ((Shape) o).getBounds();
+                shapes.add(o);
+                shapesBounds.add(r);
+                if (bounds == null) bounds = new Rectangle(r);
+                else bounds.add(r);
+            } else others.add(o);
+        }
+        if (bounds == null) return;
+
+        // About one shape per cell
+        x = bounds.x;
+        y = bounds.y;
+        double area = (double) Math.max(1, bounds.width) * Math.max(1, bounds.height);
+        cell = Math.max(MIN_CELL, (int) Math.ceil(Math.sqrt(area / shapes.size())));
+        cols = bounds.width / cell + 1;
+        rows = bounds.height / cell + 1;
+        for (int i = 0; i < cols * rows; i++) cells.add(null);
+
+        for (int i = 0; i < shapes.size(); i++) {
+            Rectangle r = shapesBounds.get(i);
+            int col0 = (r.x - x) / cell;
+            int col1 = (r.x + r.width - x) / cell;
+            int row0 = (r.y - y) / cell;
+            int row1 = (r.y + r.height - y) / cell;
+            for (int row = row0; row <= row1; row++) {
+                for (int col = col0; col <= col1; col++) {
+                    Vector<Object> c = cells.get(row * cols + col);
+                    if (c == null) {
+                        c = new Vector<Object>();
+                        cells.set(row * cols + col, c);
+                    }
+                    c.add(shapes.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets shapes whose bounds may contain a position
+     *
+     * @param px x position
+     * @param py y position
+     * @return    shapes into position's cell, in map order
+     */
+    public Vector<Object> get(int px, int py) {
+        if (cells.isEmpty() || px < x || py < y) return EMPTY;
+        int col = (px - x) / cell;
+        int row = (py - y) / cell;
+        if (col >= cols || row >= rows) return EMPTY;
+        Vector<Object> c = cells.get(row * cols + col);
+        return c == null ? EMPTY : c;
+    }
+
+    /**
+     * Gets mapped objects that are not shapes, they may contain any position
+     *
+     * @return    objects that are not shapes
+     */
+    public Vector<Object> getOthers() {
+        return others;
+    }
+}
@@ -97,18 +97,14 @@ public abstract class TablePainterTemplate extends PainterTemplate {
     public abstract JPanel createTitle(String title, String keyHelp);
 
     /**
-     * Loads table data, all incoming processes
+     * Loads table data, all incoming processes. Only changed rows are updated
      *
      * @param data table data
+     * @see AppTableModel#updateRows(Vector)
      */
     public void initData(Vector<Vector<Object>> data) {
-        while (modeltaula.getRowCount() > 0) modeltaula.removeRow(0);
-
-        if (data != null) {
-            for (int i = 0; i < data.size(); i++) {
-                modeltaula.addRow(data.get(i));
-            }
-        }
+        table.clearSelection(); // Rows selection is not kept between updates
+        modeltaula.updateRows(data);
     }
 
     /**
@@ -1,11 +1,15 @@
 package edu.upc.fib.ossim.utils;
 
 import javax.swing.table.DefaultTableModel;
+import java.util.Hashtable;
+import java.util.Objects;
 import java.util.Vector;
 
 /**
  * DefaultTableModel inheritance that manage table edition <br/>
- * and shows boolean columns as checkboxes
+ * and shows boolean columns as checkboxes.<br/>
+ * Rows are keyed by their first column value, so new table data is applied as a delta:
+ * only deleted, inserted and changed rows are notified to the table
  *
  * @author Alex Macia
  */
@@ -62,4 +66,70 @@ public class AppTableModel extends DefaultTableModel {
         // Boolean columns as checkbox
         return getValueAt(0, c).getClass();
     }
+
+    /**
+     * Replaces table data notifying only rows deleted, inserted or updated. Rows are matched by key,
+     * their first column value (repeated values are told apart by their order)
+     *
+     * @param data new table data, null empties table
+     */
+    @SuppressWarnings({"unchecked"})
+    public void updateRows(Vector<Vector<Object>> data) {
+        if (data == null) data = new Vector<Vector<Object>>();
+        Vector<String> keys = getKeys(data);
+        Vector<String> current = getKeys(dataVector);
+
+        // Deleted rows, bottom-up and by runs
+        Hashtable<String, Integer> kept = new Hashtable<String, Integer>();
+        for (int i = 0; i < keys.size(); i++) kept.put(keys.get(i), i);
+        int last = current.size() - 1;
+        while (last >= 0) {
+            if (kept.containsKey(current.get(last))) {
+                last--;
+                continue;
+            }
+            int first = last;
+            while (first > 0 && !kept.containsKey(current.get(first - 1))) first--;
+            dataVector.subList(first, last + 1).clear();
+            current.subList(first, last + 1).clear();
+            fireTableRowsDeleted(first, last);
+            last = first - 1;
+        }
+
+        // Inserted, moved and updated rows, in new data order
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i);
+            Vector<Object> row = data.get(i);
+            int j = current.indexOf(key, i);
+            if (j == -1) {
+                insertRow(i, row);
+                current.add(i, key);
+            } else {
+                if (j != i) {
+                    moveRow(j, j, i);
+                    current.add(i, current.remove(j));
+                }
+                if (!Objects.equals(dataVector.get(i), row)) {
+                    dataVector.set(i, row);
+                    fireTableRowsUpdated(i, i);
+                }
+            }
+        }
+    }
+
+    private static Vector<String> getKeys(Vector<?> rows) {
+        // Row keys: first column value and its occurrence
+        Vector<String> keys = new Vector<String>();
+        Hashtable<String, Integer> occurrences = new Hashtable<String, Integer>();
+        for (int i = 0; i < rows.size(); i++) {
+            Vector<?> row = (Vector<?>) rows.get(i);
+            Object cell = row.isEmpty() ? null : row.get(0);
+            String value = cell instanceof ColorCell ? ((ColorCell) cell).getValue() : String.valueOf(cell);
+            Integer n = occurrences.get(value);
+            n = n == null ? 0 : n + 1;
+            occurrences.put(value, n);
+            keys.add(value + "#" + n);
+        }
+        return keys;
+    }
 }
@@ -1,6 +1,8 @@
 package edu.upc.fib.ossim.utils;
 
 import java.awt.*;
+import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * Associates cells values with colors to paint background cell colors into application tables
@@ -9,7 +11,8 @@ import java.awt.*;
  * @see ColorRenderer
  *
  */
-public class ColorCell implements Comparable<ColorCell> {
+public class ColorCell implements Comparable<ColorCell>, Serializable {
+    private static final long serialVersionUID = 1L;
     private final String value;
     private final Color color;
 
@@ -58,4 +61,25 @@ public class ColorCell implements Comparable<ColorCell> {
             return this.value.compareTo(cc.getValue());
         }
     }
+
+    /**
+     * Two ColorCell objects are equal if they have same value and color
+     *
+     * @param o object to compare
+     * @return objects are equal
+     */
+    public boolean equals(Object o) {
+        if (!(o instanceof ColorCell)) return false;
+        ColorCell cc = (ColorCell) o;
+        return Objects.equals(value, cc.getValue()) && Objects.equals(color, cc.getColor());
+    }
+
+    /**
+     * Hash code from value and color
+     *
+     * @return hash code
+     */
+    public int hashCode() {
+        return Objects.hash(value, color);
+    }
 }
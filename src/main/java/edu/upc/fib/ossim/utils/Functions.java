@@ -13,6 +13,7 @@ import java.awt.font.FontRenderContext;
 import java.awt.image.BufferedImage;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Hashtable;
 
 /**
  * Singleton class with miscellaneous utility functions
@@ -24,6 +25,7 @@ public class Functions {
     private static final String PATH = "/edu/upc/fib/ossim/img/";
     private static final String RESOURCES = "/edu/upc/fib/ossim/help/resources";
     private static Functions instance = null;
+    private final Hashtable<Color, TexturePaint> textures = new Hashtable<Color, TexturePaint>();    // Textures by color
 
     private Functions() {
     }
@@ -203,20 +205,24 @@ public class Functions {
      * @param height rectangle height
      */
     public void drawTexture(Graphics2D g2, Color oval, int x, int y, int width, int height) {
-        BufferedImage bi = new BufferedImage(5, 5, BufferedImage.TYPE_INT_RGB);
-        Graphics2D big = bi.createGraphics();
-        big.setColor(Color.white);
-        big.fillRect(0, 0, 7, 7);
-        big.setColor(oval);
-        big.fillOval(0, 0, 3, 3);
-        TexturePaint f_tp = new TexturePaint(bi, new Rectangle(0, 0, 5, 5));
-        big.dispose();
+        TexturePaint f_tp = textures.get(oval);
+        if (f_tp == null) {
+            BufferedImage bi = new BufferedImage(5, 5, BufferedImage.TYPE_INT_RGB);
+            Graphics2D big = bi.createGraphics();
+            big.setColor(Color.white);
+            big.fillRect(0, 0, 7, 7);
+            big.setColor(oval);
+            big.fillOval(0, 0, 3, 3);
+            f_tp = new TexturePaint(bi, new Rectangle(0, 0, 5, 5));
+            big.dispose();
+            textures.put(oval, f_tp);
+        }
 
         g2.setPaint(f_tp);
-        g2.fill(new Rectangle(x, y, width, height));
+        g2.fillRect(x, y, width, height);
 
         g2.setColor(Color.black);
-        g2.draw(new Rectangle(x, y, width, height));
+        g2.drawRect(x, y, width, height);
     }
 
     /**
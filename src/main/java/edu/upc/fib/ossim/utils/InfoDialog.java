@@ -3,8 +3,12 @@ package edu.upc.fib.ossim.utils;
 import edu.upc.fib.ossim.template.Presenter;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.TableColumn;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Set;
@@ -32,9 +36,11 @@ public class InfoDialog extends EscapeDialog {
     private Hashtable<String, JLabel> mapKeyStats; // JLabel keys mapped
     private Hashtable<Integer, JLabel> mapStats; // JLabel values mapped
     private JLabel help;
-    private final AppTableModel tablemodel;
+    private final AppTableModel tablemodel;    // Table data, null if table is virtual
+    private VirtualTableModel virtualmodel;    // Virtual table rows, null if table holds its data
     private JTable table;
     private JScrollPane scroll;
+    private JLabel filterLabel;    // Virtual table filter label
     private Presenter presenter;
 
     /**
@@ -119,6 +125,27 @@ public class InfoDialog extends EscapeDialog {
         infoDialog(presenter, keyTitle, keyHelp, modal, width, height, stats, header);
     }
 
+    /**
+     * Constructs a dialog that shows information: text and a virtual table, an icon that opens help reference.
+     * Table rows are pulled from a source as they are shown, and sorted and filtered by an index of source rows
+     *
+     * @param presenter event manager
+     * @param keyTitle  dialog title
+     * @param keyHelp   help reference
+     * @param modal     modal property
+     * @param width     dialog width
+     * @param height    dialog height
+     * @param stats     information labels (matrix)
+     * @param header    table information header
+     * @param source    table information rows source
+     */
+    public InfoDialog(Presenter presenter, String keyTitle, String keyHelp, boolean modal, int width, int height, Vector<Vector<String>> stats, Vector<Object> header, RowSource source) {
+        super();
+        tablemodel = null;
+        virtualmodel = new VirtualTableModel(source, header);
+        infoDialog(presenter, keyTitle, keyHelp, modal, width, height, stats, header);
+    }
+
     private void infoDialog(Presenter presenter, String keyTitle, String keyHelp, boolean modal, int width, int height, Vector<Vector<String>> stats, Vector<Object> header) {
         this.keyTitle = keyTitle;
         this.keyHelp = keyHelp;
@@ -174,18 +201,24 @@ public class InfoDialog extends EscapeDialog {
     }
 
     /**
-     * Initialize table's model data
+     * Initialize table's model data, only changed rows are updated
      *
      * @param data new table's model data
+     * @see AppTableModel#updateRows(Vector)
      */
     public void initData(Vector<Vector<Object>> data) {
-        while (tablemodel.getRowCount() > 0) tablemodel.removeRow(0);
+        table.clearSelection(); // Rows selection is not kept between updates
+        tablemodel.updateRows(data);
+    }
 
-        if (data != null) {
-            for (int i = 0; i < data.size(); i++) {
-                tablemodel.addRow(data.get(i));
-            }
-        }
+    /**
+     * Virtual table rows source data has changed, shown rows are pulled again
+     *
+     * @see VirtualTableModel#refresh()
+     */
+    public void refreshData() {
+        table.clearSelection(); // Rows selection is not kept between updates
+        virtualmodel.refresh();
     }
 
     private JPanel init(int width, int height, Vector<Vector<String>> stats) {
@@ -224,16 +257,29 @@ public class InfoDialog extends EscapeDialog {
         }
 
         // Create table
-        table = new JTable(tablemodel);
+        if (virtualmodel != null) {
+            table = new JTable(virtualmodel);
+            table.setDefaultRenderer(Object.class, new ColorRenderer()); // Kept when columns change
+            pn.add(createFilter());
+        } else table = new JTable(tablemodel);
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.getSelectionModel().addListSelectionListener(presenter);
 
-        for (int i = 0; i < table.getColumnCount(); i++) {
+        for (int i = 0; virtualmodel == null && i < table.getColumnCount(); i++) {
             TableColumn columna = table.getColumnModel().getColumn(i);
             columna.setCellRenderer(new ColorRenderer());
         }
 
-        table.setAutoCreateRowSorter(true);
+        if (virtualmodel == null) table.setAutoCreateRowSorter(true);
+        else table.getTableHeader().addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                // Sorted by model index, clicking again reverses order
+                int column = table.columnAtPoint(e.getPoint());
+                if (column < 0) return;
+                table.clearSelection();
+                virtualmodel.sort(table.convertColumnIndexToModel(column));
+            }
+        });
         scroll = new JScrollPane(table);
         table.setFillsViewportHeight(true);
         scroll.setLayout(new ScrollPaneLayout());
@@ -244,12 +290,54 @@ public class InfoDialog extends EscapeDialog {
     }
 
 
+    private JPanel createFilter() {
+        // Virtual table filter, applied as it is typed
+        JPanel pfilter = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterLabel = new JLabel(Translation.getInstance().getLabel("all_49"));
+        final JTextField text = new JTextField(15);
+        text.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                filter();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                filter();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                filter();
+            }
+
+            private void filter() {
+                table.clearSelection();
+                virtualmodel.setFilter(text.getText());
+            }
+        });
+        pfilter.add(filterLabel);
+        pfilter.add(text);
+        return pfilter;
+    }
+
+    /**
+     * Adds a painter below information table
+     *
+     * @param painter painter
+     */
+    public void addPainter(JComponent painter) {
+        getContentPane().add(painter);
+        pack();
+    }
+
     /**
      * Updates labels names references by labels and column names
      * to session language
      *
      */
     public void updateHeader(Vector<Object> header) {
+        if (virtualmodel != null) { // Columns are created again from model
+            virtualmodel.setHeader(header);
+            return;
+        }
         if (header.size() > table.getColumnCount()) table.addColumn(new TableColumn());
         if (header.size() < table.getColumnCount())
             table.removeColumn(table.getColumnModel().getColumn(table.getColumnCount() - 1));
@@ -266,6 +354,10 @@ public class InfoDialog extends EscapeDialog {
      *
      */
     public void updateLabels(Vector<Object> header) {
+        if (virtualmodel != null) {
+            virtualmodel.setHeader(header);
+            filterLabel.setText(Translation.getInstance().getLabel("all_49"));
+        }
         for (int i = 0; i < table.getColumnCount(); i++) {
             TableColumn columna = table.getColumnModel().getColumn(i);
             columna.setHeaderValue(header.get(i));
@@ -357,7 +449,7 @@ public class InfoDialog extends EscapeDialog {
      * @return    cell value
      */
     public Object getValueAt(int row, int col) {
-        ColorCell cc = (ColorCell) tablemodel.getValueAt(row, col);
+        ColorCell cc = (ColorCell) table.getModel().getValueAt(row, col);
         return cc.getValue();
     }
 
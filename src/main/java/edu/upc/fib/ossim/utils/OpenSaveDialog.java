@@ -6,7 +6,7 @@ import java.awt.*;
 import java.io.File;
 
 /**
- * FileChooser dialog to load / save <code>xml</code> simulations
+ * FileChooser dialog to load / save <code>xml</code> simulations, or other files with a given extension
  *
  * @author Alex Macia
  */
@@ -14,6 +14,9 @@ public class OpenSaveDialog {
     private static final long serialVersionUID = 1L;
     private final JFileChooser file;
     private final Component parent;
+    private final String extension;
+    private final String openTitle;
+    private final String saveTitle;
 
     /**
      * Constructs dialog and apply <code>xml</code> file filters
@@ -21,12 +24,27 @@ public class OpenSaveDialog {
      * @param parent
      */
     public OpenSaveDialog(Component parent) {
+        this(parent, "xml", "all_12", "all_13");
+    }
+
+    /**
+     * Constructs dialog and apply file filters for an extension
+     *
+     * @param parent
+     * @param extension file extension, without dot
+     * @param openTitle open dialog title key
+     * @param saveTitle save dialog title key
+     */
+    public OpenSaveDialog(Component parent, String extension, String openTitle, String saveTitle) {
         super();
         this.parent = parent;
+        this.extension = extension;
+        this.openTitle = openTitle;
+        this.saveTitle = saveTitle;
         file = new JFileChooser();
         file.setFileSelectionMode(JFileChooser.FILES_ONLY); // Only select files
         file.setAcceptAllFileFilterUsed(false); // Anything else
-        file.setFileFilter(new FileNameExtensionFilter(".xml", "xml")); // Only XML
+        file.setFileFilter(new FileNameExtensionFilter("." + extension, extension)); // Only extension
     }
 
     /**
@@ -35,7 +53,7 @@ public class OpenSaveDialog {
      * @return    file to open or null
      */
     public File showOpenFileChooser() {
-        file.setDialogTitle(Translation.getInstance().getLabel("all_12"));
+        file.setDialogTitle(Translation.getInstance().getLabel(openTitle));
         int returnVal = file.showOpenDialog(parent);
         if (returnVal == JFileChooser.APPROVE_OPTION) {
             return file.getSelectedFile();
@@ -50,14 +68,14 @@ public class OpenSaveDialog {
      * @return    file to save or null
      */
     public File showSaveFileChooser() {
-        file.setDialogTitle(Translation.getInstance().getLabel("all_13"));
+        file.setDialogTitle(Translation.getInstance().getLabel(saveTitle));
         int returnVal = file.showSaveDialog(parent);
         if (returnVal == JFileChooser.APPROVE_OPTION) {
             File selected = file.getSelectedFile();
             File returned;
             if (!file.getFileFilter().accept(selected)) {
                 // Add extension
-                returned = new File(selected.getAbsolutePath() + ".xml");
+                returned = new File(selected.getAbsolutePath() + "." + extension);
                 selected.renameTo(returned);
             } else returned = selected;
             return returned;
@@ -0,0 +1,166 @@
+package edu.upc.fib.ossim.utils;
+
+import edu.upc.fib.ossim.template.Presenter;
+import edu.upc.fib.ossim.template.view.PainterTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.Vector;
+import java.util.concurrent.*;
+
+
+/**
+ * Offscreen painters exporter, renders simulation painters at chosen time units into PNG files
+ * without showing them. Simulation is run from its start on the exporting thread, the same events a running
+ * simulation forwards, and painters are painted there into offscreen buffers since they read simulated model.
+ * PNG encoding and writing files is done by parallel workers: every painter has one offscreen buffer per worker,
+ * a buffer is painted again once its worker has written it, so memory is bounded whatever frames are exported. <br/>
+ * Files are named <code>painter_time.png</code>
+ *
+ * @author Alex Macia
+ * @see SimulationClock
+ */
+public class PainterExporter implements SimulationClock.Target {
+    public static final String PNG = "png";
+    private final Presenter presenter;
+    private final Vector<String> keys;    // Painters exported
+    private final File dir;
+    private final int workers;
+    private SoSimException error;    // Error forwarding time, null if none
+
+    /**
+     * Constructs an exporter. Simulation must be stopped, it is run from its start and stopped again
+     *
+     * @param presenter simulation presenter
+     * @param keys      painters exported, presenter's painter keys
+     * @param dir       files directory
+     * @param workers   parallel workers writing files
+     */
+    public PainterExporter(Presenter presenter, Vector<String> keys, File dir, int workers) {
+        for (int i = 0; i < keys.size(); i++)
+            if (presenter.getPainter(keys.get(i)) == null) throw new IllegalArgumentException(keys.get(i));
+        this.presenter = presenter;
+        this.keys = keys;
+        this.dir = dir;
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Runs simulation and exports painters at every time unit. Time units not reached because simulation
+     * has ended before, or it has no timing, are skipped
+     *
+     * @param times time units
+     * @return    frames written, one per painter and time unit reached
+     * @throws SoSimException simulation error or file that can not be written
+     */
+    public int export(int[] times) throws SoSimException {
+        int[] sorted = times.clone();
+        Arrays.sort(sorted);
+        TimerPanel timecontrols = presenter.getTimecontrols();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        Hashtable<String, BlockingQueue<BufferedImage>> buffers = new Hashtable<String, BlockingQueue<BufferedImage>>();
+        Vector<Future<?>> written = new Vector<Future<?>>();
+        boolean end = false;
+        error = null;
+        try {
+            presenter.showModel(null);
+            if (timecontrols != null) end = presenter.actionPlay();
+            for (int i = 0; i < sorted.length; i++) {
+                int time = sorted[i];
+                if (i > 0 && time == sorted[i - 1]) continue;
+
+                // Forwards time up to frame's time unit
+                while (!end && timecontrols != null && timecontrols.getTime() < time)
+                    end = timecontrols.getClock().forwardTime(this);
+                if (error != null) throw error;
+                int reached = timecontrols == null ? 0 : timecontrols.getTime();
+                if (reached != time) continue;
+                if (timecontrols != null) timecontrols.showTime(reached);
+
+                for (int j = 0; j < keys.size(); j++) {
+                    String key = keys.get(j);
+                    BufferedImage buffer = paint(key, buffers);
+                    File file = new File(dir, key + "_" + time + "." + PNG);
+                    written.add(pool.submit(() -> write(buffer, file, buffers.get(key))));
+                }
+            }
+            for (int i = 0; i < written.size(); i++) written.get(i).get();
+            return written.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SoSimException("all_03", " (" + dir + ")");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SoSimException) throw (SoSimException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            if (timecontrols != null) {
+                timecontrols.stop();
+                presenter.actionStop();
+            }
+        }
+    }
+
+    private BufferedImage paint(String key, Hashtable<String, BlockingQueue<BufferedImage>> buffers) throws InterruptedException {
+        // Paints a painter into a free buffer of its size, waits for a worker if all of them are being written
+        PainterTemplate painter = presenter.getPainter(key);
+        if (painter.getWidth() <= 0 || painter.getHeight() <= 0) painter.setSize(painter.getPreferredSize());
+        BlockingQueue<BufferedImage> free = buffers.get(key);
+        if (free == null) {
+            free = new ArrayBlockingQueue<BufferedImage>(workers);
+            for (int i = 0; i < workers; i++)
+                free.add(new BufferedImage(Math.max(1, painter.getWidth()), Math.max(1, painter.getHeight()), BufferedImage.TYPE_INT_RGB));
+            buffers.put(key, free);
+        }
+        BufferedImage buffer = free.take();
+        if (buffer.getWidth() != Math.max(1, painter.getWidth()) || buffer.getHeight() != Math.max(1, painter.getHeight()))
+            buffer = new BufferedImage(Math.max(1, painter.getWidth()), Math.max(1, painter.getHeight()), BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g = buffer.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Color.white);
+        g.fillRect(0, 0, buffer.getWidth(), buffer.getHeight());
+        painter.paint(g);
+        g.dispose();
+        return buffer;
+    }
+
+    private Void write(BufferedImage buffer, File file, BlockingQueue<BufferedImage> free) throws SoSimException {
+        // Worker writes a buffer, then it is free to be painted again
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                if (!ImageIO.write(buffer, PNG, out)) throw new IOException(PNG);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            throw new SoSimException("all_03", " (" + file.getName() + ")");
+        } finally {
+            free.offer(buffer);
+        }
+        return null;
+    }
+
+    /**
+     * Forwards a time event straight to presenter, no frames are published
+     *
+     * @param timer   timer event, otherwise subtimer event
+     * @param publish unused
+     * @return    simulation has ended or failed
+     */
+    public boolean forwardEvent(boolean timer, boolean publish) {
+        try {
+            if (timer) return presenter.actionTimer();
+            presenter.actionDecimal();
+            return false;
+        } catch (SoSimException e) {
+            error = e;
+            return true;
+        }
+    }
+}
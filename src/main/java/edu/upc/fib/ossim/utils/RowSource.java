@@ -0,0 +1,37 @@
+package edu.upc.fib.ossim.utils;
+
+import java.util.Vector;
+
+/**
+ * Table rows provider. Rows are built by the model on demand, by index, so a table only builds
+ * the rows it shows, and sort keys are read from model's own values without building rows
+ *
+ * @author Alex Macia
+ * @see VirtualTableModel
+ */
+public interface RowSource {
+
+    /**
+     * Gets number of rows
+     *
+     * @return    number of rows
+     */
+    int getRowCount();
+
+    /**
+     * Builds a row
+     *
+     * @param row row index
+     * @return    row cells
+     */
+    Vector<Object> getRow(int row);
+
+    /**
+     * Gets a row sort key, read from model without building the row
+     *
+     * @param row    row index
+     * @param column column index
+     * @return    sort key (Integer or String), null if column is sorted by its cells values
+     */
+    Object getKey(int row, int column);
+}
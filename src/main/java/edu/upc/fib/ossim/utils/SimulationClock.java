@@ -0,0 +1,122 @@
+package edu.upc.fib.ossim.utils;
+
+/**
+ * Simulation clock, the only source of simulation events. Every time unit is split into
+ * <code>timesfaster</code> slots: a subtimer event is forwarded every slot and the timer event right after
+ * the last one (one slot and only the timer event if there is no subtimer). Clock keeps its position into
+ * current time unit, so pausing, stepping, pacing or turbo mode never change events order and every run
+ * produces the same results. Rate only paces slots against real time. <br/>
+ * Events are forwarded to a target: the presenter while simulation runs or steps, an exporter in batch runs
+ *
+ * @author Alex Macia
+ * @see SimulationThread
+ * @see PainterExporter
+ */
+public class SimulationClock {
+    private final int timesfaster;    // Subtimer events per time unit, 0 if there is no subtimer
+    private volatile int time;    // Time units forwarded
+    private int slot;    // Slots forwarded into current time unit
+    private volatile int rate;    // Real milliseconds per time unit
+
+    /**
+     * Constructs a clock at time 0
+     *
+     * @param rate        real milliseconds per time unit
+     * @param timesfaster subtimer events per time unit, 0 if there is no subtimer
+     */
+    public SimulationClock(int rate, int timesfaster) {
+        this.rate = rate;
+        this.timesfaster = timesfaster;
+    }
+
+    /**
+     * Forwards next slot: its subtimer event and, if it is the last slot, timer event.
+     * Only time unit's last subtimer event and timer event may publish a frame
+     *
+     * @param target  events target
+     * @param publish a frame is published
+     * @return    simulation must halt: it has ended or failed
+     */
+    public synchronized boolean forwardSlot(Target target, boolean publish) {
+        int slots = getSlots();
+        slot++;
+        if (timesfaster > 0 && target.forwardEvent(false, publish && slot < slots)) return true;
+        if (slot < slots) return false;
+        slot = 0;
+        time++;
+        return target.forwardEvent(true, publish);
+    }
+
+    /**
+     * Forwards slots until current time unit ends, stepping simulation. Only an ended or failed simulation
+     * publishes a frame
+     *
+     * @param target events target
+     * @return    simulation must halt: it has ended or failed
+     */
+    public synchronized boolean forwardTime(Target target) {
+        int from = time;
+        while (time == from) {
+            if (forwardSlot(target, false)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns clock to time 0, at time unit start
+     */
+    public synchronized void reset() {
+        time = 0;
+        slot = 0;
+    }
+
+    /**
+     * Gets time units forwarded
+     *
+     * @return    simulation time
+     */
+    public int getTime() {
+        return time;
+    }
+
+    /**
+     * Gets slots per time unit
+     *
+     * @return    slots per time unit
+     */
+    public int getSlots() {
+        return Math.max(1, timesfaster);
+    }
+
+    /**
+     * Gets real time between slots
+     *
+     * @return    nanoseconds between slots
+     */
+    public long getSlotDelay() {
+        return rate * 1000000L / getSlots();
+    }
+
+    /**
+     * Sets rate, next slot is paced with it
+     *
+     * @param rate real milliseconds per time unit
+     */
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * Simulation events target
+     */
+    public interface Target {
+        /**
+         * Forwards a time event: subtimer event or timer event once main timing has been increased
+         *
+         * @param timer   timer event, otherwise subtimer event
+         * @param publish a frame may be published
+         * @return    simulation has ended or failed
+         */
+        boolean forwardEvent(boolean timer, boolean publish);
+    }
+}
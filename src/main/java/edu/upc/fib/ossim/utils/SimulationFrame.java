@@ -0,0 +1,90 @@
+package edu.upc.fib.ossim.utils;
+
+import java.io.*;
+
+/**
+ * Simulation frame, immutable state published by simulation thread every time it forwards time.
+ * A frame holds a deep copy of simulated model, painters and information read it while simulation thread
+ * keeps forwarding time on its own model. Frames ending simulation or reporting an error hold no copy,
+ * simulation thread halts and simulated model is shown again
+ *
+ * @author Alex Macia
+ * @see SimulationThread
+ */
+public class SimulationFrame {
+    private final int time;
+    private final Object model;    // Model copy, null if none
+    private final boolean end;    // Simulation has ended
+    private final Exception error;    // Error forwarding time, null if none
+
+    /**
+     * Constructs a frame
+     *
+     * @param time  simulation time
+     * @param model model copy, may be null
+     * @param end   simulation has ended
+     * @param error error forwarding time, may be null
+     */
+    public SimulationFrame(int time, Object model, boolean end, Exception error) {
+        this.time = time;
+        this.model = model;
+        this.end = end;
+        this.error = error;
+    }
+
+    /**
+     * Returns a deep copy of a model, serializing it
+     *
+     * @param model model, may be null
+     * @return    model copy, null if model is null
+     */
+    public static Object copy(Serializable model) {
+        if (model == null) return null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(model);
+            out.close();
+            ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gets simulation time
+     *
+     * @return    simulation time
+     */
+    public int getTime() {
+        return time;
+    }
+
+    /**
+     * Gets model copy
+     *
+     * @return    model copy, null if none
+     */
+    public Object getModel() {
+        return model;
+    }
+
+    /**
+     * Returns true if simulation has ended
+     *
+     * @return    simulation has ended
+     */
+    public boolean isEnd() {
+        return end;
+    }
+
+    /**
+     * Gets error forwarding time
+     *
+     * @return    error, null if none
+     */
+    public Exception getError() {
+        return error;
+    }
+}
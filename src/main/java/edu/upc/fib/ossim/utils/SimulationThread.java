@@ -0,0 +1,132 @@
+package edu.upc.fib.ossim.utils;
+
+import edu.upc.fib.ossim.template.Presenter;
+
+/**
+ * Simulation thread, forwards simulation clock out of the event dispatch thread while simulation runs.
+ * Clock decides events forwarded every slot and their order, the thread only paces slots: every slot lasts
+ * clock's slot delay. Presenter publishes a frame after every event, the thread halts when simulation ends or fails.
+ * Pausing waits for the event being forwarded, so simulated model is never shared while it runs.
+ * In turbo mode events are forwarded without waiting, as fast as model runs, and frames are published
+ * at most <code>FRAME_RATE</code> times per second
+ *
+ * @author Alex Macia
+ * @see TimerPanel
+ * @see SimulationClock
+ * @see Presenter#forwardEvent(boolean, boolean)
+ */
+public class SimulationThread extends Thread {
+    public static final int FRAME_RATE = 30;    // Frames per second in turbo mode
+    private static final long FRAME_PERIOD = 1000000000L / FRAME_RATE;    // Nanoseconds
+    private static final long SECOND = 1000000000L;    // Nanoseconds
+    private final Presenter presenter;
+    private final SimulationClock clock;
+    private final Object lock;
+    private volatile boolean running;
+    private volatile boolean turbo;
+    private volatile int timesPerSecond;    // Time units per second achieved, last second
+
+    /**
+     * Constructs a simulation thread, it forwards time once started
+     *
+     * @param presenter event manager
+     * @param clock     simulation clock
+     */
+    public SimulationThread(Presenter presenter, SimulationClock clock) {
+        super("simulation");
+        this.presenter = presenter;
+        this.clock = clock;
+        lock = new Object();
+        running = true;
+        setDaemon(true);
+    }
+
+    /**
+     * Forwards time until halted
+     */
+    public void run() {
+        long next = System.nanoTime();
+        long frame = next;    // Last frame published
+        long second = next;    // Current second start
+        int times = clock.getTime();    // Time at current second start
+        while (running) {
+            long delay = turbo ? 0 : clock.getSlotDelay();
+            long now = System.nanoTime();
+            next = Math.max(next + delay, now); // Events are not queued when forwarding is late
+            if (!turbo) synchronized (lock) {
+                long wait = next - now;
+                try {
+                    while (running && !turbo && wait > 0) {
+                        lock.wait(wait / 1000000, (int) (wait % 1000000));
+                        wait = next - System.nanoTime();
+                    }
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+            }
+            if (!running) break;
+
+            // Every event is published unless turbo mode frame is not due yet
+            now = System.nanoTime();
+            boolean publish = !turbo || now - frame >= FRAME_PERIOD;
+            if (publish) frame = now;
+            if (clock.forwardSlot(presenter, publish)) running = false;
+
+            if (now - second >= SECOND) {
+                timesPerSecond = (int) ((clock.getTime() - times) * SECOND / (now - second));
+                second = now;
+                times = clock.getTime();
+            }
+        }
+    }
+
+    /**
+     * Halts simulation, waits for the event being forwarded
+     */
+    public void halt() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+        if (Thread.currentThread() == this) return;
+        boolean interrupted = false;
+        while (isAlive()) {
+            try {
+                join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Sets turbo mode, events are forwarded as fast as possible
+     *
+     * @param turbo turbo mode
+     */
+    public void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Gets time units forwarded per second, measured over last second
+     *
+     * @return    time units per second
+     */
+    public int getTimesPerSecond() {
+        return timesPerSecond;
+    }
+
+    /**
+     * Is simulation thread forwarding time
+     *
+     * @return    forwarding time
+     */
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -9,7 +9,10 @@ import java.awt.*;
 /**
  * This panel manage simulations timing, controls: play, pause and stop, shows time and
  * rate controller.
- * It includes a main timer that generate time events and optionally a second timer (subtimer) faster
+ * It includes a main timer that generate time events and optionally a second timer (subtimer) faster.
+ * Time is kept by a simulation clock and forwarded by a simulation thread while simulation runs or by steps,
+ * time label shows last frame's time.
+ * In turbo mode time is forwarded as fast as possible, ignoring rate, and achieved time units per second are shown
  *
  * @author Alex Macia
  */
@@ -24,11 +27,13 @@ public class TimerPanel extends JPanel {
     private JButton step;
     private JButton pause;
     private JButton stop;
+    private JToggleButton turbo;
     private JLabel ltime;
-    private final Timer timer;
-    private Timer subtimer;
+    private JLabel lrate;    // Time units per second in turbo mode
+    private SimulationThread thread;    // Null if simulation doesn't run
     private JSlider velocity;
-    private int time;
+    private final SimulationClock clock;    // Simulation time, survives pauses
+    private int shownTime;    // Time shown by label and painters
     private int timesfaster; // Times faster second timer
     private int rate;
     private final Presenter presenter;
@@ -43,10 +48,7 @@ public class TimerPanel extends JPanel {
         super();
         this.presenter = presenter;
         this.rate = rate;
-        time = 0;
-        timer = new Timer(rate, presenter);
-        timer.setActionCommand("timer");
-        timer.stop();
+        clock = new SimulationClock(rate, 0);
         init();
     }
 
@@ -62,13 +64,7 @@ public class TimerPanel extends JPanel {
         this.presenter = presenter;
         this.rate = rate;
         this.timesfaster = timesfaster;
-        time = 0;
-        timer = new Timer(rate, presenter);
-        timer.setActionCommand("timer");
-        timer.stop();
-        subtimer = new Timer(rate / timesfaster, presenter);
-        subtimer.setActionCommand("subtimer");
-        subtimer.stop();
+        clock = new SimulationClock(rate, timesfaster);
         init();
     }
 
@@ -101,6 +97,14 @@ public class TimerPanel extends JPanel {
         stop.addActionListener(presenter);
         this.add(stop);
 
+        turbo = new JToggleButton(">>");
+        turbo.setPreferredSize(new Dimension(45, 30));
+        turbo.setMargin(new Insets(0, 0, 0, 0));
+        turbo.setActionCommand("turbo");
+        turbo.setToolTipText(Translation.getInstance().getLabel("all_47"));
+        turbo.addActionListener(presenter);
+        this.add(turbo);
+
         velocity = new JSlider(RATE_MIN, RATE_MAX, rate);
         velocity.setPreferredSize(new Dimension(100, 30));
         velocity.setMinorTickSpacing(INC);
@@ -116,42 +120,66 @@ public class TimerPanel extends JPanel {
 
         ltime = new JLabel(Translation.getInstance().getLabel("all_45") + " 0 " + Translation.getInstance().getLabel("all_46"));
         this.add(ltime);
+
+        lrate = new JLabel();
+        this.add(lrate);
     }
 
     /**
-     * Starts timer and optionally second timer, disable velocity control
+     * Starts simulation thread forwarding timer and optionally second timer, disable velocity control
      */
     public void play() {
         velocity.setEnabled(false);
-        timer.start();
-        if (subtimer != null) subtimer.start();
+        if (thread == null) {
+            // Event dispatch thread reads a model copy from now on, never the model simulation thread forwards
+            presenter.showModel(SimulationFrame.copy(presenter.getModel()));
+            thread = new SimulationThread(presenter, clock);
+            thread.setTurbo(turbo.isSelected());
+            thread.start();
+        }
     }
 
     /**
-     * Stops timer and optionally second timer, restarts time parameters and enables velocity control
+     * Stops simulation thread, returns clock to time 0 and enables velocity control
      */
     public void stop() {
-        timer.stop();
-        if (subtimer != null) subtimer.stop();
-        time = 0;
-        ltime.setText(Translation.getInstance().getLabel("all_45") + " " + this.time + " " + Translation.getInstance().getLabel("all_46"));
+        pause();
+        clock.reset();
+        showTime(clock.getTime());
         velocity.setEnabled(true);
     }
 
     /**
-     * Pause timer and optionally second timer
+     * Pause simulation thread, waits for the event being forwarded and shows simulated model again
      */
     public void pause() {
-        timer.stop();
-        if (subtimer != null) subtimer.stop();
+        if (thread != null) {
+            thread.halt();
+            thread = null;
+            presenter.simulationHalted();
+        }
+        showTime(clock.getTime());
     }
 
     /**
-     * Timer event, increase main timing
+     * Turbo event, switches turbo mode following turbo button
      */
-    public void timer() {
-        time++;
-        ltime.setText(Translation.getInstance().getLabel("all_45") + " " + this.time + " " + Translation.getInstance().getLabel("all_46"));
+    public void turbo() {
+        if (thread != null) thread.setTurbo(turbo.isSelected());
+        showTime(shownTime);
+    }
+
+    /**
+     * Shows a time, the time of last frame shown while simulation runs
+     *
+     * @param time shown time
+     */
+    public void showTime(int time) {
+        shownTime = time;
+        ltime.setText(Translation.getInstance().getLabel("all_45") + " " + shownTime + " " + Translation.getInstance().getLabel("all_46"));
+        if (thread != null && turbo.isSelected())
+            lrate.setText(" " + Translation.getInstance().getLabel("all_48", thread.getTimesPerSecond()));
+        else lrate.setText("");
     }
 
     /**
@@ -160,7 +188,25 @@ public class TimerPanel extends JPanel {
      * @return main time
      */
     public int getTime() {
-        return this.time;
+        return clock.getTime();
+    }
+
+    /**
+     * Getter of simulation clock, steps forward time with it
+     *
+     * @return simulation clock
+     */
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Getter of shown time, the time of last frame shown while simulation runs, otherwise main time
+     *
+     * @return shown time
+     */
+    public int getShownTime() {
+        return shownTime;
     }
 
     /**
@@ -178,7 +224,7 @@ public class TimerPanel extends JPanel {
      * @return simulation is running
      */
     public boolean isRunning() {
-        return timer.isRunning();
+        return thread != null;
     }
 
     /**
@@ -188,8 +234,7 @@ public class TimerPanel extends JPanel {
      */
     public void setDelay(int rate) {
         this.rate = rate;
-        timer.setDelay(rate);
-        if (subtimer != null) subtimer.setDelay(rate / timesfaster);
+        clock.setRate(rate);
     }
 
     /**
@@ -200,7 +245,8 @@ public class TimerPanel extends JPanel {
         step.setToolTipText(Translation.getInstance().getLabel("all_41"));
         pause.setToolTipText(Translation.getInstance().getLabel("all_42"));
         stop.setToolTipText(Translation.getInstance().getLabel("all_43"));
+        turbo.setToolTipText(Translation.getInstance().getLabel("all_47"));
         velocity.setToolTipText(Translation.getInstance().getLabel("all_44"));
-        ltime.setText(Translation.getInstance().getLabel("all_45") + " " + this.time + " " + Translation.getInstance().getLabel("all_46"));
+        showTime(shownTime);
     }
 } 
\ No newline at end of file
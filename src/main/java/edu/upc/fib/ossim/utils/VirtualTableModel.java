@@ -0,0 +1,221 @@
+package edu.upc.fib.ossim.utils;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * Virtual table model, rows are pulled from a row source when the table shows them and only
+ * the latest rows shown are kept. Sorting and filtering keep an index of source rows, never row copies:
+ * rows are sorted by source keys, or by their cells values when source has none,
+ * and filtered by cells values containing filter text
+ *
+ * @author Alex Macia
+ * @see RowSource
+ */
+public class VirtualTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final int CACHE_ROWS = 256;    // Rows kept, about a few screens
+    private final RowSource source;
+    private final Map<Integer, Vector<Object>> cache;    // Rows by source index, least recently used first
+    private Vector<Object> header;
+    private int[] index;    // Source rows shown, null if all rows are shown in source order
+    private int sortColumn = -1;    // -1 if rows are not sorted
+    private boolean ascending = true;
+    private String filter = "";
+
+    /**
+     * Constructs a virtual table model
+     *
+     * @param source rows source
+     * @param header column names
+     */
+    public VirtualTableModel(RowSource source, Vector<Object> header) {
+        this.source = source;
+        this.header = header;
+        cache = new LinkedHashMap<Integer, Vector<Object>>(CACHE_ROWS, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(Map.Entry<Integer, Vector<Object>> eldest) {
+                return size() > CACHE_ROWS;
+            }
+        };
+    }
+
+    /**
+     * Gets number of rows shown
+     *
+     * @return    number of rows shown
+     */
+    public int getRowCount() {
+        if (index == null) return source.getRowCount();
+        return index.length;
+    }
+
+    /**
+     * Gets number of columns
+     *
+     * @return    number of columns
+     */
+    public int getColumnCount() {
+        return header.size();
+    }
+
+    /**
+     * Gets column name
+     *
+     * @param column column index
+     * @return    column name
+     */
+    public String getColumnName(int column) {
+        return String.valueOf(header.get(column));
+    }
+
+    /**
+     * Gets cell value, row is pulled from source if it isn't kept
+     *
+     * @param row    row shown index
+     * @param column column index
+     * @return    cell value, null if row has no such column
+     */
+    public Object getValueAt(int row, int column) {
+        Vector<Object> cells = getRow(getSourceRow(row));
+        if (column >= cells.size()) return null;
+        return cells.get(column);
+    }
+
+    /**
+     * Gets source row shown at a table row
+     *
+     * @param row row shown index
+     * @return    source row index
+     */
+    public int getSourceRow(int row) {
+        if (index == null) return row;
+        return index[row];
+    }
+
+    private Vector<Object> getRow(int row) {
+        Vector<Object> cells = cache.get(row);
+        if (cells == null) {
+            cells = source.getRow(row);
+            cache.put(row, cells);
+        }
+        return cells;
+    }
+
+    /**
+     * Source data has changed, rows are pulled again and index is rebuilt if rows are sorted or filtered
+     */
+    public void refresh() {
+        cache.clear();
+        updateIndex();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Sets column names
+     *
+     * @param header column names
+     */
+    public void setHeader(Vector<Object> header) {
+        this.header = header;
+        fireTableStructureChanged();
+    }
+
+    /**
+     * Sorts rows by a column, sorting again by the same column reverses order
+     *
+     * @param column column index
+     */
+    public void sort(int column) {
+        if (column == sortColumn) ascending = !ascending;
+        else ascending = true;
+        sortColumn = column;
+        updateIndex();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Shows only rows having a cell that contains a text, ignoring case
+     *
+     * @param filter filter text, empty shows all rows
+     */
+    public void setFilter(String filter) {
+        this.filter = filter.trim().toLowerCase();
+        updateIndex();
+        fireTableDataChanged();
+    }
+
+    private void updateIndex() {
+        // Source rows shown, filtered and sorted
+        int rows = source.getRowCount();
+        if (sortColumn < 0 && filter.isEmpty()) {
+            index = null;
+            return;
+        }
+
+        int[] shown = new int[rows];
+        int n = 0;
+        for (int i = 0; i < rows; i++) if (matches(i)) shown[n++] = i;
+        if (sortColumn < 0 || sortColumn >= header.size()) {
+            index = Arrays.copyOf(shown, n);
+            return;
+        }
+
+        // Sort keys are read once, rows are sorted by source index (stable sort)
+        final Object[] keys = new Object[rows];
+        Integer[] sorted = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = shown[i];
+            keys[shown[i]] = getKey(shown[i]);
+        }
+        Comparator<Integer> order = new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return compareKeys(keys[a], keys[b]);
+            }
+        };
+        Arrays.sort(sorted, ascending ? order : order.reversed());
+        index = new int[n];
+        for (int i = 0; i < n; i++) index[i] = sorted[i];
+    }
+
+    private boolean matches(int row) {
+        // Any cell value contains filter text, row isn't kept
+        if (filter.isEmpty()) return true;
+        Vector<Object> cells = cache.containsKey(row) ? cache.get(row) : source.getRow(row);
+        for (int i = 0; i < cells.size(); i++) {
+            if (getText(cells.get(i)).toLowerCase().contains(filter)) return true;
+        }
+        return false;
+    }
+
+    private Object getKey(int row) {
+        // Source key or cell value, numbers are compared as numbers
+        Object key = source.getKey(row, sortColumn);
+        if (key != null) return key;
+        Vector<Object> cells = cache.containsKey(row) ? cache.get(row) : source.getRow(row);
+        String text = sortColumn < cells.size() ? getText(cells.get(sortColumn)) : "";
+        try {
+            return Integer.valueOf(text.trim());
+        } catch (NumberFormatException e) {
+            return text;
+        }
+    }
+
+    private static String getText(Object cell) {
+        if (cell instanceof ColorCell) return ((ColorCell) cell).getValue();
+        return String.valueOf(cell);
+    }
+
+    private static int compareKeys(Object a, Object b) {
+        // Numbers before texts
+        if (a instanceof Integer && b instanceof Integer) return ((Integer) a).compareTo((Integer) b);
+        if (a instanceof Integer) return -1;
+        if (b instanceof Integer) return 1;
+        return String.valueOf(a).compareTo(String.valueOf(b));
+    }
+}